@@ -0,0 +1,116 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import com.hazelcast.config.CacheConfig;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.EvictionConfig.MaxSizePolicy;
+import com.hazelcast.config.EvictionPolicy;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base class of the benchmarks which creates the cache to be measured 
+ * over Hazelcast's JCache implementation. 
+ * 
+ * Every benchmark is measured both in throughput and sample time modes, 
+ * so p50/p99/p999 latencies are reported together with the throughput. 
+ * Hazelcast caches hold at most {@link EvictionConfig#DEFAULT_MAX_ENTRY_COUNT} entries by default, 
+ * so the benchmark caches are configured to hold all the keys and reads are not measured as misses.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public abstract class AbstractCacheBenchmark {
+
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+        // The benchmarks jar also contains Hazelcast's client (for "ClientCacheBenchmark"), 
+        // so Hazelcast would select its client provider unless another one is given
+        if (System.getProperty("hazelcast.jcache.provider.type") == null) {
+            System.setProperty("hazelcast.jcache.provider.type", "server");
+        }
+    }
+    
+    @Param({ "1000", "100000" })
+    protected int keyCount;
+    
+    @Param({ "16", "1024" })
+    protected int valueSize;
+    
+    protected CachingProvider cachingProvider;
+    protected CacheManager cacheManager;
+    protected Cache<Integer, String> cache;
+    protected String value;
+    
+    @Setup
+    public void setup() {
+        cachingProvider = Caching.getCachingProvider();
+        cacheManager = cachingProvider.getCacheManager();
+        cache = cacheManager.createCache(getClass().getSimpleName(), withCapacityForKeys(createCacheConfig()));
+        value = createValue(valueSize);
+        populate();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    protected abstract CompleteConfiguration<Integer, String> createCacheConfig();
+    
+    /**
+     * Gets a Hazelcast cache configuration of the given one with a max size big enough for all the keys. 
+     * Max size is estimated per partition by Hazelcast, so it is given with room for uneven partitions.
+     */
+    protected CacheConfig<Integer, String> withCapacityForKeys(CompleteConfiguration<Integer, String> config) {
+        CacheConfig<Integer, String> cacheConfig = new CacheConfig<Integer, String>(config);
+        cacheConfig.setEvictionConfig(
+                new EvictionConfig(Math.max(EvictionConfig.DEFAULT_MAX_ENTRY_COUNT, 2 * keyCount),
+                                   MaxSizePolicy.ENTRY_COUNT,
+                                   EvictionPolicy.LRU));
+        return cacheConfig;
+    }
+    
+    protected void populate() {
+        for (int i = 0; i < keyCount; i++) {
+            cache.put(i, value);
+        }
+    }
+    
+    protected int nextKey() {
+        return ThreadLocalRandom.current().nextInt(keyCount);
+    }
+    
+    protected static String createValue(int size) {
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'v');
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,65 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import ua.com.jday2015.demo.jcache.async.AsyncCache;
+import ua.com.jday2015.demo.jcache.async.DefaultAsyncCache;
+
+/**
+ * Compares getting multiple keys one by one with blocking gets 
+ * and with pipelined asynchronous gets (fan-out).
+ * 
+ * @author Serkan OZAL
+ */
+public class AsyncCacheBenchmark extends AbstractCacheBenchmark {
+
+    @Param({ "32" })
+    private int fanOut;
+    
+    private AsyncCache<Integer, String> asyncCache;
+    
+    @Override
+    public void setup() {
+        super.setup();
+        asyncCache = new DefaultAsyncCache<Integer, String>(cache);
+    }
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class);
+    }
+    
+    private Set<Integer> nextKeys() {
+        Set<Integer> keys = new HashSet<Integer>();
+        while (keys.size() < fanOut) {
+            keys.add(nextKey());
+        }
+        return keys;
+    }
+    
+    @Benchmark
+    public int blockingGets() {
+        int found = 0;
+        for (Integer key : nextKeys()) {
+            if (cache.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    @Benchmark
+    public int asyncGets() {
+        Map<Integer, String> values = asyncCache.getAllAsync(nextKeys()).join();
+        return values.size();
+    }
+    
+}
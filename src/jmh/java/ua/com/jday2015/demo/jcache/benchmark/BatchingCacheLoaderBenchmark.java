@@ -0,0 +1,115 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import ua.com.jday2015.demo.jcache.integration.BatchingCacheLoader;
+import ua.com.jday2015.demo.jcache.integration.BatchingCacheLoaderFactory;
+
+/**
+ * Compares read-through over plain cache loader and {@link BatchingCacheLoader}
+ * where every back-end call costs "backendLatencyMicros". 
+ * Run with multiple threads (see {@link JCacheBenchmarkRunner}) to see the coalescing effect.
+ * Number of back-end calls per "get" is printed at the end of each trial.
+ * 
+ * @author Serkan OZAL
+ */
+public class BatchingCacheLoaderBenchmark extends AbstractCacheBenchmark {
+
+    private static final AtomicLong BACKEND_CALL_COUNT = new AtomicLong();
+    private static final AtomicLong GET_COUNT = new AtomicLong();
+    private static volatile long backendLatencyNanos;
+    
+    @Param({ "plain", "batching" })
+    private String loaderType;
+    
+    @Param({ "500" })
+    private long backendLatencyMicros;
+    
+    @Override
+    public void setup() {
+        backendLatencyNanos = TimeUnit.MICROSECONDS.toNanos(backendLatencyMicros);
+        BACKEND_CALL_COUNT.set(0);
+        GET_COUNT.set(0);
+        super.setup();
+    }
+    
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        System.out.println("\nBack-end calls per get (" + loaderType + "): " 
+                           + ((double) BACKEND_CALL_COUNT.get() / Math.max(1, GET_COUNT.get())));
+    }
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        Factory<SlowBackendCacheLoader> loaderFactory = FactoryBuilder.factoryOf(SlowBackendCacheLoader.class);
+        return new MutableConfiguration<Integer, String>()
+                        .setReadThrough(true)
+                        .setCacheLoaderFactory(
+                                "batching".equals(loaderType) 
+                                        ? new BatchingCacheLoaderFactory<Integer, String>(loaderFactory) 
+                                        : loaderFactory)
+                        // Loaded entries are expired immediately (so they are not stored at all), 
+                        // therefore every "get" is a miss and goes through the cache loader.
+                        .setExpiryPolicyFactory(
+                                FactoryBuilder.factoryOf(new CreatedExpiryPolicy(Duration.ZERO)))
+                        .setTypes(Integer.class, String.class); 
+    }
+    
+    @Override
+    protected void populate() {
+        // Nothing to populate, all entries are served from the back-end
+    }
+    
+    @Benchmark
+    public String readThroughGet() {
+        GET_COUNT.incrementAndGet();
+        return cache.get(nextKey());
+    }
+    
+    @SuppressWarnings("serial")
+    public static class SlowBackendCacheLoader 
+            implements CacheLoader<Integer, String>, Serializable {
+
+        @Override
+        public String load(Integer key) throws CacheLoaderException {
+            callBackend();
+            return "Value-" + key;
+        }
+
+        @Override
+        public Map<Integer, String> loadAll(Iterable<? extends Integer> keys)
+                throws CacheLoaderException {
+            callBackend();
+            Map<Integer, String> loadedKeyAndValues = new HashMap<Integer, String>();
+            for (Integer key : keys) {
+                loadedKeyAndValues.put(key, "Value-" + key);
+            }
+            return loadedKeyAndValues;
+        }
+        
+        private void callBackend() {
+            BACKEND_CALL_COUNT.incrementAndGet();
+            LockSupport.parkNanos(backendLatencyNanos);
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ua.com.jday2015.demo.jcache.CacheEntryListenerDemo;
+import ua.com.jday2015.demo.jcache.CacheEntryListenerDemo.DemoCacheEntryListenerConfiguration;
+
+/**
+ * Measures cache mutations with synchronous listener dispatch 
+ * as it is configured by {@link CacheEntryListenerDemo}.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheEntryListenerBenchmark extends AbstractCacheBenchmark {
+
+    private PrintStream originalOut;
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>()
+                        .addCacheEntryListenerConfiguration(new DemoCacheEntryListenerConfiguration())
+                        .setTypes(Integer.class, String.class); 
+    }
+    
+    @Override
+    public void setup() {
+        // "DemoCacheEntryListener" prints every event, 
+        // so discard them to measure dispatching instead of console I/O.
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        super.setup();
+    }
+    
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        System.setOut(originalOut);
+    }
+    
+    @Benchmark
+    public void putWithListener() {
+        // Triggers "UPDATED" event since all keys are populated
+        cache.put(nextKey(), value);
+    }
+    
+    @Benchmark
+    public boolean removeWithListener() {
+        // Triggers "UPDATED" and "REMOVED" events. 
+        // Subtract "putWithListener" score to isolate "remove".
+        int key = nextKey();
+        cache.put(key, value);
+        return cache.remove(key);
+    }
+
+}
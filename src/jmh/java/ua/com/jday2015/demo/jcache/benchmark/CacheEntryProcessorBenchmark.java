@@ -0,0 +1,36 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ua.com.jday2015.demo.jcache.CacheEntryProcessorDemo;
+import ua.com.jday2015.demo.jcache.CacheEntryProcessorDemo.DemoCacheEntryProcessor;
+
+/**
+ * Measures entry processor invocation as it is used by {@link CacheEntryProcessorDemo}.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheEntryProcessorBenchmark extends AbstractCacheBenchmark {
+
+    private final DemoCacheEntryProcessor entryProcessor = new DemoCacheEntryProcessor();
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>()
+                        .setTypes(Integer.class, String.class); 
+    }
+    
+    @Benchmark
+    public String invoke() {
+        // "DemoCacheEntryProcessor" appends to the existing value, 
+        // so reset the value before every invocation to keep value size stable. 
+        // Subtract "CacheOperationsBenchmark.put" score to isolate "invoke".
+        int key = nextKey();
+        cache.put(key, value);
+        return cache.invoke(key, entryProcessor);
+    }
+
+}
@@ -0,0 +1,52 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ua.com.jday2015.demo.jcache.CacheLoaderWriterDemo;
+import ua.com.jday2015.demo.jcache.CacheLoaderWriterDemo.DemoCacheLoader;
+import ua.com.jday2015.demo.jcache.CacheLoaderWriterDemo.DemoCacheWriter;
+
+/**
+ * Measures read-through and write-through operations 
+ * over the loader and writer used by {@link CacheLoaderWriterDemo}.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheLoaderWriterBenchmark extends AbstractCacheBenchmark {
+
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>()
+                        .setReadThrough(true)
+                        .setCacheLoaderFactory(FactoryBuilder.factoryOf(DemoCacheLoader.class))
+                        .setWriteThrough(true)
+                        .setCacheWriterFactory(FactoryBuilder.factoryOf(DemoCacheWriter.class))
+                        // Loaded entries are expired immediately (so they are not stored at all), 
+                        // therefore every "get" is a miss and goes through the cache loader.
+                        .setExpiryPolicyFactory(
+                                FactoryBuilder.factoryOf(new CreatedExpiryPolicy(Duration.ZERO)))
+                        .setTypes(Integer.class, String.class); 
+    }
+    
+    @Override
+    protected void populate() {
+        // Nothing to populate, all entries are served from the back-end
+    }
+    
+    @Benchmark
+    public String readThroughGet() {
+        return cache.get(nextKey());
+    }
+    
+    @Benchmark
+    public void writeThroughPut() {
+        cache.put(nextKey(), value);
+    }
+
+}
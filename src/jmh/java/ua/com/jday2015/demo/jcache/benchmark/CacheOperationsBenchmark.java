@@ -0,0 +1,62 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.Iterator;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ua.com.jday2015.demo.jcache.CacheOperationsDemo;
+
+/**
+ * Measures the basic cache operations used by {@link CacheOperationsDemo} 
+ * such as put, get, replace, remove and iterate.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheOperationsBenchmark extends AbstractCacheBenchmark {
+
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>()
+                        .setTypes(Integer.class, String.class); 
+    }
+    
+    @Benchmark
+    public void put() {
+        cache.put(nextKey(), value);
+    }
+    
+    @Benchmark
+    public String get() {
+        return cache.get(nextKey());
+    }
+    
+    @Benchmark
+    public boolean replace() {
+        return cache.replace(nextKey(), value);
+    }
+    
+    @Benchmark
+    public boolean remove() {
+        // Put the entry back, otherwise all the subsequent removes 
+        // would be measured on absent keys. Subtract "put" score to isolate "remove".
+        int key = nextKey();
+        cache.put(key, value);
+        return cache.remove(key);
+    }
+    
+    @Benchmark
+    public void iterator(Blackhole blackhole) {
+        Iterator<Cache.Entry<Integer, String>> iter = cache.iterator();
+        while (iter.hasNext()) {
+            Cache.Entry<Integer, String> entry = iter.next();
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+}
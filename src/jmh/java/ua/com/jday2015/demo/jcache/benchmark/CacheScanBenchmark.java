@@ -0,0 +1,68 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import ua.com.jday2015.demo.jcache.scan.CacheScanner;
+import ua.com.jday2015.demo.jcache.scan.ScanPredicate;
+
+/**
+ * Compares filtering all entries of the cache over its iterator 
+ * and over sequential and parallel partition scans with predicate pushdown.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheScanBenchmark extends AbstractCacheBenchmark {
+
+    @Param({ "100" })
+    private int pageSize;
+    
+    private CacheScanner<Integer, String> scanner;
+    
+    @Override
+    public void setup() {
+        super.setup();
+        scanner = new CacheScanner<Integer, String>(cache).setPageSize(pageSize);
+    }
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class);
+    }
+    
+    @Benchmark
+    public long iterator() {
+        long count = 0;
+        for (Cache.Entry<Integer, String> entry : cache) {
+            if (entry.getKey() % 100 == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public long scan() {
+        return scanner.stream(new DivisibleKeyPredicate()).count();
+    }
+    
+    @Benchmark
+    public long parallelScan() {
+        return scanner.stream(new DivisibleKeyPredicate()).parallel().count();
+    }
+    
+    @SuppressWarnings("serial")
+    private static class DivisibleKeyPredicate implements ScanPredicate<Integer, String> {
+
+        @Override
+        public boolean test(Integer key, String value) {
+            return key % 100 == 0;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,101 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.async.AsyncCache;
+import ua.com.jday2015.demo.jcache.client.CacheClient;
+import ua.com.jday2015.demo.jcache.client.CacheClientConfig;
+import ua.com.jday2015.demo.jcache.client.LocalCluster;
+
+/**
+ * Measures gets of a client from a cluster of two member JVMs, 
+ * one by one and pipelined in batches of {@link #BATCH_SIZE} requests.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class ClientCacheBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    @Param({ "1000" })
+    private int keyCount;
+    
+    @Param({ "true", "false" })
+    private boolean smartRouting;
+    
+    private LocalCluster cluster;
+    private CacheClient cacheClient;
+    private Cache<Integer, String> cache;
+    private AsyncCache<Integer, String> pipelinedCache;
+    
+    @Setup
+    public void setup() throws IOException {
+        cluster = LocalCluster.start(2);
+        cacheClient = 
+                new CacheClient(
+                        new CacheClientConfig()
+                                .setAddresses(cluster.getAddresses())
+                                .setSmartRouting(smartRouting));
+        cache = cacheClient.getCacheManager()
+                    .createCache(getClass().getSimpleName(), 
+                                 new MutableConfiguration<Integer, String>()
+                                        .setTypes(Integer.class, String.class));
+        for (int i = 0; i < keyCount; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        pipelinedCache = cacheClient.pipeline(cache);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        cacheClient.close();
+        cluster.close();
+    }
+    
+    @Benchmark
+    public String get() {
+        return cache.get(ThreadLocalRandom.current().nextInt(keyCount));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void pipelinedGet() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            futures[i] = pipelinedCache.getAsync(random.nextInt(keyCount));
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+    
+}
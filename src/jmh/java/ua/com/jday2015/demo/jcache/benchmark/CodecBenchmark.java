@@ -0,0 +1,91 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.codec.CodecBuffers;
+import ua.com.jday2015.demo.jcache.codec.IntegerCodec;
+import ua.com.jday2015.demo.jcache.codec.SerializableCodec;
+import ua.com.jday2015.demo.jcache.codec.StringCodec;
+import ua.com.jday2015.demo.jcache.codec.Utf8StringCodec;
+import ua.com.jday2015.demo.jcache.codec.VarIntCodec;
+
+/**
+ * Measures serializing and deserializing an <code>Integer</code> key and <code>String</code> value entry 
+ * by compact (varint + UTF-8), fixed width (4 bytes + UTF-16) and Java serialization codecs. 
+ * Encoded bytes per entry of each codec is printed at setup.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({ "compact", "fixed", "serializable" })
+    private String codecs;
+    
+    @Param({ "1000" })
+    private int keyCount;
+    
+    private Codec<Integer> keyCodec;
+    private Codec<String> valueCodec;
+    private Integer key;
+    private String value;
+    private ByteBuffer encodedKey;
+    private ByteBuffer encodedValue;
+    
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() {
+        if ("compact".equals(codecs)) {
+            keyCodec = VarIntCodec.INSTANCE;
+            valueCodec = Utf8StringCodec.INSTANCE;
+        } else if ("fixed".equals(codecs)) {
+            keyCodec = IntegerCodec.INSTANCE;
+            valueCodec = StringCodec.INSTANCE;
+        } else {
+            keyCodec = (Codec<Integer>) (Codec<?>) new SerializableCodec<Object>();
+            valueCodec = (Codec<String>) (Codec<?>) new SerializableCodec<Object>();
+        }
+        key = keyCount - 1;
+        value = "Value-" + key + "-of-the-jday2015-cache";
+        encodedKey = ByteBuffer.wrap(CodecBuffers.toByteArray(keyCodec, key));
+        encodedValue = ByteBuffer.wrap(CodecBuffers.toByteArray(valueCodec, value));
+        System.out.println();
+        System.out.println("Bytes per entry with " + codecs + " codecs: " 
+                           + (encodedKey.capacity() + encodedValue.capacity()));
+    }
+    
+    @Benchmark
+    public int serialize() {
+        return CodecBuffers.encode(keyCodec, key).remaining() 
+               + CodecBuffers.encode(valueCodec, value).remaining();
+    }
+    
+    @Benchmark
+    public void deserialize(Blackhole blackhole) {
+        encodedKey.clear();
+        encodedValue.clear();
+        blackhole.consume(keyCodec.decode(encodedKey));
+        blackhole.consume(valueCodec.decode(encodedValue));
+    }
+    
+}
@@ -0,0 +1,114 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.Iterator;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ua.com.jday2015.demo.jcache.query.AttributeExtractor;
+import ua.com.jday2015.demo.jcache.query.ContinuousQueryCache;
+import ua.com.jday2015.demo.jcache.query.ContinuousQueryConfig;
+import ua.com.jday2015.demo.jcache.scan.ScanPredicate;
+
+/**
+ * Compares finding the entries of a 10% subset of keys (and a single bucket of them) 
+ * by scanning the cache through its iterator 
+ * and by reading them from a {@link ContinuousQueryCache} and its local index.
+ * 
+ * @author Serkan OZAL
+ */
+public class ContinuousQueryCacheBenchmark extends AbstractCacheBenchmark {
+
+    private static final int BUCKET_COUNT = 10;
+    
+    private ContinuousQueryCache<Integer, String> queryCache;
+    private int subsetSize;
+    
+    @Override
+    public void setup() {
+        super.setup();
+        subsetSize = keyCount / 10;
+        queryCache = 
+                new ContinuousQueryCache<Integer, String>(
+                        cache, 
+                        new ContinuousQueryConfig<Integer, String>(new SubsetPredicate(subsetSize))
+                                .addIndex("bucket", new AttributeExtractor<Integer, String>() {
+                                    @Override
+                                    public Object extract(Integer key, String value) {
+                                        return key % BUCKET_COUNT;
+                                    }
+                                }, false));
+    }
+    
+    @Override
+    public void tearDown() {
+        queryCache.close();
+        super.tearDown();
+    }
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class);
+    }
+    
+    @Benchmark
+    public int iteratorScan() {
+        int found = 0;
+        Iterator<Cache.Entry<Integer, String>> iterator = cache.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey() < subsetSize) {
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    @Benchmark
+    public int continuousQuery() {
+        int found = 0;
+        for (Cache.Entry<Integer, String> entry : queryCache) {
+            if (entry.getValue() != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    @Benchmark
+    public int iteratorScanBucket() {
+        int found = 0;
+        Iterator<Cache.Entry<Integer, String>> iterator = cache.iterator();
+        while (iterator.hasNext()) {
+            Integer key = iterator.next().getKey();
+            if (key < subsetSize && key % BUCKET_COUNT == 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    @Benchmark
+    public int continuousQueryIndexedBucket() {
+        return queryCache.find("bucket", 0).size();
+    }
+    
+    @SuppressWarnings("serial")
+    private static class SubsetPredicate implements ScanPredicate<Integer, String> {
+        
+        private final int subsetSize;
+        
+        private SubsetPredicate(int subsetSize) {
+            this.subsetSize = subsetSize;
+        }
+        
+        @Override
+        public boolean test(Integer key, String value) {
+            return key < subsetSize;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,121 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.eviction.EvictionPolicy;
+import ua.com.jday2015.demo.jcache.eviction.EvictionPolicyType;
+
+/**
+ * Replays a Zipfian access trace on the {@link EvictionPolicy} types. 
+ * Scores are the costs of a cache access (including eviction on miss) 
+ * and the hit ratio of every policy is printed at the end of the trial. 
+ * Every 16th segment of the trace is a scan of never repeated keys, 
+ * which recency based policies can't resist.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class EvictionPolicyBenchmark {
+
+    private static final int TRACE_SIZE = 1 << 22;
+    private static final int TRACE_MASK = TRACE_SIZE - 1;
+    private static final int SCAN_SEGMENT_SIZE = 1 << 12;
+    private static final int KEY_SPACE = 1000000;
+    
+    @Param({ "LRU", "LFU", "W_TINY_LFU" })
+    private EvictionPolicyType policyType;
+    
+    @Param({ "1000", "10000" })
+    private int maxSize;
+    
+    @Param({ "0.8", "1.0" })
+    private double skew;
+    
+    private EvictionPolicy<Integer> policy;
+    private Integer[] trace;
+    private int position;
+    private long hits;
+    private long misses;
+    private final List<Integer> evictedKeys = new ArrayList<Integer>();
+    
+    @Setup
+    public void setup() {
+        policy = policyType.create(maxSize);
+        trace = createTrace(skew);
+    }
+    
+    private static Integer[] createTrace(double skew) {
+        // Cumulative probabilities of the ranks
+        double[] cdf = new double[KEY_SPACE];
+        double sum = 0.0;
+        for (int rank = 0; rank < KEY_SPACE; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, skew);
+            cdf[rank] = sum;
+        }
+        Random random = new Random(1);
+        Integer[] trace = new Integer[TRACE_SIZE];
+        int scanKey = KEY_SPACE;
+        for (int i = 0; i < TRACE_SIZE; i++) {
+            if ((i / SCAN_SEGMENT_SIZE) % 16 == 15) {
+                trace[i] = scanKey++;
+                continue;
+            }
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = KEY_SPACE - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cdf[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            trace[i] = low;
+        }
+        return trace;
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.println("\nHit ratio (" + policyType + ", maxSize=" + maxSize + ", skew=" + skew + "): " 
+                           + String.format("%.2f%%", (100.0 * hits) / (hits + misses)));
+    }
+    
+    @Benchmark
+    public boolean access() {
+        Integer key = trace[position++ & TRACE_MASK];
+        if (policy.contains(key)) {
+            policy.recordAccess(key);
+            hits++;
+            return true;
+        }
+        misses++;
+        policy.recordWrite(key, 1);
+        policy.evict(evictedKeys);
+        evictedKeys.clear();
+        return false;
+    }
+    
+}
@@ -0,0 +1,76 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.expiry.ExpirationEngine;
+import ua.com.jday2015.demo.jcache.expiry.ExpirationHandler;
+
+/**
+ * Measures scheduling keys on {@link ExpirationEngine} while it expires keys in background. 
+ * Cost per schedule is expected to be independent of the number of scheduled keys.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class ExpirationEngineBenchmark {
+
+    @Param({ "100000", "10000000" })
+    private int keyCount;
+    
+    private ExpirationEngine<Integer> expirationEngine;
+    private Integer[] keys;
+    
+    @Setup
+    public void setup() {
+        expirationEngine = 
+                new ExpirationEngine<Integer>(
+                        new ExpirationHandler<Integer>() {
+                            @Override
+                            public void onExpired(List<Integer> expiredKeys) {
+                            }
+                        }, 
+                        ExpirationEngine.DEFAULT_TICK_MILLIS, ExpirationEngine.DEFAULT_MAX_BATCH_SIZE);
+        keys = new Integer[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = i;
+            expirationEngine.schedule(keys[i], nextTtlMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        expirationEngine.close();
+    }
+    
+    private static long nextTtlMillis() {
+        // Short TTLs between 100 milliseconds and 10 seconds
+        return 100 + ThreadLocalRandom.current().nextInt(10000);
+    }
+    
+    @Benchmark
+    public void schedule() {
+        expirationEngine.schedule(keys[ThreadLocalRandom.current().nextInt(keyCount)], 
+                                  nextTtlMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+}
@@ -0,0 +1,98 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.intkey.IntEntryProcessor;
+import ua.com.jday2015.demo.jcache.intkey.IntKeyCache;
+import ua.com.jday2015.demo.jcache.intkey.IntMutableEntry;
+
+/**
+ * Compares {@link IntKeyCache} with a boxed integer keyed map. 
+ * Run with "-prof gc" to see allocation per operation ("gc.alloc.rate.norm"), 
+ * which is expected to be zero for {@link IntKeyCache} get and put operations. 
+ * Invoke creates an entry per invocation, which is allocated unless it is eliminated by escape analysis. 
+ * Keys start from 1000, so they are not served from the {@link Integer} cache when boxed.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class IntKeyCacheBenchmark {
+
+    private static final int KEY_BASE = 1000;
+    
+    @Param({ "1000", "100000" })
+    private int keyCount;
+    
+    private IntKeyCache<String> intKeyCache;
+    private Map<Integer, String> boxedKeyMap;
+    private String value;
+    private final IntEntryProcessor<String, String> entryProcessor = new IntEntryProcessor<String, String>() {
+        @Override
+        public String process(IntMutableEntry<String> entry, Object... arguments) {
+            String current = entry.getValue();
+            entry.setValue(value);
+            return current;
+        }
+    };
+    
+    @Setup
+    public void setup() {
+        intKeyCache = new IntKeyCache<String>("jday2015", String.class);
+        boxedKeyMap = new ConcurrentHashMap<Integer, String>();
+        value = AbstractCacheBenchmark.createValue(16);
+        for (int i = 0; i < keyCount; i++) {
+            intKeyCache.put(KEY_BASE + i, value);
+            boxedKeyMap.put(KEY_BASE + i, value);
+        }
+    }
+    
+    private int nextKey() {
+        return KEY_BASE + ThreadLocalRandom.current().nextInt(keyCount);
+    }
+    
+    @Benchmark
+    public String intKeyGet() {
+        return intKeyCache.get(nextKey());
+    }
+    
+    @Benchmark
+    public void intKeyPut() {
+        intKeyCache.put(nextKey(), value);
+    }
+    
+    @Benchmark
+    public String intKeyInvoke() {
+        return intKeyCache.invoke(nextKey(), entryProcessor);
+    }
+    
+    @Benchmark
+    public String boxedKeyGet() {
+        return boxedKeyMap.get(nextKey());
+    }
+    
+    @Benchmark
+    public void boxedKeyPut() {
+        boxedKeyMap.put(nextKey(), value);
+    }
+
+}
@@ -0,0 +1,34 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks for each of the thread counts given by "threads" system property 
+ * (comma separated, default is "1,4,16"), since thread count cannot be a JMH parameter. 
+ * All the program arguments are passed to JMH as they are.
+ * 
+ * For example:
+ * <pre>
+ *      java -Dthreads=1,8 -jar target/benchmarks.jar CacheOperationsBenchmark -p keyCount=1000
+ * </pre>
+ * 
+ * @author Serkan OZAL
+ */
+public class JCacheBenchmarkRunner {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        for (String threads : System.getProperty("threads", "1,4,16").split(",")) {
+            new Runner(
+                    new OptionsBuilder()
+                        .parent(cmdOptions)
+                        .threads(Integer.parseInt(threads.trim()))
+                        .build()).run();
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.intkey.IntKeyCache;
+import ua.com.jday2015.demo.jcache.metrics.CacheMetrics;
+import ua.com.jday2015.demo.jcache.metrics.MetricsCache;
+
+/**
+ * Measures the overhead of {@link MetricsCache} per operation. 
+ * A local {@link IntKeyCache} is decorated, so the difference between "plain" and "metered" 
+ * operations is not hidden by the cost of the decorated cache.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class MetricsCacheBenchmark {
+
+    @Param({ "1000" })
+    private int keyCount;
+    
+    private IntKeyCache<String> intKeyCache;
+    private Cache<Integer, String> plainCache;
+    private Cache<Integer, String> meteredCache;
+    private String value;
+    
+    @Setup
+    public void setup() {
+        intKeyCache = new IntKeyCache<String>("jday2015", String.class);
+        plainCache = intKeyCache.asCache();
+        meteredCache = new MetricsCache<Integer, String>(plainCache);
+        value = AbstractCacheBenchmark.createValue(16);
+        for (int i = 0; i < keyCount; i++) {
+            intKeyCache.put(i, value);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        CacheMetrics.remove(null, intKeyCache.getName());
+        intKeyCache.close();
+    }
+    
+    private Integer nextKey() {
+        // Keys are in the range of the Integer cache, so boxing doesn't allocate
+        return ThreadLocalRandom.current().nextInt(Math.min(keyCount, 128));
+    }
+    
+    @Benchmark
+    public String plainGet() {
+        return plainCache.get(nextKey());
+    }
+    
+    @Benchmark
+    public String meteredGet() {
+        return meteredCache.get(nextKey());
+    }
+    
+    @Benchmark
+    public void plainPut() {
+        plainCache.put(nextKey(), value);
+    }
+    
+    @Benchmark
+    public void meteredPut() {
+        meteredCache.put(nextKey(), value);
+    }
+    
+}
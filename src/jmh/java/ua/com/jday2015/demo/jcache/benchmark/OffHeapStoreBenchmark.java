@@ -0,0 +1,136 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.codec.IntegerCodec;
+import ua.com.jday2015.demo.jcache.codec.StringCodec;
+import ua.com.jday2015.demo.jcache.offheap.OffHeapStore;
+
+/**
+ * Compares GC cost of keeping entries on-heap (as Hazelcast does) 
+ * and in {@link OffHeapStore}. 
+ * Number and total time of garbage collections during measurement are printed at the end of each trial 
+ * (also run with "-prof gc" for allocation rates).
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g", "-XX:MaxDirectMemorySize=8g" })
+public class OffHeapStoreBenchmark {
+
+    @Param({ "onheap", "offheap" })
+    private String storeType;
+    
+    @Param({ "10000000" })
+    private int entryCount;
+    
+    @Param({ "32" })
+    private int valueSize;
+    
+    private Store store;
+    private long gcCountAtStart;
+    private long gcTimeAtStart;
+    
+    @Setup
+    public void setup() {
+        if ("offheap".equals(storeType)) {
+            final OffHeapStore<Integer, String> offHeapStore = 
+                    new OffHeapStore<Integer, String>(IntegerCodec.INSTANCE, StringCodec.INSTANCE, 
+                                                      64, OffHeapStore.DEFAULT_SLAB_SIZE, entryCount);
+            store = new Store() {
+                @Override
+                public String get(int key) {
+                    return offHeapStore.get(key);
+                }
+                @Override
+                public void put(int key, String value) {
+                    offHeapStore.put(key, value);
+                }
+            };
+        } else {
+            final Map<Integer, String> onHeapStore = new ConcurrentHashMap<Integer, String>(entryCount);
+            store = new Store() {
+                @Override
+                public String get(int key) {
+                    return onHeapStore.get(key);
+                }
+                @Override
+                public void put(int key, String value) {
+                    onHeapStore.put(key, value);
+                }
+            };
+        }
+        for (int i = 0; i < entryCount; i++) {
+            store.put(i, AbstractCacheBenchmark.createValue(valueSize));
+        }
+        System.gc();
+        gcCountAtStart = gcCount();
+        gcTimeAtStart = gcTime();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.println("\nGC during measurement (" + storeType + "): " 
+                           + (gcCount() - gcCountAtStart) + " collections, " 
+                           + (gcTime() - gcTimeAtStart) + " ms");
+        store = null;
+    }
+    
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+    
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += gc.getCollectionTime();
+        }
+        return time;
+    }
+    
+    @Benchmark
+    public String get() {
+        return store.get(ThreadLocalRandom.current().nextInt(entryCount));
+    }
+    
+    @Benchmark
+    public void put() {
+        store.put(ThreadLocalRandom.current().nextInt(entryCount), 
+                  AbstractCacheBenchmark.createValue(valueSize));
+    }
+    
+    private interface Store {
+        
+        String get(int key);
+        
+        void put(int key, String value);
+        
+    }
+
+}
@@ -0,0 +1,89 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
+import javax.cache.spi.CachingProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.embedded.EmbeddedCache;
+import ua.com.jday2015.demo.jcache.embedded.EmbeddedCachingProvider;
+import ua.com.jday2015.demo.jcache.embedded.InvokeMode;
+
+/**
+ * Measures counter increments on a few hot keys of {@link EmbeddedCache} 
+ * with locked and optimistic entry processor execution. 
+ * Run with several thread counts (such as <code>-Dthreads=1,4,16</code>) to see the effect of contention.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class OptimisticInvokeBenchmark {
+
+    @Param({ "LOCKED", "OPTIMISTIC" })
+    private InvokeMode invokeMode;
+    
+    @Param({ "1", "8" })
+    private int hotKeyCount;
+    
+    private CachingProvider cachingProvider;
+    private Cache<Integer, Long> cache;
+    
+    private final EntryProcessor<Integer, Long, Long> incrementProcessor = 
+            new EntryProcessor<Integer, Long, Long>() {
+                @Override
+                public Long process(MutableEntry<Integer, Long> entry, Object... arguments)
+                        throws EntryProcessorException {
+                    Long value = entry.getValue();
+                    long newValue = (value != null ? value : 0L) + 1;
+                    entry.setValue(newValue);
+                    return newValue;
+                }
+            };
+    
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() {
+        cachingProvider = Caching.getCachingProvider(EmbeddedCachingProvider.class.getName());
+        cache = cachingProvider.getCacheManager()
+                    .createCache(getClass().getSimpleName(), 
+                                 new MutableConfiguration<Integer, Long>()
+                                        .setTypes(Integer.class, Long.class));
+        EmbeddedCache<Integer, Long> embeddedCache = cache.unwrap(EmbeddedCache.class);
+        embeddedCache.setInvokeMode(invokeMode);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        cachingProvider.close();
+    }
+    
+    @Benchmark
+    public Long increment() {
+        return cache.invoke(ThreadLocalRandom.current().nextInt(hotKeyCount), incrementProcessor);
+    }
+    
+}
@@ -0,0 +1,66 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import ua.com.jday2015.demo.jcache.tiered.TieredCache;
+import ua.com.jday2015.demo.jcache.tiered.TieredCacheConfig;
+
+/**
+ * Compares getting keys with a skewed access pattern directly from the cache 
+ * and through a {@link TieredCache} where hot keys are served from L1 and warm keys from L2.
+ * 
+ * @author Serkan OZAL
+ */
+public class TieredCacheBenchmark extends AbstractCacheBenchmark {
+
+    @Param({ "80" })
+    private int hotPercentage;
+    
+    private TieredCache<Integer, String> tieredCache;
+    
+    @Override
+    public void setup() {
+        super.setup();
+        tieredCache = 
+                new TieredCache<Integer, String>(
+                        cache, 
+                        new TieredCacheConfig()
+                                .setL1MaxSize(Math.max(1, keyCount / 100))
+                                .setL2MaxSize(Math.max(1, keyCount / 10)));
+    }
+    
+    @Override
+    public void tearDown() {
+        System.out.println();
+        System.out.println(tieredCache.getStatistics());
+        super.tearDown();
+    }
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class);
+    }
+    
+    private int nextSkewedKey() {
+        // Most of the reads are on the hottest 1% of keys, the rest are spread over all keys
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextInt(100) < hotPercentage ? random.nextInt(Math.max(1, keyCount / 100)) : nextKey();
+    }
+    
+    @Benchmark
+    public String get() {
+        return cache.get(nextSkewedKey());
+    }
+    
+    @Benchmark
+    public String tieredGet() {
+        return tieredCache.get(nextSkewedKey());
+    }
+    
+}
@@ -0,0 +1,103 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.cache.Cache;
+import javax.cache.Cache.Entry;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import ua.com.jday2015.demo.jcache.unitofwork.UnitOfWork;
+import ua.com.jday2015.demo.jcache.unitofwork.UnitOfWorkFactory;
+
+/**
+ * Compares writing a batch of related puts through a write-through cache 
+ * and committing them by a {@link UnitOfWork}, 
+ * where every call to the writer costs a simulated back-end round trip.
+ * 
+ * @author Serkan OZAL
+ */
+public class UnitOfWorkBenchmark extends AbstractCacheBenchmark {
+
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    
+    @Param({ "10" })
+    private int batchSize;
+    
+    private Cache<Integer, String> writeThroughCache;
+    private UnitOfWorkFactory unitOfWorkFactory;
+    
+    @Override
+    public void setup() {
+        super.setup();
+        writeThroughCache = 
+                cacheManager.createCache(getClass().getSimpleName() + "-writeThrough", 
+                                         withCapacityForKeys(
+                                                new MutableConfiguration<Integer, String>()
+                                                        .setTypes(Integer.class, String.class)
+                                                        .setWriteThrough(true)
+                                                        .setCacheWriterFactory(
+                                                                FactoryBuilder.factoryOf(
+                                                                        RoundTripCacheWriter.class))));
+        unitOfWorkFactory = new UnitOfWorkFactory().register(cache, new RoundTripCacheWriter());
+    }
+    
+    @Override
+    protected CompleteConfiguration<Integer, String> createCacheConfig() {
+        return new MutableConfiguration<Integer, String>().setTypes(Integer.class, String.class);
+    }
+    
+    @Benchmark
+    public void writeThroughPuts() {
+        int firstKey = nextKey();
+        for (int i = 0; i < batchSize; i++) {
+            writeThroughCache.put(firstKey + i, value);
+        }
+    }
+    
+    @Benchmark
+    public void unitOfWork() {
+        int firstKey = nextKey();
+        UnitOfWork unitOfWork = unitOfWorkFactory.begin();
+        for (int i = 0; i < batchSize; i++) {
+            unitOfWork.put(cache, firstKey + i, value);
+        }
+        unitOfWork.commit();
+    }
+    
+    public static class RoundTripCacheWriter implements CacheWriter<Integer, String> {
+        
+        @Override
+        public void write(Entry<? extends Integer, ? extends String> entry) throws CacheWriterException {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        }
+        
+        @Override
+        public void writeAll(Collection<Entry<? extends Integer, ? extends String>> entries) 
+                throws CacheWriterException {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            entries.clear();
+        }
+        
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        }
+        
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            keys.clear();
+        }
+        
+    }
+    
+}
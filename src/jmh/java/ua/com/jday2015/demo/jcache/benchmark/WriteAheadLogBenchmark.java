@@ -0,0 +1,97 @@
+package ua.com.jday2015.demo.jcache.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache.Entry;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ua.com.jday2015.demo.jcache.codec.IntegerCodec;
+import ua.com.jday2015.demo.jcache.codec.StringCodec;
+import ua.com.jday2015.demo.jcache.wal.WriteAheadLog;
+import ua.com.jday2015.demo.jcache.wal.WriteAheadLogConfig;
+
+/**
+ * Measures durable appends to {@link WriteAheadLog} where every operation waits for its record to be synced. 
+ * Throughput is expected to scale with the thread count since concurrent appends share syncs.
+ * 
+ * @author Serkan OZAL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+    
+    @Param({ "1000" })
+    private int keyCount;
+    
+    private File directory;
+    private WriteAheadLog writeAheadLog;
+    private String value;
+    
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark").toFile();
+        writeAheadLog =
+                WriteAheadLog.open(
+                        new WriteAheadLogConfig(directory)
+                                .setKeyCodec(IntegerCodec.INSTANCE)
+                                .setValueCodec(StringCodec.INSTANCE),
+                        new CacheWriter<Integer, String>() {
+                            @Override
+                            public void write(Entry<? extends Integer, ? extends String> entry) {
+                            }
+                            @Override
+                            public void writeAll(Collection<Entry<? extends Integer, ? extends String>> entries) {
+                            }
+                            @Override
+                            public void delete(Object key) throws CacheWriterException {
+                            }
+                            @Override
+                            public void deleteAll(Collection<?> keys) throws CacheWriterException {
+                            }
+                        });
+        value = new String(new char[64]).replace('\0', 'v');
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        writeAheadLog.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+    
+    @Benchmark
+    public long durableAppend() throws IOException {
+        long lsn = writeAheadLog.appendWrite(ThreadLocalRandom.current().nextInt(keyCount), value);
+        writeAheadLog.sync(lsn);
+        return lsn;
+    }
+    
+}
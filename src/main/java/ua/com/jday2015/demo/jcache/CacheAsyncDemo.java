@@ -0,0 +1,101 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.CacheEntryProcessorDemo.DemoCacheEntryProcessor;
+import ua.com.jday2015.demo.jcache.async.AsyncCache;
+import ua.com.jday2015.demo.jcache.async.DefaultAsyncCache;
+
+/**
+ * Demonstrates issuing cache operations asynchronously, 
+ * so multiple operations are in-flight without blocking the caller.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheAsyncDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        AsyncCache<Integer, String> asyncCache = new DefaultAsyncCache<Integer, String>(cache);
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 50;
+        
+        // Issue all puts at once and then wait for all of them
+        CompletableFuture<?>[] putFutures = new CompletableFuture<?>[ENTRY_COUNT];
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            putFutures[i - 1] = asyncCache.putAsync(i, "Value-" + i);
+        }
+        CompletableFuture.allOf(putFutures).join();
+        System.out.println("Put " + ENTRY_COUNT + " entries asynchronously");
+        
+        Set<Integer> keys = new HashSet<Integer>();
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            keys.add(i);
+        }
+        
+        long start = System.nanoTime();
+        for (Integer key : keys) {
+            cache.get(key);
+        }
+        System.out.println("Get " + ENTRY_COUNT + " entries one by one in " 
+                           + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " microseconds");
+        
+        start = System.nanoTime();
+        Map<Integer, String> values = asyncCache.getAllAsync(keys).join();
+        System.out.println("Get " + values.size() + " entries asynchronously in " 
+                           + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " microseconds");
+        
+        // Compose operations without blocking
+        String result = 
+                asyncCache.invokeAsync(1, new DemoCacheEntryProcessor())
+                        .thenCompose(new Function<String, CompletableFuture<String>>() {
+                            @Override
+                            public CompletableFuture<String> apply(String newValue) {
+                                System.out.println("New value of key \"1\": " + newValue);
+                                return asyncCache.getAndRemoveAsync(1);
+                            }
+                        })
+                        .join();
+        System.out.println("Removed value of key \"1\": " + result);
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,77 @@
+package ua.com.jday2015.demo.jcache;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.CacheEntryListenerDemo.DemoCacheEntryListenerConfiguration;
+import ua.com.jday2015.demo.jcache.event.AsyncCacheEntryListenerConfiguration;
+import ua.com.jday2015.demo.jcache.event.OverflowPolicy;
+
+/**
+ * Demonstrates dispatching cache entry events to listener asynchronously 
+ * so cache mutations don't wait for the listener.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheAsyncEntryListenerDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // Events are buffered and dispatched to the listener by 2 consumer threads. 
+                        // Events of the same key are always dispatched by the same consumer in order.
+                        .addCacheEntryListenerConfiguration(
+                                new AsyncCacheEntryListenerConfiguration<Integer, String>(
+                                        new DemoCacheEntryListenerConfiguration())
+                                    .setConsumerCount(2)
+                                    .setBufferCapacity(1000)
+                                    .setOverflowPolicy(OverflowPolicy.BLOCK))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            // Add a new entry so this will trigger "CREATE" event
+            cache.put(i, "Value-" + i);
+            System.out.println("Put key \"" + i + "\" with value \"Value-" + i + "\"");
+        }
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            // Update an entry so this will trigger "UPDATE" event
+            cache.put(i, "Value-" + (10 * i));
+            System.out.println("Put key \"" + i + "\" with value \"Value-" + (10 * i) + "\"");
+        }
+        
+        // Wait for buffered events to be dispatched
+        Thread.sleep(1000);
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,90 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.CacheEntryProcessorDemo.DemoCacheEntryProcessor;
+import ua.com.jday2015.demo.jcache.processor.BulkEntryProcessorExecutor;
+import ua.com.jday2015.demo.jcache.processor.BulkEntryProcessorExecutor.ResultHandler;
+
+/**
+ * Demonstrates executing cache entry processor on many entries 
+ * in partition based batches in parallel.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheBulkEntryProcessorDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10000;
+        
+        List<Integer> keys = new ArrayList<Integer>(ENTRY_COUNT);
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            cache.put(i, "Value-" + i);
+            keys.add(i);
+        }
+        System.out.println("Put " + ENTRY_COUNT + " entries");
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        
+        // Keys are grouped by their partitions and at most 4 batches are processed at the same time
+        BulkEntryProcessorExecutor<Integer, String> bulkExecutor = 
+                new BulkEntryProcessorExecutor<Integer, String>(cache, executor, 4, 100);
+        
+        final int[] processedCount = new int[1];
+        long start = System.currentTimeMillis();
+        bulkExecutor.invokeAll(keys, new DemoCacheEntryProcessor(), new ResultHandler<Integer, String>() {
+            @Override
+            public void onResult(Integer key, EntryProcessorResult<String> result) {
+                processedCount[0]++;
+                if (key <= 3) {
+                    System.out.println("Invoked entry processor on key " + "\"" + key + "\"" 
+                                       + " and the result is: " + result.get());
+                }
+            }
+        });
+        long finish = System.currentTimeMillis();
+        System.out.println("Processed " + processedCount[0] + " entries in " + (finish - start) + " milliseconds");
+        
+        executor.shutdown();
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,91 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+
+import ua.com.jday2015.demo.jcache.async.AsyncCache;
+import ua.com.jday2015.demo.jcache.client.CacheClient;
+import ua.com.jday2015.demo.jcache.client.CacheClientConfig;
+import ua.com.jday2015.demo.jcache.client.LocalCluster;
+
+/**
+ * Demonstrates using caches of a separately run cluster in client mode. 
+ * A local cluster of two member JVMs stands in for the real cluster.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheClientDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final int ENTRY_COUNT = 2000;
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws IOException {
+        // Start a cluster of two members, each one in its own JVM
+        LocalCluster cluster = LocalCluster.start(2);
+        System.out.println("Cluster members are started at " + cluster.getAddresses());
+        
+        // Connect to the cluster as a client, so this JVM doesn't own any partition
+        CacheClient cacheClient = 
+                new CacheClient(
+                        new CacheClientConfig()
+                                .setAddresses(cluster.getAddresses()));
+        System.out.println("Connected: " + cacheClient);
+        
+        CacheManager cacheManager = cacheClient.getCacheManager();
+        
+        // *************************************************************************** //
+        
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        
+        // Every request is sent directly to the owner member of its key
+        for (int i = 0; i < 3; i++) {
+            cache.put(i, "Value-" + i);
+            System.out.println("Put key \"" + i + "\" to its owner " + cacheClient.getOwner(i) 
+                               + " and get: " + cache.get(i));
+        }
+        
+        // *************************************************************************** //
+        
+        // Each put waits for its response before the next one is sent
+        long start = System.nanoTime();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        System.out.println(ENTRY_COUNT + " puts one by one are done in " 
+                           + (System.nanoTime() - start) / 1000000 + " milliseconds");
+        
+        // Pipelined puts are sent without waiting for the responses of the previous ones
+        AsyncCache<Integer, String> pipelinedCache = cacheClient.pipeline(cache);
+        start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>(ENTRY_COUNT);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            futures.add(pipelinedCache.putAsync(i, "Value-" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).join();
+        System.out.println(ENTRY_COUNT + " pipelined puts are done in " 
+                           + (System.nanoTime() - start) / 1000000 + " milliseconds");
+        System.out.println("Get value with key \"" + (ENTRY_COUNT - 1) + "\": " + cache.get(ENTRY_COUNT - 1));
+        
+        // *************************************************************************** //
+        
+        // Close the client, the cluster keeps the caches since it is run separately. 
+        // Then stop the local cluster.
+        cacheClient.close();
+        cluster.close();
+    }
+
+}
@@ -0,0 +1,164 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.spi.CachingProvider;
+
+import com.hazelcast.cache.HazelcastCachingProvider;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.codec.CodecBuffers;
+import ua.com.jday2015.demo.jcache.codec.CodecRegistry;
+import ua.com.jday2015.demo.jcache.codec.Utf8StringCodec;
+import ua.com.jday2015.demo.jcache.codec.VarIntCodec;
+
+/**
+ * Demonstrates storing cache entries in compact binary form by codecs registered to Hazelcast.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheCodecDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws IOException, URISyntaxException {
+        // Codecs of the key and value types. 
+        // "Employee" is not serializable, so Hazelcast can only store it by its codec.
+        CodecRegistry codecRegistry = 
+                CodecRegistry.withDefaults()
+                        .register(Employee.class, new EmployeeCodec());
+        
+        Config config = new Config();
+        codecRegistry.configure(config.getSerializationConfig());
+        HazelcastInstance hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+        Properties properties = new Properties();
+        properties.put(HazelcastCachingProvider.HAZELCAST_INSTANCE_NAME, hazelcastInstance.getName());
+        
+        // Hazelcast uses the given instance only for the non-default URIs
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager(new URI("codec"), null, properties);
+        
+        // *************************************************************************** //
+        
+        CompleteConfiguration<Integer, Employee> cacheConfig = 
+                new MutableConfiguration<Integer, Employee>()
+                        .setTypes(Integer.class, Employee.class)
+                        // Old values in the events are also transferred in their encoded form
+                        .addCacheEntryListenerConfiguration(
+                                new MutableCacheEntryListenerConfiguration<Integer, Employee>(
+                                        FactoryBuilder.factoryOf(new DemoCacheEntryUpdatedListener()), 
+                                        null, true, true));
+        Cache<Integer, Employee> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        Employee employee = new Employee(1, "Serkan", 1000);
+        Codec<Employee> employeeCodec = codecRegistry.getValueCodec(cacheConfig);
+        System.out.println("Encoded size of " + employee + ": " 
+                           + CodecBuffers.encode(employeeCodec, employee).remaining() + " bytes");
+        System.out.println("Java serialized size of the same fields: " 
+                           + javaSerializedSize(new Object[] { 1, "Serkan", 1000 }) + " bytes");
+        
+        cache.put(1, employee);
+        System.out.println("Put employee with key \"1\": " + employee);
+        
+        // Update an entry so this will trigger "UPDATE" event with the old value
+        cache.put(1, new Employee(1, "Serkan", 2000));
+        System.out.println("Put employee with key \"1\": " + cache.get(1));
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+        hazelcastInstance.shutdown();
+    }
+    
+    private static int javaSerializedSize(Object object) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(object);
+        oos.close();
+        return bos.size();
+    }
+    
+    public static class Employee {
+        
+        private final int id;
+        private final String name;
+        private final int salary;
+        
+        public Employee(int id, String name, int salary) {
+            this.id = id;
+            this.name = name;
+            this.salary = salary;
+        }
+        
+        @Override
+        public String toString() {
+            return "Employee [id=" + id + ", name=" + name + ", salary=" + salary + "]";
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class EmployeeCodec implements Codec<Employee> {
+
+        @Override
+        public void encode(Employee employee, ByteBuffer buffer) {
+            VarIntCodec.writeVarInt(employee.id, buffer);
+            Utf8StringCodec.INSTANCE.encode(employee.name, buffer);
+            VarIntCodec.writeVarInt(employee.salary, buffer);
+        }
+
+        @Override
+        public Employee decode(ByteBuffer buffer) {
+            return new Employee(VarIntCodec.readVarInt(buffer), 
+                                Utf8StringCodec.INSTANCE.decode(buffer), 
+                                VarIntCodec.readVarInt(buffer));
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class DemoCacheEntryUpdatedListener 
+            implements Serializable, CacheEntryUpdatedListener<Integer, Employee> {
+
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends Integer, ? extends Employee>> events)
+                throws CacheEntryListenerException {
+            for (CacheEntryEvent<? extends Integer, ? extends Employee> event : events) {
+                System.out.println("[onUpdated] key: " + event.getKey() + ", " + 
+                                   "value: " + event.getValue() + ", " +
+                                   "old-value: " + event.getOldValue());
+            }
+        }
+        
+    }
+
+}
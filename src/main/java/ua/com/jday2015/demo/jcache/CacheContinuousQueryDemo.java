@@ -0,0 +1,108 @@
+package ua.com.jday2015.demo.jcache;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.query.AttributeExtractor;
+import ua.com.jday2015.demo.jcache.query.ContinuousQueryCache;
+import ua.com.jday2015.demo.jcache.query.ContinuousQueryConfig;
+import ua.com.jday2015.demo.jcache.scan.ScanPredicate;
+
+/**
+ * Demonstrates keeping the open orders of a cache in local memory 
+ * and querying them by local indexes instead of scanning the whole cache.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheContinuousQueryDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final String[] STATUSES = { "NEW", "PAID", "SHIPPED", "CLOSED" };
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // Orders are kept as "<status>:<amount>"
+        final int ENTRY_COUNT = 1000;
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            cache.put(i, STATUSES[i % STATUSES.length] + ":" + (i % 100) * 10);
+        }
+        System.out.println("Put " + ENTRY_COUNT + " orders");
+        
+        // *************************************************************************** //
+        
+        // Predicate is run on the members while loading, so only open orders are transferred
+        ContinuousQueryConfig<Integer, String> queryConfig = 
+                new ContinuousQueryConfig<Integer, String>(
+                        new ScanPredicate<Integer, String>() {
+                            @Override
+                            public boolean test(Integer key, String value) {
+                                return !value.startsWith("CLOSED:");
+                            }
+                        })
+                        .addIndex("status", new AttributeExtractor<Integer, String>() {
+                            @Override
+                            public Object extract(Integer key, String value) {
+                                return value.substring(0, value.indexOf(':'));
+                            }
+                        }, false)
+                        .addIndex("amount", new AttributeExtractor<Integer, String>() {
+                            @Override
+                            public Object extract(Integer key, String value) {
+                                return Integer.parseInt(value.substring(value.indexOf(':') + 1));
+                            }
+                        }, true);
+        ContinuousQueryCache<Integer, String> openOrders = 
+                new ContinuousQueryCache<Integer, String>(cache, queryConfig);
+        System.out.println("Loaded " + openOrders.getLoadedCount() + " open orders");
+        
+        System.out.println("Paid orders                : " + openOrders.find("status", "PAID").size());
+        System.out.println("Orders with amount >= 980  : " + openOrders.findRange("amount", 980, null).keySet());
+        
+        // *************************************************************************** //
+        
+        // Changes on the cache are applied to the local view by the events
+        cache.put(1, "CLOSED:10");
+        cache.put(2000, "NEW:990");
+        cache.remove(3);
+        
+        // Wait for the events
+        Thread.sleep(1000);
+        
+        System.out.println("Order \"1\" is open          : " + openOrders.containsKey(1));
+        System.out.println("Order \"2000\" is open       : " + openOrders.containsKey(2000));
+        System.out.println("Order \"3\" is open          : " + openOrders.containsKey(3));
+        System.out.println("Open orders                : " + openOrders.size());
+        System.out.println("Orders with amount >= 980  : " + openOrders.findRange("amount", 980, null).keySet());
+        System.out.println("Applied events             : " + openOrders.getEventCount());
+        
+        openOrders.close();
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
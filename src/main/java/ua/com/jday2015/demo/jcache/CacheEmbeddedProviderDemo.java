@@ -0,0 +1,75 @@
+package ua.com.jday2015.demo.jcache;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.embedded.EmbeddedCachingProvider;
+
+/**
+ * Demonstrates the lightweight in-process JCache implementation for local caches. 
+ * All the other demos can also be run over it by selecting it with the standard system property: 
+ * <pre>
+ *      -Djavax.cache.spi.CachingProvider=ua.com.jday2015.demo.jcache.embedded.EmbeddedCachingProvider
+ * </pre>
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheEmbeddedProviderDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        // Select the embedded JCache implementation, since Hazelcast's one is also in the classpath. 
+        // Then only the selected one is loaded by the JCache API.
+        System.setProperty("javax.cache.spi.CachingProvider", EmbeddedCachingProvider.class.getName());
+    }
+    
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+        
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        cache.put(1, "Value-1");
+        
+        // There is no cluster member to start, so the cache is ready in milliseconds
+        System.out.println("Cache \"" + CACHE_NAME + "\" is ready after " 
+                           + (System.nanoTime() - start) / 1000000 + " milliseconds: " + cache);
+        
+        // *************************************************************************** //
+        
+        // Entry processor is executed in place under the lock of the key, 
+        // so neither the processor nor the value is serialized
+        String result = 
+                cache.invoke(1, new EntryProcessor<Integer, String, String>() {
+                    @Override
+                    public String process(MutableEntry<Integer, String> entry, Object... arguments)
+                            throws EntryProcessorException {
+                        entry.setValue(entry.getValue() + "-processed");
+                        return entry.getValue();
+                    }
+                });
+        System.out.println("Invoke entry processor on key \"1\" and the result is: " + result);
+        System.out.println("Get value with key \"1\": " + cache.get(1));
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
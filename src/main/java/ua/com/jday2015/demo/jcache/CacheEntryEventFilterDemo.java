@@ -0,0 +1,104 @@
+package ua.com.jday2015.demo.jcache;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.EventType;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.CacheEntryListenerDemo.DemoCacheEntryListener;
+import ua.com.jday2015.demo.jcache.event.EventFilters;
+import ua.com.jday2015.demo.jcache.event.EventFilters.ValuePredicate;
+
+/**
+ * Demonstrates using cache entry event filters 
+ * to be notified only for the interested cache events.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheEntryEventFilterDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+        
+        // Only "UPDATED" events of the keys in [1, 5) 
+        // and "REMOVED" events whose values end with "0" are interested.
+        CacheEntryEventFilter<Integer, String> filter =
+                EventFilters.or(
+                        EventFilters.<Integer, String>and(
+                                EventFilters.<Integer, String>eventTypes(EventType.UPDATED), 
+                                EventFilters.<Integer, String>keyRange(1, 5)),
+                        EventFilters.<Integer, String>and(
+                                EventFilters.<Integer, String>eventTypes(EventType.REMOVED), 
+                                EventFilters.<Integer, String>value(new EndsWithZero())));
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .addCacheEntryListenerConfiguration(
+                                new MutableCacheEntryListenerConfiguration<Integer, String>(
+                                        FactoryBuilder.factoryOf(new DemoCacheEntryListener()), 
+                                        EventFilters.<Integer, String>factoryOf(filter), 
+                                        true, 
+                                        true))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            // Add a new entry so this will trigger "CREATE" event which is filtered
+            cache.put(i, "Value-" + i);
+            System.out.println("Put key \"" + i + "\" with value \"Value-" + i + "\"");
+        }
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            // Update an entry so this will trigger "UPDATE" event which is passed only for keys in [1, 5)
+            cache.put(i, "Value-" + (10 * i));
+            System.out.println("Put key \"" + i + "\" with value \"Value-" + (10 * i) + "\"");
+        }
+        
+        for (int i = 1; i <= ENTRY_COUNT; i += 2) {
+            // Remove an entry so this will trigger "REMOVE" event which is passed since value ends with "0"
+            cache.remove(i);
+            System.out.println("Remove value with key \"" + i + "\"");
+        }
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    @SuppressWarnings("serial")
+    private static class EndsWithZero implements ValuePredicate<String> {
+
+        @Override
+        public boolean test(String value) {
+            return value != null && value.endsWith("0");
+        }
+        
+    }
+
+}
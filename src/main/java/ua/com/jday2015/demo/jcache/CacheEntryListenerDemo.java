@@ -92,7 +92,7 @@ public class CacheEntryListenerDemo {
     }
     
     @SuppressWarnings("serial")
-    private static class DemoCacheEntryListenerConfiguration 
+    public static class DemoCacheEntryListenerConfiguration 
             implements CacheEntryListenerConfiguration<Integer, String> {
         
         @Override
@@ -122,7 +122,7 @@ public class CacheEntryListenerDemo {
     }
     
     @SuppressWarnings("serial")
-    private static class DemoCacheEntryListener 
+    public static class DemoCacheEntryListener 
         implements  Serializable,
                     CacheEntryCreatedListener<Integer, String>,
                     CacheEntryUpdatedListener<Integer, String>, 
@@ -64,7 +64,7 @@ public class CacheEntryProcessorDemo {
         cachingProvider.close();
     }
     
-    private static class DemoCacheEntryProcessor 
+    public static class DemoCacheEntryProcessor 
             implements EntryProcessor<Integer, String, String> {
 
         @Override
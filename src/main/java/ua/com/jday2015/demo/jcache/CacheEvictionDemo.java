@@ -0,0 +1,92 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import com.hazelcast.cache.ICache;
+
+import ua.com.jday2015.demo.jcache.eviction.BoundedCache;
+import ua.com.jday2015.demo.jcache.eviction.EvictionConfig;
+import ua.com.jday2015.demo.jcache.eviction.EvictionListener;
+import ua.com.jday2015.demo.jcache.eviction.EvictionPolicyType;
+import ua.com.jday2015.demo.jcache.eviction.Weighers;
+
+/**
+ * Demonstrates bounding cache by the total weight of its entries.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheEvictionDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        final AtomicInteger evictedCount = new AtomicInteger();
+        
+        // Cache is bounded by the total length of the values (at most 10000 characters)
+        BoundedCache<Integer, String> boundedCache = 
+                new BoundedCache<Integer, String>(
+                        cache, 
+                        new EvictionConfig<Integer, String>()
+                                .setMaxWeight(10000)
+                                .setWeigher(Weighers.<Integer, String>valueLength())
+                                .setEvictionPolicy(EvictionPolicyType.W_TINY_LFU)
+                                .setEvictionListener(new EvictionListener<Integer>() {
+                                    @Override
+                                    public void onEvicted(List<Integer> keys) {
+                                        evictedCount.addAndGet(keys.size());
+                                    }
+                                }));
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10000;
+        final int HOT_ENTRY_COUNT = 10;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            // Values are 10 - 14 characters, so there can be about 800 entries at most
+            boundedCache.put(i, "Value-" + i + "-" + i);
+            // Hot entries are read frequently, so they are not evicted
+            boundedCache.get(1 + (i % HOT_ENTRY_COUNT));
+        }
+        System.out.println("Put " + ENTRY_COUNT + " entries");
+        
+        System.out.println("Cache size    : " + cache.unwrap(ICache.class).size());
+        System.out.println("Total weight  : " + boundedCache.getWeight());
+        System.out.println("Evicted       : " + evictedCount.get());
+        System.out.println("Get value with key \"1\": " + boundedCache.get(1));
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
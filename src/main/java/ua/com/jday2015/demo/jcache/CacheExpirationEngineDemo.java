@@ -0,0 +1,112 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.spi.CachingProvider;
+
+import com.hazelcast.cache.ICache;
+
+import ua.com.jday2015.demo.jcache.event.AsyncCacheEntryListenerConfiguration;
+import ua.com.jday2015.demo.jcache.expiry.ExpiringCache;
+
+/**
+ * Demonstrates reclaiming expired entries proactively without reading them.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheExpirationEngineDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final AtomicInteger EXPIRED_EVENT_COUNT = new AtomicInteger();
+    private static final AtomicInteger EXPIRED_BATCH_COUNT = new AtomicInteger();
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws InterruptedException {
+        final int EXPIRATION_TIME_IN_SECONDS = 1;
+        
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // 1 second later after creation, records are considered as expired
+                        .setExpiryPolicyFactory(
+                                FactoryBuilder.factoryOf(
+                                        new CreatedExpiryPolicy(new Duration(TimeUnit.SECONDS, EXPIRATION_TIME_IN_SECONDS))))
+                        // "EXPIRED" events are dispatched to the listener in batches
+                        .addCacheEntryListenerConfiguration(
+                                new AsyncCacheEntryListenerConfiguration<Integer, String>(
+                                        new MutableCacheEntryListenerConfiguration<Integer, String>(
+                                                FactoryBuilder.factoryOf(DemoCacheEntryExpiredListener.class), 
+                                                null, false, false))
+                                    .setMaxBatchSize(1000))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // Expired entries are reclaimed at every 100 milliseconds
+        ExpiringCache<Integer, String> expiringCache = new ExpiringCache<Integer, String>(cache, 100, 1000);
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10000;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            expiringCache.put(i, "Value-" + i);
+        }
+        System.out.println("Put " + ENTRY_COUNT + " entries");
+        System.out.println("Cache size: " + cache.unwrap(ICache.class).size());
+        
+        // Wait for entries expired, but don't touch them
+        Thread.sleep((EXPIRATION_TIME_IN_SECONDS + 1) * 1000);
+        
+        System.out.println("Cache size: " + cache.unwrap(ICache.class).size() + " [must be 0]");
+        System.out.println("Expired events: " + EXPIRED_EVENT_COUNT.get() 
+                           + " in " + EXPIRED_BATCH_COUNT.get() + " batches");
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    @SuppressWarnings("serial")
+    public static class DemoCacheEntryExpiredListener 
+            implements CacheEntryExpiredListener<Integer, String>, Serializable {
+
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events)
+                throws CacheEntryListenerException {
+            EXPIRED_BATCH_COUNT.incrementAndGet();
+            for (CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                EXPIRED_EVENT_COUNT.incrementAndGet();
+            }
+        }
+        
+    }
+
+}
@@ -0,0 +1,68 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.Iterator;
+
+import javax.cache.Cache;
+
+import ua.com.jday2015.demo.jcache.CacheEntryProcessorDemo.DemoCacheEntryProcessor;
+import ua.com.jday2015.demo.jcache.intkey.IntEntryProcessor;
+import ua.com.jday2015.demo.jcache.intkey.IntKeyCache;
+import ua.com.jday2015.demo.jcache.intkey.IntMutableEntry;
+
+/**
+ * Demonstrates using primitive int keyed cache to avoid boxing keys 
+ * and using it through standard cache API.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheIntKeyDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    public static void main(String[] args) {
+        IntKeyCache<String> intKeyCache = new IntKeyCache<String>(CACHE_NAME, String.class);
+        System.out.println("Int keyed cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 3;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            // Key is not boxed
+            intKeyCache.put(i, "Value-" + i);
+            System.out.println("Put key \"" + i + "\" with value \"Value-" + i + "\"");
+        }
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            System.out.println("Invoke entry processor on key " + "\"" + i + "\"" + " and the result is: " + 
+                               intKeyCache.invoke(i, new IntEntryProcessor<String, String>() {
+                                   @Override
+                                   public String process(IntMutableEntry<String> entry, Object... arguments) {
+                                       String newValue = entry.getValue() + " (processed)";
+                                       entry.setValue(newValue);
+                                       return newValue;
+                                   }
+                               }));
+        }
+        
+        // *************************************************************************** //
+        
+        // Same cache through the standard cache API, so keys are boxed here
+        Cache<Integer, String> cache = intKeyCache.asCache();
+        
+        System.out.println("Invoke entry processor on key \"1\" and the result is: " + 
+                           cache.invoke(1, new DemoCacheEntryProcessor()));
+        
+        System.out.println("Iterating over entries ...");
+        Iterator<Cache.Entry<Integer, String>> iter = cache.iterator();
+        while (iter.hasNext()) {
+            Cache.Entry<Integer, String> entry = iter.next();
+            System.out.println("\t" + entry.getKey() + ": " + entry.getValue());
+        }
+        
+        // *************************************************************************** //
+        
+        intKeyCache.close();
+    }
+
+}
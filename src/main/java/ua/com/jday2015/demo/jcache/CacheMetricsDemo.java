@@ -0,0 +1,92 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.lang.management.ManagementFactory;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+import javax.management.JMX;
+
+import ua.com.jday2015.demo.jcache.metrics.CacheMetricsInstrumentation;
+import ua.com.jday2015.demo.jcache.metrics.CacheMetricsMXBean;
+import ua.com.jday2015.demo.jcache.metrics.LatencySnapshot;
+import ua.com.jday2015.demo.jcache.metrics.MetricsCache;
+
+/**
+ * Demonstrates recording latency distributions and hits/misses of cache operations 
+ * and accessing them over JMX.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheMetricsDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // Instrument loader and writer, so theirs latencies are also recorded
+        MutableConfiguration<Integer, String> cacheConfig = 
+                CacheMetricsInstrumentation.instrument(
+                        cacheManager.getURI(), 
+                        CACHE_NAME, 
+                        new MutableConfiguration<Integer, String>()
+                                .setReadThrough(true)
+                                .setCacheLoaderFactory(
+                                        FactoryBuilder.factoryOf(CacheLoaderWriterDemo.DemoCacheLoader.class))
+                                .setWriteThrough(true)
+                                .setCacheWriterFactory(
+                                        FactoryBuilder.factoryOf(CacheLoaderWriterDemo.DemoCacheWriter.class))
+                                .setTypes(Integer.class, String.class)); 
+        Cache<Integer, String> cache = 
+                new MetricsCache<Integer, String>(cacheManager.createCache(CACHE_NAME, cacheConfig));
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 1000;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        for (int i = 1; i <= 2 * ENTRY_COUNT; i++) {
+            cache.get(i);
+        }
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            cache.remove(i);
+        }
+        
+        // *************************************************************************** //
+        
+        // Metrics are registered to the platform MBean server under cache manager URI and cache name
+        CacheMetricsMXBean metrics = 
+                JMX.newMXBeanProxy(
+                        ManagementFactory.getPlatformMBeanServer(), 
+                        cache.unwrap(MetricsCache.class).getMetrics().getObjectName(), 
+                        CacheMetricsMXBean.class);
+        System.out.println("Hits      : " + metrics.getHitCount());
+        System.out.println("Misses    : " + metrics.getMissCount());
+        System.out.println("Hit %     : " + metrics.getHitPercentage());
+        System.out.println("Evictions : " + metrics.getEvictionCount());
+        for (LatencySnapshot latency : metrics.getLatencies()) {
+            System.out.println(latency);
+        }
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,80 @@
+package ua.com.jday2015.demo.jcache;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.nearcache.NearCache;
+
+/**
+ * Demonstrates using near cache to serve frequently read entries from local memory.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheNearCacheDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // Near cache which keeps at most 100 entries in local memory
+        NearCache<Integer, String> nearCache = new NearCache<Integer, String>(cache, 100);
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            nearCache.put(i, "Value-" + i);
+            System.out.println("Put key \"" + i + "\" with value \"Value-" + i + "\"");
+        }
+        
+        // First reads are served from the cache, then they are served from local memory
+        for (int j = 0; j < 10; j++) {
+            for (int i = 1; i <= ENTRY_COUNT; i++) {
+                nearCache.get(i);
+            }
+        }
+        System.out.println("Get value with key \"1\" from near cache: " + nearCache.get(1));
+        
+        // Update entry directly on the cache, so near cache is invalidated by the "UPDATED" event
+        cache.put(1, "Value-10");
+        System.out.println("Put key \"1\" with value \"Value-10\" directly to the cache");
+        
+        // Wait for the invalidation event
+        Thread.sleep(1000);
+        
+        System.out.println("Get value with key \"1\" from near cache: " + nearCache.get(1));
+        
+        System.out.println("Near cache hits         : " + nearCache.getHitCount());
+        System.out.println("Near cache misses       : " + nearCache.getMissCount());
+        System.out.println("Near cache invalidations: " + nearCache.getInvalidationCount());
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,114 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.embedded.EmbeddedCache;
+import ua.com.jday2015.demo.jcache.embedded.EmbeddedCachingProvider;
+import ua.com.jday2015.demo.jcache.embedded.InvokeMode;
+
+/**
+ * Demonstrates optimistic execution of entry processors on a few hot counter keys. 
+ * Processors run in parallel without locking and are retried when another one has committed first.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheOptimisticInvokeDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final int THREAD_COUNT = 4;
+    private static final int INCREMENT_COUNT = 100000;
+    private static final String[] HOT_KEYS = { "orders", "payments", "visits" };
+    
+    static {
+        System.setProperty("javax.cache.spi.CachingProvider", EmbeddedCachingProvider.class.getName());
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+        
+        final Cache<String, Long> cache = 
+                cacheManager.createCache(CACHE_NAME, 
+                                         new MutableConfiguration<String, Long>()
+                                                .setTypes(String.class, Long.class)
+                                                .setStatisticsEnabled(true));
+        @SuppressWarnings("unchecked")
+        EmbeddedCache<String, Long> embeddedCache = cache.unwrap(EmbeddedCache.class);
+        
+        // Counter processors have no side effects, so they can safely be executed more than once
+        embeddedCache.setInvokeMode(InvokeMode.OPTIMISTIC);
+        embeddedCache.setMaxOptimisticRetries(16);
+        
+        // *************************************************************************** //
+        
+        final EntryProcessor<String, Long, Long> incrementProcessor = 
+                new EntryProcessor<String, Long, Long>() {
+                    @Override
+                    public Long process(MutableEntry<String, Long> entry, Object... arguments)
+                            throws EntryProcessorException {
+                        Long value = entry.getValue();
+                        long newValue = (value != null ? value : 0L) + 1;
+                        entry.setValue(newValue);
+                        return newValue;
+                    }
+                };
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        long start = System.nanoTime();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < INCREMENT_COUNT; j++) {
+                        // First key is hotter than the others
+                        String key = random.nextInt(4) < 2 ? HOT_KEYS[0] : HOT_KEYS[random.nextInt(HOT_KEYS.length)];
+                        cache.invoke(key, incrementProcessor);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        
+        System.out.println(THREAD_COUNT * INCREMENT_COUNT + " increments are done in " 
+                           + (System.nanoTime() - start) / 1000000 + " milliseconds");
+        
+        // No increment is lost although the processors have not been serialized
+        long total = 0;
+        for (String key : HOT_KEYS) {
+            Long count = cache.get(key);
+            System.out.println("Get value with key \"" + key + "\": " + count);
+            total += count;
+        }
+        System.out.println("Total of the counters: " + total);
+        
+        // *************************************************************************** //
+        
+        // Contention statistics are also registered as "javax.cache:type=InvokeContention,..." MXBean
+        System.out.println("Contention statistics: " + embeddedCache.getContentionStatistics());
+        System.out.println("Conflict percentage: " 
+                           + embeddedCache.getContentionStatistics().getConflictPercentage() + "%");
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,110 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ModifiedExpiryPolicy;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.refresh.RefreshAheadCache;
+
+/**
+ * Demonstrates refreshing frequently read entries before they expire, 
+ * so reads don't wait for the cache loader at expiry.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheRefreshAheadDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final long LOAD_TIME_IN_MILLIS = 500;
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        final int EXPIRATION_TIME_IN_SECONDS = 3;
+        
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setReadThrough(true)
+                        .setCacheLoaderFactory(FactoryBuilder.factoryOf(DemoSlowCacheLoader.class))
+                        // 3 seconds later after creation or update (such as refresh), records are considered as expired
+                        .setExpiryPolicyFactory(
+                                FactoryBuilder.factoryOf(
+                                        new ModifiedExpiryPolicy(new Duration(TimeUnit.SECONDS, EXPIRATION_TIME_IN_SECONDS))))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // Entries are reloaded in background when they are read after 2/3 of their expiry duration
+        RefreshAheadCache<Integer, String> refreshAheadCache = new RefreshAheadCache<Integer, String>(cache, 0.66f);
+        
+        // *************************************************************************** //
+        
+        // Read the same key for 10 seconds, so it would expire 3 times without refresh-ahead
+        for (int i = 0; i < 20; i++) {
+            long start = System.nanoTime();
+            String value = refreshAheadCache.get(1);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println("Get value with key \"1\": " + value + " in " + elapsedMillis + " milliseconds");
+            Thread.sleep(500);
+        }
+        
+        System.out.println("Refreshed entries: " + refreshAheadCache.getRefreshCount());
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    @SuppressWarnings("serial")
+    public static class DemoSlowCacheLoader 
+            implements CacheLoader<Integer, String>, Serializable {
+
+        @Override
+        public String load(Integer key) throws CacheLoaderException {
+            try {
+                Thread.sleep(LOAD_TIME_IN_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CacheLoaderException(e);
+            }
+            return "Value-" + key + "-" + System.currentTimeMillis();
+        }
+
+        @Override
+        public Map<Integer, String> loadAll(Iterable<? extends Integer> keys)
+                throws CacheLoaderException {
+            Map<Integer, String> loadedKeyAndValues = new HashMap<Integer, String>();
+            for (Integer key : keys) {
+                loadedKeyAndValues.put(key, load(key));
+            }
+            return loadedKeyAndValues;
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.scan.CacheScanner;
+import ua.com.jday2015.demo.jcache.scan.ScanPredicate;
+import ua.com.jday2015.demo.jcache.scan.ScanProjection;
+
+/**
+ * Demonstrates scanning cache entries partition by partition with (parallel) streams 
+ * and running predicates and projections on the members owning the entries.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheScanDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        final int ENTRY_COUNT = 1000;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        System.out.println("Put " + ENTRY_COUNT + " entries");
+        
+        CacheScanner<Integer, String> scanner = 
+                new CacheScanner<Integer, String>(cache)
+                        .setPageSize(50)
+                        .setPrefetch(true);
+        System.out.println("Partition aware scan: " + scanner.isPartitionAware());
+        
+        // *************************************************************************** //
+        
+        // Scan all partitions in parallel
+        long count = scanner.stream().parallel().count();
+        System.out.println("Scanned " + count + " entries in parallel");
+        
+        // Only the keys of the matching entries are sent from the owner members
+        List<Integer> keys = 
+                scanner.stream(new DemoScanPredicate(100), new DemoScanProjection())
+                        .parallel()
+                        .sorted()
+                        .collect(Collectors.toList());
+        System.out.println("Keys of the entries divisible by 100: " + keys);
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    @SuppressWarnings("serial")
+    public static class DemoScanPredicate implements ScanPredicate<Integer, String> {
+
+        private final int divisor;
+        
+        public DemoScanPredicate(int divisor) {
+            this.divisor = divisor;
+        }
+        
+        @Override
+        public boolean test(Integer key, String value) {
+            return key % divisor == 0;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class DemoScanProjection implements ScanProjection<Integer, String, Integer> {
+
+        @Override
+        public Integer project(Integer key, String value) {
+            return key;
+        }
+        
+    }
+
+}
@@ -12,11 +12,16 @@ import javax.cache.configuration.MutableConfiguration;
 import javax.cache.spi.CachingProvider;
 
 import com.hazelcast.cache.HazelcastCachingProvider;
+import com.hazelcast.client.HazelcastClient;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 
+import ua.com.jday2015.demo.jcache.client.CacheClientConfig;
+
 /**
- * Demonstrates using caches in scoped environments.
+ * Demonstrates using caches in scoped environments. 
+ * Run with <code>-Dhazelcast.jcache.provider.type=client</code> to use the caches of a separately run cluster 
+ * (such as the one started by {@link ua.com.jday2015.demo.jcache.client.LocalCluster}) in client mode.
  * 
  * @author Serkan OZAL
  */
@@ -77,7 +82,14 @@ public class CacheScopeDemo {
     }
     
     private static Properties initialize() {
-        HazelcastInstance hazelcastInstance = Hazelcast.newHazelcastInstance();
+        HazelcastInstance hazelcastInstance;
+        if ("client".equals(System.getProperty("hazelcast.jcache.provider.type"))) {
+            // Connect to a separately run cluster (such as "LocalCluster") as client, 
+            // so this JVM doesn't own any data and its restarts don't trigger partition migrations.
+            hazelcastInstance = HazelcastClient.newHazelcastClient(new CacheClientConfig().toClientConfig());
+        } else {
+            hazelcastInstance = Hazelcast.newHazelcastInstance();
+        }
         Properties properties = new Properties();
         properties.put(HazelcastCachingProvider.HAZELCAST_INSTANCE_NAME, hazelcastInstance.getName());
         return properties;
@@ -0,0 +1,140 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import com.hazelcast.cache.HazelcastCachingProvider;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import ua.com.jday2015.demo.jcache.metrics.CacheOperation;
+import ua.com.jday2015.demo.jcache.scope.CacheScope;
+import ua.com.jday2015.demo.jcache.scope.ScopeQuota;
+import ua.com.jday2015.demo.jcache.scope.ScopeQuotaExceededException;
+import ua.com.jday2015.demo.jcache.scope.ScopedCacheManager;
+
+/**
+ * Demonstrates isolating scopes sharing one cluster by per-scope memory quotas and admission control.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheScopeQuotaDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final int THREAD_COUNT = 8;
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws URISyntaxException, InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        
+        // *************************************************************************** //
+        
+        HazelcastInstance hazelcastInstance = Hazelcast.newHazelcastInstance();
+        Properties properties = new Properties();
+        properties.put(HazelcastCachingProvider.HAZELCAST_INSTANCE_NAME, hazelcastInstance.getName());
+        
+        // Both scopes share the same Hazelcast instance, but each one has its own quota. 
+        // "Turkey" scope is allowed to hold only 64 KB of entries and to run 2 operations at a time.
+        final ScopedCacheManager cacheManagerTR = 
+                new ScopedCacheManager(cachingProvider.getCacheManager(new URI("Turkey"), null, properties), 
+                                       new ScopeQuota()
+                                            .setMaxMemory(64 * 1024)
+                                            .setMaxConcurrentOperations(2)
+                                            .setAdmissionTimeout(1, TimeUnit.MILLISECONDS));
+        final ScopedCacheManager cacheManagerUA = 
+                new ScopedCacheManager(cachingProvider.getCacheManager(new URI("Ukraine"), null, properties), 
+                                       new ScopeQuota());
+        
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setTypes(Integer.class, String.class); 
+        
+        // Quota of a scope is shared by all the caches created in that scope
+        final Cache<Integer, String> cacheTR1 = cacheManagerTR.createCache(CACHE_NAME, cacheConfig);
+        final Cache<Integer, String> cacheTR2 = cacheManagerTR.createCache(CACHE_NAME + "-2", cacheConfig);
+        final Cache<Integer, String> cacheUA = cacheManagerUA.createCache(CACHE_NAME, cacheConfig);
+        
+        // *************************************************************************** //
+        
+        // "Turkey" scope has a burst of writes which exceeds its memory quota
+        String value = new String(new char[256]).replace('\0', 'v');
+        int rejectedWrites = 0;
+        for (int i = 0; i < 1000; i++) {
+            try {
+                (i % 2 == 0 ? cacheTR1 : cacheTR2).put(i, value);
+            } catch (ScopeQuotaExceededException e) {
+                rejectedWrites++;
+            }
+        }
+        System.out.println(rejectedWrites + " writes to \"Turkey\" scope have been rejected");
+        System.out.println("\"Turkey\" scope: " + cacheManagerTR.getScope());
+        
+        // Removing entries frees memory of the scope for new writes
+        for (int i = 0; i < 100; i++) {
+            (i % 2 == 0 ? cacheTR1 : cacheTR2).remove(i);
+        }
+        cacheTR1.put(1000, value);
+        System.out.println("After removals \"Turkey\" scope: " + cacheManagerTR.getScope());
+        
+        // *************************************************************************** //
+        
+        // Concurrent burst on "Turkey" scope is limited to 2 operations, 
+        // the others are rejected after waiting for admission
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        try {
+                            cacheTR1.get(j % 1000);
+                        } catch (ScopeQuotaExceededException e) {
+                            // Rejected, so the caller can back off
+                        }
+                    }
+                }
+            });
+        }
+        // "Ukraine" scope is not affected by the burst of "Turkey" scope
+        for (int i = 0; i < 1000; i++) {
+            cacheUA.put(i, value);
+            cacheUA.get(i);
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        
+        // *************************************************************************** //
+        
+        for (ScopedCacheManager cacheManager : new ScopedCacheManager[] { cacheManagerTR, cacheManagerUA }) {
+            CacheScope scope = cacheManager.getScope();
+            System.out.println("Scope \"" + scope.getURI() + "\": " + scope);
+            System.out.println("\tGet latency  : " + scope.getMetrics().getLatency(CacheOperation.GET));
+            System.out.println("\tPut latency  : " + scope.getMetrics().getLatency(CacheOperation.PUT));
+        }
+        
+        // *************************************************************************** //
+        
+        // Close scoped cache managers to unregister theirs scopes
+        cacheManagerTR.close();
+        cacheManagerUA.close();
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+        hazelcastInstance.shutdown();
+    }
+
+}
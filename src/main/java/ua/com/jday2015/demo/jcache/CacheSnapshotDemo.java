@@ -0,0 +1,162 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.Cache.Entry;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.codec.IntegerCodec;
+import ua.com.jday2015.demo.jcache.codec.StringCodec;
+import ua.com.jday2015.demo.jcache.snapshot.CacheSnapshotter;
+import ua.com.jday2015.demo.jcache.snapshot.SnapshotCacheManager;
+import ua.com.jday2015.demo.jcache.snapshot.SnapshotConfig;
+
+/**
+ * Demonstrates persisting cache contents into full and delta snapshots 
+ * and warm-starting the cache from them after a restart.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheSnapshotDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    private static final AtomicInteger WRITE_COUNT = new AtomicInteger();
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws IOException {
+        File snapshotDirectory = new File(System.getProperty("java.io.tmpdir"), "jday2015-snapshots");
+        SnapshotConfig snapshotConfig = 
+                new SnapshotConfig()
+                        .setDirectory(snapshotDirectory)
+                        .setKeyCodec(IntegerCodec.INSTANCE)
+                        .setValueCodec(StringCodec.INSTANCE)
+                        // Snapshots are taken explicitly in this demo
+                        .setDeltaSnapshotInterval(0, TimeUnit.SECONDS);
+        
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setWriteThrough(true)
+                        .setCacheWriterFactory(FactoryBuilder.factoryOf(DemoCountingCacheWriter.class))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        
+        // *************************************************************************** //
+        
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        SnapshotCacheManager cacheManager = 
+                new SnapshotCacheManager(cachingProvider.getCacheManager(), snapshotConfig);
+        
+        // We have not created cache, so lets create it first.
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created with " + countEntries(cache) + " entries");
+        
+        final int ENTRY_COUNT = 10000;
+        
+        for (int i = 1; i <= ENTRY_COUNT; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        System.out.println("Put " + ENTRY_COUNT + " entries");
+        
+        CacheSnapshotter<Integer, String> snapshotter = cacheManager.getSnapshotter(CACHE_NAME);
+        long start = System.nanoTime();
+        snapshotter.snapshot();
+        System.out.println("Full snapshot has been taken in " 
+                           + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " milliseconds");
+        
+        // Only these changes are written by the delta snapshot
+        for (int i = 1; i <= 10; i++) {
+            cache.put(i, "Updated-Value-" + i);
+        }
+        for (int i = 11; i <= 20; i++) {
+            cache.remove(i);
+        }
+        System.out.println("Pending changes for delta snapshot: " + snapshotter.getPendingChangeCount());
+        
+        // Closing the snapshot cache manager takes a delta snapshot.
+        // Then close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cacheManager.close();
+        cachingProvider.close();
+        System.out.println("Caching provider has been closed");
+        
+        // *************************************************************************** //
+        
+        cachingProvider = Caching.getCachingProvider();
+        cacheManager = new SnapshotCacheManager(cachingProvider.getCacheManager(), snapshotConfig);
+        
+        int writeCountBeforeRestore = WRITE_COUNT.get();
+        start = System.nanoTime();
+        cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been warm-started with " + countEntries(cache) 
+                           + " entries from " + cacheManager.getRestoredRecordCount(CACHE_NAME) + " records in " 
+                           + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " milliseconds");
+        System.out.println("Writes to backend while restoring: " + (WRITE_COUNT.get() - writeCountBeforeRestore));
+        System.out.println("Value of key \"1\": " + cache.get(1));
+        System.out.println("Value of key \"11\": " + cache.get(11));
+        
+        // Destroying the cache deletes its snapshots as well
+        cacheManager.destroyCache(CACHE_NAME);
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cacheManager.close();
+        cachingProvider.close();
+    }
+    
+    private static int countEntries(Cache<Integer, String> cache) {
+        int count = 0;
+        for (Iterator<Entry<Integer, String>> it = cache.iterator(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+    
+    public static class DemoCountingCacheWriter 
+            implements CacheWriter<Integer, String> {
+
+        @Override
+        public void write(Entry<? extends Integer, ? extends String> entry)
+                throws CacheWriterException {
+            WRITE_COUNT.incrementAndGet();
+        }
+
+        @Override
+        public void writeAll(Collection<Entry<? extends Integer, ? extends String>> entries)
+                throws CacheWriterException {
+            WRITE_COUNT.addAndGet(entries.size());
+            entries.clear();
+        }
+
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            WRITE_COUNT.incrementAndGet();
+        }
+
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            WRITE_COUNT.addAndGet(keys.size());
+            keys.clear();
+        }
+        
+    }
+
+}
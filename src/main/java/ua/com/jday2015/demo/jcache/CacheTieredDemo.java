@@ -0,0 +1,106 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.Random;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.tiered.TieredCache;
+import ua.com.jday2015.demo.jcache.tiered.TieredCacheConfig;
+import ua.com.jday2015.demo.jcache.tiered.TieredCacheStatistics;
+
+/**
+ * Demonstrates serving entries from on-heap (L1), off-heap (L2) and distributed (L3) tiers 
+ * where hot entries are promoted to the upper tiers by their access frequencies.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheTieredDemo {
+
+    private static final String CACHE_NAME = "jday2015";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        // Types are also used to resolve codecs of the off-heap tier
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // Tiered cache which keeps at most 100 entries on heap and 1000 entries off heap
+        TieredCache<Integer, String> tieredCache = 
+                new TieredCache<Integer, String>(
+                        cache, 
+                        new TieredCacheConfig()
+                                .setL1MaxSize(100)
+                                .setL2MaxSize(1000));
+        
+        // *************************************************************************** //
+        
+        final int ENTRY_COUNT = 10000;
+        final int HOT_ENTRY_COUNT = 50;
+        final int READ_COUNT = 200000;
+        
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            tieredCache.put(i, "Value-" + i);
+        }
+        System.out.println("Put " + ENTRY_COUNT + " entries");
+        
+        // Most of the reads are on a few hot entries, the rest are spread over all entries
+        Random random = new Random(2015);
+        for (int i = 0; i < READ_COUNT; i++) {
+            int key = random.nextInt(10) < 8 ? random.nextInt(HOT_ENTRY_COUNT) : random.nextInt(ENTRY_COUNT);
+            tieredCache.get(key);
+        }
+        System.out.println("Read " + READ_COUNT + " entries");
+        
+        TieredCacheStatistics statistics = tieredCache.getStatistics();
+        System.out.println("L1 size      : " + tieredCache.getL1Size());
+        System.out.println("L2 size      : " + tieredCache.getL2Size() 
+                + " (" + tieredCache.getL2UsedBytes() + " bytes off heap)");
+        System.out.println("L1 hits      : " + statistics.getL1HitCount() 
+                + " (" + statistics.getL1HitPercentage() + "%)");
+        System.out.println("L2 hits      : " + statistics.getL2HitCount() 
+                + " (" + statistics.getL2HitPercentage() + "%)");
+        System.out.println("L3 hits      : " + statistics.getL3HitCount() 
+                + " (" + statistics.getL3HitPercentage() + "%)");
+        System.out.println("Promotions   : " + statistics.getPromotionCount());
+        System.out.println("Demotions    : " + statistics.getDemotionCount());
+        System.out.println("L2 evictions : " + statistics.getEvictionCount());
+        
+        // *************************************************************************** //
+        
+        System.out.println("Get value with key \"1\" from tiered cache: " + tieredCache.get(1));
+        
+        // Update entry directly on the cache, so local tiers are invalidated by the "UPDATED" event
+        cache.put(1, "Value-10");
+        System.out.println("Put key \"1\" with value \"Value-10\" directly to the cache");
+        
+        // Wait for the invalidation event
+        Thread.sleep(1000);
+        
+        System.out.println("Get value with key \"1\" from tiered cache: " + tieredCache.get(1));
+        System.out.println("Invalidations: " + statistics.getInvalidationCount());
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+
+}
@@ -0,0 +1,201 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.Cache.Entry;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.MutableEntry;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.unitofwork.UnitOfWork;
+import ua.com.jday2015.demo.jcache.unitofwork.UnitOfWorkException;
+import ua.com.jday2015.demo.jcache.unitofwork.UnitOfWorkFactory;
+
+/**
+ * Demonstrates committing related mutations on more than one cache as a single unit 
+ * which is written to the back-end by a single writer call.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheUnitOfWorkDemo {
+
+    private static final String ORDER_CACHE_NAME = "orders";
+    private static final String STOCK_CACHE_NAME = "stocks";
+    private static final int ORDER_LINE_COUNT = 10;
+    private static final int THREAD_COUNT = 4;
+    private static final int ORDER_COUNT_PER_THREAD = 50;
+    
+    private static final Map<Object, Object> BACKEND = new ConcurrentHashMap<Object, Object>();
+    private static final AtomicInteger BACKEND_CALLS = new AtomicInteger();
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+        
+        // Caches are not write-through, since their changes are written by units of work
+        final Cache<String, String> orderCache = 
+                cacheManager.createCache(ORDER_CACHE_NAME, 
+                                         new MutableConfiguration<String, String>()
+                                                .setTypes(String.class, String.class));
+        final Cache<String, Integer> stockCache = 
+                cacheManager.createCache(STOCK_CACHE_NAME, 
+                                         new MutableConfiguration<String, Integer>()
+                                                .setTypes(String.class, Integer.class));
+        stockCache.put("item-1", 1000);
+        BACKEND.put("item-1", 1000);
+        
+        // Both caches are written to the same back-end by the same writer
+        DemoCacheWriter writer = new DemoCacheWriter();
+        final UnitOfWorkFactory unitOfWorkFactory = 
+                new UnitOfWorkFactory()
+                        .register(orderCache, writer)
+                        .register(stockCache, writer);
+        
+        final EntryProcessor<String, Integer, Integer> decrementProcessor = 
+                new EntryProcessor<String, Integer, Integer>() {
+                    @Override
+                    public Integer process(MutableEntry<String, Integer> entry, Object... arguments) {
+                        int stock = entry.getValue() - (Integer) arguments[0];
+                        entry.setValue(stock);
+                        return stock;
+                    }
+                };
+        
+        // *************************************************************************** //
+        
+        // Order header, order lines and stock update of an order are committed together
+        UnitOfWork unitOfWork = unitOfWorkFactory.begin();
+        unitOfWork.put(orderCache, "order-1", "customer-1");
+        for (int i = 1; i <= ORDER_LINE_COUNT; i++) {
+            unitOfWork.put(orderCache, "order-1/line-" + i, "item-1 x 1");
+        }
+        unitOfWork.invoke(stockCache, "item-1", decrementProcessor, ORDER_LINE_COUNT);
+        unitOfWork.commit();
+        System.out.println("Committed " + unitOfWork.getMutationCount() + " mutations by " 
+                + BACKEND_CALLS.get() + " back-end call(s)");
+        System.out.println("Stock of \"item-1\" in cache  : " + stockCache.get("item-1"));
+        System.out.println("Stock of \"item-1\" in backend: " + BACKEND.get("item-1"));
+        
+        // *************************************************************************** //
+        
+        // Writer fails on this order, so nothing of it is kept neither on caches nor on the back-end
+        writer.failOn("order-2");
+        unitOfWork = unitOfWorkFactory.begin();
+        unitOfWork.put(orderCache, "order-2", "customer-2");
+        unitOfWork.invoke(stockCache, "item-1", decrementProcessor, 1);
+        try {
+            unitOfWork.commit();
+        } catch (UnitOfWorkException e) {
+            System.out.println("Commit has failed: " + e.getMessage());
+        }
+        writer.failOn(null);
+        System.out.println("Order \"order-2\" in cache    : " + orderCache.get("order-2"));
+        System.out.println("Stock of \"item-1\" in cache  : " + stockCache.get("item-1"));
+        System.out.println("Stock of \"item-1\" in backend: " + BACKEND.get("item-1"));
+        
+        // *************************************************************************** //
+        
+        // Orders are committed concurrently on the same stock and retried on conflicts
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int threadId = t;
+            executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < ORDER_COUNT_PER_THREAD; i++) {
+                        String orderId = "order-" + threadId + "-" + i;
+                        while (true) {
+                            UnitOfWork unitOfWork = unitOfWorkFactory.begin();
+                            unitOfWork.put(orderCache, orderId, "customer-" + threadId);
+                            unitOfWork.invoke(stockCache, "item-1", decrementProcessor, 1);
+                            try {
+                                unitOfWork.commit();
+                                break;
+                            } catch (UnitOfWorkException e) {
+                                // Retry with the latest stock
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+        
+        System.out.println("Stock of \"item-1\" in cache  : " + stockCache.get("item-1") 
+                + " (expected " + (1000 - ORDER_LINE_COUNT - THREAD_COUNT * ORDER_COUNT_PER_THREAD) + ")");
+        System.out.println("Stock of \"item-1\" in backend: " + BACKEND.get("item-1"));
+        System.out.println("Commits  : " + unitOfWorkFactory.getCommitCount());
+        System.out.println("Rollbacks: " + unitOfWorkFactory.getRollbackCount());
+        System.out.println("Conflicts: " + unitOfWorkFactory.getConflictCount());
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    private static class DemoCacheWriter implements CacheWriter<Object, Object> {
+        
+        private volatile Object failingKey;
+        
+        private void failOn(Object key) {
+            failingKey = key;
+        }
+    
+        @Override
+        public void write(Entry<? extends Object, ? extends Object> entry) throws CacheWriterException {
+            BACKEND_CALLS.incrementAndGet();
+            BACKEND.put(entry.getKey(), entry.getValue());
+        }
+    
+        @Override
+        public void writeAll(Collection<Entry<? extends Object, ? extends Object>> entries)
+                throws CacheWriterException {
+            BACKEND_CALLS.incrementAndGet();
+            for (Entry<? extends Object, ? extends Object> entry : entries) {
+                if (entry.getKey().equals(failingKey)) {
+                    throw new CacheWriterException("Back-end has rejected \"" + failingKey + "\"");
+                }
+            }
+            for (Entry<? extends Object, ? extends Object> entry : entries) {
+                BACKEND.put(entry.getKey(), entry.getValue());
+            }
+        }
+    
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            BACKEND_CALLS.incrementAndGet();
+            BACKEND.remove(key);
+        }
+    
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            BACKEND_CALLS.incrementAndGet();
+            for (Object key : keys) {
+                BACKEND.remove(key);
+            }
+        }
+        
+    }
+
+}
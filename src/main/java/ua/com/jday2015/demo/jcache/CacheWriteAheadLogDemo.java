@@ -0,0 +1,169 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.Cache.Entry;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.codec.IntegerCodec;
+import ua.com.jday2015.demo.jcache.codec.StringCodec;
+import ua.com.jday2015.demo.jcache.integration.WriteBehindCacheWriterFactory;
+import ua.com.jday2015.demo.jcache.wal.WriteAheadLogConfig;
+
+/**
+ * Demonstrates making write-behind mutations durable with a write-ahead log, 
+ * so mutations which couldn't be written to the back-end are replayed after a restart.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheWriteAheadLogDemo {
+
+    public static final String CACHE_NAME = "jday2015";
+    
+    private static final Map<Integer, String> BACKEND = new ConcurrentHashMap<Integer, String>();
+    private static final int ENTRY_COUNT = 100;
+    private static final String CRASH_ARG = "crash";
+    private static volatile boolean backendAvailable;
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws Exception {
+        File logDirectory = new File(System.getProperty("java.io.tmpdir"), "jday2015-wal");
+        
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setWriteThrough(true)
+                        // Mutations are logged before they are acknowledged 
+                        // and written to back-end in batches of 50 or at every 100 milliseconds 
+                        .setCacheWriterFactory(
+                                new WriteBehindCacheWriterFactory<Integer, String>(
+                                        FactoryBuilder.factoryOf(DemoCacheWriter.class))
+                                    .setBatchSize(50)
+                                    .setFlushInterval(TimeUnit.MILLISECONDS, 100)
+                                    .setWriteAheadLog(
+                                            new WriteAheadLogConfig(logDirectory)
+                                                .setKeyCodec(IntegerCodec.INSTANCE)
+                                                .setValueCodec(StringCodec.INSTANCE)))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        
+        if (args.length > 0 && CRASH_ARG.equals(args[0])) {
+            putAndCrash(cacheConfig);
+            return;
+        }
+        
+        // *************************************************************************** //
+        
+        // Run another JVM which puts entries while back-end is down and then crashes
+        Process process = 
+                new ProcessBuilder(
+                        new File(System.getProperty("java.home"), "bin/java").getPath(), 
+                        "-cp", System.getProperty("java.class.path"), 
+                        CacheWriteAheadLogDemo.class.getName(), 
+                        CRASH_ARG)
+                    .inheritIO()
+                    .start();
+        System.out.println("Crashed process has exited with code " + process.waitFor());
+        
+        // *************************************************************************** //
+        
+        backendAvailable = true;
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // Write-ahead log is replayed when the cache writer is created by the first write
+        cache.put(ENTRY_COUNT + 1, "Value-" + (ENTRY_COUNT + 1));
+        System.out.println("Entry count in backend after replay: " + BACKEND.size());
+        System.out.println("Value of key \"1\" in backend: " + BACKEND.get(1));
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    private static void putAndCrash(CompleteConfiguration<Integer, String> cacheConfig) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // We have not created cache, so lets create it first.
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        
+        // Back-end is down, so none of the mutations can be written
+        backendAvailable = false;
+        for (int j = 1; j <= 10; j++) {
+            for (int i = 1; i <= ENTRY_COUNT; i++) {
+                cache.put(i, "Value-" + i + "-" + j);
+            }
+        }
+        System.out.println("Put " + (10 * ENTRY_COUNT) + " times on " + ENTRY_COUNT + " keys while back-end is down");
+        
+        Thread.sleep(500);
+        System.out.println("Entry count in backend before crash: " + BACKEND.size());
+        
+        // Pending mutations couldn't be written, but they are in the write-ahead log
+        Runtime.getRuntime().halt(1);
+    }
+    
+    public static class DemoCacheWriter 
+            implements CacheWriter<Integer, String> {
+
+        private static void ensureAvailable() {
+            if (!backendAvailable) {
+                throw new CacheWriterException("Back-end is not available!");
+            }
+        }
+        
+        @Override
+        public void write(Entry<? extends Integer, ? extends String> entry)
+                throws CacheWriterException {
+            ensureAvailable();
+            BACKEND.put(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void writeAll(Collection<Entry<? extends Integer, ? extends String>> entries)
+                throws CacheWriterException {
+            ensureAvailable();
+            for (Entry<? extends Integer, ? extends String> entry : entries) {
+                BACKEND.put(entry.getKey(), entry.getValue());
+            }
+            entries.clear();
+        }
+
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            ensureAvailable();
+            BACKEND.remove(key);
+        }
+
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            ensureAvailable();
+            for (Object key : keys) {
+                BACKEND.remove(key);
+            }
+            keys.clear();
+        }
+        
+    }
+
+}
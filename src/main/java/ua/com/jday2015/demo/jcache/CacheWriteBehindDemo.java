@@ -0,0 +1,132 @@
+package ua.com.jday2015.demo.jcache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.Cache.Entry;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import javax.cache.spi.CachingProvider;
+
+import ua.com.jday2015.demo.jcache.integration.WriteBehindCacheWriterFactory;
+
+/**
+ * Demonstrates using write-behind cache writer to write data to your back-end 
+ * asynchronously in batches.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheWriteBehindDemo {
+
+    public static final String CACHE_NAME = "jday2015";
+    
+    private static final Map<Integer, String> BACKEND = new ConcurrentHashMap<Integer, String>();
+    private static final AtomicInteger BACKEND_CALL_COUNT = new AtomicInteger();
+    private static final int ENTRY_COUNT = 100;
+    private static final int UPDATE_COUNT = 10;
+    private static final int BATCH_SIZE = 50;
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        CachingProvider cachingProvider = Caching.getCachingProvider();
+        CacheManager cacheManager = cachingProvider.getCacheManager();
+        
+        // *************************************************************************** //
+      
+        // We have not created cache, so lets create it first.
+        CompleteConfiguration<Integer, String> cacheConfig = 
+                new MutableConfiguration<Integer, String>()
+                        .setWriteThrough(true)
+                        // Mutations are written to back-end in batches of 50 or at every second 
+                        .setCacheWriterFactory(
+                                new WriteBehindCacheWriterFactory<Integer, String>(
+                                        FactoryBuilder.factoryOf(DemoCacheWriter.class))
+                                    .setBatchSize(BATCH_SIZE)
+                                    .setFlushInterval(TimeUnit.SECONDS, 1))
+                        // In fact, configuring types is not needed 
+                        // if you really don't create type checking for putting into cache.
+                        .setTypes(Integer.class, String.class); 
+        Cache<Integer, String> cache = cacheManager.createCache(CACHE_NAME, cacheConfig);
+        System.out.println("Cache \"" + CACHE_NAME + "\" has been created");
+        
+        // *************************************************************************** //
+        
+        // Every key is updated 10 times, but only the latest value will be written to back-end
+        for (int j = 1; j <= UPDATE_COUNT; j++) {
+            for (int i = 1; i <= ENTRY_COUNT; i++) {
+                cache.put(i, "Value-" + i + "-" + j);
+            }
+        }
+        System.out.println("Put " + (UPDATE_COUNT * ENTRY_COUNT) + " times on " + ENTRY_COUNT + " keys");
+        System.out.println("Entry count in backend right after puts: " + BACKEND.size());
+        
+        // Wait for pending mutations to be flushed
+        Thread.sleep(2000);
+        
+        System.out.println("Entry count in backend after flush: " + BACKEND.size());
+        System.out.println("Back-end call count: " + BACKEND_CALL_COUNT.get());
+        
+        // All partitions share the same write-behind writer, so there is at most one back-end call 
+        // for every "BATCH_SIZE" puts and one more for the remaining ones
+        if (BACKEND.size() != ENTRY_COUNT 
+                || BACKEND_CALL_COUNT.get() > (UPDATE_COUNT * ENTRY_COUNT) / BATCH_SIZE + 1) {
+            throw new IllegalStateException("Mutations have not been written in batches!");
+        }
+        
+        // *************************************************************************** //
+        
+        // Close caching provider. 
+        // This also closes all owned cache managers and destroys theirs owned caches.
+        cachingProvider.close();
+    }
+    
+    public static class DemoCacheWriter 
+            implements CacheWriter<Integer, String> {
+    
+        @Override
+        public void write(Entry<? extends Integer, ? extends String> entry)
+                throws CacheWriterException {
+            BACKEND_CALL_COUNT.incrementAndGet();
+            BACKEND.put(entry.getKey(), entry.getValue());
+        }
+    
+        @Override
+        public void writeAll(Collection<Entry<? extends Integer, ? extends String>> entries)
+                throws CacheWriterException {
+            BACKEND_CALL_COUNT.incrementAndGet();
+            for (Entry<? extends Integer, ? extends String> entry : entries) {
+                BACKEND.put(entry.getKey(), entry.getValue());
+            }
+            entries.clear();
+        }
+    
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            BACKEND_CALL_COUNT.incrementAndGet();
+            BACKEND.remove(key);
+        }
+    
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            BACKEND_CALL_COUNT.incrementAndGet();
+            for (Object key : keys) {
+                BACKEND.remove(key);
+            }
+            keys.clear();
+        }
+        
+    }
+
+}
@@ -0,0 +1,46 @@
+package ua.com.jday2015.demo.jcache.async;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+
+/**
+ * Asynchronous facade of {@link Cache} whose operations return {@link CompletableFuture}s 
+ * instead of blocking the caller, so many operations can be in-flight at the same time.
+ * 
+ * @author Serkan OZAL
+ */
+public interface AsyncCache<K, V> {
+
+    Cache<K, V> getCache();
+    
+    CompletableFuture<V> getAsync(K key);
+    
+    /**
+     * Gets the values of the given keys by issuing all the gets at once. 
+     * Keys without values are not included in the result.
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Set<? extends K> keys);
+    
+    CompletableFuture<Void> putAsync(K key, V value);
+    
+    CompletableFuture<Boolean> putIfAbsentAsync(K key, V value);
+    
+    CompletableFuture<V> getAndPutAsync(K key, V value);
+    
+    CompletableFuture<Boolean> replaceAsync(K key, V value);
+    
+    CompletableFuture<Boolean> replaceAsync(K key, V oldValue, V newValue);
+    
+    CompletableFuture<Boolean> removeAsync(K key);
+    
+    CompletableFuture<Boolean> removeAsync(K key, V oldValue);
+    
+    CompletableFuture<V> getAndRemoveAsync(K key);
+    
+    <T> CompletableFuture<T> invokeAsync(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments);
+    
+}
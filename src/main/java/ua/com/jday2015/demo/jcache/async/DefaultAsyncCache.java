@@ -0,0 +1,375 @@
+package ua.com.jday2015.demo.jcache.async;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+
+import com.hazelcast.cache.ICache;
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+
+/**
+ * {@link AsyncCache} implementation over a {@link Cache}. 
+ * 
+ * Operations of a Hazelcast cache are sent by its native asynchronous operations, 
+ * so no thread waits for the responses and any number of operations are pipelined over the same connections. 
+ * Operations without native asynchronous versions and all operations of the other caches 
+ * (including decorators over Hazelcast caches, which must see the operations) 
+ * are run on the given {@link Executor}, which may be a virtual thread per task executor on recent JVMs. 
+ * 
+ * At most "maxPendingOperations" operations are in-flight. 
+ * When the limit is reached, callers are blocked until some of the operations complete (backpressure). 
+ * Hazelcast threads (whose names start with "hz.") are never blocked, since they may be the ones 
+ * which complete the pending operations, such as the threads running the continuations of the futures. 
+ * Operations started by them when the limit is reached fail immediately by {@link RejectedExecutionException}.
+ * Futures are completed by the threads receiving the responses, 
+ * so heavy continuations should be run by the <code>*Async</code> methods of {@link CompletableFuture}.
+ * 
+ * @author Serkan OZAL
+ */
+public class DefaultAsyncCache<K, V> implements AsyncCache<K, V> {
+
+    public static final int DEFAULT_MAX_PENDING_OPERATIONS = 1000;
+    
+    private static final String HAZELCAST_THREAD_NAME_PREFIX = "hz.";
+    private static final Executor DEFAULT_EXECUTOR = 
+            Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCounter = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "async-cache-" + threadCounter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+    
+    private final Cache<K, V> cache;
+    private final ICache<K, V> hazelcastCache;
+    private final Executor executor;
+    private final int maxPendingOperations;
+    private final Semaphore pendingOperations;
+    
+    public DefaultAsyncCache(Cache<K, V> cache) {
+        this(cache, DEFAULT_EXECUTOR, DEFAULT_MAX_PENDING_OPERATIONS);
+    }
+    
+    public DefaultAsyncCache(Cache<K, V> cache, int maxPendingOperations) {
+        this(cache, DEFAULT_EXECUTOR, maxPendingOperations);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public DefaultAsyncCache(Cache<K, V> cache, Executor executor, int maxPendingOperations) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor cannot be null!");
+        }
+        if (maxPendingOperations <= 0) {
+            throw new IllegalArgumentException("Max pending operations must be positive!");
+        }
+        this.cache = cache;
+        // Not unwrapped, since operations sent to the unwrapped cache would bypass the decorators
+        this.hazelcastCache = cache instanceof ICache ? (ICache<K, V>) cache : null;
+        this.executor = executor;
+        this.maxPendingOperations = maxPendingOperations;
+        this.pendingOperations = new Semaphore(maxPendingOperations);
+    }
+    
+    @Override
+    public Cache<K, V> getCache() {
+        return cache;
+    }
+    
+    public int getPendingOperationCount() {
+        return maxPendingOperations - pendingOperations.availablePermits();
+    }
+    
+    private static boolean isHazelcastThread() {
+        return Thread.currentThread().getName().startsWith(HAZELCAST_THREAD_NAME_PREFIX);
+    }
+    
+    /**
+     * Acquires a permit for an operation or fails the given future if it cannot be acquired without deadlock risk.
+     */
+    private boolean acquire(CompletableFuture<?> future) {
+        if (isHazelcastThread()) {
+            // Waiting here might prevent the pending operations from completing, so it fails fast
+            if (!pendingOperations.tryAcquire()) {
+                future.completeExceptionally(
+                        new RejectedExecutionException("Max pending operations (" + maxPendingOperations 
+                                                       + ") has been reached on Hazelcast thread " 
+                                                       + Thread.currentThread().getName() + "!"));
+                return false;
+            }
+            return true;
+        }
+        // Uninterruptibly, since there is no way to report interruption by the futures
+        pendingOperations.acquireUninterruptibly();
+        return true;
+    }
+    
+    private <T> CompletableFuture<T> submit(final Function<ICache<K, V>, ICompletableFuture<T>> nativeOperation, 
+                                            final Callable<T> blockingOperation) {
+        if (hazelcastCache == null) {
+            return submit(blockingOperation);
+        }
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        if (!acquire(future)) {
+            return future;
+        }
+        try {
+            nativeOperation.apply(hazelcastCache).andThen(new ExecutionCallback<T>() {
+                @Override
+                public void onResponse(T response) {
+                    pendingOperations.release();
+                    future.complete(response);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    pendingOperations.release();
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingOperations.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    private <T> CompletableFuture<T> submit(final Callable<T> blockingOperation) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        if (!acquire(future)) {
+            return future;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        T result = blockingOperation.call();
+                        pendingOperations.release();
+                        future.complete(result);
+                    } catch (Throwable t) {
+                        pendingOperations.release();
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingOperations.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    @Override
+    public CompletableFuture<V> getAsync(final K key) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<V>>() {
+                    @Override
+                    public ICompletableFuture<V> apply(ICache<K, V> c) {
+                        return c.getAsync(key);
+                    }
+                }, 
+                new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return cache.get(key);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Set<? extends K> keys) {
+        final List<K> keyList = new ArrayList<K>(keys);
+        final List<CompletableFuture<V>> futures = new ArrayList<CompletableFuture<V>>(keyList.size());
+        // All gets are issued before waiting any of them
+        for (K key : keyList) {
+            futures.add(getAsync(key));
+        }
+        return CompletableFuture
+                .allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                .thenApply(new Function<Void, Map<K, V>>() {
+                    @Override
+                    public Map<K, V> apply(Void ignored) {
+                        Map<K, V> result = new HashMap<K, V>();
+                        for (int i = 0; i < keyList.size(); i++) {
+                            V value = futures.get(i).join();
+                            if (value != null) {
+                                result.put(keyList.get(i), value);
+                            }
+                        }
+                        return result;
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Void> putAsync(final K key, final V value) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<Void>>() {
+                    @Override
+                    public ICompletableFuture<Void> apply(ICache<K, V> c) {
+                        return c.putAsync(key, value);
+                    }
+                }, 
+                new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        cache.put(key, value);
+                        return null;
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> putIfAbsentAsync(final K key, final V value) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<Boolean>>() {
+                    @Override
+                    public ICompletableFuture<Boolean> apply(ICache<K, V> c) {
+                        return c.putIfAbsentAsync(key, value);
+                    }
+                }, 
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return cache.putIfAbsent(key, value);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<V> getAndPutAsync(final K key, final V value) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<V>>() {
+                    @Override
+                    public ICompletableFuture<V> apply(ICache<K, V> c) {
+                        return c.getAndPutAsync(key, value);
+                    }
+                }, 
+                new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return cache.getAndPut(key, value);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> replaceAsync(final K key, final V value) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<Boolean>>() {
+                    @Override
+                    public ICompletableFuture<Boolean> apply(ICache<K, V> c) {
+                        return c.replaceAsync(key, value);
+                    }
+                }, 
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return cache.replace(key, value);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> replaceAsync(final K key, final V oldValue, final V newValue) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<Boolean>>() {
+                    @Override
+                    public ICompletableFuture<Boolean> apply(ICache<K, V> c) {
+                        return c.replaceAsync(key, oldValue, newValue);
+                    }
+                }, 
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return cache.replace(key, oldValue, newValue);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> removeAsync(final K key) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<Boolean>>() {
+                    @Override
+                    public ICompletableFuture<Boolean> apply(ICache<K, V> c) {
+                        return c.removeAsync(key);
+                    }
+                }, 
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return cache.remove(key);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<Boolean> removeAsync(final K key, final V oldValue) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<Boolean>>() {
+                    @Override
+                    public ICompletableFuture<Boolean> apply(ICache<K, V> c) {
+                        return c.removeAsync(key, oldValue);
+                    }
+                }, 
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return cache.remove(key, oldValue);
+                    }
+                });
+    }
+    
+    @Override
+    public CompletableFuture<V> getAndRemoveAsync(final K key) {
+        return submit(
+                new Function<ICache<K, V>, ICompletableFuture<V>>() {
+                    @Override
+                    public ICompletableFuture<V> apply(ICache<K, V> c) {
+                        return c.getAndRemoveAsync(key);
+                    }
+                }, 
+                new Callable<V>() {
+                    @Override
+                    public V call() {
+                        return cache.getAndRemove(key);
+                    }
+                });
+    }
+    
+    @Override
+    public <T> CompletableFuture<T> invokeAsync(final K key, final EntryProcessor<K, V, T> entryProcessor, 
+                                                final Object... arguments) {
+        // There is no native asynchronous invoke
+        return submit(
+                new Callable<T>() {
+                    @Override
+                    public T call() {
+                        return cache.invoke(key, entryProcessor, arguments);
+                    }
+                });
+    }
+    
+}
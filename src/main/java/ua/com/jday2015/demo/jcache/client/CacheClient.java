@@ -0,0 +1,98 @@
+package ua.com.jday2015.demo.jcache.client;
+
+import java.io.Closeable;
+import java.net.URI;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+
+import com.hazelcast.client.HazelcastClient;
+import com.hazelcast.client.cache.impl.HazelcastClientCachingProvider;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.Member;
+
+import ua.com.jday2015.demo.jcache.async.AsyncCache;
+import ua.com.jday2015.demo.jcache.async.DefaultAsyncCache;
+
+/**
+ * Client-mode access to caches of a separately run cluster, so the application JVM doesn't own any data 
+ * and its restarts don't trigger partition migrations on the cluster.
+ * 
+ * Client keeps a pool of connections, one to each member, and (with smart routing) 
+ * sends every request directly to the owner member of its key. 
+ * Connections are multiplexed, since requests are matched to theirs responses by correlation ids, 
+ * so any number of requests from any number of threads can be in-flight on the same connection. 
+ * Caches returned by {@link #pipeline(Cache)} use this to pipeline requests 
+ * without waiting for the responses of the previous ones.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheClient implements Closeable {
+
+    private final CacheClientConfig config;
+    private final HazelcastInstance hazelcastClient;
+    private final CachingProvider cachingProvider;
+    
+    public CacheClient() {
+        this(new CacheClientConfig());
+    }
+    
+    public CacheClient(CacheClientConfig config) {
+        if (config == null) {
+            throw new NullPointerException("Cache client config cannot be null!");
+        }
+        if (config.getAddresses() == null || config.getAddresses().isEmpty()) {
+            throw new IllegalArgumentException("There must be at least one member address!");
+        }
+        if (config.getMaxInFlightRequests() <= 0) {
+            throw new IllegalArgumentException("Max in-flight requests must be positive!");
+        }
+        this.config = config;
+        this.hazelcastClient = HazelcastClient.newHazelcastClient(config.toClientConfig());
+        this.cachingProvider = HazelcastClientCachingProvider.createCachingProvider(hazelcastClient);
+    }
+    
+    public HazelcastInstance getHazelcastClient() {
+        return hazelcastClient;
+    }
+    
+    public CachingProvider getCachingProvider() {
+        return cachingProvider;
+    }
+    
+    public CacheManager getCacheManager() {
+        return cachingProvider.getCacheManager();
+    }
+    
+    public CacheManager getCacheManager(URI uri) {
+        return cachingProvider.getCacheManager(uri, cachingProvider.getDefaultClassLoader());
+    }
+    
+    /**
+     * Gets the asynchronous view of the given cache which pipelines at most "maxInFlightRequests" requests.
+     */
+    public <K, V> AsyncCache<K, V> pipeline(Cache<K, V> cache) {
+        return new DefaultAsyncCache<K, V>(cache, config.getMaxInFlightRequests());
+    }
+    
+    /**
+     * Gets the member which owns the given key, so requests on the key are sent to it.
+     */
+    public Member getOwner(Object key) {
+        return hazelcastClient.getPartitionService().getPartition(key).getOwner();
+    }
+    
+    @Override
+    public void close() {
+        cachingProvider.close();
+        hazelcastClient.shutdown();
+    }
+    
+    @Override
+    public String toString() {
+        return "CacheClient{members=" + hazelcastClient.getCluster().getMembers() 
+                + ", smartRouting=" + config.isSmartRouting() + "}";
+    }
+    
+}
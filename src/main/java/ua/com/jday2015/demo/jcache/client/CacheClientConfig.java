@@ -0,0 +1,138 @@
+package ua.com.jday2015.demo.jcache.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.client.config.ClientProperties;
+import com.hazelcast.config.GroupConfig;
+
+/**
+ * Configuration of {@link CacheClient}. 
+ * By default, it connects to a cluster on {@link #DEFAULT_ADDRESSES} with the default group of Hazelcast 
+ * and routes every key to its owner member.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheClientConfig {
+
+    public static final List<String> DEFAULT_ADDRESSES = 
+            Arrays.asList("127.0.0.1:5701", "127.0.0.1:5702", "127.0.0.1:5703");
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 1000;
+    public static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 5000;
+    public static final int DEFAULT_CONNECTION_ATTEMPT_LIMIT = 10;
+    public static final int DEFAULT_INVOCATION_TIMEOUT_SECONDS = 30;
+    
+    private List<String> addresses = new ArrayList<String>(DEFAULT_ADDRESSES);
+    private String groupName = GroupConfig.DEFAULT_GROUP_NAME;
+    private String groupPassword = GroupConfig.DEFAULT_GROUP_PASSWORD;
+    private boolean smartRouting = true;
+    private int maxInFlightRequests = DEFAULT_MAX_IN_FLIGHT_REQUESTS;
+    private int connectionTimeoutMillis = DEFAULT_CONNECTION_TIMEOUT_MILLIS;
+    private int connectionAttemptLimit = DEFAULT_CONNECTION_ATTEMPT_LIMIT;
+    private int invocationTimeoutSeconds = DEFAULT_INVOCATION_TIMEOUT_SECONDS;
+    
+    public List<String> getAddresses() {
+        return addresses;
+    }
+    
+    /**
+     * Sets the addresses (as <code>host:port</code>) of the members to connect initially. 
+     * Other members of the cluster are discovered from the connected ones.
+     */
+    public CacheClientConfig setAddresses(List<String> addresses) {
+        this.addresses = new ArrayList<String>(addresses);
+        return this;
+    }
+    
+    public String getGroupName() {
+        return groupName;
+    }
+    
+    public CacheClientConfig setGroupName(String groupName) {
+        this.groupName = groupName;
+        return this;
+    }
+    
+    public String getGroupPassword() {
+        return groupPassword;
+    }
+    
+    public CacheClientConfig setGroupPassword(String groupPassword) {
+        this.groupPassword = groupPassword;
+        return this;
+    }
+    
+    public boolean isSmartRouting() {
+        return smartRouting;
+    }
+    
+    /**
+     * Sets whether the client connects to all the members and sends every request to the owner of its key. 
+     * Otherwise, all requests are sent to a single member which forwards them to the owners.
+     */
+    public CacheClientConfig setSmartRouting(boolean smartRouting) {
+        this.smartRouting = smartRouting;
+        return this;
+    }
+    
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+    
+    /**
+     * Sets the max number of requests pipelined by a cache of {@link CacheClient#pipeline(javax.cache.Cache)} 
+     * before waiting for theirs responses.
+     */
+    public CacheClientConfig setMaxInFlightRequests(int maxInFlightRequests) {
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+    
+    public int getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+    
+    public CacheClientConfig setConnectionTimeoutMillis(int connectionTimeoutMillis) {
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        return this;
+    }
+    
+    public int getConnectionAttemptLimit() {
+        return connectionAttemptLimit;
+    }
+    
+    public CacheClientConfig setConnectionAttemptLimit(int connectionAttemptLimit) {
+        this.connectionAttemptLimit = connectionAttemptLimit;
+        return this;
+    }
+    
+    public int getInvocationTimeoutSeconds() {
+        return invocationTimeoutSeconds;
+    }
+    
+    public CacheClientConfig setInvocationTimeoutSeconds(int invocationTimeoutSeconds) {
+        this.invocationTimeoutSeconds = invocationTimeoutSeconds;
+        return this;
+    }
+    
+    /**
+     * Creates the Hazelcast client configuration of this configuration.
+     */
+    public ClientConfig toClientConfig() {
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.getGroupConfig()
+                .setName(groupName)
+                .setPassword(groupPassword);
+        clientConfig.getNetworkConfig()
+                .setAddresses(new ArrayList<String>(addresses))
+                .setSmartRouting(smartRouting)
+                .setConnectionTimeout(connectionTimeoutMillis)
+                .setConnectionAttemptLimit(connectionAttemptLimit);
+        clientConfig.setProperty(ClientProperties.PROP_INVOCATION_TIMEOUT_SECONDS, 
+                                 String.valueOf(invocationTimeoutSeconds));
+        return clientConfig;
+    }
+    
+}
@@ -0,0 +1,54 @@
+package ua.com.jday2015.demo.jcache.client;
+
+import java.io.IOException;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+/**
+ * Cluster member to be run in its own JVM by {@link LocalCluster}. 
+ * It joins the other members on the given ports of the local host, 
+ * prints {@link #READY_LINE} followed by its address when it has started 
+ * and shuts down when its standard input is closed (so it doesn't outlive the JVM which has started it).
+ * 
+ * Usage: <code>CacheClusterMember &lt;port&gt; [&lt;port of other member&gt; ...]</code>
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheClusterMember {
+
+    public static final String READY_LINE = "READY";
+    
+    static {
+        System.setProperty("hazelcast.logging.type", "none");
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CacheClusterMember <port> [<port of other member> ...]");
+            System.exit(1);
+        }
+        Config config = new Config();
+        config.getNetworkConfig()
+                .setPort(Integer.parseInt(args[0]))
+                .setPortAutoIncrement(false);
+        JoinConfig joinConfig = config.getNetworkConfig().getJoin();
+        joinConfig.getMulticastConfig().setEnabled(false);
+        joinConfig.getTcpIpConfig().setEnabled(true);
+        for (String port : args) {
+            joinConfig.getTcpIpConfig().addMember("127.0.0.1:" + port);
+        }
+        HazelcastInstance hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+        
+        System.out.println(READY_LINE + " " + hazelcastInstance.getCluster().getLocalMember().getSocketAddress());
+        System.out.flush();
+        
+        while (System.in.read() != -1) {
+            // Wait until the standard input is closed
+        }
+        hazelcastInstance.shutdown();
+    }
+    
+}
@@ -0,0 +1,134 @@
+package ua.com.jday2015.demo.jcache.client;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in of a separately run cluster for demos and tests. 
+ * Every member is a {@link CacheClusterMember} running in its own JVM with the classpath of the current JVM, 
+ * so the members can load the entry processors, loaders and listeners of the application.
+ * 
+ * @author Serkan OZAL
+ */
+public class LocalCluster implements Closeable {
+
+    public static final int DEFAULT_FIRST_PORT = 5701;
+    public static final long DEFAULT_STOP_TIMEOUT_MILLIS = 10000;
+    
+    private final List<Process> processes = new ArrayList<Process>();
+    private final List<String> addresses = new ArrayList<String>();
+    
+    private LocalCluster() {
+    }
+    
+    /**
+     * Starts the given number of members on the consecutive ports starting from {@link #DEFAULT_FIRST_PORT} 
+     * and waits until all of them have joined.
+     */
+    public static LocalCluster start(int memberCount) throws IOException {
+        if (memberCount <= 0) {
+            throw new IllegalArgumentException("Member count must be positive!");
+        }
+        List<String> ports = new ArrayList<String>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            ports.add(String.valueOf(DEFAULT_FIRST_PORT + i));
+        }
+        LocalCluster cluster = new LocalCluster();
+        try {
+            for (int i = 0; i < memberCount; i++) {
+                // Own port is given first, others are the ones to join
+                List<String> memberPorts = new ArrayList<String>(ports);
+                Collections.swap(memberPorts, 0, i);
+                cluster.startMember(memberPorts);
+            }
+        } catch (IOException e) {
+            cluster.close();
+            throw e;
+        }
+        return cluster;
+    }
+    
+    private void startMember(List<String> ports) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CacheClusterMember.class.getName());
+        command.addAll(ports);
+        Process process = 
+                new ProcessBuilder(command)
+                        .redirectErrorStream(true)
+                        .start();
+        processes.add(process);
+        
+        final BufferedReader reader = 
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(CacheClusterMember.READY_LINE)) {
+                addresses.add(line.substring(CacheClusterMember.READY_LINE.length()).trim().replaceFirst("^/", ""));
+                break;
+            }
+        }
+        if (line == null) {
+            throw new IOException("Cluster member on port " + ports.get(0) + " has exited before it has started!");
+        }
+        
+        // Rest of the output is drained, so the member never blocks on a full pipe
+        Thread drainer = new Thread("local-cluster-output-" + processes.size()) {
+            @Override
+            public void run() {
+                try {
+                    while (reader.readLine() != null) {
+                        // Output of the member is ignored
+                    }
+                } catch (IOException e) {
+                    // Member has exited
+                }
+            }
+        };
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+    
+    /**
+     * Gets the addresses (as <code>host:port</code>) of the members.
+     */
+    public List<String> getAddresses() {
+        return Collections.unmodifiableList(addresses);
+    }
+    
+    /**
+     * Stops all the members by closing theirs standard inputs, then kills the ones which have not stopped in time.
+     */
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            try {
+                process.getOutputStream().close();
+            } catch (IOException e) {
+                // Member has already exited
+            }
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(DEFAULT_STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+        processes.clear();
+    }
+    
+}
@@ -0,0 +1,28 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes objects into and decodes them from binary form. 
+ * Codecs are serializable, so they can be configured in factories which are created on the members.
+ * 
+ * @author Serkan OZAL
+ */
+public interface Codec<T> extends Serializable {
+
+    /**
+     * Encodes the given value into the given buffer starting from its current position.
+     * 
+     * @throws BufferOverflowException if there is not enough space in the buffer. 
+     *                                 Then caller retries with a larger buffer.
+     */
+    void encode(T value, ByteBuffer buffer) throws BufferOverflowException;
+    
+    /**
+     * Decodes the value from the remaining bytes of the given buffer.
+     */
+    T decode(ByteBuffer buffer);
+    
+}
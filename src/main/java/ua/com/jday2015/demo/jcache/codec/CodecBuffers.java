@@ -0,0 +1,87 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable thread-local buffers for encoding with {@link Codec}s. 
+ * Buffers start with {@link #DEFAULT_INITIAL_SIZE} bytes and are doubled 
+ * whenever a codec overflows them, up to {@link #MAX_SIZE} bytes. 
+ * 
+ * A returned buffer is only valid until the next call from the same thread, 
+ * so it must be consumed (copied to a stream, a file, etc ...) before that.
+ * 
+ * @author Serkan OZAL
+ */
+public final class CodecBuffers {
+
+    public static final int DEFAULT_INITIAL_SIZE = 1024;
+    public static final int MAX_SIZE = 64 * 1024 * 1024;
+    
+    private static final ThreadLocal<ByteBuffer> BUFFERS = 
+            new ThreadLocal<ByteBuffer>() {
+                @Override
+                protected ByteBuffer initialValue() {
+                    return ByteBuffer.allocate(DEFAULT_INITIAL_SIZE);
+                }
+            };
+    
+    private CodecBuffers() {
+    }
+    
+    /**
+     * Gets the cleared buffer of the current thread with at least the given capacity.
+     */
+    public static ByteBuffer acquire(int capacity) {
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer.capacity() < capacity) {
+            if (capacity > MAX_SIZE) {
+                throw new IllegalArgumentException("Buffer size cannot be bigger than " + MAX_SIZE + "!");
+            }
+            buffer = ByteBuffer.allocate(Math.max(capacity, Math.min(buffer.capacity() << 1, MAX_SIZE)));
+            BUFFERS.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+    
+    /**
+     * Encodes the given value into the buffer of the current thread 
+     * and returns the buffer flipped for reading the encoded bytes.
+     */
+    public static <T> ByteBuffer encode(Codec<T> codec, T value) {
+        return encode(codec, value, 0);
+    }
+    
+    /**
+     * Encodes the given value into the buffer of the current thread after the given number of reserved bytes 
+     * (such as for a length prefix) and returns the buffer positioned at the encoded bytes.
+     */
+    public static <T> ByteBuffer encode(Codec<T> codec, T value, int reservedSize) {
+        ByteBuffer buffer = acquire(reservedSize);
+        while (true) {
+            try {
+                buffer.position(reservedSize);
+                codec.encode(value, buffer);
+                buffer.limit(buffer.position()).position(reservedSize);
+                return buffer;
+            } catch (BufferOverflowException e) {
+                if (buffer.capacity() >= MAX_SIZE) {
+                    throw new IllegalArgumentException("Encoded value is bigger than " + MAX_SIZE + " bytes!");
+                }
+                buffer = acquire(buffer.capacity() + 1);
+            }
+        }
+    }
+    
+    /**
+     * Encodes the given value into a new <code>byte[]</code> which has exactly the encoded bytes.
+     */
+    public static <T> byte[] toByteArray(Codec<T> codec, T value) {
+        ByteBuffer buffer = encode(codec, value);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+}
@@ -0,0 +1,117 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.cache.configuration.Configuration;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+
+/**
+ * Registry of {@link Codec}s by the types they encode. 
+ * Codecs of cache entries are looked up by the key and value types of the cache configuration 
+ * and {@link SerializableCodec} is used for the types which have no registered codec. 
+ * 
+ * {@link #configure(SerializationConfig)} registers the codecs to Hazelcast as {@link CodecSerializer}s, 
+ * so entries are stored, transferred and published in events in their compact form. 
+ * Type ids are given by the registration order starting from {@link #DEFAULT_FIRST_TYPE_ID}, 
+ * so all the members must register the same codecs in the same order. 
+ * Hazelcast doesn't allow overriding its own serializers of JDK types (such as {@link Integer} and {@link String}), 
+ * so codecs of <code>java.*</code> types are only used outside of Hazelcast (off-heap stores, snapshots, logs, ...). 
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class CodecRegistry implements Serializable {
+
+    public static final int DEFAULT_FIRST_TYPE_ID = 1000;
+    
+    private static final Codec<Object> FALLBACK_CODEC = new SerializableCodec<Object>();
+    
+    private final Map<Class<?>, Codec<?>> codecs = new LinkedHashMap<Class<?>, Codec<?>>();
+    private int firstTypeId = DEFAULT_FIRST_TYPE_ID;
+    
+    /**
+     * Creates a registry with the compact codecs of the common key and value types: 
+     * {@link VarIntCodec} for {@link Integer}s and {@link Utf8StringCodec} for {@link String}s.
+     */
+    public static CodecRegistry withDefaults() {
+        return new CodecRegistry()
+                    .register(Integer.class, VarIntCodec.INSTANCE)
+                    .register(String.class, Utf8StringCodec.INSTANCE);
+    }
+    
+    public <T> CodecRegistry register(Class<T> type, Codec<T> codec) {
+        if (type == null) {
+            throw new NullPointerException("Type cannot be null!");
+        }
+        if (codec == null) {
+            throw new NullPointerException("Codec cannot be null!");
+        }
+        codecs.put(type, codec);
+        return this;
+    }
+    
+    public int getFirstTypeId() {
+        return firstTypeId;
+    }
+    
+    public CodecRegistry setFirstTypeId(int firstTypeId) {
+        if (firstTypeId <= 0) {
+            throw new IllegalArgumentException("First type id must be positive!");
+        }
+        this.firstTypeId = firstTypeId;
+        return this;
+    }
+    
+    /**
+     * Gets the codec of the given type. If there is no codec registered for the type itself, 
+     * codec of its first registered super type is used and {@link SerializableCodec} is the last resort.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> getCodec(Class<T> type) {
+        Codec<?> codec = codecs.get(type);
+        if (codec == null) {
+            for (Map.Entry<Class<?>, Codec<?>> entry : codecs.entrySet()) {
+                if (entry.getKey().isAssignableFrom(type)) {
+                    codec = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return (Codec<T>) (codec != null ? codec : FALLBACK_CODEC);
+    }
+    
+    public <K, V> Codec<K> getKeyCodec(Configuration<K, V> configuration) {
+        return getCodec(configuration.getKeyType());
+    }
+    
+    public <K, V> Codec<V> getValueCodec(Configuration<K, V> configuration) {
+        return getCodec(configuration.getValueType());
+    }
+    
+    /**
+     * Registers serializers of the codecs (except the ones of <code>java.*</code> types) 
+     * to the given Hazelcast serialization configuration. 
+     * Note that the registry created by {@link #withDefaults()} has codecs of only <code>java.*</code> types, 
+     * so it registers nothing and Hazelcast keeps using its own serializers until other codecs are registered.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public SerializationConfig configure(SerializationConfig serializationConfig) {
+        int typeId = firstTypeId;
+        for (Map.Entry<Class<?>, Codec<?>> entry : codecs.entrySet()) {
+            Class<?> type = entry.getKey();
+            if (type.getName().startsWith("java.")) {
+                continue;
+            }
+            serializationConfig.addSerializerConfig(
+                    new SerializerConfig()
+                            .setTypeClass(type)
+                            .setImplementation(new CodecSerializer(entry.getValue(), typeId++)));
+        }
+        return serializationConfig;
+    }
+
+}
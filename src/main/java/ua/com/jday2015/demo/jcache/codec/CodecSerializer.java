@@ -0,0 +1,84 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.StreamSerializer;
+
+/**
+ * Hazelcast {@link StreamSerializer} implementation which serializes objects by a {@link Codec}. 
+ * Encoded bytes are written with their length as variable length integer 
+ * through the thread-local buffers of {@link CodecBuffers}. 
+ * 
+ * Since Hazelcast uses the registered serializers everywhere, 
+ * the same codec is used for the stored records, the operations sent over the network 
+ * and the old/new values in cache entry events.
+ * 
+ * @author Serkan OZAL
+ */
+public class CodecSerializer<T> implements StreamSerializer<T> {
+
+    private final Codec<T> codec;
+    private final int typeId;
+    
+    public CodecSerializer(Codec<T> codec, int typeId) {
+        if (codec == null) {
+            throw new NullPointerException("Codec cannot be null!");
+        }
+        if (typeId <= 0) {
+            throw new IllegalArgumentException("Type id must be positive!");
+        }
+        this.codec = codec;
+        this.typeId = typeId;
+    }
+    
+    public Codec<T> getCodec() {
+        return codec;
+    }
+    
+    @Override
+    public int getTypeId() {
+        return typeId;
+    }
+    
+    @Override
+    public void write(ObjectDataOutput out, T object) throws IOException {
+        // Length is written into the bytes reserved before the encoded bytes, so they are written at once
+        ByteBuffer buffer = CodecBuffers.encode(codec, object, VarIntCodec.MAX_VAR_INT_SIZE);
+        int length = buffer.remaining();
+        int start = VarIntCodec.MAX_VAR_INT_SIZE - VarIntCodec.sizeOfVarInt(length);
+        buffer.position(start);
+        VarIntCodec.writeVarInt(length, buffer);
+        out.write(buffer.array(), buffer.arrayOffset() + start, buffer.limit() - start);
+    }
+    
+    @Override
+    public T read(ObjectDataInput in) throws IOException {
+        // Bytes of the length are read until its last byte, so nothing after it is consumed
+        ByteBuffer buffer = CodecBuffers.acquire(VarIntCodec.MAX_VAR_INT_SIZE);
+        buffer.limit(VarIntCodec.MAX_VAR_INT_SIZE);
+        byte b;
+        do {
+            b = in.readByte();
+            buffer.put(b);
+        } while (b < 0 && buffer.hasRemaining());
+        buffer.flip();
+        int length;
+        try {
+            length = VarIntCodec.readVarInt(buffer);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed length of " + codec + "!", e);
+        }
+        buffer = CodecBuffers.acquire(length);
+        in.readFully(buffer.array(), buffer.arrayOffset(), length);
+        buffer.limit(length);
+        return codec.decode(buffer);
+    }
+    
+    @Override
+    public void destroy() {
+    }
+
+}
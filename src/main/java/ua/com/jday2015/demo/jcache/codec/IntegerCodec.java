@@ -0,0 +1,25 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Codec} implementation for {@link Integer}s in fixed 4 bytes.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class IntegerCodec implements Codec<Integer> {
+
+    public static final IntegerCodec INSTANCE = new IntegerCodec();
+    
+    @Override
+    public void encode(Integer value, ByteBuffer buffer) {
+        buffer.putInt(value);
+    }
+
+    @Override
+    public Integer decode(ByteBuffer buffer) {
+        return buffer.getInt();
+    }
+
+}
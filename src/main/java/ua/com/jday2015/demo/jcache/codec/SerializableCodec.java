@@ -0,0 +1,51 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Codec} implementation for any object by using Java serialization. 
+ * It is the fallback when there is no specific codec for a type.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class SerializableCodec<T> implements Codec<T> {
+
+    @Override
+    public void encode(T value, ByteBuffer buffer) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(value);
+            oos.close();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to serialize " + value, e);
+        }
+        buffer.put(bos.toByteArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
+            try {
+                return (T) ois.readObject();
+            } finally {
+                ois.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to deserialize", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unable to deserialize", e);
+        }
+    }
+
+}
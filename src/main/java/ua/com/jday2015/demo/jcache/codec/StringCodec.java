@@ -0,0 +1,33 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Codec} implementation for {@link String}s as 2 bytes per char (UTF-16). 
+ * It needs no intermediate <code>byte[]</code> and length is implied by the remaining bytes.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class StringCodec implements Codec<String> {
+
+    public static final StringCodec INSTANCE = new StringCodec();
+    
+    @Override
+    public void encode(String value, ByteBuffer buffer) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            buffer.putChar(value.charAt(i));
+        }
+    }
+
+    @Override
+    public String decode(ByteBuffer buffer) {
+        char[] chars = new char[buffer.remaining() >> 1];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = buffer.getChar();
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,123 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link Codec} implementation for {@link String}s as UTF-8 prefixed by their byte length as variable length integer. 
+ * Characters are encoded directly into the buffer without an intermediate <code>byte[]</code>, 
+ * so ASCII strings take 1 byte per char. 
+ * Since it is length prefixed, it can also be used for string fields of other codecs.
+ * 
+ * Unpaired surrogates are encoded as <code>'?'</code> as {@link String#getBytes(java.nio.charset.Charset)} does.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class Utf8StringCodec implements Codec<String> {
+
+    public static final Utf8StringCodec INSTANCE = new Utf8StringCodec();
+    
+    @Override
+    public void encode(String value, ByteBuffer buffer) {
+        int byteCount = sizeOfUtf8(value);
+        VarIntCodec.writeVarInt(byteCount, buffer);
+        if (buffer.remaining() < byteCount) {
+            throw new BufferOverflowException();
+        }
+        // Bytes are put by absolute index since it is cheaper than updating position for each byte
+        int index = buffer.position();
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(index++, (byte) (0xC0 | (c >> 6)));
+                buffer.put(index++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length 
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer.put(index++, (byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put(index++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put(index++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put(index++, (byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    buffer.put(index++, (byte) '?');
+                }
+            } else {
+                buffer.put(index++, (byte) (0xE0 | (c >> 12)));
+                buffer.put(index++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put(index++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.position(index);
+    }
+    
+    @Override
+    public String decode(ByteBuffer buffer) {
+        int byteCount = VarIntCodec.readVarInt(buffer);
+        if (buffer.remaining() < byteCount) {
+            throw new BufferUnderflowException();
+        }
+        if (buffer.hasArray()) {
+            // Decoded from the backing array in place
+            String value = 
+                    new String(buffer.array(), buffer.arrayOffset() + buffer.position(), 
+                               byteCount, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + byteCount);
+            return value;
+        }
+        // A string has at most as many chars as its UTF-8 bytes
+        char[] chars = new char[byteCount];
+        int length = 0;
+        int end = buffer.position() + byteCount;
+        while (buffer.position() < end) {
+            int b = buffer.get();
+            if (b >= 0) {
+                chars[length++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[length++] = (char) (((b & 0x1F) << 6) | (buffer.get() & 0x3F));
+            } else if ((b & 0xF0) == 0xE0) {
+                chars[length++] = 
+                        (char) (((b & 0x0F) << 12) | ((buffer.get() & 0x3F) << 6) | (buffer.get() & 0x3F));
+            } else {
+                int codePoint = 
+                        ((b & 0x07) << 18) | ((buffer.get() & 0x3F) << 12) 
+                        | ((buffer.get() & 0x3F) << 6) | (buffer.get() & 0x3F);
+                length += Character.toChars(codePoint, chars, length);
+            }
+        }
+        return new String(chars, 0, length);
+    }
+    
+    /**
+     * Gets the number of UTF-8 bytes of the given string (without the length prefix).
+     */
+    public static int sizeOfUtf8(String value) {
+        int length = value.length();
+        int byteCount = length;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    byteCount += 1;
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length 
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        // 2 chars in 4 bytes
+                        byteCount += 2;
+                        i++;
+                    }
+                } else {
+                    byteCount += 2;
+                }
+            }
+        }
+        return byteCount;
+    }
+
+}
@@ -0,0 +1,85 @@
+package ua.com.jday2015.demo.jcache.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Codec} implementation for {@link Integer}s as variable length integers (1 to 5 bytes). 
+ * Values are zig-zag encoded first, so small negative values are also short. 
+ * Its static methods can be used by other codecs to encode lengths and integer fields.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class VarIntCodec implements Codec<Integer> {
+
+    public static final VarIntCodec INSTANCE = new VarIntCodec();
+    
+    /**
+     * Maximum number of bytes of a variable length integer.
+     */
+    public static final int MAX_VAR_INT_SIZE = 5;
+    
+    @Override
+    public void encode(Integer value, ByteBuffer buffer) {
+        writeVarInt(zigZag(value), buffer);
+    }
+    
+    @Override
+    public Integer decode(ByteBuffer buffer) {
+        return unZigZag(readVarInt(buffer));
+    }
+    
+    /**
+     * Writes the given value as unsigned variable length integer, 7 bits per byte.
+     */
+    public static void writeVarInt(int value, ByteBuffer buffer) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    /**
+     * Reads an unsigned variable length integer written by {@link #writeVarInt(int, ByteBuffer)}.
+     */
+    public static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VAR_INT_SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable length integer!");
+    }
+    
+    /**
+     * Gets the number of bytes which {@link #writeVarInt(int, ByteBuffer)} writes for the given value.
+     */
+    public static int sizeOfVarInt(int value) {
+        if ((value & (~0 << 7)) == 0) {
+            return 1;
+        }
+        if ((value & (~0 << 14)) == 0) {
+            return 2;
+        }
+        if ((value & (~0 << 21)) == 0) {
+            return 3;
+        }
+        if ((value & (~0 << 28)) == 0) {
+            return 4;
+        }
+        return MAX_VAR_INT_SIZE;
+    }
+    
+    public static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    public static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,1496 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.EventType;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
+
+/**
+ * In-process {@link Cache} implementation of {@link EmbeddedCachingProvider}. 
+ * Entries are kept in a {@link ConcurrentHashMap} and read without locking. 
+ * Mutations of a key are serialized by one of the {@link #DEFAULT_CONCURRENCY_LEVEL} striped locks, 
+ * so writes to different stripes don't contend. 
+ * Entry processors are executed in place under the stripe lock of their key, without any serialization. 
+ * In {@link InvokeMode#OPTIMISTIC} mode they are executed without the lock and only their commit takes it, 
+ * so processors on a hot key run in parallel. 
+ * Caches with a cache writer or with read-through always execute processors under the lock. 
+ * Records are immutable (except their expiry times) and replaced on every update, 
+ * so the record instance read by a processor is the version stamp checked on its commit.
+ * 
+ * Store-by-value is done by copying mutable keys and values through Java serialization, 
+ * immutable JDK types (such as {@link String} and {@link Integer}) are never copied. 
+ * Expired entries are removed when they are accessed (or iterated), there is no background expiration.
+ * 
+ * @author Serkan OZAL
+ */
+public class EmbeddedCache<K, V> implements Cache<K, V> {
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    public static final int DEFAULT_MAX_OPTIMISTIC_RETRIES = 8;
+    
+    private static final AtomicInteger LOADER_THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService LOADER_EXECUTOR =
+            Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "embedded-cache-loader-"
+                                                     + LOADER_THREAD_COUNTER.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+    
+    private static final Set<Class<?>> IMMUTABLE_TYPES =
+            new HashSet<Class<?>>(
+                    Arrays.<Class<?>>asList(
+                            String.class, Integer.class, Long.class, Short.class, Byte.class,
+                            Character.class, Boolean.class, Float.class, Double.class,
+                            BigInteger.class, BigDecimal.class, Class.class));
+    
+    private final EmbeddedCacheManager cacheManager;
+    private final String name;
+    private final MutableConfiguration<K, V> configuration;
+    private final boolean storeByValue;
+    private final boolean typeChecked;
+    private final ConcurrentHashMap<Object, Record<V>> records = new ConcurrentHashMap<Object, Record<V>>();
+    private final ReentrantLock[] locks = new ReentrantLock[DEFAULT_CONCURRENCY_LEVEL];
+    private final ExpiryPolicy expiryPolicy;
+    private final CacheLoader<K, V> cacheLoader;
+    private final CacheWriter<? super K, ? super V> cacheWriter;
+    private final List<ListenerRegistration<K, V>> listenerRegistrations =
+            new CopyOnWriteArrayList<ListenerRegistration<K, V>>();
+    private final EmbeddedCacheStatistics statistics = new EmbeddedCacheStatistics();
+    private final EmbeddedCacheMXBean mxBean = new EmbeddedCacheMXBean(this);
+    private final InvokeContentionStatistics contentionStatistics = new InvokeContentionStatistics();
+    private volatile boolean statisticsEnabled;
+    private volatile InvokeMode invokeMode = InvokeMode.LOCKED;
+    private volatile int maxOptimisticRetries = DEFAULT_MAX_OPTIMISTIC_RETRIES;
+    private volatile boolean closed;
+    
+    EmbeddedCache(EmbeddedCacheManager cacheManager, String name, MutableConfiguration<K, V> configuration) {
+        this.cacheManager = cacheManager;
+        this.name = name;
+        this.configuration = configuration;
+        this.storeByValue = configuration.isStoreByValue();
+        this.typeChecked =
+                configuration.getKeyType() != Object.class || configuration.getValueType() != Object.class;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.expiryPolicy = configuration.getExpiryPolicyFactory().create();
+        this.cacheLoader =
+                configuration.getCacheLoaderFactory() != null
+                    ? configuration.getCacheLoaderFactory().create()
+                    : null;
+        this.cacheWriter =
+                configuration.isWriteThrough() && configuration.getCacheWriterFactory() != null
+                    ? configuration.getCacheWriterFactory().create()
+                    : null;
+        for (CacheEntryListenerConfiguration<K, V> listenerConfig :
+                configuration.getCacheEntryListenerConfigurations()) {
+            listenerRegistrations.add(new ListenerRegistration<K, V>(listenerConfig));
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public CacheManager getCacheManager() {
+        return cacheManager;
+    }
+    
+    @Override
+    public <C extends Configuration<K, V>> C getConfiguration(Class<C> clazz) {
+        if (clazz.isInstance(configuration)) {
+            return clazz.cast(configuration);
+        }
+        throw new IllegalArgumentException("Configuration is not an instance of " + clazz.getName() + "!");
+    }
+    
+    public EmbeddedCacheStatistics getStatistics() {
+        return statistics;
+    }
+    
+    public InvokeContentionStatistics getContentionStatistics() {
+        return contentionStatistics;
+    }
+    
+    public InvokeMode getInvokeMode() {
+        return invokeMode;
+    }
+    
+    public void setInvokeMode(InvokeMode invokeMode) {
+        if (invokeMode == null) {
+            throw new NullPointerException("Invoke mode cannot be null!");
+        }
+        this.invokeMode = invokeMode;
+    }
+    
+    public int getMaxOptimisticRetries() {
+        return maxOptimisticRetries;
+    }
+    
+    /**
+     * Sets the number of times a conflicted optimistic execution is retried 
+     * before the entry processor is executed under lock.
+     */
+    public void setMaxOptimisticRetries(int maxOptimisticRetries) {
+        if (maxOptimisticRetries < 0) {
+            throw new IllegalArgumentException("Max optimistic retries cannot be negative!");
+        }
+        this.maxOptimisticRetries = maxOptimisticRetries;
+    }
+    
+    /**
+     * Gets the number of events which asynchronous listeners have failed to handle.
+     */
+    public long getFailedEventCount() {
+        long failedEventCount = 0;
+        for (ListenerRegistration<K, V> registration : listenerRegistrations) {
+            failedEventCount += registration.getFailedEventCount();
+        }
+        return failedEventCount;
+    }
+    
+    // *************************************************************************** //
+    
+    @Override
+    public V get(K key) {
+        ensureOpen();
+        checkKey(key);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        V value;
+        Record<V> record = records.get(key);
+        if (record != null && !record.isExpiredAt(now)) {
+            // Fast path for the live entries without locking
+            applyAccessExpiry(record, now);
+            value = record.value;
+            if (statisticsEnabled) {
+                statistics.increaseHits(1);
+            }
+        } else {
+            List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                value = getOrLoad(key, now, events);
+            } finally {
+                lock.unlock();
+            }
+            dispatch(events);
+        }
+        if (statisticsEnabled) {
+            statistics.addGetTimeNanos(System.nanoTime() - start);
+        }
+        return copy(value);
+    }
+    
+    private V getOrLoad(K key, long now, List<EmbeddedCacheEntryEvent<K, V>> events) {
+        Record<V> record = getLiveRecord(key, now, events);
+        if (record != null) {
+            applyAccessExpiry(record, now);
+            if (statisticsEnabled) {
+                statistics.increaseHits(1);
+            }
+            return record.value;
+        }
+        if (statisticsEnabled) {
+            statistics.increaseMisses(1);
+        }
+        if (!configuration.isReadThrough() || cacheLoader == null) {
+            return null;
+        }
+        V value = load(key);
+        if (value != null) {
+            checkValue(value);
+            create(key, value, now, events);
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        ensureOpen();
+        checkKeys(keys);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        Map<K, V> result = new HashMap<K, V>(keys.size());
+        Set<K> missingKeys = new LinkedHashSet<K>();
+        for (K key : keys) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Record<V> record = getLiveRecord(key, now, events);
+                if (record != null) {
+                    applyAccessExpiry(record, now);
+                    result.put(key, copy(record.value));
+                } else {
+                    missingKeys.add(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (statisticsEnabled) {
+            statistics.increaseHits(result.size());
+            statistics.increaseMisses(missingKeys.size());
+        }
+        if (!missingKeys.isEmpty() && configuration.isReadThrough() && cacheLoader != null) {
+            Map<K, V> loadedEntries = loadAll(missingKeys);
+            for (Map.Entry<K, V> loadedEntry : loadedEntries.entrySet()) {
+                K key = loadedEntry.getKey();
+                V value = loadedEntry.getValue();
+                if (key == null || value == null) {
+                    continue;
+                }
+                checkValue(value);
+                ReentrantLock lock = lockFor(key);
+                lock.lock();
+                try {
+                    if (getLiveRecord(key, now, events) == null) {
+                        create(key, value, now, events);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                result.put(key, copy(value));
+            }
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            statistics.addGetTimeNanos(System.nanoTime() - start);
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        ensureOpen();
+        checkKey(key);
+        Record<V> record = records.get(key);
+        return record != null && !record.isExpiredAt(System.currentTimeMillis());
+    }
+    
+    @Override
+    public void loadAll(final Set<? extends K> keys, final boolean replaceExistingValues,
+                        final CompletionListener completionListener) {
+        ensureOpen();
+        checkKeys(keys);
+        if (cacheLoader == null) {
+            if (completionListener != null) {
+                completionListener.onCompletion();
+            }
+            return;
+        }
+        LOADER_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Set<K> keysToLoad = new LinkedHashSet<K>();
+                    for (K key : keys) {
+                        if (replaceExistingValues || !containsKey(key)) {
+                            keysToLoad.add(key);
+                        }
+                    }
+                    if (!keysToLoad.isEmpty()) {
+                        putLoaded(loadAll(keysToLoad));
+                    }
+                    if (completionListener != null) {
+                        completionListener.onCompletion();
+                    }
+                } catch (Exception e) {
+                    if (completionListener != null) {
+                        completionListener.onException(e);
+                    }
+                }
+            }
+        });
+    }
+    
+    private void putLoaded(Map<K, V> loadedEntries) {
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        for (Map.Entry<K, V> loadedEntry : loadedEntries.entrySet()) {
+            K key = loadedEntry.getKey();
+            V value = loadedEntry.getValue();
+            if (key == null || value == null) {
+                continue;
+            }
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Record<V> record = getLiveRecord(key, now, events);
+                if (record == null) {
+                    create(key, value, now, events);
+                } else {
+                    update(key, record, value, now, events);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        dispatch(events);
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        ensureOpen();
+        checkKey(key);
+        checkValue(value);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            write(key, value);
+            if (record == null) {
+                create(key, value, now, events);
+            } else {
+                update(key, record, value, now, events);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            statistics.increasePuts(1);
+            statistics.addPutTimeNanos(System.nanoTime() - start);
+        }
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        ensureOpen();
+        checkKey(key);
+        checkValue(value);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        V oldValue;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            write(key, value);
+            if (record == null) {
+                oldValue = null;
+                create(key, value, now, events);
+            } else {
+                oldValue = record.value;
+                update(key, record, value, now, events);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            if (oldValue != null) {
+                statistics.increaseHits(1);
+            } else {
+                statistics.increaseMisses(1);
+            }
+            statistics.increasePuts(1);
+            long elapsed = System.nanoTime() - start;
+            statistics.addGetTimeNanos(elapsed);
+            statistics.addPutTimeNanos(elapsed);
+        }
+        return copy(oldValue);
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        ensureOpen();
+        if (map == null) {
+            throw new NullPointerException("Map cannot be null!");
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            checkKey(entry.getKey());
+            checkValue(entry.getValue());
+        }
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        Set<Object> failedKeys = Collections.emptySet();
+        CacheWriterException failure = null;
+        if (cacheWriter != null) {
+            List<Cache.Entry<? extends K, ? extends V>> entries =
+                    new ArrayList<Cache.Entry<? extends K, ? extends V>>(map.size());
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                entries.add(new SimpleEntry<K, V>(entry.getKey(), entry.getValue()));
+            }
+            try {
+                ((CacheWriter<K, V>) cacheWriter).writeAll(entries);
+            } catch (Exception e) {
+                failure = toCacheWriterException(e);
+                // Entries which are left in the collection have not been written
+                failedKeys = new HashSet<Object>();
+                for (Cache.Entry<? extends K, ? extends V> entry : entries) {
+                    failedKeys.add(entry.getKey());
+                }
+            }
+        }
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        int putCount = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            K key = entry.getKey();
+            if (failedKeys.contains(key)) {
+                continue;
+            }
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Record<V> record = getLiveRecord(key, now, events);
+                if (record == null) {
+                    create(key, entry.getValue(), now, events);
+                } else {
+                    update(key, record, entry.getValue(), now, events);
+                }
+                putCount++;
+            } finally {
+                lock.unlock();
+            }
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            statistics.increasePuts(putCount);
+            statistics.addPutTimeNanos(System.nanoTime() - start);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        ensureOpen();
+        checkKey(key);
+        checkValue(value);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        boolean put = false;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            if (getLiveRecord(key, now, events) == null) {
+                write(key, value);
+                create(key, value, now, events);
+                put = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            if (put) {
+                statistics.increasePuts(1);
+                statistics.increaseMisses(1);
+                statistics.addPutTimeNanos(System.nanoTime() - start);
+            } else {
+                statistics.increaseHits(1);
+            }
+        }
+        return put;
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        ensureOpen();
+        checkKey(key);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        boolean removed = false;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            delete(key);
+            if (record != null) {
+                remove(key, record, events);
+                removed = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled && removed) {
+            statistics.increaseRemovals(1);
+            statistics.addRemoveTimeNanos(System.nanoTime() - start);
+        }
+        return removed;
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        ensureOpen();
+        checkKey(key);
+        checkValue(oldValue);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        boolean found = false;
+        boolean removed = false;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            if (record != null) {
+                found = true;
+                if (record.value.equals(oldValue)) {
+                    delete(key);
+                    remove(key, record, events);
+                    removed = true;
+                } else {
+                    applyAccessExpiry(record, now);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            if (found) {
+                statistics.increaseHits(1);
+            } else {
+                statistics.increaseMisses(1);
+            }
+            if (removed) {
+                statistics.increaseRemovals(1);
+                statistics.addRemoveTimeNanos(System.nanoTime() - start);
+            }
+        }
+        return removed;
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        ensureOpen();
+        checkKey(key);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        V oldValue = null;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            delete(key);
+            if (record != null) {
+                oldValue = record.value;
+                remove(key, record, events);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            long elapsed = System.nanoTime() - start;
+            if (oldValue != null) {
+                statistics.increaseHits(1);
+                statistics.increaseRemovals(1);
+                statistics.addRemoveTimeNanos(elapsed);
+            } else {
+                statistics.increaseMisses(1);
+            }
+            statistics.addGetTimeNanos(elapsed);
+        }
+        return copy(oldValue);
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        ensureOpen();
+        checkKey(key);
+        checkValue(oldValue);
+        checkValue(newValue);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        boolean found = false;
+        boolean replaced = false;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            if (record != null) {
+                found = true;
+                if (record.value.equals(oldValue)) {
+                    write(key, newValue);
+                    update(key, record, newValue, now, events);
+                    replaced = true;
+                } else {
+                    applyAccessExpiry(record, now);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            if (found) {
+                statistics.increaseHits(1);
+            } else {
+                statistics.increaseMisses(1);
+            }
+            if (replaced) {
+                statistics.increasePuts(1);
+                statistics.addPutTimeNanos(System.nanoTime() - start);
+            }
+        }
+        return replaced;
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        return getAndReplace(key, value, false) != null;
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        return copy(getAndReplace(key, value, true));
+    }
+    
+    private V getAndReplace(K key, V value, boolean get) {
+        ensureOpen();
+        checkKey(key);
+        checkValue(value);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        V oldValue = null;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            if (record != null) {
+                write(key, value);
+                oldValue = record.value;
+                update(key, record, value, now, events);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            long elapsed = System.nanoTime() - start;
+            if (oldValue != null) {
+                statistics.increaseHits(1);
+                statistics.increasePuts(1);
+                statistics.addPutTimeNanos(elapsed);
+            } else {
+                statistics.increaseMisses(1);
+            }
+            if (get) {
+                statistics.addGetTimeNanos(elapsed);
+            }
+        }
+        return oldValue;
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        ensureOpen();
+        checkKeys(keys);
+        long start = statisticsEnabled ? System.nanoTime() : 0;
+        long now = System.currentTimeMillis();
+        Set<Object> failedKeys = Collections.emptySet();
+        CacheWriterException failure = null;
+        if (cacheWriter != null) {
+            Set<Object> keysToDelete = new LinkedHashSet<Object>(keys);
+            try {
+                cacheWriter.deleteAll(keysToDelete);
+            } catch (Exception e) {
+                failure = toCacheWriterException(e);
+                // Keys which are left in the collection have not been deleted
+                failedKeys = keysToDelete;
+            }
+        }
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        int removeCount = 0;
+        for (K key : keys) {
+            if (failedKeys.contains(key)) {
+                continue;
+            }
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Record<V> record = getLiveRecord(key, now, events);
+                if (record != null) {
+                    remove(key, record, events);
+                    removeCount++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        dispatch(events);
+        if (statisticsEnabled) {
+            statistics.increaseRemovals(removeCount);
+            statistics.addRemoveTimeNanos(System.nanoTime() - start);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public void removeAll() {
+        ensureOpen();
+        Set<K> keys = new HashSet<K>();
+        for (Object key : records.keySet()) {
+            keys.add((K) key);
+        }
+        removeAll(keys);
+    }
+    
+    @Override
+    public void clear() {
+        ensureOpen();
+        records.clear();
+    }
+    
+    // *************************************************************************** //
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments)
+            throws EntryProcessorException {
+        ensureOpen();
+        checkKey(key);
+        if (entryProcessor == null) {
+            throw new NullPointerException("Entry processor cannot be null!");
+        }
+        if (invokeMode == InvokeMode.OPTIMISTIC && cacheWriter == null
+                && !(configuration.isReadThrough() && cacheLoader != null)) {
+            // Writer cannot be called before the commit is known to succeed 
+            // and loader would be called again on every retry, so only caches without them are eligible
+            ProcessorResult<T> optimisticResult = invokeOptimistically(key, entryProcessor, arguments);
+            if (optimisticResult != null) {
+                return optimisticResult.get();
+            }
+            contentionStatistics.increaseFallbacks();
+        }
+        long now = System.currentTimeMillis();
+        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+        T result;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Record<V> record = getLiveRecord(key, now, events);
+            EmbeddedMutableEntry entry = new EmbeddedMutableEntry(key, record);
+            result = process(entry, entryProcessor, arguments);
+            try {
+                entry.apply(now, events);
+            } catch (CacheException e) {
+                throw new EntryProcessorException(e);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch(events);
+        return result;
+    }
+    
+    /**
+     * Executes the entry processor on the current record without locking 
+     * and commits its changes under the lock only if the record has not been replaced meanwhile. 
+     * Returns <code>null</code> if all the retries have conflicted.
+     */
+    private <T> ProcessorResult<T> invokeOptimistically(K key, EntryProcessor<K, V, T> entryProcessor,
+                                                        Object... arguments) {
+        ReentrantLock lock = lockFor(key);
+        int maxRetries = maxOptimisticRetries;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            long now = System.currentTimeMillis();
+            Record<V> record = records.get(key);
+            Record<V> liveRecord = record != null && !record.isExpiredAt(now) ? record : null;
+            EmbeddedMutableEntry entry = new EmbeddedMutableEntry(key, liveRecord);
+            T result = process(entry, entryProcessor, arguments);
+            List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+            if (record == liveRecord && entry.isReadOnly()) {
+                // Nothing to commit, processor has just read a consistent record like the lock-free "get"
+                entry.apply(now, events);
+                contentionStatistics.increaseCommits();
+                return new ProcessorResult<T>(result, null);
+            }
+            boolean committed;
+            lock.lock();
+            try {
+                committed = records.get(key) == record;
+                if (committed) {
+                    if (record != liveRecord) {
+                        // Removes the expired record which has been ignored by the processor
+                        getLiveRecord(key, now, events);
+                    }
+                    try {
+                        entry.apply(now, events);
+                    } catch (CacheException e) {
+                        throw new EntryProcessorException(e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (committed) {
+                contentionStatistics.increaseCommits();
+                dispatch(events);
+                return new ProcessorResult<T>(result, null);
+            }
+            contentionStatistics.increaseConflicts(key);
+        }
+        return null;
+    }
+    
+    private <T> T process(EmbeddedMutableEntry entry, EntryProcessor<K, V, T> entryProcessor,
+                          Object... arguments) {
+        try {
+            return entryProcessor.process(entry, arguments);
+        } catch (EntryProcessorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new EntryProcessorException(e);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys,
+                                                         EntryProcessor<K, V, T> entryProcessor,
+                                                         Object... arguments) {
+        ensureOpen();
+        checkKeys(keys);
+        if (entryProcessor == null) {
+            throw new NullPointerException("Entry processor cannot be null!");
+        }
+        Map<K, EntryProcessorResult<T>> results = new HashMap<K, EntryProcessorResult<T>>();
+        for (K key : keys) {
+            try {
+                T result = invoke(key, entryProcessor, arguments);
+                if (result != null) {
+                    results.put(key, new ProcessorResult<T>(result, null));
+                }
+            } catch (EntryProcessorException e) {
+                results.put(key, new ProcessorResult<T>(null, e));
+            }
+        }
+        return results;
+    }
+    
+    private enum EntryOperation {
+    
+        NONE, ACCESS, LOAD, CREATE, UPDATE, REMOVE
+    
+    }
+    
+    /**
+     * {@link MutableEntry} given to the entry processors. 
+     * Changes (and statistics) are applied to the cache (and to the cache writer) after the processor has returned, 
+     * so discarded optimistic executions leave no trace.
+     */
+    private class EmbeddedMutableEntry implements MutableEntry<K, V> {
+    
+        private final K key;
+        private final Record<V> record;
+        private V value;
+        private EntryOperation operation = EntryOperation.NONE;
+        private boolean accessed;
+        private boolean loaded;
+    
+        private EmbeddedMutableEntry(K key, Record<V> record) {
+            this.key = key;
+            this.record = record;
+            this.value = record != null ? record.value : null;
+        }
+    
+        @Override
+        public K getKey() {
+            return key;
+        }
+    
+        @Override
+        public V getValue() {
+            if (operation == EntryOperation.NONE) {
+                if (record != null) {
+                    operation = EntryOperation.ACCESS;
+                    accessed = true;
+                } else if (!loaded) {
+                    loaded = true;
+                    if (configuration.isReadThrough() && cacheLoader != null) {
+                        value = load(key);
+                        if (value != null) {
+                            operation = EntryOperation.LOAD;
+                        }
+                    }
+                }
+            }
+            return copy(value);
+        }
+    
+        @Override
+        public boolean exists() {
+            return value != null;
+        }
+    
+        @Override
+        public void remove() {
+            value = null;
+            if (operation == EntryOperation.CREATE || operation == EntryOperation.LOAD) {
+                operation = EntryOperation.NONE;
+            } else if (record != null) {
+                operation = EntryOperation.REMOVE;
+            }
+        }
+    
+        @Override
+        public void setValue(V value) {
+            checkValue(value);
+            this.value = value;
+            operation = record != null ? EntryOperation.UPDATE : EntryOperation.CREATE;
+        }
+    
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Entry cannot be unwrapped to " + clazz.getName() + "!");
+        }
+    
+        private boolean isReadOnly() {
+            return operation == EntryOperation.NONE || operation == EntryOperation.ACCESS;
+        }
+    
+        private void apply(long now, List<EmbeddedCacheEntryEvent<K, V>> events) {
+            if (statisticsEnabled) {
+                if (accessed) {
+                    statistics.increaseHits(1);
+                } else if (loaded) {
+                    statistics.increaseMisses(1);
+                }
+            }
+            switch (operation) {
+                case ACCESS:
+                    applyAccessExpiry(record, now);
+                    break;
+                case LOAD:
+                    create(key, value, now, events);
+                    break;
+                case CREATE:
+                    write(key, value);
+                    create(key, value, now, events);
+                    if (statisticsEnabled) {
+                        statistics.increasePuts(1);
+                    }
+                    break;
+                case UPDATE:
+                    write(key, value);
+                    update(key, record, value, now, events);
+                    if (statisticsEnabled) {
+                        statistics.increasePuts(1);
+                    }
+                    break;
+                case REMOVE:
+                    delete(key);
+                    EmbeddedCache.this.remove(key, record, events);
+                    if (statisticsEnabled) {
+                        statistics.increaseRemovals(1);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    
+    }
+    
+    private static class ProcessorResult<T> implements EntryProcessorResult<T> {
+    
+        private final T result;
+        private final EntryProcessorException exception;
+    
+        private ProcessorResult(T result, EntryProcessorException exception) {
+            this.result = result;
+            this.exception = exception;
+        }
+    
+        @Override
+        public T get() throws EntryProcessorException {
+            if (exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+    
+    }
+    
+    // *************************************************************************** //
+    
+    @Override
+    public void registerCacheEntryListener(CacheEntryListenerConfiguration<K, V> listenerConfiguration) {
+        ensureOpen();
+        if (listenerConfiguration == null) {
+            throw new NullPointerException("Cache entry listener configuration cannot be null!");
+        }
+        // Throws "IllegalArgumentException" if it has already been registered
+        configuration.addCacheEntryListenerConfiguration(listenerConfiguration);
+        listenerRegistrations.add(new ListenerRegistration<K, V>(listenerConfiguration));
+    }
+    
+    @Override
+    public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<K, V> listenerConfiguration) {
+        ensureOpen();
+        if (listenerConfiguration == null) {
+            throw new NullPointerException("Cache entry listener configuration cannot be null!");
+        }
+        configuration.removeCacheEntryListenerConfiguration(listenerConfiguration);
+        for (ListenerRegistration<K, V> registration : listenerRegistrations) {
+            if (registration.getConfiguration().equals(listenerConfiguration)) {
+                listenerRegistrations.remove(registration);
+                registration.close();
+                break;
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<Cache.Entry<K, V>> iterator() {
+        ensureOpen();
+        final Iterator<Map.Entry<Object, Record<V>>> iterator = records.entrySet().iterator();
+        return new Iterator<Cache.Entry<K, V>>() {
+    
+            private Cache.Entry<K, V> next;
+            private K lastKey;
+    
+            @Override
+            public boolean hasNext() {
+                long now = System.currentTimeMillis();
+                while (next == null && iterator.hasNext()) {
+                    Map.Entry<Object, Record<V>> entry = iterator.next();
+                    K key = (K) entry.getKey();
+                    Record<V> record = entry.getValue();
+                    if (record.isExpiredAt(now)) {
+                        List<EmbeddedCacheEntryEvent<K, V>> events = newEvents();
+                        ReentrantLock lock = lockFor(key);
+                        lock.lock();
+                        try {
+                            getLiveRecord(key, now, events);
+                        } finally {
+                            lock.unlock();
+                        }
+                        dispatch(events);
+                    } else {
+                        applyAccessExpiry(record, now);
+                        if (statisticsEnabled) {
+                            statistics.increaseHits(1);
+                        }
+                        next = new SimpleEntry<K, V>(key, copy(record.value));
+                    }
+                }
+                return next != null;
+            }
+    
+            @Override
+            public Cache.Entry<K, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Cache.Entry<K, V> entry = next;
+                next = null;
+                lastKey = entry.getKey();
+                return entry;
+            }
+    
+            @Override
+            public void remove() {
+                if (lastKey == null) {
+                    throw new IllegalStateException("There is no entry to remove!");
+                }
+                EmbeddedCache.this.remove(lastKey);
+                lastKey = null;
+            }
+    
+        };
+    }
+    
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        cacheManager.release(this);
+        EmbeddedCacheManager.unregisterMXBean("CacheConfiguration", this);
+        EmbeddedCacheManager.unregisterMXBean("CacheStatistics", this);
+        EmbeddedCacheManager.unregisterMXBean("InvokeContention", this);
+        ListenerRegistration.closeQuietly(expiryPolicy);
+        ListenerRegistration.closeQuietly(cacheLoader);
+        ListenerRegistration.closeQuietly(cacheWriter);
+        for (ListenerRegistration<K, V> registration : listenerRegistrations) {
+            registration.close();
+        }
+    }
+    
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        throw new IllegalArgumentException("Cache cannot be unwrapped to " + clazz.getName() + "!");
+    }
+    
+    @Override
+    public String toString() {
+        return "EmbeddedCache{name=" + name + ", uri=" + cacheManager.getURI() + "}";
+    }
+    
+    void setManagementEnabled(boolean enabled) {
+        configuration.setManagementEnabled(enabled);
+        if (enabled) {
+            EmbeddedCacheManager.registerMXBean(mxBean, "CacheConfiguration", this);
+        } else {
+            EmbeddedCacheManager.unregisterMXBean("CacheConfiguration", this);
+        }
+    }
+    
+    void setStatisticsEnabled(boolean enabled) {
+        configuration.setStatisticsEnabled(enabled);
+        statisticsEnabled = enabled;
+        if (enabled) {
+            EmbeddedCacheManager.registerMXBean(statistics, "CacheStatistics", this);
+            EmbeddedCacheManager.registerMXBean(contentionStatistics, "InvokeContention", this);
+        } else {
+            EmbeddedCacheManager.unregisterMXBean("CacheStatistics", this);
+            EmbeddedCacheManager.unregisterMXBean("InvokeContention", this);
+        }
+    }
+    
+    // *************************************************************************** //
+    
+    private static final class Record<V> {
+    
+        private final V value;
+        private volatile long expiryTime;
+    
+        private Record(V value, long expiryTime) {
+            this.value = value;
+            this.expiryTime = expiryTime;
+        }
+    
+        private boolean isExpiredAt(long now) {
+            return now >= expiryTime;
+        }
+    
+    }
+    
+    private static class SimpleEntry<K, V> implements Cache.Entry<K, V> {
+    
+        private final K key;
+        private final V value;
+    
+        private SimpleEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    
+        @Override
+        public K getKey() {
+            return key;
+        }
+    
+        @Override
+        public V getValue() {
+            return value;
+        }
+    
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Entry cannot be unwrapped to " + clazz.getName() + "!");
+        }
+    
+    }
+    
+    private ReentrantLock lockFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return locks[hash & (locks.length - 1)];
+    }
+    
+    /**
+     * Gets the record of the given key if it is not expired. 
+     * Expired record is removed and its "EXPIRED" event is added. 
+     * Must be called under the lock of the key.
+     */
+    private Record<V> getLiveRecord(K key, long now, List<EmbeddedCacheEntryEvent<K, V>> events) {
+        Record<V> record = records.get(key);
+        if (record != null && record.isExpiredAt(now)) {
+            records.remove(key, record);
+            addEvent(events, EventType.EXPIRED, key, record.value, record.value);
+            return null;
+        }
+        return record;
+    }
+    
+    private void create(K key, V value, long now, List<EmbeddedCacheEntryEvent<K, V>> events) {
+        Duration duration;
+        try {
+            duration = expiryPolicy.getExpiryForCreation();
+        } catch (Throwable t) {
+            duration = Duration.ETERNAL;
+        }
+        if (duration == null) {
+            duration = Duration.ETERNAL;
+        }
+        if (duration.isZero()) {
+            // Entry is expired as soon as it is created, so it is not stored at all
+            return;
+        }
+        records.put(copy(key), new Record<V>(copy(value), duration.getAdjustedTime(now)));
+        addEvent(events, EventType.CREATED, key, value, null);
+    }
+    
+    private void update(K key, Record<V> record, V value, long now,
+                        List<EmbeddedCacheEntryEvent<K, V>> events) {
+        long expiryTime = record.expiryTime;
+        try {
+            Duration duration = expiryPolicy.getExpiryForUpdate();
+            if (duration != null) {
+                expiryTime = duration.getAdjustedTime(now);
+            }
+        } catch (Throwable t) {
+            // Expiry time is kept as it is
+        }
+        records.put(key, new Record<V>(copy(value), expiryTime));
+        addEvent(events, EventType.UPDATED, key, value, record.value);
+    }
+    
+    private void remove(K key, Record<V> record, List<EmbeddedCacheEntryEvent<K, V>> events) {
+        records.remove(key, record);
+        addEvent(events, EventType.REMOVED, key, record.value, record.value);
+    }
+    
+    private void applyAccessExpiry(Record<V> record, long now) {
+        try {
+            Duration duration = expiryPolicy.getExpiryForAccess();
+            if (duration != null) {
+                record.expiryTime = duration.getAdjustedTime(now);
+            }
+        } catch (Throwable t) {
+            // Expiry time is kept as it is
+        }
+    }
+    
+    private V load(K key) {
+        try {
+            return cacheLoader.load(key);
+        } catch (CacheLoaderException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheLoaderException(e);
+        }
+    }
+    
+    private Map<K, V> loadAll(Set<K> keys) {
+        try {
+            Map<K, V> loadedEntries = cacheLoader.loadAll(keys);
+            return loadedEntries != null ? loadedEntries : Collections.<K, V>emptyMap();
+        } catch (CacheLoaderException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CacheLoaderException(e);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void write(K key, V value) {
+        if (cacheWriter != null) {
+            try {
+                ((CacheWriter<K, V>) cacheWriter).write(new SimpleEntry<K, V>(key, value));
+            } catch (Exception e) {
+                throw toCacheWriterException(e);
+            }
+        }
+    }
+    
+    private void delete(K key) {
+        if (cacheWriter != null) {
+            try {
+                cacheWriter.delete(key);
+            } catch (Exception e) {
+                throw toCacheWriterException(e);
+            }
+        }
+    }
+    
+    private static CacheWriterException toCacheWriterException(Exception e) {
+        return e instanceof CacheWriterException ? (CacheWriterException) e : new CacheWriterException(e);
+    }
+    
+    private List<EmbeddedCacheEntryEvent<K, V>> newEvents() {
+        // No event is collected if there is no listener
+        return listenerRegistrations.isEmpty() ? null : new ArrayList<EmbeddedCacheEntryEvent<K, V>>(1);
+    }
+    
+    private void addEvent(List<EmbeddedCacheEntryEvent<K, V>> events, EventType eventType,
+                          K key, V value, V oldValue) {
+        if (events != null) {
+            events.add(new EmbeddedCacheEntryEvent<K, V>(this, eventType, key, copy(value), copy(oldValue),
+                                                         oldValue != null));
+        }
+    }
+    
+    private void dispatch(List<EmbeddedCacheEntryEvent<K, V>> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        for (ListenerRegistration<K, V> registration : listenerRegistrations) {
+            registration.dispatch(events);
+        }
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Cache \"" + name + "\" is closed!");
+        }
+    }
+    
+    private void checkKey(K key) {
+        if (key == null) {
+            throw new NullPointerException("Key cannot be null!");
+        }
+        if (typeChecked && !configuration.getKeyType().isInstance(key)) {
+            throw new ClassCastException("Key " + key + " is not an instance of "
+                                         + configuration.getKeyType().getName() + "!");
+        }
+    }
+    
+    private void checkKeys(Set<? extends K> keys) {
+        if (keys == null) {
+            throw new NullPointerException("Keys cannot be null!");
+        }
+        for (K key : keys) {
+            checkKey(key);
+        }
+    }
+    
+    private void checkValue(V value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null!");
+        }
+        if (typeChecked && !configuration.getValueType().isInstance(value)) {
+            throw new ClassCastException("Value " + value + " is not an instance of "
+                                         + configuration.getValueType().getName() + "!");
+        }
+    }
+    
+    // *************************************************************************** //
+    
+    /**
+     * Copies the given object through Java serialization if the cache is store-by-value 
+     * and the object is not an instance of an immutable JDK type.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T copy(T object) {
+        if (!storeByValue || object == null
+                || IMMUTABLE_TYPES.contains(object.getClass()) || object instanceof Enum) {
+            return object;
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(object);
+            oos.close();
+            ObjectInputStream ois =
+                    new ClassLoaderAwareObjectInputStream(new ByteArrayInputStream(bos.toByteArray()),
+                                                          cacheManager.getClassLoader());
+            try {
+                return (T) ois.readObject();
+            } finally {
+                ois.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to copy " + object + " for store-by-value!", e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unable to copy " + object + " for store-by-value!", e);
+        }
+    }
+    
+    private static class ClassLoaderAwareObjectInputStream extends ObjectInputStream {
+    
+        private final ClassLoader classLoader;
+    
+        private ClassLoaderAwareObjectInputStream(InputStream in, ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+    
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    
+    }
+
+}
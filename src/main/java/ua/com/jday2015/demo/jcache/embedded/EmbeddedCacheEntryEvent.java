@@ -0,0 +1,63 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.EventType;
+
+/**
+ * {@link CacheEntryEvent} implementation of {@link EmbeddedCache}.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class EmbeddedCacheEntryEvent<K, V> extends CacheEntryEvent<K, V> {
+
+    private final K key;
+    private final V value;
+    private final V oldValue;
+    private final boolean oldValueAvailable;
+    
+    EmbeddedCacheEntryEvent(Cache<K, V> source, EventType eventType, 
+                            K key, V value, V oldValue, boolean oldValueAvailable) {
+        super(source, eventType);
+        this.key = key;
+        this.value = value;
+        this.oldValue = oldValue;
+        this.oldValueAvailable = oldValueAvailable;
+    }
+    
+    @Override
+    public K getKey() {
+        return key;
+    }
+    
+    @Override
+    public V getValue() {
+        return value;
+    }
+    
+    @Override
+    public V getOldValue() {
+        return oldValue;
+    }
+    
+    @Override
+    public boolean isOldValueAvailable() {
+        return oldValueAvailable;
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        throw new IllegalArgumentException("Event cannot be unwrapped to " + clazz.getName() + "!");
+    }
+    
+    @Override
+    public String toString() {
+        return "EmbeddedCacheEntryEvent [eventType=" + getEventType() + ", key=" + key 
+               + ", value=" + value + ", oldValue=" + oldValue + "]";
+    }
+    
+}
@@ -0,0 +1,59 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.management.CacheMXBean;
+
+/**
+ * {@link CacheMXBean} implementation of {@link EmbeddedCache} which exposes its configuration.
+ * 
+ * @author Serkan OZAL
+ */
+public class EmbeddedCacheMXBean implements CacheMXBean {
+
+    private final EmbeddedCache<?, ?> cache;
+    
+    EmbeddedCacheMXBean(EmbeddedCache<?, ?> cache) {
+        this.cache = cache;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private CompleteConfiguration<?, ?> getConfiguration() {
+        return cache.getConfiguration(CompleteConfiguration.class);
+    }
+    
+    @Override
+    public String getKeyType() {
+        return getConfiguration().getKeyType().getName();
+    }
+    
+    @Override
+    public String getValueType() {
+        return getConfiguration().getValueType().getName();
+    }
+    
+    @Override
+    public boolean isReadThrough() {
+        return getConfiguration().isReadThrough();
+    }
+    
+    @Override
+    public boolean isWriteThrough() {
+        return getConfiguration().isWriteThrough();
+    }
+    
+    @Override
+    public boolean isStoreByValue() {
+        return getConfiguration().isStoreByValue();
+    }
+    
+    @Override
+    public boolean isStatisticsEnabled() {
+        return getConfiguration().isStatisticsEnabled();
+    }
+    
+    @Override
+    public boolean isManagementEnabled() {
+        return getConfiguration().isManagementEnabled();
+    }
+    
+}
@@ -0,0 +1,259 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.spi.CachingProvider;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link CacheManager} implementation of {@link EmbeddedCachingProvider} which owns {@link EmbeddedCache}s.
+ * 
+ * @author Serkan OZAL
+ */
+public class EmbeddedCacheManager implements CacheManager {
+
+    private final EmbeddedCachingProvider cachingProvider;
+    private final URI uri;
+    private final ClassLoader classLoader;
+    private final Properties properties;
+    private final ConcurrentMap<String, EmbeddedCache<?, ?>> caches = 
+            new ConcurrentHashMap<String, EmbeddedCache<?, ?>>();
+    private volatile boolean closed;
+    
+    EmbeddedCacheManager(EmbeddedCachingProvider cachingProvider, URI uri, 
+                         ClassLoader classLoader, Properties properties) {
+        this.cachingProvider = cachingProvider;
+        this.uri = uri;
+        this.classLoader = classLoader;
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+    }
+    
+    @Override
+    public CachingProvider getCachingProvider() {
+        return cachingProvider;
+    }
+    
+    @Override
+    public URI getURI() {
+        return uri;
+    }
+    
+    @Override
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+    
+    @Override
+    public Properties getProperties() {
+        return properties;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName, C configuration)
+            throws IllegalArgumentException {
+        ensureOpen();
+        if (cacheName == null) {
+            throw new NullPointerException("Cache name cannot be null!");
+        }
+        if (configuration == null) {
+            throw new NullPointerException("Cache configuration cannot be null!");
+        }
+        MutableConfiguration<K, V> cacheConfig;
+        if (configuration instanceof CompleteConfiguration) {
+            cacheConfig = new MutableConfiguration<K, V>((CompleteConfiguration<K, V>) configuration);
+        } else {
+            cacheConfig = 
+                    new MutableConfiguration<K, V>()
+                            .setTypes(configuration.getKeyType(), configuration.getValueType())
+                            .setStoreByValue(configuration.isStoreByValue());
+        }
+        EmbeddedCache<K, V> cache = new EmbeddedCache<K, V>(this, cacheName, cacheConfig);
+        if (caches.putIfAbsent(cacheName, cache) != null) {
+            cache.close();
+            throw new CacheException("Cache \"" + cacheName + "\" already exists!");
+        }
+        if (cacheConfig.isManagementEnabled()) {
+            cache.setManagementEnabled(true);
+        }
+        if (cacheConfig.isStatisticsEnabled()) {
+            cache.setStatisticsEnabled(true);
+        }
+        return cache;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName, Class<K> keyType, Class<V> valueType) {
+        ensureOpen();
+        if (cacheName == null) {
+            throw new NullPointerException("Cache name cannot be null!");
+        }
+        if (keyType == null || valueType == null) {
+            throw new NullPointerException("Key and value types cannot be null!");
+        }
+        EmbeddedCache<?, ?> cache = caches.get(cacheName);
+        if (cache == null) {
+            return null;
+        }
+        Configuration<?, ?> cacheConfig = cache.getConfiguration(CompleteConfiguration.class);
+        if (!cacheConfig.getKeyType().equals(keyType)) {
+            throw new ClassCastException("Cache \"" + cacheName + "\" has key type " 
+                                         + cacheConfig.getKeyType().getName() + ", not " + keyType.getName() + "!");
+        }
+        if (!cacheConfig.getValueType().equals(valueType)) {
+            throw new ClassCastException("Cache \"" + cacheName + "\" has value type " 
+                                         + cacheConfig.getValueType().getName() + ", not " + valueType.getName() + "!");
+        }
+        return (Cache<K, V>) cache;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName) {
+        ensureOpen();
+        if (cacheName == null) {
+            throw new NullPointerException("Cache name cannot be null!");
+        }
+        EmbeddedCache<?, ?> cache = caches.get(cacheName);
+        if (cache == null) {
+            return null;
+        }
+        Configuration<?, ?> cacheConfig = cache.getConfiguration(CompleteConfiguration.class);
+        if (cacheConfig.getKeyType() != Object.class || cacheConfig.getValueType() != Object.class) {
+            throw new IllegalArgumentException("Cache \"" + cacheName + "\" has been configured with types, " 
+                                               + "so it must be got with its types!");
+        }
+        return (Cache<K, V>) cache;
+    }
+    
+    @Override
+    public Iterable<String> getCacheNames() {
+        ensureOpen();
+        return Collections.unmodifiableList(new ArrayList<String>(caches.keySet()));
+    }
+    
+    @Override
+    public void destroyCache(String cacheName) {
+        ensureOpen();
+        if (cacheName == null) {
+            throw new NullPointerException("Cache name cannot be null!");
+        }
+        EmbeddedCache<?, ?> cache = caches.remove(cacheName);
+        if (cache != null) {
+            cache.clear();
+            cache.close();
+        }
+    }
+    
+    @Override
+    public void enableManagement(String cacheName, boolean enabled) {
+        ensureOpen();
+        if (cacheName == null) {
+            throw new NullPointerException("Cache name cannot be null!");
+        }
+        EmbeddedCache<?, ?> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.setManagementEnabled(enabled);
+        }
+    }
+    
+    @Override
+    public void enableStatistics(String cacheName, boolean enabled) {
+        ensureOpen();
+        if (cacheName == null) {
+            throw new NullPointerException("Cache name cannot be null!");
+        }
+        EmbeddedCache<?, ?> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.setStatisticsEnabled(enabled);
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        cachingProvider.release(this);
+        List<EmbeddedCache<?, ?>> cachesToClose = new ArrayList<EmbeddedCache<?, ?>>(caches.values());
+        caches.clear();
+        for (EmbeddedCache<?, ?> cache : cachesToClose) {
+            cache.close();
+        }
+    }
+    
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        throw new IllegalArgumentException("Cache manager cannot be unwrapped to " + clazz.getName() + "!");
+    }
+    
+    void release(EmbeddedCache<?, ?> cache) {
+        caches.remove(cache.getName(), cache);
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Cache manager is closed!");
+        }
+    }
+    
+    static void registerMXBean(Object mxBean, String type, EmbeddedCache<?, ?> cache) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = createObjectName(type, cache);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(mxBean, objectName);
+            }
+        } catch (Exception e) {
+            throw new CacheException("Unable to register " + type + " MXBean of cache \"" + cache.getName() + "\"", e);
+        }
+    }
+    
+    static void unregisterMXBean(String type, EmbeddedCache<?, ?> cache) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = createObjectName(type, cache);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            throw new CacheException("Unable to unregister " + type + " MXBean of cache \"" + cache.getName() + "\"", e);
+        }
+    }
+    
+    private static ObjectName createObjectName(String type, EmbeddedCache<?, ?> cache) throws Exception {
+        return new ObjectName("javax.cache:type=" + type 
+                              + ",CacheManager=" + sanitize(cache.getCacheManager().getURI().toString()) 
+                              + ",Cache=" + sanitize(cache.getName()));
+    }
+    
+    private static String sanitize(String name) {
+        return name == null ? "" : name.replaceAll("[,:=\n]", ".");
+    }
+    
+}
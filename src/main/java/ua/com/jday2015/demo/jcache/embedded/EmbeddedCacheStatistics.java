@@ -0,0 +1,127 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.cache.management.CacheStatisticsMXBean;
+
+/**
+ * {@link CacheStatisticsMXBean} implementation of {@link EmbeddedCache}. 
+ * Counters are {@link LongAdder}s, so concurrent operations don't contend on them.
+ * 
+ * @author Serkan OZAL
+ */
+public class EmbeddedCacheStatistics implements CacheStatisticsMXBean {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder getTimeNanos = new LongAdder();
+    private final LongAdder putTimeNanos = new LongAdder();
+    private final LongAdder removeTimeNanos = new LongAdder();
+    
+    @Override
+    public void clear() {
+        hits.reset();
+        misses.reset();
+        puts.reset();
+        removals.reset();
+        evictions.reset();
+        getTimeNanos.reset();
+        putTimeNanos.reset();
+        removeTimeNanos.reset();
+    }
+    
+    @Override
+    public long getCacheHits() {
+        return hits.sum();
+    }
+    
+    @Override
+    public float getCacheHitPercentage() {
+        long hitCount = getCacheHits();
+        long getCount = hitCount + getCacheMisses();
+        return getCount == 0 ? 0 : (float) hitCount * 100 / getCount;
+    }
+    
+    @Override
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+    
+    @Override
+    public float getCacheMissPercentage() {
+        long missCount = getCacheMisses();
+        long getCount = missCount + getCacheHits();
+        return getCount == 0 ? 0 : (float) missCount * 100 / getCount;
+    }
+    
+    @Override
+    public long getCacheGets() {
+        return getCacheHits() + getCacheMisses();
+    }
+    
+    @Override
+    public long getCachePuts() {
+        return puts.sum();
+    }
+    
+    @Override
+    public long getCacheRemovals() {
+        return removals.sum();
+    }
+    
+    @Override
+    public long getCacheEvictions() {
+        return evictions.sum();
+    }
+    
+    @Override
+    public float getAverageGetTime() {
+        return averageMicros(getTimeNanos.sum(), getCacheGets());
+    }
+    
+    @Override
+    public float getAveragePutTime() {
+        return averageMicros(putTimeNanos.sum(), getCachePuts());
+    }
+    
+    @Override
+    public float getAverageRemoveTime() {
+        return averageMicros(removeTimeNanos.sum(), getCacheRemovals());
+    }
+    
+    private static float averageMicros(long totalNanos, long count) {
+        return count == 0 ? 0 : (float) totalNanos / count / 1000;
+    }
+    
+    void increaseHits(long count) {
+        hits.add(count);
+    }
+    
+    void increaseMisses(long count) {
+        misses.add(count);
+    }
+    
+    void increasePuts(long count) {
+        puts.add(count);
+    }
+    
+    void increaseRemovals(long count) {
+        removals.add(count);
+    }
+    
+    void addGetTimeNanos(long nanos) {
+        getTimeNanos.add(nanos);
+    }
+    
+    void addPutTimeNanos(long nanos) {
+        putTimeNanos.add(nanos);
+    }
+    
+    void addRemoveTimeNanos(long nanos) {
+        removeTimeNanos.add(nanos);
+    }
+    
+}
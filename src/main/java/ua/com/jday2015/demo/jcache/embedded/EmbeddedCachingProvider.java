@@ -0,0 +1,144 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+import javax.cache.CacheManager;
+import javax.cache.configuration.OptionalFeature;
+import javax.cache.spi.CachingProvider;
+
+/**
+ * Lightweight in-process {@link CachingProvider} for the applications which need only local caches. 
+ * It starts no threads and no cluster member, so getting a cache takes milliseconds.
+ * 
+ * Since Hazelcast also registers itself as caching provider, 
+ * it is selected by its class name through the standard <code>javax.cache.spi.CachingProvider</code> 
+ * system property (then <code>Caching.getCachingProvider()</code> returns it) 
+ * or by <code>Caching.getCachingProvider(String)</code>. 
+ * It is not registered in <code>META-INF/services</code>, 
+ * because then <code>Caching.getCachingProvider()</code> would fail with "Multiple CachingProviders" 
+ * when the property is not set.
+ * 
+ * @author Serkan OZAL
+ */
+public class EmbeddedCachingProvider implements CachingProvider {
+
+    private final Map<ClassLoader, Map<URI, EmbeddedCacheManager>> cacheManagers = 
+            new WeakHashMap<ClassLoader, Map<URI, EmbeddedCacheManager>>();
+    private final URI defaultUri = URI.create(getClass().getName());
+    
+    @Override
+    public synchronized CacheManager getCacheManager(URI uri, ClassLoader classLoader, Properties properties) {
+        URI managerUri = uri != null ? uri : getDefaultURI();
+        ClassLoader managerClassLoader = classLoader != null ? classLoader : getDefaultClassLoader();
+        Map<URI, EmbeddedCacheManager> cacheManagersOfClassLoader = cacheManagers.get(managerClassLoader);
+        if (cacheManagersOfClassLoader == null) {
+            cacheManagersOfClassLoader = new HashMap<URI, EmbeddedCacheManager>();
+            cacheManagers.put(managerClassLoader, cacheManagersOfClassLoader);
+        }
+        EmbeddedCacheManager cacheManager = cacheManagersOfClassLoader.get(managerUri);
+        if (cacheManager == null) {
+            cacheManager = 
+                    new EmbeddedCacheManager(this, managerUri, managerClassLoader, 
+                                             properties != null ? properties : getDefaultProperties());
+            cacheManagersOfClassLoader.put(managerUri, cacheManager);
+        }
+        return cacheManager;
+    }
+    
+    @Override
+    public ClassLoader getDefaultClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : getClass().getClassLoader();
+    }
+    
+    @Override
+    public URI getDefaultURI() {
+        return defaultUri;
+    }
+    
+    @Override
+    public Properties getDefaultProperties() {
+        return new Properties();
+    }
+    
+    @Override
+    public CacheManager getCacheManager(URI uri, ClassLoader classLoader) {
+        return getCacheManager(uri, classLoader, getDefaultProperties());
+    }
+    
+    @Override
+    public CacheManager getCacheManager() {
+        return getCacheManager(getDefaultURI(), getDefaultClassLoader(), getDefaultProperties());
+    }
+    
+    @Override
+    public void close() {
+        List<EmbeddedCacheManager> cacheManagersToClose = new ArrayList<EmbeddedCacheManager>();
+        synchronized (this) {
+            for (Map<URI, EmbeddedCacheManager> cacheManagersOfClassLoader : cacheManagers.values()) {
+                cacheManagersToClose.addAll(cacheManagersOfClassLoader.values());
+            }
+            cacheManagers.clear();
+        }
+        for (EmbeddedCacheManager cacheManager : cacheManagersToClose) {
+            cacheManager.close();
+        }
+    }
+    
+    @Override
+    public void close(ClassLoader classLoader) {
+        ClassLoader managerClassLoader = classLoader != null ? classLoader : getDefaultClassLoader();
+        Map<URI, EmbeddedCacheManager> cacheManagersOfClassLoader;
+        synchronized (this) {
+            cacheManagersOfClassLoader = cacheManagers.remove(managerClassLoader);
+        }
+        if (cacheManagersOfClassLoader != null) {
+            for (EmbeddedCacheManager cacheManager : cacheManagersOfClassLoader.values()) {
+                cacheManager.close();
+            }
+        }
+    }
+    
+    @Override
+    public void close(URI uri, ClassLoader classLoader) {
+        URI managerUri = uri != null ? uri : getDefaultURI();
+        ClassLoader managerClassLoader = classLoader != null ? classLoader : getDefaultClassLoader();
+        EmbeddedCacheManager cacheManager = null;
+        synchronized (this) {
+            Map<URI, EmbeddedCacheManager> cacheManagersOfClassLoader = cacheManagers.get(managerClassLoader);
+            if (cacheManagersOfClassLoader != null) {
+                cacheManager = cacheManagersOfClassLoader.remove(managerUri);
+                if (cacheManagersOfClassLoader.isEmpty()) {
+                    cacheManagers.remove(managerClassLoader);
+                }
+            }
+        }
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
+    }
+    
+    @Override
+    public boolean isSupported(OptionalFeature optionalFeature) {
+        return optionalFeature == OptionalFeature.STORE_BY_REFERENCE;
+    }
+    
+    synchronized void release(EmbeddedCacheManager cacheManager) {
+        Map<URI, EmbeddedCacheManager> cacheManagersOfClassLoader = 
+                cacheManagers.get(cacheManager.getClassLoader());
+        if (cacheManagersOfClassLoader != null 
+                && cacheManagersOfClassLoader.get(cacheManager.getURI()) == cacheManager) {
+            cacheManagersOfClassLoader.remove(cacheManager.getURI());
+            if (cacheManagersOfClassLoader.isEmpty()) {
+                cacheManagers.remove(cacheManager.getClassLoader());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,29 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link InvokeContentionStatistics}. It is registered as 
+ * <code>javax.cache:type=InvokeContention,CacheManager=&lt;cache manager URI&gt;,Cache=&lt;cache name&gt;</code> 
+ * while statistics are enabled.
+ * 
+ * @author Serkan OZAL
+ */
+public interface InvokeContentionMXBean {
+
+    long getCommitCount();
+    
+    long getConflictCount();
+    
+    long getFallbackCount();
+    
+    float getConflictPercentage();
+    
+    /**
+     * Gets conflict counts of the most conflicted keys, in descending order.
+     */
+    Map<String, Long> getHotKeyConflicts();
+    
+    void clear();
+    
+}
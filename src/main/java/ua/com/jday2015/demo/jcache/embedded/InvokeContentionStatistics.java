@@ -0,0 +1,134 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention statistics of {@link InvokeMode#OPTIMISTIC} entry processor executions. 
+ * Conflicts are also counted per key to find the hot keys, 
+ * but only the first {@link #DEFAULT_MAX_TRACKED_KEYS} conflicted keys are tracked to bound the memory usage.
+ * 
+ * @author Serkan OZAL
+ */
+public class InvokeContentionStatistics implements InvokeContentionMXBean {
+
+    public static final int DEFAULT_MAX_TRACKED_KEYS = 1024;
+    public static final int DEFAULT_HOT_KEY_COUNT = 10;
+    
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final ConcurrentHashMap<Object, LongAdder> keyConflicts = new ConcurrentHashMap<Object, LongAdder>();
+    
+    void increaseCommits() {
+        commits.increment();
+    }
+    
+    void increaseConflicts(Object key) {
+        conflicts.increment();
+        LongAdder keyConflictCount = keyConflicts.get(key);
+        if (keyConflictCount == null) {
+            if (keyConflicts.size() >= DEFAULT_MAX_TRACKED_KEYS) {
+                return;
+            }
+            LongAdder newKeyConflictCount = new LongAdder();
+            keyConflictCount = keyConflicts.putIfAbsent(key, newKeyConflictCount);
+            if (keyConflictCount == null) {
+                keyConflictCount = newKeyConflictCount;
+            }
+        }
+        keyConflictCount.increment();
+    }
+    
+    void increaseFallbacks() {
+        fallbacks.increment();
+    }
+    
+    /**
+     * Gets the number of entry processor executions committed without any lock held during processing.
+     */
+    @Override
+    public long getCommitCount() {
+        return commits.sum();
+    }
+    
+    /**
+     * Gets the number of optimistic executions discarded because their entry has been changed concurrently.
+     */
+    @Override
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+    
+    /**
+     * Gets the number of invocations executed under lock after exceeding the maximum retry count.
+     */
+    @Override
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+    
+    @Override
+    public float getConflictPercentage() {
+        long conflictCount = getConflictCount();
+        long attemptCount = conflictCount + getCommitCount();
+        return attemptCount == 0 ? 0 : (float) conflictCount * 100 / attemptCount;
+    }
+    
+    @Override
+    public Map<String, Long> getHotKeyConflicts() {
+        Map<String, Long> hotKeyConflicts = new LinkedHashMap<String, Long>();
+        for (Map.Entry<Object, Long> entry : getHotKeys(DEFAULT_HOT_KEY_COUNT).entrySet()) {
+            hotKeyConflicts.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        return hotKeyConflicts;
+    }
+    
+    /**
+     * Gets at most <code>limit</code> keys with the highest conflict counts, in descending order.
+     */
+    public Map<Object, Long> getHotKeys(int limit) {
+        List<Map.Entry<Object, Long>> entries = new ArrayList<Map.Entry<Object, Long>>(keyConflicts.size());
+        for (Map.Entry<Object, LongAdder> entry : keyConflicts.entrySet()) {
+            entries.add(new AbstractMap.SimpleEntry<Object, Long>(entry.getKey(), entry.getValue().sum()));
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<Object, Long>>() {
+            @Override
+            public int compare(Map.Entry<Object, Long> e1, Map.Entry<Object, Long> e2) {
+                return Long.compare(e2.getValue(), e1.getValue());
+            }
+        });
+        Map<Object, Long> hotKeys = new LinkedHashMap<Object, Long>();
+        for (Map.Entry<Object, Long> entry : entries) {
+            if (hotKeys.size() >= limit) {
+                break;
+            }
+            hotKeys.put(entry.getKey(), entry.getValue());
+        }
+        return hotKeys;
+    }
+    
+    @Override
+    public void clear() {
+        commits.reset();
+        conflicts.reset();
+        fallbacks.reset();
+        keyConflicts.clear();
+    }
+    
+    @Override
+    public String toString() {
+        return "InvokeContentionStatistics{commits=" + getCommitCount()
+                + ", conflicts=" + getConflictCount()
+                + ", fallbacks=" + getFallbackCount()
+                + ", hotKeys=" + getHotKeys(DEFAULT_HOT_KEY_COUNT) + "}";
+    }
+    
+}
@@ -0,0 +1,26 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+/**
+ * Execution modes of entry processors invoked on {@link EmbeddedCache}.
+ * 
+ * @author Serkan OZAL
+ */
+public enum InvokeMode {
+
+    /**
+     * Entry processor is executed under the stripe lock of its key, 
+     * so invocations on the same key (and on the keys of the same stripe) are serialized.
+     */
+    LOCKED,
+    
+    /**
+     * Entry processor is executed without any lock on the entry it has read. 
+     * Its changes are committed only if the entry has not been changed in the meantime, 
+     * otherwise it is executed again. After too many conflicts it falls back to {@link #LOCKED} execution. 
+     * Processors may be executed more than once, so they must not have side effects. 
+     * Caches with a cache writer or with read-through always use {@link #LOCKED} execution, 
+     * since writing and loading are not free of side effects either.
+     */
+    OPTIMISTIC
+    
+}
@@ -0,0 +1,180 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+
+/**
+ * Registered listener of an {@link EmbeddedCache} which filters and delivers the events of the cache. 
+ * Synchronous listeners are called on the caller thread and their failures are thrown to the caller. 
+ * Asynchronous listeners are called on one of the shared event threads, 
+ * always on the same one for a registration, so a listener receives its events in order.
+ * 
+ * @author Serkan OZAL
+ */
+class ListenerRegistration<K, V> {
+
+    private static final AtomicInteger EVENT_THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService[] EVENT_EXECUTORS = 
+            new ExecutorService[Math.max(2, Runtime.getRuntime().availableProcessors())];
+    
+    static {
+        for (int i = 0; i < EVENT_EXECUTORS.length; i++) {
+            EVENT_EXECUTORS[i] = 
+                    Executors.newSingleThreadExecutor(
+                            new ThreadFactory() {
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread t = new Thread(r, "embedded-cache-event-" 
+                                                             + EVENT_THREAD_COUNTER.incrementAndGet());
+                                    t.setDaemon(true);
+                                    return t;
+                                }
+                            });
+        }
+    }
+    
+    private final CacheEntryListenerConfiguration<K, V> configuration;
+    private final CacheEntryListener<? super K, ? super V> listener;
+    private final CacheEntryEventFilter<? super K, ? super V> filter;
+    private final ExecutorService executor;
+    private final AtomicLong failedEventCount = new AtomicLong();
+    
+    ListenerRegistration(CacheEntryListenerConfiguration<K, V> configuration) {
+        this.configuration = configuration;
+        this.listener = configuration.getCacheEntryListenerFactory().create();
+        Factory<CacheEntryEventFilter<? super K, ? super V>> filterFactory = 
+                configuration.getCacheEntryEventFilterFactory();
+        this.filter = filterFactory != null ? filterFactory.create() : null;
+        this.executor = 
+                EVENT_EXECUTORS[(System.identityHashCode(this) & Integer.MAX_VALUE) % EVENT_EXECUTORS.length];
+    }
+    
+    CacheEntryListenerConfiguration<K, V> getConfiguration() {
+        return configuration;
+    }
+    
+    long getFailedEventCount() {
+        return failedEventCount.get();
+    }
+    
+    void dispatch(List<EmbeddedCacheEntryEvent<K, V>> events) {
+        final List<EmbeddedCacheEntryEvent<K, V>> acceptedEvents = 
+                new ArrayList<EmbeddedCacheEntryEvent<K, V>>(events.size());
+        for (EmbeddedCacheEntryEvent<K, V> event : events) {
+            if (isInterestedIn(event.getEventType()) && (filter == null || filter.evaluate(event))) {
+                acceptedEvents.add(event);
+            }
+        }
+        if (acceptedEvents.isEmpty()) {
+            return;
+        }
+        if (configuration.isSynchronous()) {
+            deliver(acceptedEvents);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        deliver(acceptedEvents);
+                    } catch (RuntimeException e) {
+                        // There is no caller to report, so failures are only counted
+                        failedEventCount.incrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+    
+    private boolean isInterestedIn(EventType eventType) {
+        switch (eventType) {
+            case CREATED:
+                return listener instanceof CacheEntryCreatedListener;
+            case UPDATED:
+                return listener instanceof CacheEntryUpdatedListener;
+            case REMOVED:
+                return listener instanceof CacheEntryRemovedListener;
+            case EXPIRED:
+                return listener instanceof CacheEntryExpiredListener;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Delivers consecutive events of the same type together, so their order is kept.
+     */
+    private void deliver(List<EmbeddedCacheEntryEvent<K, V>> events) {
+        int start = 0;
+        while (start < events.size()) {
+            EventType eventType = events.get(start).getEventType();
+            int end = start + 1;
+            while (end < events.size() && events.get(end).getEventType() == eventType) {
+                end++;
+            }
+            deliver(eventType, events.subList(start, end));
+            start = end;
+        }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void deliver(EventType eventType, List<EmbeddedCacheEntryEvent<K, V>> events) {
+        Iterable<CacheEntryEvent<? extends K, ? extends V>> iterable = (Iterable) events;
+        try {
+            switch (eventType) {
+                case CREATED:
+                    ((CacheEntryCreatedListener<K, V>) listener).onCreated(iterable);
+                    break;
+                case UPDATED:
+                    ((CacheEntryUpdatedListener<K, V>) listener).onUpdated(iterable);
+                    break;
+                case REMOVED:
+                    ((CacheEntryRemovedListener<K, V>) listener).onRemoved(iterable);
+                    break;
+                case EXPIRED:
+                    ((CacheEntryExpiredListener<K, V>) listener).onExpired(iterable);
+                    break;
+                default:
+                    break;
+            }
+        } catch (CacheEntryListenerException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new CacheEntryListenerException(e);
+        }
+    }
+    
+    void close() {
+        closeQuietly(listener);
+        closeQuietly(filter);
+    }
+    
+    static void closeQuietly(Object object) {
+        if (object instanceof Closeable) {
+            try {
+                ((Closeable) object).close();
+            } catch (IOException e) {
+                // Nothing to do on close failure
+            }
+        }
+    }
+    
+}
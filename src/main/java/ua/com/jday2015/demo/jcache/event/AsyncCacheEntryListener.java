@@ -0,0 +1,303 @@
+package ua.com.jday2015.demo.jcache.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+
+/**
+ * {@link CacheEntryListener} implementation which hands events over to bounded buffers 
+ * and dispatches them to the delegated {@link CacheEntryListener} on dedicated consumer threads. 
+ * So event publisher (cache mutation) doesn't wait for the delegated listener.
+ * 
+ * Events are assigned to consumers by their keys, so the events of a key are dispatched in order. 
+ * Consumers dispatch the events in batches, where each batch consists of consecutive events of same type.
+ * When a buffer is full, the given {@link OverflowPolicy} is applied.
+ * 
+ * Publishing and closing are mutually exclusive, so every event accepted before {@link #close()} 
+ * is dispatched and events published after it are rejected.
+ * 
+ * @author Serkan OZAL
+ */
+public class AsyncCacheEntryListener<K, V> 
+        implements  Closeable,
+                    CacheEntryCreatedListener<K, V>,
+                    CacheEntryUpdatedListener<K, V>,
+                    CacheEntryRemovedListener<K, V>,
+                    CacheEntryExpiredListener<K, V> {
+
+    public static final int DEFAULT_CONSUMER_COUNT = 1;
+    public static final int DEFAULT_BUFFER_CAPACITY = 10000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final int DEFAULT_SAMPLE_RATE = 10;
+    
+    private final CacheEntryListener<? super K, ? super V> delegate;
+    private final OverflowPolicy overflowPolicy;
+    private final int bufferCapacity;
+    private final int maxBatchSize;
+    private final int sampleRate;
+    private final List<Consumer> consumers;
+    private final AtomicLong droppedEventCount = new AtomicLong();
+    private final AtomicLong failedDispatchCount = new AtomicLong();
+    // Publishers share the read lock, so closing waits for the ongoing publishes
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+    
+    public AsyncCacheEntryListener(CacheEntryListener<? super K, ? super V> delegate) {
+        this(delegate, OverflowPolicy.BLOCK, DEFAULT_CONSUMER_COUNT, 
+             DEFAULT_BUFFER_CAPACITY, DEFAULT_MAX_BATCH_SIZE, DEFAULT_SAMPLE_RATE);
+    }
+    
+    public AsyncCacheEntryListener(CacheEntryListener<? super K, ? super V> delegate, 
+                                   OverflowPolicy overflowPolicy, int consumerCount, 
+                                   int bufferCapacity, int maxBatchSize, int sampleRate) {
+        if (delegate == null) {
+            throw new NullPointerException("Delegate cache entry listener cannot be null!");
+        }
+        if (overflowPolicy == null) {
+            throw new NullPointerException("Overflow policy cannot be null!");
+        }
+        if (consumerCount <= 0) {
+            throw new IllegalArgumentException("Consumer count must be positive!");
+        }
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive!");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive!");
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be positive!");
+        }
+        this.delegate = delegate;
+        this.overflowPolicy = overflowPolicy;
+        this.bufferCapacity = bufferCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.sampleRate = sampleRate;
+        this.consumers = new ArrayList<Consumer>(consumerCount);
+        for (int i = 0; i < consumerCount; i++) {
+            Consumer consumer = new Consumer(i);
+            consumers.add(consumer);
+            consumer.start();
+        }
+    }
+    
+    public CacheEntryListener<? super K, ? super V> getDelegate() {
+        return delegate;
+    }
+    
+    public long getDroppedEventCount() {
+        return droppedEventCount.get();
+    }
+    
+    public long getFailedDispatchCount() {
+        return failedDispatchCount.get();
+    }
+    
+    public int getPendingEventCount() {
+        int count = 0;
+        for (Consumer consumer : consumers) {
+            count += consumer.buffer.size();
+        }
+        return count;
+    }
+    
+    @Override
+    public void onCreated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+            throws CacheEntryListenerException {
+        publish(events);
+    }
+    
+    @Override
+    public void onUpdated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+            throws CacheEntryListenerException {
+        publish(events);
+    }
+    
+    @Override
+    public void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+            throws CacheEntryListenerException {
+        publish(events);
+    }
+    
+    @Override
+    public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+            throws CacheEntryListenerException {
+        publish(events);
+    }
+    
+    private void publish(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Async cache entry listener is closed!");
+            }
+            // Consumers are not stopped until the lock is released, 
+            // so a blocked publisher is eventually unblocked by them
+            for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+                consumerOf(event.getKey()).offer(event);
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+    
+    private Consumer consumerOf(Object key) {
+        int hash = key.hashCode();
+        // Spread bits, since keys such as integers have poor distribution in low bits
+        hash ^= (hash >>> 16);
+        return consumers.get((hash & Integer.MAX_VALUE) % consumers.size());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void dispatch(EventType eventType, List<CacheEntryEvent<? extends K, ? extends V>> events) {
+        try {
+            switch (eventType) {
+                case CREATED:
+                    if (delegate instanceof CacheEntryCreatedListener) {
+                        ((CacheEntryCreatedListener<K, V>) delegate).onCreated(events);
+                    }
+                    break;
+                case UPDATED:
+                    if (delegate instanceof CacheEntryUpdatedListener) {
+                        ((CacheEntryUpdatedListener<K, V>) delegate).onUpdated(events);
+                    }
+                    break;
+                case REMOVED:
+                    if (delegate instanceof CacheEntryRemovedListener) {
+                        ((CacheEntryRemovedListener<K, V>) delegate).onRemoved(events);
+                    }
+                    break;
+                case EXPIRED:
+                    if (delegate instanceof CacheEntryExpiredListener) {
+                        ((CacheEntryExpiredListener<K, V>) delegate).onExpired(events);
+                    }
+                    break;
+            }
+        } catch (Throwable t) {
+            // There is no one to report to, so just count it and keep consuming
+            failedDispatchCount.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Waits for the ongoing publishes, stops consumers after the already buffered events are dispatched 
+     * and closes the delegated cache entry listener if it is {@link Closeable}.
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        for (Consumer consumer : consumers) {
+            consumer.interrupt();
+        }
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+    
+    private class Consumer extends Thread {
+        
+        private final BlockingQueue<CacheEntryEvent<? extends K, ? extends V>> buffer = 
+                new ArrayBlockingQueue<CacheEntryEvent<? extends K, ? extends V>>(bufferCapacity);
+        private final AtomicLong sampleCounter = new AtomicLong();
+        
+        private Consumer(int index) {
+            super("async-cache-entry-listener-" + index);
+            setDaemon(true);
+        }
+        
+        private void offer(CacheEntryEvent<? extends K, ? extends V> event) {
+            switch (overflowPolicy) {
+                case BLOCK:
+                    try {
+                        buffer.put(event);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CacheEntryListenerException("Interrupted while publishing event", e);
+                    }
+                    break;
+                case DROP_OLDEST:
+                    while (!buffer.offer(event)) {
+                        if (buffer.poll() != null) {
+                            droppedEventCount.incrementAndGet();
+                        }
+                    }
+                    break;
+                case SAMPLE:
+                    if (buffer.remainingCapacity() < bufferCapacity / 2 
+                            && sampleCounter.incrementAndGet() % sampleRate != 0) {
+                        droppedEventCount.incrementAndGet();
+                    } else if (!buffer.offer(event)) {
+                        droppedEventCount.incrementAndGet();
+                    }
+                    break;
+            }
+        }
+        
+        @Override
+        public void run() {
+            List<CacheEntryEvent<? extends K, ? extends V>> events = 
+                    new ArrayList<CacheEntryEvent<? extends K, ? extends V>>(maxBatchSize);
+            while (true) {
+                try {
+                    events.add(buffer.take());
+                } catch (InterruptedException e) {
+                    // Closed, so dispatch the remaining events and stop
+                    while (buffer.drainTo(events, maxBatchSize) > 0) {
+                        dispatchInBatches(events);
+                        events.clear();
+                    }
+                    return;
+                }
+                buffer.drainTo(events, maxBatchSize - 1);
+                dispatchInBatches(events);
+                events.clear();
+            }
+        }
+        
+        private void dispatchInBatches(List<CacheEntryEvent<? extends K, ? extends V>> events) {
+            // Dispatch consecutive events of same type together to keep the order 
+            int batchStart = 0;
+            for (int i = 1; i <= events.size(); i++) {
+                if (i == events.size() 
+                        || events.get(i).getEventType() != events.get(batchStart).getEventType()) {
+                    dispatch(events.get(batchStart).getEventType(), 
+                             new ArrayList<CacheEntryEvent<? extends K, ? extends V>>(events.subList(batchStart, i)));
+                    batchStart = i;
+                }
+            }
+        }
+        
+    }
+
+}
@@ -0,0 +1,108 @@
+package ua.com.jday2015.demo.jcache.event;
+
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryListener;
+
+/**
+ * {@link CacheEntryListenerConfiguration} implementation which registers 
+ * the listener of the given {@link CacheEntryListenerConfiguration} 
+ * behind an {@link AsyncCacheEntryListener}.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class AsyncCacheEntryListenerConfiguration<K, V> 
+        implements CacheEntryListenerConfiguration<K, V> {
+
+    private final CacheEntryListenerConfiguration<K, V> delegate;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private int consumerCount = AsyncCacheEntryListener.DEFAULT_CONSUMER_COUNT;
+    private int bufferCapacity = AsyncCacheEntryListener.DEFAULT_BUFFER_CAPACITY;
+    private int maxBatchSize = AsyncCacheEntryListener.DEFAULT_MAX_BATCH_SIZE;
+    private int sampleRate = AsyncCacheEntryListener.DEFAULT_SAMPLE_RATE;
+    
+    public AsyncCacheEntryListenerConfiguration(CacheEntryListenerConfiguration<K, V> delegate) {
+        this.delegate = delegate;
+    }
+    
+    public AsyncCacheEntryListenerConfiguration<K, V> setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+    
+    public AsyncCacheEntryListenerConfiguration<K, V> setConsumerCount(int consumerCount) {
+        this.consumerCount = consumerCount;
+        return this;
+    }
+    
+    public AsyncCacheEntryListenerConfiguration<K, V> setBufferCapacity(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+        return this;
+    }
+    
+    public AsyncCacheEntryListenerConfiguration<K, V> setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+    
+    public AsyncCacheEntryListenerConfiguration<K, V> setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+        return this;
+    }
+    
+    @Override
+    public boolean isSynchronous() {
+        // Even it is synchronous, mutations only wait for the event to be buffered
+        return delegate.isSynchronous();
+    }
+    
+    @Override
+    public boolean isOldValueRequired() {
+        return delegate.isOldValueRequired();
+    }
+    
+    @Override
+    public Factory<CacheEntryListener<? super K, ? super V>> getCacheEntryListenerFactory() {
+        return new AsyncCacheEntryListenerFactory<K, V>(
+                delegate.getCacheEntryListenerFactory(), overflowPolicy, consumerCount, 
+                bufferCapacity, maxBatchSize, sampleRate);
+    }
+    
+    @Override
+    public Factory<CacheEntryEventFilter<? super K, ? super V>> getCacheEntryEventFilterFactory() {
+        return delegate.getCacheEntryEventFilterFactory();
+    }
+    
+    private static class AsyncCacheEntryListenerFactory<K, V> 
+            implements Factory<CacheEntryListener<? super K, ? super V>> {
+        
+        private final Factory<CacheEntryListener<? super K, ? super V>> listenerFactory;
+        private final OverflowPolicy overflowPolicy;
+        private final int consumerCount;
+        private final int bufferCapacity;
+        private final int maxBatchSize;
+        private final int sampleRate;
+        
+        private AsyncCacheEntryListenerFactory(Factory<CacheEntryListener<? super K, ? super V>> listenerFactory,
+                                               OverflowPolicy overflowPolicy, int consumerCount, 
+                                               int bufferCapacity, int maxBatchSize, int sampleRate) {
+            this.listenerFactory = listenerFactory;
+            this.overflowPolicy = overflowPolicy;
+            this.consumerCount = consumerCount;
+            this.bufferCapacity = bufferCapacity;
+            this.maxBatchSize = maxBatchSize;
+            this.sampleRate = sampleRate;
+        }
+        
+        @Override
+        public CacheEntryListener<? super K, ? super V> create() {
+            return new AsyncCacheEntryListener<K, V>(
+                    listenerFactory.create(), overflowPolicy, consumerCount, 
+                    bufferCapacity, maxBatchSize, sampleRate);
+        }
+        
+    }
+
+}
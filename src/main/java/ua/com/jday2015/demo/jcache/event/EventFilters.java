@@ -0,0 +1,441 @@
+package ua.com.jday2015.demo.jcache.event;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.EventType;
+
+/**
+ * Factory methods for serializable and composable {@link CacheEntryEventFilter}s 
+ * to be used in cache entry listener configurations.
+ * 
+ * Composite filters (and, or, not) are compiled when they are created: 
+ * nested composites of same kind are flattened and 
+ * cheaper filters (event type, key) are evaluated before the more expensive ones (value).
+ * 
+ * Note that filters are evaluated by the JCache implementation before the events are delivered 
+ * to the listener. Hazelcast 3.5 evaluates them on the member which has registered the listener.
+ * 
+ * @author Serkan OZAL
+ */
+public final class EventFilters {
+
+    private static final int COST_EVENT_TYPE = 0;
+    private static final int COST_INT_KEY_SET = 1;
+    private static final int COST_KEY_RANGE = 2;
+    private static final int COST_BLOOM_FILTER = 3;
+    private static final int COST_VALUE = 4;
+    private static final int COST_UNKNOWN = Integer.MAX_VALUE;
+    
+    private EventFilters() {
+    }
+    
+    /**
+     * Predicate to be evaluated on the event values. 
+     * It must be serializable since it is shipped together with the filter.
+     */
+    public interface ValuePredicate<V> extends Serializable {
+        
+        boolean test(V value);
+        
+    }
+    
+    /**
+     * Creates a {@link Factory} to be used in cache entry listener configuration for the given filter.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Factory<CacheEntryEventFilter<? super K, ? super V>> factoryOf(
+            CacheEntryEventFilter<? super K, ? super V> filter) {
+        return (Factory<CacheEntryEventFilter<? super K, ? super V>>) ((Object) FactoryBuilder.factoryOf((Serializable) filter));
+    }
+    
+    /**
+     * Accepts only the events of the given types.
+     */
+    public static <K, V> CacheEntryEventFilter<K, V> eventTypes(EventType eventType, EventType... eventTypes) {
+        return new EventTypeFilter<K, V>(EnumSet.of(eventType, eventTypes));
+    }
+    
+    /**
+     * Accepts only the events whose keys are in the range of <code>[from, to)</code>. 
+     * <code>null</code> means unbounded.
+     */
+    public static <K extends Comparable<? super K>, V> CacheEntryEventFilter<K, V> keyRange(K from, K to) {
+        return new KeyRangeFilter<K, V>(from, to);
+    }
+    
+    /**
+     * Accepts only the events whose keys are in the given non-negative integer keys. 
+     * Keys are held in a {@link BitSet}, so it is compact for dense keys.
+     */
+    public static <V> CacheEntryEventFilter<Integer, V> intKeySet(int... keys) {
+        BitSet keySet = new BitSet();
+        for (int key : keys) {
+            if (key < 0) {
+                throw new IllegalArgumentException("Negative keys are not supported: " + key);
+            }
+            keySet.set(key);
+        }
+        return new IntKeySetFilter<V>(keySet);
+    }
+    
+    /**
+     * Accepts the events whose keys are in the given keys by using a bloom filter. 
+     * So with the given false positive probability, events of some other keys are accepted too. 
+     * Keys must have the same {@link Object#hashCode()} on all JVMs (such as {@link Integer} and {@link String}).
+     */
+    public static <K, V> CacheEntryEventFilter<K, V> keyBloomFilter(Collection<? extends K> keys, 
+                                                                    double falsePositiveProbability) {
+        return new KeyBloomFilter<K, V>(keys, falsePositiveProbability);
+    }
+    
+    /**
+     * Accepts only the events whose values satisfy the given predicate. 
+     * For removed and expired events the old value is tested when it is available. 
+     * Events without a value (such as removed events without old value) are accepted 
+     * without testing, so the predicate is never called with <code>null</code>.
+     */
+    public static <K, V> CacheEntryEventFilter<K, V> value(ValuePredicate<? super V> predicate) {
+        return new ValueFilter<K, V>(predicate);
+    }
+    
+    /**
+     * Accepts the events accepted by all of the given filters.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <K, V> CacheEntryEventFilter<K, V> and(CacheEntryEventFilter<? super K, ? super V>... filters) {
+        return new AndFilter<K, V>(compile(AndFilter.class, filters));
+    }
+    
+    /**
+     * Accepts the events accepted by any of the given filters.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <K, V> CacheEntryEventFilter<K, V> or(CacheEntryEventFilter<? super K, ? super V>... filters) {
+        return new OrFilter<K, V>(compile(OrFilter.class, filters));
+    }
+    
+    /**
+     * Accepts the events rejected by the given filter.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> CacheEntryEventFilter<K, V> not(CacheEntryEventFilter<? super K, ? super V> filter) {
+        if (filter instanceof NotFilter) {
+            // Filters only consume keys and values, so it is safe to narrow their types
+            return (CacheEntryEventFilter<K, V>) ((NotFilter<? super K, ? super V>) filter).filter;
+        }
+        return new NotFilter<K, V>(filter);
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <K, V> List<CacheEntryEventFilter<? super K, ? super V>> compile(
+            Class<? extends CompositeFilter> compositeType, 
+            CacheEntryEventFilter<? super K, ? super V>[] filters) {
+        if (filters.length == 0) {
+            throw new IllegalArgumentException("At least one filter must be given!");
+        }
+        List<CacheEntryEventFilter<? super K, ? super V>> flattened = 
+                new ArrayList<CacheEntryEventFilter<? super K, ? super V>>(filters.length);
+        for (CacheEntryEventFilter<? super K, ? super V> filter : filters) {
+            if (filter == null) {
+                throw new NullPointerException("Filter cannot be null!");
+            }
+            if (compositeType.isInstance(filter)) {
+                flattened.addAll(((CompositeFilter) filter).filters);
+            } else {
+                flattened.add(filter);
+            }
+        }
+        // Stable sort, so filters with same cost keep the given order 
+        Collections.sort(flattened, new Comparator<CacheEntryEventFilter<?, ?>>() {
+            @Override
+            public int compare(CacheEntryEventFilter<?, ?> f1, CacheEntryEventFilter<?, ?> f2) {
+                int c1 = costOf(f1);
+                int c2 = costOf(f2);
+                return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+            }
+        });
+        return flattened;
+    }
+    
+    private static int costOf(CacheEntryEventFilter<?, ?> filter) {
+        if (filter instanceof AbstractFilter) {
+            return ((AbstractFilter<?, ?>) filter).cost();
+        }
+        return COST_UNKNOWN;
+    }
+    
+    @SuppressWarnings("serial")
+    private abstract static class AbstractFilter<K, V> 
+            implements CacheEntryEventFilter<K, V>, Serializable {
+        
+        abstract int cost();
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class EventTypeFilter<K, V> extends AbstractFilter<K, V> {
+        
+        private final EnumSet<EventType> eventTypes;
+        
+        private EventTypeFilter(EnumSet<EventType> eventTypes) {
+            this.eventTypes = eventTypes;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            return eventTypes.contains(event.getEventType());
+        }
+        
+        @Override
+        int cost() {
+            return COST_EVENT_TYPE;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class KeyRangeFilter<K extends Comparable<? super K>, V> extends AbstractFilter<K, V> {
+        
+        private final K from;
+        private final K to;
+        
+        private KeyRangeFilter(K from, K to) {
+            if (from != null && to != null && from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("Range start cannot be greater than range end!");
+            }
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            K key = event.getKey();
+            return (from == null || from.compareTo(key) <= 0) 
+                    && (to == null || to.compareTo(key) > 0);
+        }
+        
+        @Override
+        int cost() {
+            return COST_KEY_RANGE;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class IntKeySetFilter<V> extends AbstractFilter<Integer, V> {
+        
+        private final BitSet keySet;
+        
+        private IntKeySetFilter(BitSet keySet) {
+            this.keySet = keySet;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends Integer, ? extends V> event) 
+                throws CacheEntryListenerException {
+            int key = event.getKey();
+            return key >= 0 && keySet.get(key);
+        }
+        
+        @Override
+        int cost() {
+            return COST_INT_KEY_SET;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class KeyBloomFilter<K, V> extends AbstractFilter<K, V> {
+        
+        private final long[] bits;
+        private final int bitCount;
+        private final int hashCount;
+        
+        private KeyBloomFilter(Collection<? extends K> keys, double falsePositiveProbability) {
+            if (falsePositiveProbability <= 0.0 || falsePositiveProbability >= 1.0) {
+                throw new IllegalArgumentException("False positive probability must be in (0, 1)!");
+            }
+            int n = Math.max(1, keys.size());
+            // Optimal bit and hash count for the expected key count and false positive probability
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+            this.bits = new long[(bitCount + 63) >>> 6];
+            for (K key : keys) {
+                int h1 = mix(key.hashCode());
+                int h2 = mix(h1);
+                for (int i = 0; i < hashCount; i++) {
+                    int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+                    bits[bit >>> 6] |= 1L << bit;
+                }
+            }
+        }
+        
+        private static int mix(int h) {
+            // Finalization mix of MurmurHash3
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            int h1 = mix(event.getKey().hashCode());
+            int h2 = mix(h1);
+            for (int i = 0; i < hashCount; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+                if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        int cost() {
+            return COST_BLOOM_FILTER;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class ValueFilter<K, V> extends AbstractFilter<K, V> {
+        
+        private final ValuePredicate<? super V> predicate;
+        
+        private ValueFilter(ValuePredicate<? super V> predicate) {
+            if (predicate == null) {
+                throw new NullPointerException("Predicate cannot be null!");
+            }
+            this.predicate = predicate;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            V value = valueOf(event);
+            // There is nothing to test, so don't filter out what cannot be decided
+            return value == null || predicate.test(value);
+        }
+        
+        private V valueOf(CacheEntryEvent<? extends K, ? extends V> event) {
+            EventType eventType = event.getEventType();
+            if ((eventType == EventType.REMOVED || eventType == EventType.EXPIRED) 
+                    && event.isOldValueAvailable()) {
+                return event.getOldValue();
+            }
+            return event.getValue();
+        }
+        
+        @Override
+        int cost() {
+            return COST_VALUE;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private abstract static class CompositeFilter<K, V> extends AbstractFilter<K, V> {
+        
+        final List<CacheEntryEventFilter<? super K, ? super V>> filters;
+        private final int cost;
+        
+        private CompositeFilter(List<CacheEntryEventFilter<? super K, ? super V>> filters) {
+            this.filters = filters;
+            // Filters are sorted by their costs, so the last one is the most expensive one
+            this.cost = costOf(filters.get(filters.size() - 1));
+        }
+        
+        @Override
+        int cost() {
+            return cost;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class AndFilter<K, V> extends CompositeFilter<K, V> {
+        
+        private AndFilter(List<CacheEntryEventFilter<? super K, ? super V>> filters) {
+            super(filters);
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            for (int i = 0; i < filters.size(); i++) {
+                if (!filters.get(i).evaluate(event)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class OrFilter<K, V> extends CompositeFilter<K, V> {
+        
+        private OrFilter(List<CacheEntryEventFilter<? super K, ? super V>> filters) {
+            super(filters);
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            for (int i = 0; i < filters.size(); i++) {
+                if (filters.get(i).evaluate(event)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class NotFilter<K, V> extends AbstractFilter<K, V> {
+        
+        private final CacheEntryEventFilter<? super K, ? super V> filter;
+        
+        private NotFilter(CacheEntryEventFilter<? super K, ? super V> filter) {
+            if (filter == null) {
+                throw new NullPointerException("Filter cannot be null!");
+            }
+            this.filter = filter;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event) 
+                throws CacheEntryListenerException {
+            return !filter.evaluate(event);
+        }
+        
+        @Override
+        int cost() {
+            return costOf(filter);
+        }
+        
+    }
+
+}
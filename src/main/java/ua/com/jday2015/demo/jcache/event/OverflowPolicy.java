@@ -0,0 +1,27 @@
+package ua.com.jday2015.demo.jcache.event;
+
+/**
+ * Policies to apply when event buffer of {@link AsyncCacheEntryListener} is full.
+ * 
+ * @author Serkan OZAL
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Blocks the event publisher until there is space in the buffer. 
+     * No event is lost but a slow listener slows down the cache mutations.
+     */
+    BLOCK,
+    
+    /**
+     * Drops the oldest event in the buffer to make space for the new event. 
+     */
+    DROP_OLDEST,
+    
+    /**
+     * Admits only every n-th event once the buffer is half full 
+     * and drops the new event if the buffer is still full.
+     */
+    SAMPLE
+    
+}
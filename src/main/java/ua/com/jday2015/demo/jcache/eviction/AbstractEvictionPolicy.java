@@ -0,0 +1,126 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Base class for {@link EvictionPolicy} implementations which keep entries as nodes 
+ * in intrusive doubly linked queues, so moving an entry between or inside queues is O(1).
+ * 
+ * @author Serkan OZAL
+ */
+abstract class AbstractEvictionPolicy<K> implements EvictionPolicy<K> {
+
+    protected final long maxWeight;
+    protected final Map<K, Node<K>> nodes = new HashMap<K, Node<K>>();
+    protected long weight;
+    
+    protected AbstractEvictionPolicy(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Max weight must be positive!");
+        }
+        this.maxWeight = maxWeight;
+    }
+    
+    @Override
+    public boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+    
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+    
+    @Override
+    public long getWeight() {
+        return weight;
+    }
+    
+    @Override
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+    
+    @Override
+    public void clear() {
+        nodes.clear();
+        weight = 0;
+    }
+    
+    protected static class Node<K> {
+        
+        protected final K key;
+        protected int weight;
+        protected Queue<K> queue;
+        protected Node<K> prev;
+        protected Node<K> next;
+        // Position in the sampling array if the policy samples entries
+        protected int index = -1;
+        
+        protected Node(K key, int weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+        
+    }
+    
+    /**
+     * Access ordered queue of nodes. Head is the least recently used one.
+     */
+    protected static class Queue<K> {
+        
+        protected Node<K> head;
+        protected Node<K> tail;
+        protected long weight;
+        
+        protected boolean isEmpty() {
+            return head == null;
+        }
+        
+        protected void addLast(Node<K> node) {
+            node.queue = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+        
+        protected void remove(Node<K> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            weight -= node.weight;
+        }
+        
+        protected void moveToLast(Node<K> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+        
+        protected void clear() {
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,515 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.Cache;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
+
+import com.hazelcast.cache.ICache;
+
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+import ua.com.jday2015.demo.jcache.support.TrackingEntryProcessor;
+import ua.com.jday2015.demo.jcache.support.TrackingEntryProcessor.ProcessedEntry;
+
+/**
+ * {@link Cache} decorator which bounds the delegated cache by the total weight of its entries. 
+ * 
+ * Entries created, updated and read through this decorator are weighed by the configured {@link Weigher} 
+ * and tracked by the configured {@link EvictionPolicy}. When the total weight exceeds the max weight, 
+ * entries picked by the policy are evicted from the delegated cache and reported to the {@link EvictionListener}. 
+ * To avoid a global lock, keys are split into segments by theirs hashes and 
+ * every segment has its own policy bounded by its share of the max weight.
+ * 
+ * Victims are evicted after the lock of theirs segment is released and only if they are still not tracked again 
+ * and still have values with the hashes seen by the policy, so an entry updated after it has been picked is not evicted. 
+ * The current value of a victim is read by an entry processor, so none of them is loaded by read-through. 
+ * Evicted entries of a Hazelcast cache are expired immediately by replacing them with the same value 
+ * and an {@link ExpiryPolicy} which expires them on update, so they are neither deleted by the cache writer 
+ * nor published as "REMOVED" but published as "EXPIRED" to the listeners of the delegated cache. 
+ * Entries of other caches are evicted by {@link Cache#remove(Object, Object)}.
+ * 
+ * Only the hashes of the values of the tracked entries are kept by theirs segments, not the values themselves.
+ * 
+ * Note that entries created directly on the delegated cache are not tracked until they are read through this decorator.
+ * 
+ * @author Serkan OZAL
+ */
+public class BoundedCache<K, V> extends DelegatingCache<K, V> {
+
+    // Segments are not split further when their max weights would be less than this
+    private static final long MIN_SEGMENT_WEIGHT = 64;
+    
+    private final Weigher<? super K, ? super V> weigher;
+    private final EvictionListener<K> evictionListener;
+    private final Segment<K>[] segments;
+    private final int segmentMask;
+    @SuppressWarnings("rawtypes")
+    private final ICache hazelcastCache;
+    private final AtomicLong evictionCount = new AtomicLong();
+    
+    public BoundedCache(Cache<K, V> delegate, EvictionConfig<K, V> evictionConfig) {
+        super(delegate);
+        if (evictionConfig.getMaxWeight() <= 0) {
+            throw new IllegalArgumentException("Max weight must be positive!");
+        }
+        if (evictionConfig.getWeigher() == null) {
+            throw new NullPointerException("Weigher cannot be null!");
+        }
+        if (evictionConfig.getEvictionPolicyFactory() == null) {
+            throw new NullPointerException("Eviction policy cannot be null!");
+        }
+        this.weigher = evictionConfig.getWeigher();
+        this.evictionListener = evictionConfig.getEvictionListener();
+        
+        long maxWeight = evictionConfig.getMaxWeight();
+        int segmentCount = 1;
+        while (segmentCount < 4 * Runtime.getRuntime().availableProcessors() 
+                && maxWeight / (segmentCount * 2) >= MIN_SEGMENT_WEIGHT) {
+            segmentCount <<= 1;
+        }
+        @SuppressWarnings("unchecked")
+        Segment<K>[] segments = (Segment<K>[]) new Segment<?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // Remainder of the max weight is given to the first segments
+            long segmentMaxWeight = maxWeight / segmentCount + (i < maxWeight % segmentCount ? 1 : 0);
+            segments[i] = new Segment<K>(evictionConfig.getEvictionPolicyFactory().create(segmentMaxWeight));
+        }
+        this.segments = segments;
+        this.segmentMask = segmentCount - 1;
+        this.hazelcastCache = unwrapHazelcastCache(delegate);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static ICache unwrapHazelcastCache(Cache<?, ?> cache) {
+        try {
+            return cache.unwrap(ICache.class);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+    
+    /**
+     * Gets the total weight of the tracked entries.
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                weight += segment.policy.getWeight();
+            }
+        }
+        return weight;
+    }
+    
+    /**
+     * Gets the number of the tracked entries.
+     */
+    public int getTrackedSize() {
+        int size = 0;
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                size += segment.policy.size();
+            }
+        }
+        return size;
+    }
+    
+    private Segment<K> segmentOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & segmentMask];
+    }
+    
+    private void accessed(K key, V value) {
+        Segment<K> segment = segmentOf(key);
+        Map<K, Integer> victims = null;
+        synchronized (segment) {
+            if (segment.policy.contains(key)) {
+                segment.policy.recordAccess(key);
+                segment.valueHashes.put(key, TrackingEntryProcessor.valueHashOf(value));
+            } else {
+                // Either it is read for the first time or it has been just loaded by read-through
+                victims = written(segment, key, weigher.weigh(key, value), TrackingEntryProcessor.valueHashOf(value));
+            }
+        }
+        evict(segment, victims);
+    }
+    
+    private void written(K key, V value) {
+        written(key, weigher.weigh(key, value), TrackingEntryProcessor.valueHashOf(value));
+    }
+    
+    private void written(K key, int weight, int valueHash) {
+        Segment<K> segment = segmentOf(key);
+        Map<K, Integer> victims;
+        synchronized (segment) {
+            victims = written(segment, key, weight, valueHash);
+        }
+        evict(segment, victims);
+    }
+    
+    /**
+     * Records the write and picks the victims with the hashes of theirs values while the segment lock is held. 
+     * Victims are evicted after the lock is released, so the other operations on the segment don't wait for them.
+     */
+    private Map<K, Integer> written(Segment<K> segment, K key, int weight, int valueHash) {
+        segment.policy.recordWrite(key, weight);
+        segment.valueHashes.put(key, valueHash);
+        List<K> picked = new ArrayList<K>();
+        segment.policy.evict(picked);
+        Map<K, Integer> victims = new LinkedHashMap<K, Integer>(picked.size());
+        for (K victim : picked) {
+            Integer victimValueHash = segment.valueHashes.remove(victim);
+            if (victimValueHash != null) {
+                victims.put(victim, victimValueHash);
+            }
+        }
+        return victims;
+    }
+    
+    private void evict(Segment<K> segment, Map<K, Integer> victims) {
+        if (victims == null || victims.isEmpty()) {
+            return;
+        }
+        List<K> evictedKeys = new ArrayList<K>(victims.size());
+        for (Map.Entry<K, Integer> victim : victims.entrySet()) {
+            K key = victim.getKey();
+            synchronized (segment) {
+                if (segment.policy.contains(key)) {
+                    // Written again through this decorator after it has been picked
+                    continue;
+                }
+            }
+            if (evict(key, victim.getValue())) {
+                evictedKeys.add(key);
+            }
+        }
+        notifyEvicted(evictedKeys);
+    }
+    
+    /**
+     * Evicts the given key if it still has a value with the given hash. 
+     * None of the operations used loads the entry by read-through.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean evict(K key, int valueHash) {
+        V value = delegate.invoke(key, new PeekEntryProcessor<K, V>());
+        if (value == null || TrackingEntryProcessor.valueHashOf(value) != valueHash) {
+            return false;
+        }
+        if (hazelcastCache != null) {
+            // Replaced (so expired) only if it still has the same value, 
+            // but the result doesn't tell whether it has expired, so it is checked
+            hazelcastCache.replace(key, value, value, ImmediateExpiryPolicy.INSTANCE);
+            return !delegate.containsKey(key);
+        } else {
+            return delegate.remove(key, value);
+        }
+    }
+    
+    private void notifyEvicted(List<K> evictedKeys) {
+        if (evictedKeys.isEmpty()) {
+            return;
+        }
+        evictionCount.addAndGet(evictedKeys.size());
+        if (evictionListener != null) {
+            evictionListener.onEvicted(evictedKeys);
+        }
+    }
+    
+    private void removed(Object key) {
+        Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.policy.recordRemoval(castKey(key));
+            segment.valueHashes.remove(key);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private K castKey(Object key) {
+        return (K) key;
+    }
+    
+    private void removedAll() {
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                segment.policy.clear();
+                segment.valueHashes.clear();
+            }
+        }
+    }
+    
+    private void processed(K key, ProcessedEntry<?> processedEntry) {
+        if (!processedEntry.isChanged()) {
+            return;
+        }
+        if (processedEntry.isRemoved()) {
+            removed(key);
+        } else {
+            written(key, processedEntry.getWeight(), processedEntry.getValueHash());
+        }
+    }
+    
+    @Override
+    public V get(K key) {
+        V value = delegate.get(key);
+        if (value != null) {
+            accessed(key, value);
+        } else {
+            removed(key);
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        Map<K, V> result = delegate.getAll(keys);
+        for (K key : keys) {
+            V value = result.get(key);
+            if (value != null) {
+                accessed(key, value);
+            } else {
+                removed(key);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, value);
+        written(key, value);
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        V oldValue = delegate.getAndPut(key, value);
+        written(key, value);
+        return oldValue;
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        delegate.putAll(map);
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            written(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        boolean put = delegate.putIfAbsent(key, value);
+        if (put) {
+            written(key, value);
+        }
+        return put;
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        boolean replaced = delegate.replace(key, oldValue, newValue);
+        if (replaced) {
+            written(key, newValue);
+        }
+        return replaced;
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        boolean replaced = delegate.replace(key, value);
+        if (replaced) {
+            written(key, value);
+        }
+        return replaced;
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        V oldValue = delegate.getAndReplace(key, value);
+        if (oldValue != null) {
+            written(key, value);
+        }
+        return oldValue;
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        try {
+            return delegate.remove(key);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        boolean removed = delegate.remove(key, oldValue);
+        if (removed) {
+            removed(key);
+        }
+        return removed;
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        try {
+            return delegate.getAndRemove(key);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            for (K key : keys) {
+                removed(key);
+            }
+        }
+    }
+    
+    @Override
+    public void removeAll() {
+        try {
+            delegate.removeAll();
+        } finally {
+            removedAll();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            removedAll();
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) 
+            throws EntryProcessorException {
+        ProcessedEntry<T> processedEntry = 
+                delegate.invoke(key, new TrackingEntryProcessor<K, V, T>(entryProcessor, weigher), arguments);
+        processed(key, processedEntry);
+        return processedEntry.getResult();
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, 
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        Map<K, EntryProcessorResult<ProcessedEntry<T>>> processedResults = 
+                delegate.invokeAll(keys, new TrackingEntryProcessor<K, V, T>(entryProcessor, weigher), arguments);
+        Map<K, EntryProcessorResult<T>> results = new HashMap<K, EntryProcessorResult<T>>();
+        for (Map.Entry<K, EntryProcessorResult<ProcessedEntry<T>>> entry : processedResults.entrySet()) {
+            K key = entry.getKey();
+            try {
+                ProcessedEntry<T> processedEntry = entry.getValue().get();
+                processed(key, processedEntry);
+                if (processedEntry.getResult() != null) {
+                    results.put(key, new ProcessedResult<T>(processedEntry.getResult(), null));
+                }
+            } catch (EntryProcessorException e) {
+                // Entry may have been changed anyway, so it is tracked again at the next read
+                removed(key);
+                results.put(key, new ProcessedResult<T>(null, e));
+            }
+        }
+        return results;
+    }
+    
+    @Override
+    public void close() {
+        removedAll();
+        delegate.close();
+    }
+    
+    /**
+     * Eviction policy of a segment with the hashes of the values of its tracked entries, 
+     * guarded by the segment itself.
+     */
+    private static final class Segment<K> {
+        
+        private final EvictionPolicy<K> policy;
+        private final Map<K, Integer> valueHashes = new HashMap<K, Integer>();
+        
+        private Segment(EvictionPolicy<K> policy) {
+            this.policy = policy;
+        }
+        
+    }
+    
+    /**
+     * Reads the value of the entry without loading it by read-through.
+     */
+    @SuppressWarnings("serial")
+    private static class PeekEntryProcessor<K, V> implements EntryProcessor<K, V, V>, Serializable {
+        
+        @Override
+        public V process(MutableEntry<K, V> entry, Object... arguments) throws EntryProcessorException {
+            return entry.exists() ? entry.getValue() : null;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class ImmediateExpiryPolicy implements ExpiryPolicy, Serializable {
+
+        private static final ImmediateExpiryPolicy INSTANCE = new ImmediateExpiryPolicy();
+        
+        @Override
+        public Duration getExpiryForCreation() {
+            return Duration.ZERO;
+        }
+
+        @Override
+        public Duration getExpiryForAccess() {
+            return Duration.ZERO;
+        }
+
+        @Override
+        public Duration getExpiryForUpdate() {
+            return Duration.ZERO;
+        }
+        
+    }
+    
+    private static class ProcessedResult<T> implements EntryProcessorResult<T> {
+        
+        private final T result;
+        private final EntryProcessorException exception;
+        
+        private ProcessedResult(T result, EntryProcessorException exception) {
+            this.result = result;
+            this.exception = exception;
+        }
+
+        @Override
+        public T get() throws EntryProcessorException {
+            if (exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,58 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+/**
+ * Configuration of {@link BoundedCache}. 
+ * By default, caches are bounded by {@link #DEFAULT_MAX_WEIGHT} entries with {@link EvictionPolicyType#W_TINY_LFU}.
+ * 
+ * @author Serkan OZAL
+ */
+public class EvictionConfig<K, V> {
+
+    public static final long DEFAULT_MAX_WEIGHT = 10000;
+    
+    private long maxWeight = DEFAULT_MAX_WEIGHT;
+    private Weigher<? super K, ? super V> weigher = Weighers.singleton();
+    private EvictionPolicyFactory evictionPolicyFactory = EvictionPolicyType.W_TINY_LFU;
+    private EvictionListener<K> evictionListener;
+    
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+    
+    /**
+     * Sets the max total weight of the entries. 
+     * It is the max entry count when the default {@link Weigher} is used.
+     */
+    public EvictionConfig<K, V> setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        return this;
+    }
+    
+    public Weigher<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+    
+    public EvictionConfig<K, V> setWeigher(Weigher<? super K, ? super V> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+    
+    public EvictionPolicyFactory getEvictionPolicyFactory() {
+        return evictionPolicyFactory;
+    }
+    
+    public EvictionConfig<K, V> setEvictionPolicy(EvictionPolicyFactory evictionPolicyFactory) {
+        this.evictionPolicyFactory = evictionPolicyFactory;
+        return this;
+    }
+    
+    public EvictionListener<K> getEvictionListener() {
+        return evictionListener;
+    }
+    
+    public EvictionConfig<K, V> setEvictionListener(EvictionListener<K> evictionListener) {
+        this.evictionListener = evictionListener;
+        return this;
+    }
+    
+}
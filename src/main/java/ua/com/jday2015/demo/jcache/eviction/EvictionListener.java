@@ -0,0 +1,14 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.util.List;
+
+/**
+ * Listens the keys evicted by {@link BoundedCache} in batches.
+ * 
+ * @author Serkan OZAL
+ */
+public interface EvictionListener<K> {
+
+    void onEvicted(List<K> keys);
+    
+}
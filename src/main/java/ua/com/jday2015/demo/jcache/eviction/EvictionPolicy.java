@@ -0,0 +1,44 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.util.Collection;
+
+/**
+ * Tracks the entries of a cache and decides which ones to be evicted 
+ * when theirs total weight exceeds the max weight given at creation. 
+ * All operations are expected to be amortized O(1). 
+ * 
+ * Not thread-safe, so it must be guarded by its owner.
+ * 
+ * @author Serkan OZAL
+ */
+public interface EvictionPolicy<K> {
+
+    boolean contains(K key);
+    
+    /**
+     * Records a read of the given tracked key.
+     */
+    void recordAccess(K key);
+    
+    /**
+     * Records a create or update of the given key with its new weight.
+     */
+    void recordWrite(K key, int weight);
+    
+    void recordRemoval(K key);
+    
+    /**
+     * Evicts entries until theirs total weight doesn't exceed the max weight 
+     * and adds the evicted keys into the given collection.
+     */
+    void evict(Collection<? super K> evictedKeys);
+    
+    int size();
+    
+    long getWeight();
+    
+    long getMaxWeight();
+    
+    void clear();
+    
+}
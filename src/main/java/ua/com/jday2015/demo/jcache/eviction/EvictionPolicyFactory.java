@@ -0,0 +1,12 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+/**
+ * Creates {@link EvictionPolicy}s bounded by the given max weight.
+ * 
+ * @author Serkan OZAL
+ */
+public interface EvictionPolicyFactory {
+
+    <K> EvictionPolicy<K> create(long maxWeight);
+    
+}
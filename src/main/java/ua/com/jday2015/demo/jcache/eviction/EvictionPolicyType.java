@@ -0,0 +1,42 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+/**
+ * Built-in {@link EvictionPolicy} types.
+ * 
+ * @author Serkan OZAL
+ */
+public enum EvictionPolicyType implements EvictionPolicyFactory {
+
+    /**
+     * Evicts the least recently used entry.
+     */
+    LRU {
+        @Override
+        public <K> EvictionPolicy<K> create(long maxWeight) {
+            return new LruEvictionPolicy<K>(maxWeight);
+        }
+    },
+    
+    /**
+     * Evicts the least frequently used entry of a random sample 
+     * by frequencies estimated on a {@link FrequencySketch}.
+     */
+    LFU {
+        @Override
+        public <K> EvictionPolicy<K> create(long maxWeight) {
+            return new SampledLfuEvictionPolicy<K>(maxWeight);
+        }
+    },
+    
+    /**
+     * Admits entries into a segmented LRU by theirs frequencies estimated on a {@link FrequencySketch} 
+     * behind a small LRU window for recent entries (W-TinyLFU).
+     */
+    W_TINY_LFU {
+        @Override
+        public <K> EvictionPolicy<K> create(long maxWeight) {
+            return new WTinyLfuEvictionPolicy<K>(maxWeight);
+        }
+    };
+    
+}
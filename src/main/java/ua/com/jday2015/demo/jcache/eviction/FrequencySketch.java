@@ -0,0 +1,107 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+/**
+ * Count-min sketch which estimates access frequencies of keys in small constant space. 
+ * 
+ * Every key has 4 counters of 4 bits in different rows, so a frequency is at most 15. 
+ * Counters of a key are kept in the same <code>long</code> slots of the rows picked by its hash 
+ * and the estimated frequency is the minimum of them. 
+ * When the number of increments reaches 10 times of the capacity, all counters are halved (aging), 
+ * so the sketch tracks recent frequencies.
+ * 
+ * Not thread-safe, so it must be guarded by its owner.
+ * 
+ * @author Serkan OZAL
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = { 
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L 
+    };
+    private static final long HALF_MASK = 0x7777777777777777L;
+    private static final int MAX_FREQUENCY = 15;
+    
+    private long[] table;
+    private int tableMask;
+    private int sampleSize;
+    private int incrementCount;
+    
+    public FrequencySketch(int capacity) {
+        ensureCapacity(capacity);
+    }
+    
+    /**
+     * Grows the sketch if it is smaller than the given capacity. Growing clears the collected frequencies.
+     */
+    public void ensureCapacity(int capacity) {
+        int maximum = Math.min(Math.max(capacity, 16), 1 << 30);
+        if (table != null && table.length >= maximum) {
+            return;
+        }
+        table = new long[Integer.highestOneBit(maximum - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = 10 * maximum;
+        incrementCount = 0;
+    }
+    
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+    
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += (h >>> 32);
+        return ((int) h) & tableMask;
+    }
+    
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        // Every row uses a different 4 bit counter of its slot, starting from one picked by the hash
+        int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < 4; row++) {
+            long slot = table[indexOf(hash, row)];
+            int count = (int) ((slot >>> ((start + row) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+    
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean incremented = false;
+        for (int row = 0; row < 4; row++) {
+            incremented |= incrementAt(indexOf(hash, row), start + row);
+        }
+        if (incremented && ++incrementCount >= sampleSize) {
+            reset();
+        }
+    }
+    
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+    
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        incrementCount /= 2;
+    }
+    
+    public void clear() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = 0;
+        }
+        incrementCount = 0;
+    }
+    
+}
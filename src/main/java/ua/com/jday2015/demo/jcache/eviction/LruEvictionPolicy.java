@@ -0,0 +1,68 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.util.Collection;
+
+/**
+ * {@link EvictionPolicy} implementation which evicts the least recently used entries.
+ * 
+ * @author Serkan OZAL
+ */
+public class LruEvictionPolicy<K> extends AbstractEvictionPolicy<K> {
+
+    private final Queue<K> queue = new Queue<K>();
+    
+    public LruEvictionPolicy(long maxWeight) {
+        super(maxWeight);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        Node<K> node = nodes.get(key);
+        if (node != null) {
+            queue.moveToLast(node);
+        }
+    }
+
+    @Override
+    public void recordWrite(K key, int entryWeight) {
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<K>(key, entryWeight);
+            nodes.put(key, node);
+            queue.addLast(node);
+        } else {
+            queue.remove(node);
+            weight -= node.weight;
+            node.weight = entryWeight;
+            queue.addLast(node);
+        }
+        weight += entryWeight;
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node != null) {
+            queue.remove(node);
+            weight -= node.weight;
+        }
+    }
+
+    @Override
+    public void evict(Collection<? super K> evictedKeys) {
+        while (weight > maxWeight && !queue.isEmpty()) {
+            Node<K> victim = queue.head;
+            queue.remove(victim);
+            nodes.remove(victim.key);
+            weight -= victim.weight;
+            evictedKeys.add(victim.key);
+        }
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        queue.clear();
+    }
+    
+}
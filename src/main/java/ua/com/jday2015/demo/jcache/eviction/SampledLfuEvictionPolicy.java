@@ -0,0 +1,97 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link EvictionPolicy} implementation which evicts the least frequently used entry 
+ * among {@link #SAMPLE_SIZE} randomly sampled entries. 
+ * Frequencies are estimated by a {@link FrequencySketch} which also counts the accesses of evicted entries, 
+ * so an entry coming back is not evicted immediately.
+ * 
+ * @author Serkan OZAL
+ */
+public class SampledLfuEvictionPolicy<K> extends AbstractEvictionPolicy<K> {
+
+    public static final int SAMPLE_SIZE = 8;
+    
+    private final List<Node<K>> samples = new ArrayList<Node<K>>();
+    private final FrequencySketch sketch = new FrequencySketch(16);
+    
+    public SampledLfuEvictionPolicy(long maxWeight) {
+        super(maxWeight);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        sketch.increment(key);
+    }
+
+    @Override
+    public void recordWrite(K key, int entryWeight) {
+        sketch.increment(key);
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<K>(key, entryWeight);
+            nodes.put(key, node);
+            node.index = samples.size();
+            samples.add(node);
+            sketch.ensureCapacity(nodes.size());
+        } else {
+            weight -= node.weight;
+            node.weight = entryWeight;
+        }
+        weight += entryWeight;
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node != null) {
+            removeSample(node);
+            weight -= node.weight;
+        }
+    }
+    
+    private void removeSample(Node<K> node) {
+        // Swap with the last one, so removal is O(1)
+        Node<K> last = samples.remove(samples.size() - 1);
+        if (last != node) {
+            last.index = node.index;
+            samples.set(node.index, last);
+        }
+        node.index = -1;
+    }
+
+    @Override
+    public void evict(Collection<? super K> evictedKeys) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (weight > maxWeight && !samples.isEmpty()) {
+            Node<K> victim = null;
+            int victimFrequency = Integer.MAX_VALUE;
+            int sampleCount = Math.min(SAMPLE_SIZE, samples.size());
+            for (int i = 0; i < sampleCount; i++) {
+                Node<K> candidate = samples.get(random.nextInt(samples.size()));
+                int frequency = sketch.frequency(candidate.key);
+                if (frequency < victimFrequency) {
+                    victim = candidate;
+                    victimFrequency = frequency;
+                }
+            }
+            nodes.remove(victim.key);
+            removeSample(victim);
+            weight -= victim.weight;
+            evictedKeys.add(victim.key);
+        }
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        samples.clear();
+        sketch.clear();
+    }
+    
+}
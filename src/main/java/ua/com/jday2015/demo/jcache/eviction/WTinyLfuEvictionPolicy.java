@@ -0,0 +1,145 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.util.Collection;
+
+/**
+ * {@link EvictionPolicy} implementation of W-TinyLFU. 
+ * 
+ * New entries are put into a small LRU window ({@link #WINDOW_PERCENTAGE} of the max weight), 
+ * so recent bursts are not evicted before theirs frequencies are built up. 
+ * Entries leaving the window are admitted into the main space only if theirs estimated frequencies 
+ * (by a {@link FrequencySketch}) are higher than the frequencies of the main space victims. 
+ * The main space is a segmented LRU: entries are put into probation first 
+ * and they are promoted into protected ({@link #PROTECTED_PERCENTAGE} of the main space) when they are read again.
+ * 
+ * @author Serkan OZAL
+ */
+public class WTinyLfuEvictionPolicy<K> extends AbstractEvictionPolicy<K> {
+
+    public static final int WINDOW_PERCENTAGE = 1;
+    public static final int PROTECTED_PERCENTAGE = 80;
+    
+    private final long maxWindowWeight;
+    private final long maxMainWeight;
+    private final long maxProtectedWeight;
+    private final Queue<K> window = new Queue<K>();
+    private final Queue<K> probation = new Queue<K>();
+    private final Queue<K> protectedQueue = new Queue<K>();
+    private final FrequencySketch sketch = new FrequencySketch(16);
+    
+    public WTinyLfuEvictionPolicy(long maxWeight) {
+        super(maxWeight);
+        this.maxWindowWeight = Math.max(1, (maxWeight * WINDOW_PERCENTAGE) / 100);
+        this.maxMainWeight = maxWeight - maxWindowWeight;
+        this.maxProtectedWeight = (maxMainWeight * PROTECTED_PERCENTAGE) / 100;
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        sketch.increment(key);
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            return;
+        }
+        if (node.queue == probation) {
+            // Read again, so it is promoted
+            probation.remove(node);
+            protectedQueue.addLast(node);
+            demoteProtected();
+        } else {
+            node.queue.moveToLast(node);
+        }
+    }
+    
+    private void demoteProtected() {
+        while (protectedQueue.weight > maxProtectedWeight && protectedQueue.head != protectedQueue.tail) {
+            Node<K> demoted = protectedQueue.head;
+            protectedQueue.remove(demoted);
+            probation.addLast(demoted);
+        }
+    }
+
+    @Override
+    public void recordWrite(K key, int entryWeight) {
+        sketch.increment(key);
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<K>(key, entryWeight);
+            nodes.put(key, node);
+            window.addLast(node);
+            sketch.ensureCapacity(nodes.size());
+        } else {
+            Queue<K> queue = node.queue;
+            queue.remove(node);
+            weight -= node.weight;
+            node.weight = entryWeight;
+            queue.addLast(node);
+            if (queue == protectedQueue) {
+                demoteProtected();
+            }
+        }
+        weight += entryWeight;
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node != null) {
+            node.queue.remove(node);
+            weight -= node.weight;
+        }
+    }
+
+    @Override
+    public void evict(Collection<? super K> evictedKeys) {
+        // Entries leaving the window compete with the main space victims to be admitted
+        while (window.weight > maxWindowWeight) {
+            Node<K> candidate = window.head;
+            window.remove(candidate);
+            admit(candidate, evictedKeys);
+        }
+        // Weights may still exceed when heavy entries are written into the window or the protected space
+        while (weight > maxWeight && !nodes.isEmpty()) {
+            Queue<K> queue = !probation.isEmpty() ? probation : (!protectedQueue.isEmpty() ? protectedQueue : window);
+            Node<K> victim = queue.head;
+            queue.remove(victim);
+            evict(victim, evictedKeys);
+        }
+    }
+    
+    private void admit(Node<K> candidate, Collection<? super K> evictedKeys) {
+        if (candidate.weight > maxMainWeight) {
+            evict(candidate, evictedKeys);
+            return;
+        }
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probation.weight + protectedQueue.weight + candidate.weight > maxMainWeight) {
+            Queue<K> queue = !probation.isEmpty() ? probation : protectedQueue;
+            Node<K> victim = queue.head;
+            if (candidateFrequency > sketch.frequency(victim.key)) {
+                queue.remove(victim);
+                evict(victim, evictedKeys);
+            } else {
+                evict(candidate, evictedKeys);
+                return;
+            }
+        }
+        probation.addLast(candidate);
+    }
+    
+    private void evict(Node<K> victim, Collection<? super K> evictedKeys) {
+        nodes.remove(victim.key);
+        weight -= victim.weight;
+        evictedKeys.add(victim.key);
+    }
+    
+    @Override
+    public void clear() {
+        super.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        sketch.clear();
+    }
+    
+}
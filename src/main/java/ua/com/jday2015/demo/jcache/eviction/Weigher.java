@@ -0,0 +1,18 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+import java.io.Serializable;
+
+/**
+ * Calculates weight of an entry, such as its approximate size in bytes. 
+ * Weights are used for bounding caches by {@link BoundedCache}.
+ * 
+ * @author Serkan OZAL
+ */
+public interface Weigher<K, V> extends Serializable {
+
+    /**
+     * Gets the weight of the given entry. Must be non-negative.
+     */
+    int weigh(K key, V value);
+    
+}
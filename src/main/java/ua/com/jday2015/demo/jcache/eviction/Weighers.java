@@ -0,0 +1,94 @@
+package ua.com.jday2015.demo.jcache.eviction;
+
+/**
+ * Built-in {@link Weigher} implementations.
+ * 
+ * @author Serkan OZAL
+ */
+public final class Weighers {
+
+    public static final int DEFAULT_OBJECT_SIZE = 64;
+    
+    @SuppressWarnings("rawtypes")
+    private static final Weigher SINGLETON = new SingletonWeigher();
+    @SuppressWarnings("rawtypes")
+    private static final Weigher APPROXIMATE_SIZE = new ApproximateSizeWeigher();
+    
+    private static final int OBJECT_HEADER_SIZE = 16;
+    private static final int ARRAY_HEADER_SIZE = 16;
+    // Approximate overhead of the record and the hash table slot of an entry
+    private static final int ENTRY_OVERHEAD = 64;
+    
+    private Weighers() {
+    }
+    
+    /**
+     * Gets the {@link Weigher} which weighs every entry as 1, so caches are bounded by entry count.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Weigher<K, V> singleton() {
+        return SINGLETON;
+    }
+    
+    /**
+     * Gets the {@link Weigher} which weighs entries by the length of theirs {@link CharSequence} values.
+     */
+    public static <K, V extends CharSequence> Weigher<K, V> valueLength() {
+        return new ValueLengthWeigher<K, V>();
+    }
+    
+    /**
+     * Gets the {@link Weigher} which weighs entries by theirs approximate heap sizes in bytes. 
+     * Strings, primitive wrappers and arrays of bytes and chars are sized by theirs contents, 
+     * any other object is assumed to be {@link #DEFAULT_OBJECT_SIZE} bytes.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Weigher<K, V> approximateSize() {
+        return APPROXIMATE_SIZE;
+    }
+    
+    private static int sizeOf(Object object) {
+        if (object instanceof String) {
+            return OBJECT_HEADER_SIZE + ARRAY_HEADER_SIZE + 2 * ((String) object).length();
+        } else if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return OBJECT_HEADER_SIZE + 8;
+        } else if (object instanceof byte[]) {
+            return ARRAY_HEADER_SIZE + ((byte[]) object).length;
+        } else if (object instanceof char[]) {
+            return ARRAY_HEADER_SIZE + 2 * ((char[]) object).length;
+        } else {
+            return DEFAULT_OBJECT_SIZE;
+        }
+    }
+    
+    @SuppressWarnings({ "serial", "rawtypes" })
+    private static class SingletonWeigher implements Weigher {
+
+        @Override
+        public int weigh(Object key, Object value) {
+            return 1;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class ValueLengthWeigher<K, V extends CharSequence> implements Weigher<K, V> {
+
+        @Override
+        public int weigh(K key, V value) {
+            return value.length();
+        }
+        
+    }
+    
+    @SuppressWarnings({ "serial", "rawtypes" })
+    private static class ApproximateSizeWeigher implements Weigher {
+
+        @Override
+        public int weigh(Object key, Object value) {
+            return ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+        }
+        
+    }
+    
+}
@@ -0,0 +1,209 @@
+package ua.com.jday2015.demo.jcache.expiry;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expires keys proactively at theirs deadlines by {@link TimingWheel}s 
+ * and hands the expired keys to an {@link ExpirationHandler} in batches of "maxBatchSize". 
+ * 
+ * Keys are split into segments by theirs hashes and every segment has its own timing wheel and lock, 
+ * so scheduling keys from multiple threads doesn't contend on a single lock. 
+ * Time advances at every "tickMillis" by a shared background thread and 
+ * deadlines are rounded up to ticks, so keys never expire before theirs deadlines.
+ * 
+ * @author Serkan OZAL
+ */
+public class ExpirationEngine<K> implements Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    
+    private static final ScheduledExecutorService TICK_EXECUTOR = 
+            Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCounter = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "expiration-ticker-" + threadCounter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+    
+    private final ExpirationHandler<K> handler;
+    private final long tickNanos;
+    private final int maxBatchSize;
+    private final long originNanos = System.nanoTime();
+    private final Segment<K>[] segments;
+    private final int segmentMask;
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final ScheduledFuture<?> tickTask;
+    
+    public ExpirationEngine(ExpirationHandler<K> handler) {
+        this(handler, DEFAULT_TICK_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+    
+    public ExpirationEngine(ExpirationHandler<K> handler, long tickMillis, int maxBatchSize) {
+        if (handler == null) {
+            throw new NullPointerException("Expiration handler cannot be null!");
+        }
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive!");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive!");
+        }
+        this.handler = handler;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.maxBatchSize = maxBatchSize;
+        int segmentCount = 1;
+        while (segmentCount < 4 * Runtime.getRuntime().availableProcessors()) {
+            segmentCount <<= 1;
+        }
+        @SuppressWarnings("unchecked")
+        Segment<K>[] segments = (Segment<K>[]) new Segment<?>[segmentCount];
+        this.segments = segments;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<K>();
+        }
+        this.segmentMask = segmentCount - 1;
+        this.tickTask = 
+                TICK_EXECUTOR.scheduleAtFixedRate(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                try {
+                                    tick();
+                                } catch (RuntimeException e) {
+                                    // Handler failures must not stop ticking
+                                }
+                            }
+                        }, 
+                        tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+    
+    public int getScheduledCount() {
+        int count = 0;
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                count += segment.wheel.size();
+            }
+        }
+        return count;
+    }
+    
+    private Segment<K> segmentOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & segmentMask];
+    }
+    
+    private long currentTick() {
+        return (System.nanoTime() - originNanos) / tickNanos;
+    }
+    
+    /**
+     * Schedules (or reschedules if it is already scheduled) the given key to expire after the given delay.
+     */
+    public void schedule(K key, long delay, TimeUnit timeUnit) {
+        long delayNanos = timeUnit.toNanos(delay);
+        // Rounded up, so the key doesn't expire before its deadline
+        long deadlineTick = (System.nanoTime() - originNanos + delayNanos + tickNanos - 1) / tickNanos;
+        Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            TimingWheel.Node<K> node = segment.nodes.get(key);
+            if (node == null) {
+                node = new TimingWheel.Node<K>(key);
+                segment.nodes.put(key, node);
+            }
+            segment.wheel.schedule(node, deadlineTick);
+        }
+    }
+    
+    public boolean isScheduled(Object key) {
+        Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            return segment.nodes.containsKey(key);
+        }
+    }
+    
+    /**
+     * Cancels expiration of the given key if it is scheduled.
+     */
+    public void cancel(Object key) {
+        Segment<K> segment = segmentOf(key);
+        synchronized (segment) {
+            TimingWheel.Node<K> node = segment.nodes.remove(key);
+            if (node != null) {
+                segment.wheel.cancel(node);
+            }
+        }
+    }
+    
+    /**
+     * Cancels expiration of all the scheduled keys.
+     */
+    public void cancelAll() {
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                for (TimingWheel.Node<K> node : segment.nodes.values()) {
+                    segment.wheel.cancel(node);
+                }
+                segment.nodes.clear();
+            }
+        }
+    }
+    
+    /**
+     * Advances time and hands the expired keys to the handler. Called periodically in background.
+     */
+    public void tick() {
+        long tick = currentTick();
+        List<K> expiredKeys = new ArrayList<K>();
+        for (Segment<K> segment : segments) {
+            synchronized (segment) {
+                int from = expiredKeys.size();
+                segment.wheel.advance(tick, expiredKeys);
+                for (int i = from; i < expiredKeys.size(); i++) {
+                    segment.nodes.remove(expiredKeys.get(i));
+                }
+            }
+        }
+        if (expiredKeys.isEmpty()) {
+            return;
+        }
+        expiredCount.addAndGet(expiredKeys.size());
+        for (int from = 0; from < expiredKeys.size(); from += maxBatchSize) {
+            handler.onExpired(expiredKeys.subList(from, Math.min(from + maxBatchSize, expiredKeys.size())));
+        }
+    }
+    
+    @Override
+    public void close() {
+        tickTask.cancel(false);
+        cancelAll();
+    }
+    
+    private static class Segment<K> {
+        
+        private final TimingWheel<K> wheel = new TimingWheel<K>(0);
+        private final Map<K, TimingWheel.Node<K>> nodes = new HashMap<K, TimingWheel.Node<K>>();
+        
+    }
+    
+}
@@ -0,0 +1,14 @@
+package ua.com.jday2015.demo.jcache.expiry;
+
+import java.util.List;
+
+/**
+ * Handles the keys expired by {@link ExpirationEngine} in batches.
+ * 
+ * @author Serkan OZAL
+ */
+public interface ExpirationHandler<K> {
+
+    void onExpired(List<K> keys);
+    
+}
@@ -0,0 +1,281 @@
+package ua.com.jday2015.demo.jcache.expiry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+
+/**
+ * {@link Cache} decorator which reclaims expired entries of the delegated cache proactively. 
+ * 
+ * Expiry times of the entries created, updated and read through this decorator are tracked 
+ * by the expiry policy of the delegated cache on an {@link ExpirationEngine}, 
+ * so all the built-in expiry policies (created, accessed, modified, touched and eternal) are honored. 
+ * When an entry expires, it is touched by {@link Cache#containsKey(Object)}, 
+ * which neither loads nor writes the entry but makes the delegated cache remove it 
+ * and publish the "EXPIRED" event to the registered {@link javax.cache.event.CacheEntryExpiredListener}s. 
+ * So expired entries don't hold memory until they are read.
+ * 
+ * Expired keys are handled in batches by a background thread. 
+ * Register listeners through {@link ua.com.jday2015.demo.jcache.event.AsyncCacheEntryListenerConfiguration} 
+ * to receive the "EXPIRED" events of a batch together.
+ * 
+ * @author Serkan OZAL
+ */
+public class ExpiringCache<K, V> extends DelegatingCache<K, V> {
+
+    private final ExpiryPolicy expiryPolicy;
+    private final ExpirationEngine<K> expirationEngine;
+    
+    public ExpiringCache(Cache<K, V> delegate) {
+        this(delegate, ExpirationEngine.DEFAULT_TICK_MILLIS, ExpirationEngine.DEFAULT_MAX_BATCH_SIZE);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public ExpiringCache(Cache<K, V> delegate, long tickMillis, int maxBatchSize) {
+        super(delegate);
+        CompleteConfiguration<K, V> config = delegate.getConfiguration(CompleteConfiguration.class);
+        this.expiryPolicy = config.getExpiryPolicyFactory().create();
+        this.expirationEngine = 
+                new ExpirationEngine<K>(
+                        new ExpirationHandler<K>() {
+                            @Override
+                            public void onExpired(List<K> keys) {
+                                reclaim(keys);
+                            }
+                        }, 
+                        tickMillis, maxBatchSize);
+    }
+    
+    public ExpirationEngine<K> getExpirationEngine() {
+        return expirationEngine;
+    }
+    
+    private void reclaim(List<K> keys) {
+        if (delegate.isClosed()) {
+            return;
+        }
+        for (K key : keys) {
+            // Expired entry is removed by the delegated cache while checking it
+            delegate.containsKey(key);
+        }
+    }
+    
+    private void schedule(K key, Duration duration) {
+        // Null duration means that expiry time is not changed
+        if (duration == null) {
+            return;
+        }
+        if (duration.isEternal()) {
+            expirationEngine.cancel(key);
+        } else {
+            expirationEngine.schedule(key, duration.getDurationAmount(), duration.getTimeUnit());
+        }
+    }
+    
+    private void created(K key) {
+        schedule(key, expiryPolicy.getExpiryForCreation());
+    }
+    
+    private void updated(K key) {
+        schedule(key, expiryPolicy.getExpiryForUpdate());
+    }
+    
+    private void written(K key) {
+        // Tracked entries are considered as existing
+        if (expirationEngine.isScheduled(key)) {
+            updated(key);
+        } else {
+            created(key);
+        }
+    }
+    
+    private void accessed(K key) {
+        schedule(key, expiryPolicy.getExpiryForAccess());
+    }
+    
+    private void removed(Object key) {
+        expirationEngine.cancel(key);
+    }
+    
+    @Override
+    public V get(K key) {
+        V value = delegate.get(key);
+        if (value != null) {
+            accessed(key);
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        Map<K, V> result = delegate.getAll(keys);
+        for (K key : result.keySet()) {
+            accessed(key);
+        }
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, value);
+        written(key);
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        V oldValue = delegate.getAndPut(key, value);
+        if (oldValue != null) {
+            updated(key);
+        } else {
+            created(key);
+        }
+        return oldValue;
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        delegate.putAll(map);
+        for (K key : map.keySet()) {
+            written(key);
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        boolean put = delegate.putIfAbsent(key, value);
+        if (put) {
+            created(key);
+        }
+        return put;
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        boolean replaced = delegate.replace(key, oldValue, newValue);
+        if (replaced) {
+            updated(key);
+        }
+        return replaced;
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        boolean replaced = delegate.replace(key, value);
+        if (replaced) {
+            updated(key);
+        }
+        return replaced;
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        V oldValue = delegate.getAndReplace(key, value);
+        if (oldValue != null) {
+            updated(key);
+        }
+        return oldValue;
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        try {
+            return delegate.remove(key);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        boolean removed = delegate.remove(key, oldValue);
+        if (removed) {
+            removed(key);
+        }
+        return removed;
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        try {
+            return delegate.getAndRemove(key);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            for (K key : keys) {
+                removed(key);
+            }
+        }
+    }
+    
+    @Override
+    public void removeAll() {
+        try {
+            delegate.removeAll();
+        } finally {
+            expirationEngine.cancelAll();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            expirationEngine.cancelAll();
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) 
+            throws EntryProcessorException {
+        try {
+            return delegate.invoke(key, entryProcessor, arguments);
+        } finally {
+            // Entry may have been created, updated or only read, so it is checked at the earliest expiry
+            checkLater(key);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, 
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        try {
+            return delegate.invokeAll(keys, entryProcessor, arguments);
+        } finally {
+            for (K key : keys) {
+                checkLater(key);
+            }
+        }
+    }
+    
+    private void checkLater(K key) {
+        Duration duration = expiryPolicy.getExpiryForCreation();
+        if (duration != null && !duration.isEternal()) {
+            expirationEngine.schedule(key, duration.getDurationAmount(), duration.getTimeUnit());
+        }
+    }
+    
+    @Override
+    public void close() {
+        expirationEngine.close();
+        delegate.close();
+    }
+    
+}
@@ -0,0 +1,180 @@
+package ua.com.jday2015.demo.jcache.expiry;
+
+import java.util.Collection;
+
+/**
+ * Hierarchical timing wheel which keeps elements by theirs deadline ticks. 
+ * 
+ * There are {@link #LEVELS} levels of {@link #BUCKETS} buckets. 
+ * A bucket at level "n" spans <code>BUCKETS^n</code> ticks, so elements are put into coarser buckets 
+ * as theirs deadlines get farther and they are cascaded to finer buckets as time advances. 
+ * Scheduling and cancelling are O(1) since buckets are intrusive doubly linked lists of {@link Node}s. 
+ * Advancing visits only the buckets whose spans have been passed.
+ * 
+ * Not thread-safe, so it must be guarded by its owner.
+ * 
+ * @author Serkan OZAL
+ */
+public class TimingWheel<E> {
+
+    public static final int BUCKET_BITS = 6;
+    public static final int BUCKETS = 1 << BUCKET_BITS;
+    public static final int LEVELS = 5;
+    
+    private static final int BUCKET_MASK = BUCKETS - 1;
+    
+    private final Node<E>[][] wheel;
+    private long currentTick;
+    private int size;
+    
+    public TimingWheel(long currentTick) {
+        this.currentTick = currentTick;
+        @SuppressWarnings("unchecked")
+        Node<E>[][] wheel = (Node<E>[][]) new Node<?>[LEVELS][BUCKETS];
+        this.wheel = wheel;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < BUCKETS; i++) {
+                // Sentinel nodes, so linking and unlinking don't need null checks
+                Node<E> sentinel = new Node<E>(null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                wheel[level][i] = sentinel;
+            }
+        }
+    }
+    
+    public long getCurrentTick() {
+        return currentTick;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Schedules (or reschedules if it is already scheduled) the given node to the given deadline tick. 
+     * Nodes whose deadlines have been already passed expire at the next advance.
+     */
+    public void schedule(Node<E> node, long deadlineTick) {
+        if (node.isScheduled()) {
+            unlink(node);
+        } else {
+            size++;
+        }
+        node.deadlineTick = deadlineTick;
+        link(bucketOf(deadlineTick), node);
+    }
+    
+    /**
+     * Cancels the given node if it is scheduled.
+     */
+    public void cancel(Node<E> node) {
+        if (node.isScheduled()) {
+            unlink(node);
+            size--;
+        }
+    }
+    
+    /**
+     * Advances time to the given tick and adds elements of the expired nodes into the given collection.
+     */
+    public void advance(long tick, Collection<? super E> expiredElements) {
+        long previousTick = currentTick;
+        if (tick <= previousTick) {
+            return;
+        }
+        currentTick = tick;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BUCKET_BITS * level;
+            long previousSpan = previousTick >>> shift;
+            long currentSpan = tick >>> shift;
+            if (currentSpan == previousSpan) {
+                // Higher levels have not been passed either
+                break;
+            }
+            long passedSpans = Math.min(currentSpan - previousSpan, BUCKETS);
+            for (long i = 1; i <= passedSpans; i++) {
+                expire(wheel[level][(int) ((previousSpan + i) & BUCKET_MASK)], expiredElements);
+            }
+        }
+    }
+    
+    private Node<E> bucketOf(long deadlineTick) {
+        // Due nodes are put into the bucket to be visited at the next tick
+        long tick = Math.max(deadlineTick, currentTick + 1);
+        long delay = tick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BUCKET_BITS * level;
+            if (delay < (1L << (shift + BUCKET_BITS))) {
+                return wheel[level][(int) ((tick >>> shift) & BUCKET_MASK)];
+            }
+        }
+        // Farther than the top level spans, so it is put into the latest visited bucket of the top level 
+        // and it is rescheduled when the bucket is visited again.
+        int topShift = BUCKET_BITS * (LEVELS - 1);
+        return wheel[LEVELS - 1][(int) ((currentTick >>> topShift) & BUCKET_MASK)];
+    }
+    
+    private void expire(Node<E> sentinel, Collection<? super E> expiredElements) {
+        Node<E> node = sentinel.next;
+        // Detach all nodes, so cascaded nodes can be put back into the same bucket
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (node != sentinel) {
+            Node<E> next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.deadlineTick <= currentTick) {
+                size--;
+                expiredElements.add(node.element);
+            } else {
+                link(bucketOf(node.deadlineTick), node);
+            }
+            node = next;
+        }
+    }
+    
+    private static <E> void link(Node<E> sentinel, Node<E> node) {
+        Node<E> last = sentinel.prev;
+        node.prev = last;
+        node.next = sentinel;
+        last.next = node;
+        sentinel.prev = node;
+    }
+    
+    private static <E> void unlink(Node<E> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+    
+    /**
+     * Holds an element in a bucket of the {@link TimingWheel}.
+     */
+    public static class Node<E> {
+        
+        private final E element;
+        private long deadlineTick;
+        private Node<E> prev;
+        private Node<E> next;
+        
+        public Node(E element) {
+            this.element = element;
+        }
+        
+        public E getElement() {
+            return element;
+        }
+        
+        public long getDeadlineTick() {
+            return deadlineTick;
+        }
+        
+        public boolean isScheduled() {
+            return next != null;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,217 @@
+package ua.com.jday2015.demo.jcache.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+
+/**
+ * {@link CacheLoader} implementation which coalesces concurrent single key loads 
+ * into {@link CacheLoader#loadAll(Iterable)} calls on the delegated {@link CacheLoader}.
+ * 
+ * The first miss opens a batch and waits for "batchWindow" (or until the batch has "maxBatchSize" keys) 
+ * for the other misses to join it, then loads all the keys in the batch at once. 
+ * Since the waiting miss blocks its (partition) thread, it waits only if there are other in-flight loads, 
+ * so a lone miss is loaded immediately. 
+ * Concurrent misses on the same key share the same in-flight load 
+ * instead of loading the same key again.
+ * 
+ * Note that Hazelcast loads keys of a partition on its partition thread, 
+ * so only the misses from different partition threads can join the same batch.
+ * 
+ * @author Serkan OZAL
+ */
+public class BatchingCacheLoader<K, V> implements CacheLoader<K, V>, Closeable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final long DEFAULT_BATCH_WINDOW_MICROS = 1000;
+    
+    private final CacheLoader<K, V> delegate;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final ConcurrentMap<K, PendingLoad<K, V>> inFlightLoads = new ConcurrentHashMap<K, PendingLoad<K, V>>();
+    private final Lock batchLock = new ReentrantLock();
+    private final Condition batchClosed = batchLock.newCondition();
+    private final AtomicLong loadAllCount = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private List<PendingLoad<K, V>> currentBatch;
+    
+    public BatchingCacheLoader(CacheLoader<K, V> delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_BATCH_WINDOW_MICROS, TimeUnit.MICROSECONDS);
+    }
+    
+    public BatchingCacheLoader(CacheLoader<K, V> delegate, int maxBatchSize, 
+                               long batchWindow, TimeUnit timeUnit) {
+        if (delegate == null) {
+            throw new NullPointerException("Delegate cache loader cannot be null!");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive!");
+        }
+        if (batchWindow < 0) {
+            throw new IllegalArgumentException("Batch window cannot be negative!");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindowNanos = timeUnit.toNanos(batchWindow);
+    }
+    
+    public CacheLoader<K, V> getDelegate() {
+        return delegate;
+    }
+    
+    /**
+     * Gets the number of {@link CacheLoader#loadAll(Iterable)} calls on the delegated loader 
+     * made for the coalesced single key loads.
+     */
+    public long getLoadAllCount() {
+        return loadAllCount.get();
+    }
+    
+    @Override
+    public V load(K key) throws CacheLoaderException {
+        PendingLoad<K, V> load = new PendingLoad<K, V>(key);
+        PendingLoad<K, V> inFlightLoad = inFlightLoads.putIfAbsent(key, load);
+        if (inFlightLoad != null) {
+            // There is already an in-flight load for this key, so just wait for its result 
+            return inFlightLoad.get();
+        }
+        
+        List<PendingLoad<K, V>> batch = join(load);
+        if (batch != null) {
+            // This is the thread opened the batch, so it loads on behalf of the others
+            loadBatch(batch);
+        }
+        return load.get();
+    }
+    
+    /**
+     * Adds the given load to the current batch. 
+     * 
+     * @return the batch to be loaded by the caller if caller has opened the batch, 
+     *         otherwise <code>null</code>
+     */
+    private List<PendingLoad<K, V>> join(PendingLoad<K, V> load) {
+        batchLock.lock();
+        try {
+            boolean opener = currentBatch == null;
+            if (opener) {
+                currentBatch = new ArrayList<PendingLoad<K, V>>();
+            }
+            List<PendingLoad<K, V>> batch = currentBatch;
+            batch.add(load);
+            if (batch.size() >= maxBatchSize) {
+                currentBatch = null;
+                batchClosed.signalAll();
+            }
+            if (!opener) {
+                return null;
+            }
+            // Don't block the caller for nothing if there are no other misses to coalesce with
+            long remainingNanos = inFlightLoads.size() > 1 ? batchWindowNanos : 0;
+            while (currentBatch == batch && remainingNanos > 0) {
+                try {
+                    remainingNanos = batchClosed.awaitNanos(remainingNanos);
+                } catch (InterruptedException e) {
+                    // Stop waiting for others, but still load the batch since others depend on it
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (currentBatch == batch) {
+                currentBatch = null;
+            }
+            return batch;
+        } finally {
+            batchLock.unlock();
+        }
+    }
+    
+    private void loadBatch(List<PendingLoad<K, V>> batch) {
+        List<K> keys = new ArrayList<K>(batch.size());
+        for (PendingLoad<K, V> load : batch) {
+            keys.add(load.key);
+        }
+        try {
+            loadAllCount.incrementAndGet();
+            Map<K, V> loadedKeyAndValues = delegate.loadAll(keys);
+            for (PendingLoad<K, V> load : batch) {
+                inFlightLoads.remove(load.key, load);
+                load.complete(loadedKeyAndValues != null ? loadedKeyAndValues.get(load.key) : null, null);
+            }
+        } catch (Throwable t) {
+            // Waiters must be released on any failure, otherwise they would wait forever
+            for (PendingLoad<K, V> load : batch) {
+                inFlightLoads.remove(load.key, load);
+                load.complete(null, t);
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+        }
+    }
+
+    @Override
+    public Map<K, V> loadAll(Iterable<? extends K> keys) throws CacheLoaderException {
+        return delegate.loadAll(keys);
+    }
+    
+    /**
+     * Closes the delegated cache loader if it is {@link Closeable}. 
+     * Since this loader may be shared by many caches, it is closed only once.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true) && delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+    
+    private static class PendingLoad<K, V> {
+        
+        private final K key;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile V value;
+        private volatile Throwable failure;
+        
+        private PendingLoad(K key) {
+            this.key = key;
+        }
+        
+        private void complete(V value, Throwable failure) {
+            this.value = value;
+            this.failure = failure;
+            latch.countDown();
+        }
+        
+        private V get() {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CacheLoaderException("Interrupted while waiting for load of key " + key, e);
+            }
+            if (failure instanceof CacheLoaderException) {
+                throw (CacheLoaderException) failure;
+            } else if (failure != null) {
+                throw new CacheLoaderException(failure);
+            }
+            return value;
+        }
+        
+    }
+
+}
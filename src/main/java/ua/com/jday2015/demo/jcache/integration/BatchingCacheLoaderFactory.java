@@ -0,0 +1,56 @@
+package ua.com.jday2015.demo.jcache.integration;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.configuration.Factory;
+import javax.cache.integration.CacheLoader;
+
+/**
+ * {@link Factory} implementation to create {@link BatchingCacheLoader} 
+ * over the cache loader created by the given delegated {@link Factory}.
+ * 
+ * Hazelcast asks a cache loader for each partition, but misses can only be coalesced 
+ * if they go to the same loader. So this factory always returns the same {@link BatchingCacheLoader} 
+ * (per member, since it is not serialized with the factory). 
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class BatchingCacheLoaderFactory<K, V> implements Factory<CacheLoader<K, V>> {
+
+    private final Factory<? extends CacheLoader<K, V>> delegateFactory;
+    private int maxBatchSize = BatchingCacheLoader.DEFAULT_MAX_BATCH_SIZE;
+    private long batchWindowMicros = BatchingCacheLoader.DEFAULT_BATCH_WINDOW_MICROS;
+    private transient volatile BatchingCacheLoader<K, V> cacheLoader;
+    
+    public BatchingCacheLoaderFactory(Factory<? extends CacheLoader<K, V>> delegateFactory) {
+        this.delegateFactory = delegateFactory;
+    }
+    
+    public BatchingCacheLoaderFactory<K, V> setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+    
+    public BatchingCacheLoaderFactory<K, V> setBatchWindow(TimeUnit timeUnit, long batchWindow) {
+        this.batchWindowMicros = timeUnit.toMicros(batchWindow);
+        return this;
+    }
+    
+    @Override
+    public CacheLoader<K, V> create() {
+        BatchingCacheLoader<K, V> loader = cacheLoader;
+        if (loader == null) {
+            synchronized (this) {
+                loader = cacheLoader;
+                if (loader == null) {
+                    loader = new BatchingCacheLoader<K, V>(
+                            delegateFactory.create(), maxBatchSize, batchWindowMicros, TimeUnit.MICROSECONDS);
+                    cacheLoader = loader;
+                }
+            }
+        }
+        return loader;
+    }
+
+}
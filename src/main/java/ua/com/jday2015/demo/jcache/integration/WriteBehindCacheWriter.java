@@ -0,0 +1,491 @@
+package ua.com.jday2015.demo.jcache.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+import ua.com.jday2015.demo.jcache.wal.WriteAheadLog;
+
+/**
+ * {@link CacheWriter} implementation which queues mutations and 
+ * writes them to the delegated {@link CacheWriter} asynchronously (write-behind).
+ * 
+ * Repeated mutations on the same key are coalesced, so only the latest one is written. 
+ * Queued mutations are flushed in batches through 
+ * {@link CacheWriter#writeAll(Collection)} and {@link CacheWriter#deleteAll(Collection)} 
+ * when there are "batchSize" pending mutations or "flushInterval" has elapsed.
+ * When there are "maxPendingMutations" pending mutations, 
+ * writes on new keys are blocked until some of them are flushed (backpressure).
+ * 
+ * Note that failed mutations are requeued (unless there is a newer mutation on the same key) 
+ * and retried at the next flush.
+ * 
+ * If a {@link WriteAheadLog} is given, every mutation is appended to the log 
+ * and it is acknowledged only after the log is synced, so queued mutations survive crashes. 
+ * After every flush, the log is checkpointed at the lowest mutation which has not been written yet.
+ * 
+ * @author Serkan OZAL
+ */
+public class WriteBehindCacheWriter<K, V> implements CacheWriter<K, V>, Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    public static final int DEFAULT_MAX_PENDING_MUTATIONS = 10000;
+    
+    private static final ScheduledExecutorService FLUSH_EXECUTOR = 
+            Executors.newScheduledThreadPool(
+                    Runtime.getRuntime().availableProcessors(), 
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCounter = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "write-behind-flusher-" + threadCounter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+    
+    private final CacheWriter<K, V> delegate;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final int maxPendingMutations;
+    private final Lock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Map<Object, Mutation<K, V>> pendingMutations = new LinkedHashMap<Object, Mutation<K, V>>();
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicLong flushedBatchCount = new AtomicLong();
+    private final WriteAheadLog writeAheadLog;
+    private final LongSupplier checkpointSource = new LongSupplier() {
+        @Override
+        public long getAsLong() {
+            return getLowestUnwrittenLsn();
+        }
+    };
+    private final Runnable flushCommand = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (CacheWriterException e) {
+                // Failed mutations have been already requeued, they will be retried at the next flush
+            }
+        }
+    };
+    private final Runnable batchFlushCommand = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush(true);
+            } catch (CacheWriterException e) {
+                // Failed mutations have been already requeued, they will be retried at the next flush
+            }
+        }
+    };
+    private ScheduledFuture<?> flushTask;
+    // Lowest LSN of the batch being written
+    private long inFlightLsn = Long.MAX_VALUE;
+    private boolean flushRequested;
+    private boolean closed;
+    
+    public WriteBehindCacheWriter(CacheWriter<K, V> delegate) {
+        this(delegate, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_PENDING_MUTATIONS);
+    }
+    
+    public WriteBehindCacheWriter(CacheWriter<K, V> delegate, int batchSize, 
+                                  long flushIntervalMillis, int maxPendingMutations) {
+        this(delegate, batchSize, flushIntervalMillis, maxPendingMutations, null);
+    }
+    
+    public WriteBehindCacheWriter(CacheWriter<K, V> delegate, int batchSize, 
+                                  long flushIntervalMillis, int maxPendingMutations, 
+                                  WriteAheadLog writeAheadLog) {
+        if (delegate == null) {
+            throw new NullPointerException("Delegate cache writer cannot be null!");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive!");
+        }
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive!");
+        }
+        if (maxPendingMutations < batchSize) {
+            throw new IllegalArgumentException("Max pending mutations cannot be less than batch size!");
+        }
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingMutations = maxPendingMutations;
+        this.writeAheadLog = writeAheadLog;
+        if (writeAheadLog != null) {
+            writeAheadLog.addCheckpointSource(checkpointSource);
+        }
+    }
+    
+    public CacheWriter<K, V> getDelegate() {
+        return delegate;
+    }
+    
+    public int getPendingMutationCount() {
+        lock.lock();
+        try {
+            return pendingMutations.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long getFlushedBatchCount() {
+        return flushedBatchCount.get();
+    }
+    
+    public WriteAheadLog getWriteAheadLog() {
+        return writeAheadLog;
+    }
+    
+    private long getLowestUnwrittenLsn() {
+        lock.lock();
+        try {
+            long lsn = inFlightLsn;
+            for (Mutation<K, V> mutation : pendingMutations.values()) {
+                lsn = Math.min(lsn, mutation.lsn);
+            }
+            return lsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void write(Cache.Entry<? extends K, ? extends V> entry) throws CacheWriterException {
+        enqueue(new Mutation<K, V>(entry.getKey(), entry.getValue(), false));
+    }
+    
+    @Override
+    public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) 
+            throws CacheWriterException {
+        Iterator<Cache.Entry<? extends K, ? extends V>> iter = entries.iterator();
+        while (iter.hasNext()) {
+            write(iter.next());
+            // Remove queued entry, as the contract says for the written ones
+            iter.remove();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public void delete(Object key) throws CacheWriterException {
+        enqueue(new Mutation<K, V>((K) key, null, true));
+    }
+    
+    @Override
+    public void deleteAll(Collection<?> keys) throws CacheWriterException {
+        Iterator<?> iter = keys.iterator();
+        while (iter.hasNext()) {
+            delete(iter.next());
+            // Remove queued key, as the contract says for the deleted ones
+            iter.remove();
+        }
+    }
+    
+    private void enqueue(Mutation<K, V> mutation) {
+        Mutation<K, V> replaced;
+        lock.lock();
+        try {
+            ensureOpen();
+            if (flushTask == null) {
+                flushTask = 
+                        FLUSH_EXECUTOR.scheduleWithFixedDelay(
+                                flushCommand, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            // Coalesced mutations don't occupy extra space, so they are not blocked 
+            while (pendingMutations.size() >= maxPendingMutations 
+                    && !pendingMutations.containsKey(mutation.key)) {
+                requestFlush();
+                try {
+                    notFull.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CacheWriterException("Interrupted while waiting for pending mutations to be flushed", e);
+                }
+                ensureOpen();
+            }
+            if (writeAheadLog != null) {
+                // Appended under the lock, so the mutation is either pending or above any checkpoint
+                mutation.lsn = mutation.delete 
+                        ? writeAheadLog.appendDelete(mutation.key) 
+                        : writeAheadLog.appendWrite(mutation.key, mutation.value);
+            }
+            replaced = pendingMutations.put(mutation.key, mutation);
+            if (pendingMutations.size() >= batchSize) {
+                requestFlush();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (writeAheadLog != null) {
+            // Synced outside of the lock, so concurrent mutations share the same sync
+            try {
+                writeAheadLog.sync(mutation.lsn);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    // Not acknowledged, so it must not be written later
+                    if (pendingMutations.get(mutation.key) == mutation) {
+                        if (replaced != null && replaced.lsn <= writeAheadLog.getDurableLsn()) {
+                            // Replaced one has been acknowledged, so it must still be written 
+                            // and hold back the checkpoints until then
+                            pendingMutations.put(mutation.key, replaced);
+                        } else {
+                            pendingMutations.remove(mutation.key);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                throw new CacheWriterException("Unable to log mutation durably", e);
+            }
+        }
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-behind cache writer is closed!");
+        }
+    }
+    
+    private void requestFlush() {
+        if (!flushRequested) {
+            flushRequested = true;
+            FLUSH_EXECUTOR.execute(batchFlushCommand);
+        }
+    }
+    
+    private List<Mutation<K, V>> drain(boolean fullBatchOnly) {
+        lock.lock();
+        try {
+            flushRequested = false;
+            if (fullBatchOnly && pendingMutations.size() < batchSize) {
+                return new ArrayList<Mutation<K, V>>(0);
+            }
+            List<Mutation<K, V>> batch = 
+                    new ArrayList<Mutation<K, V>>(Math.min(batchSize, pendingMutations.size()));
+            Iterator<Mutation<K, V>> iter = pendingMutations.values().iterator();
+            while (iter.hasNext() && batch.size() < batchSize) {
+                Mutation<K, V> mutation = iter.next();
+                batch.add(mutation);
+                iter.remove();
+                inFlightLsn = Math.min(inFlightLsn, mutation.lsn);
+            }
+            if (!batch.isEmpty()) {
+                notFull.signalAll();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void completeInFlight() {
+        lock.lock();
+        try {
+            inFlightLsn = Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void requeue(Collection<Mutation<K, V>> mutations) {
+        lock.lock();
+        try {
+            for (Mutation<K, V> mutation : mutations) {
+                // If there is a newer mutation on the same key, failed one is obsolete
+                if (!pendingMutations.containsKey(mutation.key)) {
+                    pendingMutations.put(mutation.key, mutation);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Writes all the pending mutations to the delegated cache writer in batches.
+     * 
+     * @throws CacheWriterException if the delegated cache writer fails. 
+     *                              Failed mutations are requeued to be retried later.
+     */
+    public void flush() throws CacheWriterException {
+        flush(false);
+    }
+    
+    // Flushes triggered by the batch size write only full batches, 
+    // the remaining mutations are written by the next periodic flush
+    private void flush(boolean fullBatchesOnly) throws CacheWriterException {
+        flushLock.lock();
+        try {
+            List<Mutation<K, V>> batch;
+            do {
+                batch = drain(fullBatchesOnly);
+                if (!batch.isEmpty()) {
+                    try {
+                        writeBatch(batch);
+                    } finally {
+                        completeInFlight();
+                    }
+                }
+            } while (batch.size() == batchSize);
+            if (writeAheadLog != null) {
+                writeAheadLog.checkpoint();
+            }
+        } catch (IOException e) {
+            throw new CacheWriterException("Unable to checkpoint write-ahead log", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void writeBatch(List<Mutation<K, V>> batch) {
+        Collection<Cache.Entry<? extends K, ? extends V>> writes = 
+                new ArrayList<Cache.Entry<? extends K, ? extends V>>(batch.size());
+        Map<Object, Mutation<K, V>> deletes = new LinkedHashMap<Object, Mutation<K, V>>();
+        for (Mutation<K, V> mutation : batch) {
+            if (mutation.delete) {
+                deletes.put(mutation.key, mutation);
+            } else {
+                writes.add(mutation);
+            }
+        }
+        
+        flushedBatchCount.incrementAndGet();
+        
+        if (!writes.isEmpty()) {
+            try {
+                delegate.writeAll(writes);
+            } catch (RuntimeException e) {
+                // Written entries have been removed by the delegate, so the remaining ones are failed
+                List<Mutation<K, V>> failed = new ArrayList<Mutation<K, V>>(writes.size() + deletes.size());
+                for (Cache.Entry<? extends K, ? extends V> entry : writes) {
+                    failed.add((Mutation<K, V>) entry);
+                }
+                failed.addAll(deletes.values());
+                requeue(failed);
+                throw wrap(e);
+            }
+        }
+        
+        if (!deletes.isEmpty()) {
+            Collection<Object> keys = new ArrayList<Object>(deletes.keySet());
+            try {
+                delegate.deleteAll(keys);
+            } catch (RuntimeException e) {
+                // Deleted keys have been removed by the delegate, so the remaining ones are failed
+                List<Mutation<K, V>> failed = new ArrayList<Mutation<K, V>>(keys.size());
+                for (Object key : keys) {
+                    failed.add(deletes.get(key));
+                }
+                requeue(failed);
+                throw wrap(e);
+            }
+        }
+    }
+    
+    private static CacheWriterException wrap(RuntimeException e) {
+        if (e instanceof CacheWriterException) {
+            return (CacheWriterException) e;
+        } else {
+            return new CacheWriterException(e);
+        }
+    }
+    
+    /**
+     * Flushes all the pending mutations, releases the write-ahead log 
+     * and closes the delegated cache writer if it is {@link Closeable}.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+            }
+            // Release blocked writers, they will fail since writer is closed now
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flush();
+        } finally {
+            try {
+                if (writeAheadLog != null) {
+                    // Mutations which couldn't be flushed stay in the log to be replayed
+                    writeAheadLog.removeCheckpointSource(checkpointSource);
+                    writeAheadLog.close();
+                }
+            } finally {
+                if (delegate instanceof Closeable) {
+                    ((Closeable) delegate).close();
+                }
+            }
+        }
+    }
+    
+    private static class Mutation<K, V> implements Cache.Entry<K, V> {
+        
+        private final K key;
+        private final V value;
+        private final boolean delete;
+        private long lsn;
+        
+        private Mutation(K key, V value, boolean delete) {
+            this.key = key;
+            this.value = value;
+            this.delete = delete;
+        }
+    
+        @Override
+        public K getKey() {
+            return key;
+        }
+    
+        @Override
+        public V getValue() {
+            return value;
+        }
+    
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+        }
+        
+    }
+
+}
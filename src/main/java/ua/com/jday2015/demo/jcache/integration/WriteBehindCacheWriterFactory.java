@@ -0,0 +1,140 @@
+package ua.com.jday2015.demo.jcache.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.cache.Cache;
+import javax.cache.configuration.Factory;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+import ua.com.jday2015.demo.jcache.wal.WriteAheadLog;
+import ua.com.jday2015.demo.jcache.wal.WriteAheadLogConfig;
+
+/**
+ * {@link Factory} implementation to create {@link WriteBehindCacheWriter} 
+ * over the cache writers created by the given delegated {@link Factory}.
+ * 
+ * Hazelcast asks a cache writer for each partition, but batch size, flush interval and 
+ * max pending mutations must apply to the whole cache. So this factory shares the same {@link WriteBehindCacheWriter} 
+ * (per member, since it is not serialized with the factory) between all the cache writers it creates. 
+ * Each of them holds a reference to the shared writer, which is closed when all of them are closed.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class WriteBehindCacheWriterFactory<K, V> implements Factory<CacheWriter<K, V>> {
+
+    private final Factory<? extends CacheWriter<K, V>> delegateFactory;
+    private int batchSize = WriteBehindCacheWriter.DEFAULT_BATCH_SIZE;
+    private long flushIntervalMillis = WriteBehindCacheWriter.DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private int maxPendingMutations = WriteBehindCacheWriter.DEFAULT_MAX_PENDING_MUTATIONS;
+    private WriteAheadLogConfig writeAheadLogConfig;
+    private transient WriteBehindCacheWriter<K, V> cacheWriter;
+    private transient int referenceCount;
+    
+    public WriteBehindCacheWriterFactory(Factory<? extends CacheWriter<K, V>> delegateFactory) {
+        this.delegateFactory = delegateFactory;
+    }
+    
+    public WriteBehindCacheWriterFactory<K, V> setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+    
+    public WriteBehindCacheWriterFactory<K, V> setFlushInterval(TimeUnit timeUnit, long flushInterval) {
+        this.flushIntervalMillis = timeUnit.toMillis(flushInterval);
+        return this;
+    }
+    
+    public WriteBehindCacheWriterFactory<K, V> setMaxPendingMutations(int maxPendingMutations) {
+        this.maxPendingMutations = maxPendingMutations;
+        return this;
+    }
+    
+    /**
+     * Enables logging mutations into the {@link WriteAheadLog} with the given configuration, 
+     * so they are replayed into the delegated cache writer after a crash.
+     */
+    public WriteBehindCacheWriterFactory<K, V> setWriteAheadLog(WriteAheadLogConfig writeAheadLogConfig) {
+        this.writeAheadLogConfig = writeAheadLogConfig;
+        return this;
+    }
+    
+    @Override
+    public synchronized CacheWriter<K, V> create() {
+        if (cacheWriter == null) {
+            cacheWriter = createCacheWriter();
+        }
+        referenceCount++;
+        return new CacheWriterReference(cacheWriter);
+    }
+    
+    private WriteBehindCacheWriter<K, V> createCacheWriter() {
+        CacheWriter<K, V> delegate = delegateFactory.create();
+        WriteAheadLog writeAheadLog = null;
+        if (writeAheadLogConfig != null) {
+            try {
+                writeAheadLog = WriteAheadLog.open(writeAheadLogConfig, delegate);
+            } catch (IOException e) {
+                throw new CacheWriterException("Unable to open write-ahead log", e);
+            }
+        }
+        return new WriteBehindCacheWriter<K, V>(
+                delegate, batchSize, flushIntervalMillis, maxPendingMutations, writeAheadLog);
+    }
+    
+    private void release(WriteBehindCacheWriter<K, V> writer) throws IOException {
+        synchronized (this) {
+            if (writer != cacheWriter || --referenceCount > 0) {
+                return;
+            }
+            cacheWriter = null;
+        }
+        // Last reference is released, so flush pending mutations and close the shared writer
+        writer.close();
+    }
+    
+    private class CacheWriterReference implements CacheWriter<K, V>, Closeable {
+        
+        private final WriteBehindCacheWriter<K, V> writer;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private CacheWriterReference(WriteBehindCacheWriter<K, V> writer) {
+            this.writer = writer;
+        }
+        
+        @Override
+        public void write(Cache.Entry<? extends K, ? extends V> entry) throws CacheWriterException {
+            writer.write(entry);
+        }
+        
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) 
+                throws CacheWriterException {
+            writer.writeAll(entries);
+        }
+        
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            writer.delete(key);
+        }
+        
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            writer.deleteAll(keys);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (released.compareAndSet(false, true)) {
+                release(writer);
+            }
+        }
+        
+    }
+
+}
@@ -0,0 +1,15 @@
+package ua.com.jday2015.demo.jcache.intkey;
+
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+
+/**
+ * Primitive int keyed counterpart of {@link EntryProcessor}.
+ * 
+ * @author Serkan OZAL
+ */
+public interface IntEntryProcessor<V, T> {
+
+    T process(IntMutableEntry<V> entry, Object... arguments) throws EntryProcessorException;
+    
+}
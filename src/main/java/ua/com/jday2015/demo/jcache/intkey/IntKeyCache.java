@@ -0,0 +1,999 @@
+package ua.com.jday2015.demo.jcache.intkey;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+import javax.cache.processor.MutableEntry;
+
+/**
+ * Local cache with primitive int keys. Keys are neither boxed nor serialized, 
+ * entries are kept in open addressing (linear probing) tables of <code>int[]</code> keys and values. 
+ * Cache is split into segments, each of them has its own lock and table. 
+ * Entry processors are executed in place under the segment lock, so they are atomic.
+ * 
+ * {@link #asCache()} gives a standard {@link Cache} view (with boxed keys) 
+ * for the code which works with {@link Cache}. 
+ * Listeners registered through the view are notified on the caller thread after the segment lock is released, 
+ * keys are boxed only when there is a listener. 
+ * There is no loader, writer or expiry and, as the cache is created directly, 
+ * the view is not managed by a {@link CacheManager}.
+ * 
+ * @author Serkan OZAL
+ */
+public class IntKeyCache<V> {
+
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+    public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    
+    private static final Object REMOVED = new Object();
+    private static final float LOAD_FACTOR = 0.75f;
+    
+    private final String name;
+    private final Class<V> valueType;
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+    private final CacheView view = new CacheView();
+    private final List<ListenerRegistration<V>> listenerRegistrations = 
+            new CopyOnWriteArrayList<ListenerRegistration<V>>();
+    private volatile boolean closed;
+    
+    public IntKeyCache(String name, Class<V> valueType) {
+        this(name, valueType, DEFAULT_SEGMENT_COUNT, DEFAULT_INITIAL_CAPACITY);
+    }
+    
+    public IntKeyCache(String name, Class<V> valueType, int segmentCount, int initialCapacity) {
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Segment count must be a power of two!");
+        }
+        this.name = name;
+        this.valueType = valueType;
+        @SuppressWarnings("unchecked")
+        Segment<V>[] segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        this.segments = segments;
+        // Segment is selected by the highest bits of hash, slot by the lowest bits
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        int segmentCapacity = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity / segmentCount)) << 1);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<V>(segmentCapacity);
+        }
+    }
+    
+    private static int hashOf(int key) {
+        // Finalization mix of MurmurHash3, since sequential keys would be clustered otherwise
+        int h = key;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+    
+    private Segment<V> segmentOf(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+    
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Cache " + name + " is closed!");
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public V get(int key) {
+        ensureOpen();
+        int hash = hashOf(key);
+        return segmentOf(hash).get(key, hash);
+    }
+    
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+    
+    public void put(int key, V value) {
+        getAndPut(key, value);
+    }
+    
+    public V getAndPut(int key, V value) {
+        ensureOpen();
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null!");
+        }
+        int hash = hashOf(key);
+        V oldValue = segmentOf(hash).put(key, hash, value, false);
+        if (!listenerRegistrations.isEmpty()) {
+            publish(oldValue == null ? EventType.CREATED : EventType.UPDATED, key, value, oldValue);
+        }
+        return oldValue;
+    }
+    
+    public boolean putIfAbsent(int key, V value) {
+        ensureOpen();
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null!");
+        }
+        int hash = hashOf(key);
+        if (segmentOf(hash).put(key, hash, value, true) != null) {
+            return false;
+        }
+        if (!listenerRegistrations.isEmpty()) {
+            publish(EventType.CREATED, key, value, null);
+        }
+        return true;
+    }
+    
+    public boolean remove(int key) {
+        return getAndRemove(key) != null;
+    }
+    
+    public V getAndRemove(int key) {
+        ensureOpen();
+        int hash = hashOf(key);
+        V oldValue = segmentOf(hash).remove(key, hash);
+        if (oldValue != null && !listenerRegistrations.isEmpty()) {
+            publish(EventType.REMOVED, key, oldValue, oldValue);
+        }
+        return oldValue;
+    }
+    
+    public boolean replace(int key, V value) {
+        return invoke(key, new ReplaceProcessor<V>(null, value)) == Boolean.TRUE;
+    }
+    
+    public boolean replace(int key, V oldValue, V newValue) {
+        if (oldValue == null) {
+            throw new NullPointerException("Old value cannot be null!");
+        }
+        return invoke(key, new ReplaceProcessor<V>(oldValue, newValue)) == Boolean.TRUE;
+    }
+    
+    /**
+     * Executes the given entry processor on the entry with the given key atomically.
+     * 
+     * Entry processor may access this cache too, even the other keys in the same segment, 
+     * since the segment lock is reentrant.
+     */
+    public <T> T invoke(int key, IntEntryProcessor<V, T> entryProcessor, Object... arguments) {
+        ensureOpen();
+        int hash = hashOf(key);
+        InvocationEntry<V> entry = new InvocationEntry<V>(key);
+        T result = segmentOf(hash).invoke(hash, entry, entryProcessor, arguments);
+        if (entry.modified && !listenerRegistrations.isEmpty()) {
+            if (entry.value != null) {
+                publish(entry.oldValue == null ? EventType.CREATED : EventType.UPDATED, 
+                        key, entry.value, entry.oldValue);
+            } else if (entry.oldValue != null) {
+                publish(EventType.REMOVED, key, entry.oldValue, entry.oldValue);
+            }
+        }
+        return result;
+    }
+    
+    public long size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+    
+    public void clear() {
+        ensureOpen();
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+    }
+    
+    public boolean isClosed() {
+        return closed;
+    }
+    
+    public void close() {
+        closed = true;
+        for (Segment<V> segment : segments) {
+            segment.clear();
+        }
+        for (ListenerRegistration<V> registration : listenerRegistrations) {
+            registration.close();
+        }
+        listenerRegistrations.clear();
+    }
+    
+    /**
+     * Publishes the event to the registered listeners after the segment lock is released. 
+     * Events are delivered on the caller thread, 
+     * but failures of asynchronous listeners are not thrown to the caller.
+     */
+    private void publish(EventType eventType, int key, V value, V oldValue) {
+        IntKeyCacheEntryEvent<V> event = 
+                new IntKeyCacheEntryEvent<V>(view, eventType, key, value, oldValue);
+        for (ListenerRegistration<V> registration : listenerRegistrations) {
+            registration.dispatch(event);
+        }
+    }
+    
+    /**
+     * Gets the standard {@link Cache} view of this cache.
+     */
+    public Cache<Integer, V> asCache() {
+        return view;
+    }
+    
+    private static final class Segment<V> {
+        
+        private final int initialCapacity;
+        private int[] keys;
+        private Object[] values;
+        private int size;
+        private int tombstones;
+        // Slot of the first empty or removed slot seen by the last "find" 
+        private int insertSlot;
+        
+        private Segment(int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            this.keys = new int[initialCapacity];
+            this.values = new Object[initialCapacity];
+        }
+        
+        private synchronized int size() {
+            return size;
+        }
+        
+        /**
+         * Finds the slot of the given key or returns <code>-1</code> 
+         * and sets "insertSlot" to the slot where the key should be inserted.
+         */
+        private int find(int key, int hash) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            int firstRemoved = -1;
+            while (true) {
+                Object value = values[slot];
+                if (value == null) {
+                    insertSlot = firstRemoved >= 0 ? firstRemoved : slot;
+                    return -1;
+                } else if (value == REMOVED) {
+                    if (firstRemoved < 0) {
+                        firstRemoved = slot;
+                    }
+                } else if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private synchronized V get(int key, int hash) {
+            int slot = find(key, hash);
+            return slot >= 0 ? (V) values[slot] : null;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private synchronized V put(int key, int hash, V value, boolean onlyIfAbsent) {
+            int slot = find(key, hash);
+            if (slot >= 0) {
+                V oldValue = (V) values[slot];
+                if (!onlyIfAbsent) {
+                    values[slot] = value;
+                }
+                return oldValue;
+            }
+            insert(key, value);
+            return null;
+        }
+        
+        /**
+         * Inserts the given key to the "insertSlot" set by the "find" call just before.
+         */
+        private void insert(int key, Object value) {
+            if (values[insertSlot] == REMOVED) {
+                tombstones--;
+            }
+            keys[insertSlot] = key;
+            values[insertSlot] = value;
+            size++;
+            if (size + tombstones > keys.length * LOAD_FACTOR) {
+                rehash(size > keys.length * LOAD_FACTOR / 2 ? keys.length << 1 : keys.length);
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private synchronized V remove(int key, int hash) {
+            int slot = find(key, hash);
+            if (slot < 0) {
+                return null;
+            }
+            V oldValue = (V) values[slot];
+            delete(slot);
+            return oldValue;
+        }
+        
+        private void delete(int slot) {
+            values[slot] = REMOVED;
+            size--;
+            tombstones++;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private synchronized <T> T invoke(int hash, InvocationEntry<V> entry, 
+                                          IntEntryProcessor<V, T> entryProcessor, Object... arguments) {
+            int slot = find(entry.key, hash);
+            entry.oldValue = slot >= 0 ? (V) values[slot] : null;
+            entry.value = entry.oldValue;
+            T result;
+            try {
+                result = entryProcessor.process(entry, arguments);
+            } catch (EntryProcessorException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new EntryProcessorException(e);
+            } finally {
+                entry.completed = true;
+            }
+            if (entry.modified) {
+                // Processor may have modified this segment (even rehashed it) through the cache, 
+                // so the slot is looked up again before the final state of the entry is applied
+                slot = find(entry.key, hash);
+                if (entry.value == null) {
+                    if (slot >= 0) {
+                        delete(slot);
+                    }
+                } else if (slot >= 0) {
+                    values[slot] = entry.value;
+                } else {
+                    insert(entry.key, entry.value);
+                }
+            }
+            return result;
+        }
+        
+        private void rehash(int newCapacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[newCapacity];
+            values = new Object[newCapacity];
+            int mask = newCapacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                Object value = oldValues[i];
+                if (value != null && value != REMOVED) {
+                    int slot = hashOf(oldKeys[i]) & mask;
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = value;
+                }
+            }
+            tombstones = 0;
+        }
+        
+        private synchronized void clear() {
+            keys = new int[initialCapacity];
+            values = new Object[initialCapacity];
+            size = 0;
+            tombstones = 0;
+        }
+        
+        private synchronized void collect(List<Integer> keyList) {
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null && values[i] != REMOVED) {
+                    keyList.add(keys[i]);
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Mutable entry of a single entry processor invocation. 
+     * Its state is applied to the segment after the entry processor returns.
+     */
+    private static final class InvocationEntry<V> implements IntMutableEntry<V> {
+        
+        private final int key;
+        private V oldValue;
+        private V value;
+        private boolean modified;
+        private boolean completed;
+        
+        private InvocationEntry(int key) {
+            this.key = key;
+        }
+        
+        private void ensureActive() {
+            if (completed) {
+                throw new IllegalStateException("Entry cannot be used after its entry processor has returned!");
+            }
+        }
+        
+        @Override
+        public int getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            ensureActive();
+            return value;
+        }
+
+        @Override
+        public boolean exists() {
+            ensureActive();
+            return value != null;
+        }
+
+        @Override
+        public void setValue(V value) {
+            ensureActive();
+            if (value == null) {
+                throw new NullPointerException("Value cannot be null!");
+            }
+            this.value = value;
+            this.modified = true;
+        }
+
+        @Override
+        public void remove() {
+            ensureActive();
+            this.value = null;
+            this.modified = true;
+        }
+        
+    }
+    
+    private static class ReplaceProcessor<V> implements IntEntryProcessor<V, Boolean> {
+        
+        private final V expectedValue;
+        private final V newValue;
+        
+        private ReplaceProcessor(V expectedValue, V newValue) {
+            if (newValue == null) {
+                throw new NullPointerException("Value cannot be null!");
+            }
+            this.expectedValue = expectedValue;
+            this.newValue = newValue;
+        }
+
+        @Override
+        public Boolean process(IntMutableEntry<V> entry, Object... arguments) {
+            if (!entry.exists() || (expectedValue != null && !expectedValue.equals(entry.getValue()))) {
+                return Boolean.FALSE;
+            }
+            entry.setValue(newValue);
+            return Boolean.TRUE;
+        }
+        
+    }
+    
+    /**
+     * Adapts {@link EntryProcessor} of the {@link Cache} view to {@link IntEntryProcessor}.
+     */
+    private static class EntryProcessorAdapter<V, T> implements IntEntryProcessor<V, T> {
+        
+        private final EntryProcessor<Integer, V, T> entryProcessor;
+        
+        private EntryProcessorAdapter(EntryProcessor<Integer, V, T> entryProcessor) {
+            this.entryProcessor = entryProcessor;
+        }
+
+        @Override
+        public T process(final IntMutableEntry<V> entry, Object... arguments) {
+            return entryProcessor.process(new MutableEntry<Integer, V>() {
+                @Override
+                public Integer getKey() {
+                    return entry.getKey();
+                }
+                @Override
+                public V getValue() {
+                    return entry.getValue();
+                }
+                @Override
+                public boolean exists() {
+                    return entry.exists();
+                }
+                @Override
+                public void remove() {
+                    entry.remove();
+                }
+                @Override
+                public void setValue(V value) {
+                    entry.setValue(value);
+                }
+                @Override
+                public <U> U unwrap(Class<U> clazz) {
+                    throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+                }
+            }, arguments);
+        }
+        
+    }
+    
+    private static class SimpleEntry<K, V> implements Cache.Entry<K, V> {
+        
+        private final K key;
+        private final V value;
+        
+        private SimpleEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+        }
+        
+    }
+    
+    /**
+     * Event of {@link IntKeyCache}, key is boxed only when an event is published.
+     */
+    @SuppressWarnings("serial")
+    private static final class IntKeyCacheEntryEvent<V> extends CacheEntryEvent<Integer, V> {
+        
+        private final int key;
+        private final V value;
+        private final V oldValue;
+        
+        private IntKeyCacheEntryEvent(Cache<Integer, V> source, EventType eventType, int key, V value, V oldValue) {
+            super(source, eventType);
+            this.key = key;
+            this.value = value;
+            this.oldValue = oldValue;
+        }
+        
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+        
+        @Override
+        public V getValue() {
+            return value;
+        }
+        
+        @Override
+        public V getOldValue() {
+            return oldValue;
+        }
+        
+        @Override
+        public boolean isOldValueAvailable() {
+            return oldValue != null;
+        }
+        
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isInstance(this)) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+        }
+        
+    }
+    
+    /**
+     * Listener registered through the {@link Cache} view with its filter.
+     */
+    private static final class ListenerRegistration<V> {
+        
+        private final CacheEntryListenerConfiguration<Integer, V> configuration;
+        private final CacheEntryListener<? super Integer, ? super V> listener;
+        private final CacheEntryEventFilter<? super Integer, ? super V> filter;
+        
+        private ListenerRegistration(CacheEntryListenerConfiguration<Integer, V> configuration) {
+            this.configuration = configuration;
+            this.listener = configuration.getCacheEntryListenerFactory().create();
+            Factory<CacheEntryEventFilter<? super Integer, ? super V>> filterFactory = 
+                    configuration.getCacheEntryEventFilterFactory();
+            this.filter = filterFactory != null ? filterFactory.create() : null;
+        }
+        
+        private boolean isInterestedIn(EventType eventType) {
+            switch (eventType) {
+                case CREATED:
+                    return listener instanceof CacheEntryCreatedListener;
+                case UPDATED:
+                    return listener instanceof CacheEntryUpdatedListener;
+                case REMOVED:
+                    return listener instanceof CacheEntryRemovedListener;
+                default:
+                    // Entries of this cache never expire
+                    return false;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private void dispatch(IntKeyCacheEntryEvent<V> event) {
+            if (!isInterestedIn(event.getEventType()) || (filter != null && !filter.evaluate(event))) {
+                return;
+            }
+            List<CacheEntryEvent<? extends Integer, ? extends V>> events = 
+                    Collections.<CacheEntryEvent<? extends Integer, ? extends V>>singletonList(event);
+            try {
+                switch (event.getEventType()) {
+                    case CREATED:
+                        ((CacheEntryCreatedListener<Integer, V>) listener).onCreated(events);
+                        break;
+                    case UPDATED:
+                        ((CacheEntryUpdatedListener<Integer, V>) listener).onUpdated(events);
+                        break;
+                    case REMOVED:
+                        ((CacheEntryRemovedListener<Integer, V>) listener).onRemoved(events);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (RuntimeException e) {
+                if (configuration.isSynchronous()) {
+                    throw e instanceof CacheEntryListenerException 
+                            ? (CacheEntryListenerException) e 
+                            : new CacheEntryListenerException(e);
+                }
+                // Caller doesn't wait for asynchronous listeners, so their failures are not reported to it
+            }
+        }
+        
+        private void close() {
+            closeQuietly(listener);
+            closeQuietly(filter);
+        }
+        
+        private static void closeQuietly(Object object) {
+            if (object instanceof Closeable) {
+                try {
+                    ((Closeable) object).close();
+                } catch (IOException e) {
+                    // Nothing to do on close failure
+                }
+            }
+        }
+        
+    }
+    
+    private class CacheView implements Cache<Integer, V> {
+
+        @Override
+        public V get(Integer key) {
+            return IntKeyCache.this.get(key);
+        }
+
+        @Override
+        public Map<Integer, V> getAll(Set<? extends Integer> keys) {
+            Map<Integer, V> result = new HashMap<Integer, V>();
+            for (Integer key : keys) {
+                V value = IntKeyCache.this.get(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean containsKey(Integer key) {
+            return IntKeyCache.this.containsKey(key);
+        }
+
+        @Override
+        public void loadAll(Set<? extends Integer> keys, boolean replaceExistingValues, 
+                            CompletionListener completionListener) {
+            ensureOpen();
+            if (keys == null || keys.contains(null)) {
+                throw new NullPointerException("Keys cannot be null!");
+            }
+            // There is no cache loader, so there is nothing to load
+            if (completionListener != null) {
+                completionListener.onCompletion();
+            }
+        }
+
+        @Override
+        public void put(Integer key, V value) {
+            IntKeyCache.this.put(key, value);
+        }
+
+        @Override
+        public V getAndPut(Integer key, V value) {
+            return IntKeyCache.this.getAndPut(key, value);
+        }
+
+        @Override
+        public void putAll(Map<? extends Integer, ? extends V> map) {
+            for (Map.Entry<? extends Integer, ? extends V> entry : map.entrySet()) {
+                IntKeyCache.this.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public boolean putIfAbsent(Integer key, V value) {
+            return IntKeyCache.this.putIfAbsent(key, value);
+        }
+
+        @Override
+        public boolean remove(Integer key) {
+            return IntKeyCache.this.remove(key);
+        }
+
+        @Override
+        public boolean remove(Integer key, final V oldValue) {
+            if (oldValue == null) {
+                throw new NullPointerException("Old value cannot be null!");
+            }
+            return IntKeyCache.this.invoke(key, new IntEntryProcessor<V, Boolean>() {
+                @Override
+                public Boolean process(IntMutableEntry<V> entry, Object... arguments) {
+                    if (entry.exists() && oldValue.equals(entry.getValue())) {
+                        entry.remove();
+                        return Boolean.TRUE;
+                    }
+                    return Boolean.FALSE;
+                }
+            }) == Boolean.TRUE;
+        }
+
+        @Override
+        public V getAndRemove(Integer key) {
+            return IntKeyCache.this.getAndRemove(key);
+        }
+
+        @Override
+        public boolean replace(Integer key, V oldValue, V newValue) {
+            return IntKeyCache.this.replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public boolean replace(Integer key, V value) {
+            return IntKeyCache.this.replace(key, value);
+        }
+
+        @Override
+        public V getAndReplace(Integer key, final V value) {
+            return IntKeyCache.this.invoke(key, new IntEntryProcessor<V, V>() {
+                @Override
+                public V process(IntMutableEntry<V> entry, Object... arguments) {
+                    V oldValue = entry.getValue();
+                    if (entry.exists()) {
+                        entry.setValue(value);
+                    }
+                    return oldValue;
+                }
+            });
+        }
+
+        @Override
+        public void removeAll(Set<? extends Integer> keys) {
+            for (Integer key : keys) {
+                IntKeyCache.this.remove(key);
+            }
+        }
+
+        @Override
+        public void removeAll() {
+            if (listenerRegistrations.isEmpty()) {
+                IntKeyCache.this.clear();
+                return;
+            }
+            // Entries are removed one by one, so removed events are published for them
+            for (Integer key : keySnapshot()) {
+                IntKeyCache.this.remove(key);
+            }
+        }
+
+        @Override
+        public void clear() {
+            IntKeyCache.this.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <C extends Configuration<Integer, V>> C getConfiguration(Class<C> clazz) {
+            MutableConfiguration<Integer, V> config = 
+                    new MutableConfiguration<Integer, V>().setTypes(Integer.class, valueType);
+            for (ListenerRegistration<V> registration : listenerRegistrations) {
+                config.addCacheEntryListenerConfiguration(registration.configuration);
+            }
+            if (clazz.isInstance(config)) {
+                return (C) config;
+            }
+            throw new IllegalArgumentException("Configuration of type " + clazz + " is not supported!");
+        }
+
+        @Override
+        public <T> T invoke(Integer key, EntryProcessor<Integer, V, T> entryProcessor, Object... arguments) {
+            return IntKeyCache.this.invoke(key, new EntryProcessorAdapter<V, T>(entryProcessor), arguments);
+        }
+
+        @Override
+        public <T> Map<Integer, EntryProcessorResult<T>> invokeAll(Set<? extends Integer> keys, 
+                EntryProcessor<Integer, V, T> entryProcessor, Object... arguments) {
+            Map<Integer, EntryProcessorResult<T>> results = new HashMap<Integer, EntryProcessorResult<T>>();
+            for (Integer key : keys) {
+                try {
+                    final T result = invoke(key, entryProcessor, arguments);
+                    if (result != null) {
+                        results.put(key, new EntryProcessorResult<T>() {
+                            @Override
+                            public T get() {
+                                return result;
+                            }
+                        });
+                    }
+                } catch (final EntryProcessorException e) {
+                    results.put(key, new EntryProcessorResult<T>() {
+                        @Override
+                        public T get() {
+                            throw e;
+                        }
+                    });
+                }
+            }
+            return results;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns <code>null</code> as specified for the caches which are not managed by a {@link CacheManager}, 
+         * since {@link IntKeyCache} is created directly instead of through a cache manager.
+         */
+        @Override
+        public CacheManager getCacheManager() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            IntKeyCache.this.close();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isInstance(IntKeyCache.this)) {
+                return clazz.cast(IntKeyCache.this);
+            }
+            throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+        }
+
+        @Override
+        public void registerCacheEntryListener(CacheEntryListenerConfiguration<Integer, V> config) {
+            ensureOpen();
+            if (config == null) {
+                throw new NullPointerException("Listener configuration cannot be null!");
+            }
+            synchronized (listenerRegistrations) {
+                for (ListenerRegistration<V> registration : listenerRegistrations) {
+                    if (registration.configuration.equals(config)) {
+                        throw new IllegalArgumentException("Listener configuration is already registered!");
+                    }
+                }
+                listenerRegistrations.add(new ListenerRegistration<V>(config));
+            }
+        }
+
+        @Override
+        public void deregisterCacheEntryListener(CacheEntryListenerConfiguration<Integer, V> config) {
+            ensureOpen();
+            if (config == null) {
+                throw new NullPointerException("Listener configuration cannot be null!");
+            }
+            synchronized (listenerRegistrations) {
+                for (ListenerRegistration<V> registration : listenerRegistrations) {
+                    if (registration.configuration.equals(config)) {
+                        listenerRegistrations.remove(registration);
+                        registration.close();
+                        return;
+                    }
+                }
+            }
+        }
+        
+        private List<Integer> keySnapshot() {
+            List<Integer> keys = new ArrayList<Integer>();
+            for (Segment<V> segment : segments) {
+                segment.collect(keys);
+            }
+            return keys;
+        }
+
+        @Override
+        public Iterator<Cache.Entry<Integer, V>> iterator() {
+            ensureOpen();
+            // Iterate over a snapshot of keys, so segments are not locked during iteration
+            final List<Integer> keys = keySnapshot();
+            return new Iterator<Cache.Entry<Integer, V>>() {
+                private int index;
+                private Cache.Entry<Integer, V> next = advance();
+                private Cache.Entry<Integer, V> last;
+                
+                private Cache.Entry<Integer, V> advance() {
+                    while (index < keys.size()) {
+                        Integer key = keys.get(index++);
+                        V value = IntKeyCache.this.get(key);
+                        // Skip the entries removed after the snapshot
+                        if (value != null) {
+                            return new SimpleEntry<Integer, V>(key, value);
+                        }
+                    }
+                    return null;
+                }
+                
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Cache.Entry<Integer, V> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = advance();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException("There is no entry to remove!");
+                    }
+                    IntKeyCache.this.remove(last.getKey());
+                    last = null;
+                }
+            };
+        }
+        
+    }
+
+}
@@ -0,0 +1,22 @@
+package ua.com.jday2015.demo.jcache.intkey;
+
+import javax.cache.processor.MutableEntry;
+
+/**
+ * Primitive int keyed counterpart of {@link MutableEntry}.
+ * 
+ * @author Serkan OZAL
+ */
+public interface IntMutableEntry<V> {
+
+    int getKey();
+    
+    V getValue();
+    
+    boolean exists();
+    
+    void setValue(V value);
+    
+    void remove();
+    
+}
@@ -0,0 +1,287 @@
+package ua.com.jday2015.demo.jcache.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.cache.CacheException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+/**
+ * Holds latency histograms and hit/miss/eviction counters of a cache. 
+ * 
+ * Latencies are recorded into per thread HdrHistogram {@link SingleWriterRecorder}s, 
+ * so recording threads don't share any cache line. They are merged when a snapshot is taken. 
+ * Counters are {@link LongAdder}s, which are striped, so concurrent updates don't contend. 
+ * Metrics are exposed as {@link CacheMetricsMXBean}.
+ * 
+ * Metrics are registered by cache manager URI and cache name, 
+ * so the instrumented loaders, writers and listeners created on this JVM can find them.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheMetrics implements CacheMetricsMXBean {
+
+    private static final ConcurrentMap<String, CacheMetrics> METRICS = new ConcurrentHashMap<String, CacheMetrics>();
+    // 3 significant digits, so values are recorded with 0.1% precision
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final CacheOperation[] OPERATIONS = CacheOperation.values();
+    
+    private final String id;
+    private final ObjectName objectName;
+    // Recorders of the threads, dropped once their threads die and their histograms are merged
+    private final List<ThreadRecorders> recorders = new CopyOnWriteArrayList<ThreadRecorders>();
+    private final ThreadLocal<SingleWriterRecorder[]> localRecorders = new ThreadLocal<SingleWriterRecorder[]>() {
+        @Override
+        protected SingleWriterRecorder[] initialValue() {
+            ThreadRecorders threadRecorders = new ThreadRecorders(Thread.currentThread());
+            recorders.add(threadRecorders);
+            return threadRecorders.recorders;
+        }
+    };
+    // Accumulated from interval histograms of the recorders, guarded by "this"
+    private final Map<CacheOperation, Histogram> histograms = new EnumMap<CacheOperation, Histogram>(CacheOperation.class);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // Evictions done by the underlying cache itself, since they are not published as events
+    private volatile LongSupplier evictionCountSource;
+    private volatile long evictionCountBase;
+    
+    private CacheMetrics(String id, ObjectName objectName) {
+        this.id = id;
+        this.objectName = objectName;
+        for (CacheOperation operation : OPERATIONS) {
+            histograms.put(operation, new Histogram(SIGNIFICANT_DIGITS));
+        }
+    }
+    
+    private static String idOf(URI cacheManagerUri, String cacheName) {
+        return cacheManagerUri + "/" + cacheName;
+    }
+    
+    private static String sanitize(String value) {
+        // Same as the way JCache implementations name their MBeans
+        return value == null ? "" : value.replaceAll(",|:|=|\n", ".");
+    }
+    
+    /**
+     * Gets the metrics of the given cache, creates and registers it to platform MBean server if there is none.
+     */
+    public static CacheMetrics getOrCreate(URI cacheManagerUri, String cacheName) {
+        String id = idOf(cacheManagerUri, cacheName);
+        CacheMetrics metrics = METRICS.get(id);
+        if (metrics != null) {
+            return metrics;
+        }
+        synchronized (METRICS) {
+            metrics = METRICS.get(id);
+            if (metrics == null) {
+                try {
+                    ObjectName objectName = 
+                            new ObjectName("javax.cache:type=CacheMetrics" 
+                                           + ",CacheManager=" + sanitize(String.valueOf(cacheManagerUri)) 
+                                           + ",Cache=" + sanitize(cacheName));
+                    metrics = new CacheMetrics(id, objectName);
+                    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+                    if (!mBeanServer.isRegistered(objectName)) {
+                        mBeanServer.registerMBean(metrics, objectName);
+                    }
+                } catch (Exception e) {
+                    throw new CacheException("Unable to register metrics MBean of cache " + cacheName, e);
+                }
+                METRICS.put(id, metrics);
+            }
+            return metrics;
+        }
+    }
+    
+    /**
+     * Gets the metrics of the given cache if there is.
+     */
+    public static CacheMetrics get(URI cacheManagerUri, String cacheName) {
+        return METRICS.get(idOf(cacheManagerUri, cacheName));
+    }
+    
+    /**
+     * Unregisters the metrics of the given cache from platform MBean server.
+     */
+    public static void remove(URI cacheManagerUri, String cacheName) {
+        CacheMetrics metrics = METRICS.remove(idOf(cacheManagerUri, cacheName));
+        if (metrics != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metrics.objectName);
+            } catch (Exception e) {
+                // Already unregistered
+            }
+        }
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+    
+    /**
+     * Records latency of the given operation which has started at the given time 
+     * (taken from {@link System#nanoTime()}).
+     */
+    public void recordLatency(CacheOperation operation, long startNanos) {
+        localRecorders.get()[operation.ordinal()].recordValue(Math.max(0, System.nanoTime() - startNanos));
+    }
+    
+    public void recordHit() {
+        hits.increment();
+    }
+    
+    public void recordMiss() {
+        misses.increment();
+    }
+    
+    public void recordHits(long count) {
+        hits.add(count);
+    }
+    
+    public void recordMisses(long count) {
+        misses.add(count);
+    }
+    
+    public void recordEvictions(long count) {
+        evictions.add(count);
+    }
+    
+    /**
+     * Sets the source of the evictions which are done by the underlying cache itself.
+     */
+    public void setEvictionCountSource(LongSupplier evictionCountSource) {
+        this.evictionCountSource = evictionCountSource;
+        this.evictionCountBase = evictionCountSource != null ? evictionCountSource.getAsLong() : 0;
+    }
+    
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+    
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    @Override
+    public float getHitPercentage() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0f : (100.0f * hitCount) / total;
+    }
+    
+    @Override
+    public long getEvictionCount() {
+        LongSupplier source = evictionCountSource;
+        return evictions.sum() + (source != null ? source.getAsLong() - evictionCountBase : 0);
+    }
+    
+    @Override
+    public synchronized LatencySnapshot[] getLatencies() {
+        mergeDeadThreads();
+        LatencySnapshot[] latencies = new LatencySnapshot[OPERATIONS.length];
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i] = snapshotOf(OPERATIONS[i]);
+        }
+        return latencies;
+    }
+    
+    @Override
+    public synchronized LatencySnapshot getLatency(String operation) {
+        return getLatency(CacheOperation.valueOf(operation));
+    }
+    
+    public synchronized LatencySnapshot getLatency(CacheOperation operation) {
+        mergeDeadThreads();
+        return snapshotOf(operation);
+    }
+    
+    /**
+     * Merges all histograms of the threads which have died and drops their recorders, 
+     * so the recorders don't pile up with short living threads.
+     */
+    private void mergeDeadThreads() {
+        for (ThreadRecorders threadRecorders : recorders) {
+            if (threadRecorders.get() == null) {
+                for (CacheOperation operation : OPERATIONS) {
+                    histograms.get(operation).add(
+                            threadRecorders.recorders[operation.ordinal()].getIntervalHistogram());
+                }
+                recorders.remove(threadRecorders);
+            }
+        }
+    }
+    
+    private LatencySnapshot snapshotOf(CacheOperation operation) {
+        Histogram histogram = histograms.get(operation);
+        for (ThreadRecorders threadRecorders : recorders) {
+            histogram.add(threadRecorders.recorders[operation.ordinal()].getIntervalHistogram());
+        }
+        return new LatencySnapshot(
+                operation.name(), 
+                histogram.getTotalCount(), 
+                histogram.getMean(), 
+                histogram.getValueAtPercentile(50.0), 
+                histogram.getValueAtPercentile(99.0), 
+                histogram.getValueAtPercentile(99.9), 
+                histogram.getMaxValue());
+    }
+    
+    @Override
+    public synchronized void reset() {
+        mergeDeadThreads();
+        for (ThreadRecorders threadRecorders : recorders) {
+            for (SingleWriterRecorder recorder : threadRecorders.recorders) {
+                recorder.reset();
+            }
+        }
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        LongSupplier source = evictionCountSource;
+        if (source != null) {
+            evictionCountBase = source.getAsLong();
+        }
+    }
+    
+    /**
+     * Recorders of a thread indexed by operation ordinal. 
+     * Thread is referenced weakly, so it is known when the thread dies.
+     */
+    private static final class ThreadRecorders extends WeakReference<Thread> {
+        
+        private final SingleWriterRecorder[] recorders = new SingleWriterRecorder[OPERATIONS.length];
+        
+        private ThreadRecorders(Thread thread) {
+            super(thread);
+            for (int i = 0; i < recorders.length; i++) {
+                recorders[i] = new SingleWriterRecorder(SIGNIFICANT_DIGITS);
+            }
+        }
+        
+    }
+
+}
@@ -0,0 +1,347 @@
+package ua.com.jday2015.demo.jcache.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+/**
+ * Instruments cache loader, cache writer and cache entry listeners of a {@link MutableConfiguration}, 
+ * so theirs latencies are recorded into {@link CacheMetrics} of the cache. 
+ * 
+ * Instrumented factories are serializable and they find the metrics by cache manager URI and cache name 
+ * on the member where they are used.
+ * 
+ * @author Serkan OZAL
+ */
+public final class CacheMetricsInstrumentation {
+
+    private CacheMetricsInstrumentation() {
+    }
+    
+    /**
+     * Instruments the given configuration of the cache with the given cache manager URI and cache name. 
+     * Must be called before creating the cache.
+     */
+    public static <K, V> MutableConfiguration<K, V> instrument(URI cacheManagerUri, String cacheName,
+                                                               MutableConfiguration<K, V> config) {
+        MetricsKey metricsKey = new MetricsKey(cacheManagerUri, cacheName);
+        if (config.getCacheLoaderFactory() != null) {
+            config.setCacheLoaderFactory(
+                    new InstrumentedCacheLoaderFactory<K, V>(metricsKey, config.getCacheLoaderFactory()));
+        }
+        if (config.getCacheWriterFactory() != null) {
+            config.setCacheWriterFactory(
+                    new InstrumentedCacheWriterFactory<K, V>(metricsKey, config.getCacheWriterFactory()));
+        }
+        List<CacheEntryListenerConfiguration<K, V>> listenerConfigs = 
+                new ArrayList<CacheEntryListenerConfiguration<K, V>>();
+        for (CacheEntryListenerConfiguration<K, V> listenerConfig : config.getCacheEntryListenerConfigurations()) {
+            listenerConfigs.add(listenerConfig);
+        }
+        for (CacheEntryListenerConfiguration<K, V> listenerConfig : listenerConfigs) {
+            config.removeCacheEntryListenerConfiguration(listenerConfig);
+            config.addCacheEntryListenerConfiguration(instrument(cacheManagerUri, cacheName, listenerConfig));
+        }
+        return config;
+    }
+    
+    /**
+     * Instruments the given cache entry listener configuration 
+     * to be registered to the cache with the given cache manager URI and cache name.
+     */
+    public static <K, V> CacheEntryListenerConfiguration<K, V> instrument(URI cacheManagerUri, String cacheName,
+            CacheEntryListenerConfiguration<K, V> listenerConfig) {
+        return new MutableCacheEntryListenerConfiguration<K, V>(
+                    new InstrumentedCacheEntryListenerFactory<K, V>(
+                            new MetricsKey(cacheManagerUri, cacheName), 
+                            listenerConfig.getCacheEntryListenerFactory()), 
+                    listenerConfig.getCacheEntryEventFilterFactory(), 
+                    listenerConfig.isOldValueRequired(), 
+                    listenerConfig.isSynchronous());
+    }
+    
+    @SuppressWarnings("serial")
+    private static class MetricsKey implements Serializable {
+        
+        private final URI cacheManagerUri;
+        private final String cacheName;
+        private transient volatile CacheMetrics metrics;
+        
+        private MetricsKey(URI cacheManagerUri, String cacheName) {
+            this.cacheManagerUri = cacheManagerUri;
+            this.cacheName = cacheName;
+        }
+        
+        private CacheMetrics metrics() {
+            CacheMetrics m = metrics;
+            if (m == null) {
+                m = CacheMetrics.getOrCreate(cacheManagerUri, cacheName);
+                metrics = m;
+            }
+            return m;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class InstrumentedCacheLoaderFactory<K, V> implements Factory<CacheLoader<K, V>> {
+
+        private final MetricsKey metricsKey;
+        private final Factory<CacheLoader<K, V>> delegate;
+        
+        private InstrumentedCacheLoaderFactory(MetricsKey metricsKey, Factory<CacheLoader<K, V>> delegate) {
+            this.metricsKey = metricsKey;
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public CacheLoader<K, V> create() {
+            return new InstrumentedCacheLoader<K, V>(metricsKey.metrics(), delegate.create());
+        }
+        
+    }
+    
+    private static class InstrumentedCacheLoader<K, V> implements CacheLoader<K, V>, Closeable {
+        
+        private final CacheMetrics metrics;
+        private final CacheLoader<K, V> delegate;
+        
+        private InstrumentedCacheLoader(CacheMetrics metrics, CacheLoader<K, V> delegate) {
+            this.metrics = metrics;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public V load(K key) throws CacheLoaderException {
+            long start = System.nanoTime();
+            try {
+                return delegate.load(key);
+            } finally {
+                metrics.recordLatency(CacheOperation.LOADER_LOAD, start);
+            }
+        }
+
+        @Override
+        public Map<K, V> loadAll(Iterable<? extends K> keys) throws CacheLoaderException {
+            long start = System.nanoTime();
+            try {
+                return delegate.loadAll(keys);
+            } finally {
+                metrics.recordLatency(CacheOperation.LOADER_LOAD, start);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class InstrumentedCacheWriterFactory<K, V> 
+            implements Factory<CacheWriter<? super K, ? super V>> {
+
+        private final MetricsKey metricsKey;
+        private final Factory<CacheWriter<? super K, ? super V>> delegate;
+        
+        private InstrumentedCacheWriterFactory(MetricsKey metricsKey, 
+                                               Factory<CacheWriter<? super K, ? super V>> delegate) {
+            this.metricsKey = metricsKey;
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public CacheWriter<? super K, ? super V> create() {
+            return new InstrumentedCacheWriter<K, V>(metricsKey.metrics(), delegate.create());
+        }
+        
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static class InstrumentedCacheWriter<K, V> implements CacheWriter<K, V>, Closeable {
+        
+        private final CacheMetrics metrics;
+        private final CacheWriter delegate;
+        
+        private InstrumentedCacheWriter(CacheMetrics metrics, CacheWriter<? super K, ? super V> delegate) {
+            this.metrics = metrics;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(Cache.Entry<? extends K, ? extends V> entry) throws CacheWriterException {
+            long start = System.nanoTime();
+            try {
+                delegate.write(entry);
+            } finally {
+                metrics.recordLatency(CacheOperation.WRITER_WRITE, start);
+            }
+        }
+
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) 
+                throws CacheWriterException {
+            long start = System.nanoTime();
+            try {
+                // Written entries are removed from the given collection by the delegate as the contract says
+                delegate.writeAll((Collection) entries);
+            } finally {
+                metrics.recordLatency(CacheOperation.WRITER_WRITE, start);
+            }
+        }
+
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            long start = System.nanoTime();
+            try {
+                delegate.delete(key);
+            } finally {
+                metrics.recordLatency(CacheOperation.WRITER_DELETE, start);
+            }
+        }
+
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            long start = System.nanoTime();
+            try {
+                delegate.deleteAll(keys);
+            } finally {
+                metrics.recordLatency(CacheOperation.WRITER_DELETE, start);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class InstrumentedCacheEntryListenerFactory<K, V> 
+            implements Factory<CacheEntryListener<? super K, ? super V>> {
+
+        private final MetricsKey metricsKey;
+        private final Factory<CacheEntryListener<? super K, ? super V>> delegate;
+        
+        private InstrumentedCacheEntryListenerFactory(MetricsKey metricsKey, 
+                Factory<CacheEntryListener<? super K, ? super V>> delegate) {
+            this.metricsKey = metricsKey;
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public CacheEntryListener<? super K, ? super V> create() {
+            return new InstrumentedCacheEntryListener<K, V>(metricsKey.metrics(), delegate.create());
+        }
+        
+    }
+    
+    /**
+     * Implements all listener types, but only forwards the events whose types are listened by the delegate.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static class InstrumentedCacheEntryListener<K, V> 
+            implements  CacheEntryCreatedListener<K, V>,
+                        CacheEntryUpdatedListener<K, V>,
+                        CacheEntryRemovedListener<K, V>,
+                        CacheEntryExpiredListener<K, V>,
+                        Closeable {
+        
+        private final CacheMetrics metrics;
+        private final CacheEntryListener delegate;
+        
+        private InstrumentedCacheEntryListener(CacheMetrics metrics, CacheEntryListener<? super K, ? super V> delegate) {
+            this.metrics = metrics;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            if (delegate instanceof CacheEntryCreatedListener) {
+                long start = System.nanoTime();
+                try {
+                    ((CacheEntryCreatedListener) delegate).onCreated(events);
+                } finally {
+                    metrics.recordLatency(CacheOperation.LISTENER_DISPATCH, start);
+                }
+            }
+        }
+        
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            if (delegate instanceof CacheEntryUpdatedListener) {
+                long start = System.nanoTime();
+                try {
+                    ((CacheEntryUpdatedListener) delegate).onUpdated(events);
+                } finally {
+                    metrics.recordLatency(CacheOperation.LISTENER_DISPATCH, start);
+                }
+            }
+        }
+        
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            if (delegate instanceof CacheEntryRemovedListener) {
+                long start = System.nanoTime();
+                try {
+                    ((CacheEntryRemovedListener) delegate).onRemoved(events);
+                } finally {
+                    metrics.recordLatency(CacheOperation.LISTENER_DISPATCH, start);
+                }
+            }
+        }
+        
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            if (delegate instanceof CacheEntryExpiredListener) {
+                long start = System.nanoTime();
+                try {
+                    ((CacheEntryExpiredListener) delegate).onExpired(events);
+                } finally {
+                    metrics.recordLatency(CacheOperation.LISTENER_DISPATCH, start);
+                }
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+        
+    }
+    
+}
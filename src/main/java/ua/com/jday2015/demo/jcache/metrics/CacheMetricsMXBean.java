@@ -0,0 +1,29 @@
+package ua.com.jday2015.demo.jcache.metrics;
+
+/**
+ * Management interface of {@link CacheMetrics}. It is registered as 
+ * <code>javax.cache:type=CacheMetrics,CacheManager=&lt;cache manager URI&gt;,Cache=&lt;cache name&gt;</code>, 
+ * next to the standard <code>CacheStatistics</code> and <code>CacheConfiguration</code> beans.
+ * 
+ * @author Serkan OZAL
+ */
+public interface CacheMetricsMXBean {
+
+    long getHitCount();
+    
+    long getMissCount();
+    
+    float getHitPercentage();
+    
+    long getEvictionCount();
+    
+    /**
+     * Gets latency distributions of all the operations since the creation or the latest reset.
+     */
+    LatencySnapshot[] getLatencies();
+    
+    LatencySnapshot getLatency(String operation);
+    
+    void reset();
+    
+}
@@ -0,0 +1,19 @@
+package ua.com.jday2015.demo.jcache.metrics;
+
+/**
+ * Cache operations whose latencies are recorded by {@link CacheMetrics}.
+ * 
+ * @author Serkan OZAL
+ */
+public enum CacheOperation {
+
+    GET,
+    PUT,
+    REMOVE,
+    INVOKE,
+    LOADER_LOAD,
+    WRITER_WRITE,
+    WRITER_DELETE,
+    LISTENER_DISPATCH
+    
+}
@@ -0,0 +1,65 @@
+package ua.com.jday2015.demo.jcache.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latency distribution of a {@link CacheOperation} in nanoseconds.
+ * 
+ * @author Serkan OZAL
+ */
+public class LatencySnapshot {
+
+    private final String operation;
+    private final long count;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+    
+    @ConstructorProperties({ "operation", "count", "mean", "p50", "p99", "p999", "max" })
+    public LatencySnapshot(String operation, long count, double mean, long p50, long p99, long p999, long max) {
+        this.operation = operation;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+    
+    public String getOperation() {
+        return operation;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public double getMean() {
+        return mean;
+    }
+    
+    public long getP50() {
+        return p50;
+    }
+    
+    public long getP99() {
+        return p99;
+    }
+    
+    public long getP999() {
+        return p999;
+    }
+    
+    public long getMax() {
+        return max;
+    }
+    
+    @Override
+    public String toString() {
+        return operation + "{count=" + count + ", mean=" + (long) mean + "ns, p50=" + p50 + "ns, " 
+                + "p99=" + p99 + "ns, p999=" + p999 + "ns, max=" + max + "ns}";
+    }
+
+}
@@ -0,0 +1,228 @@
+package ua.com.jday2015.demo.jcache.metrics;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import com.hazelcast.cache.CacheStatistics;
+import com.hazelcast.cache.ICache;
+
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+
+/**
+ * {@link Cache} decorator which records latency of get, put, remove and invoke operations 
+ * and hits/misses of read operations into {@link CacheMetrics} of the delegated cache. 
+ * 
+ * Recording costs two {@link System#nanoTime()} calls and a wait-free histogram update per operation. 
+ * Latencies of failed operations are recorded too, so slow failures are not hidden. 
+ * Loader, writer and listener latencies are recorded on the members where they are called, 
+ * so their configurations should be instrumented by {@link CacheMetricsInstrumentation} before creating the cache. 
+ * 
+ * Note that read-through values are counted as hits, since loading happens inside the delegated cache.
+ * 
+ * @author Serkan OZAL
+ */
+public class MetricsCache<K, V> extends DelegatingCache<K, V> {
+
+    private final CacheMetrics metrics;
+    
+    public MetricsCache(Cache<K, V> delegate) {
+        super(delegate);
+        CacheManager cacheManager = delegate.getCacheManager();
+        this.metrics = CacheMetrics.getOrCreate(cacheManager != null ? cacheManager.getURI() : null, delegate.getName());
+        attachEvictionCountSource(delegate, metrics);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static void attachEvictionCountSource(Cache<?, ?> cache, CacheMetrics metrics) {
+        final ICache hazelcastCache;
+        try {
+            hazelcastCache = cache.unwrap(ICache.class);
+        } catch (IllegalArgumentException e) {
+            // Not a Hazelcast cache, so only the recorded evictions are reported
+            return;
+        }
+        // Evictions are done by Hazelcast itself without publishing any event, so they are taken from its statistics
+        metrics.setEvictionCountSource(new LongSupplier() {
+            @Override
+            public long getAsLong() {
+                CacheStatistics statistics = hazelcastCache.getLocalCacheStatistics();
+                return statistics != null ? statistics.getCacheEvictions() : 0;
+            }
+        });
+    }
+    
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+    
+    @Override
+    public V get(K key) {
+        long start = System.nanoTime();
+        V value;
+        try {
+            value = delegate.get(key);
+        } finally {
+            metrics.recordLatency(CacheOperation.GET, start);
+        }
+        if (value != null) {
+            metrics.recordHit();
+        } else {
+            metrics.recordMiss();
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        long start = System.nanoTime();
+        Map<K, V> result;
+        try {
+            result = delegate.getAll(keys);
+        } finally {
+            metrics.recordLatency(CacheOperation.GET, start);
+        }
+        metrics.recordHits(result.size());
+        metrics.recordMisses(keys.size() - result.size());
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            delegate.put(key, value);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAndPut(key, value);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        long start = System.nanoTime();
+        try {
+            delegate.putAll(map);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.putIfAbsent(key, value);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        long start = System.nanoTime();
+        try {
+            return delegate.replace(key, oldValue, newValue);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.replace(key, value);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAndReplace(key, value);
+        } finally {
+            metrics.recordLatency(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        long start = System.nanoTime();
+        try {
+            return delegate.remove(key);
+        } finally {
+            metrics.recordLatency(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        long start = System.nanoTime();
+        try {
+            return delegate.remove(key, oldValue);
+        } finally {
+            metrics.recordLatency(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAndRemove(key);
+        } finally {
+            metrics.recordLatency(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            metrics.recordLatency(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) 
+            throws EntryProcessorException {
+        long start = System.nanoTime();
+        try {
+            return delegate.invoke(key, entryProcessor, arguments);
+        } finally {
+            metrics.recordLatency(CacheOperation.INVOKE, start);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, 
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        long start = System.nanoTime();
+        try {
+            return delegate.invokeAll(keys, entryProcessor, arguments);
+        } finally {
+            metrics.recordLatency(CacheOperation.INVOKE, start);
+        }
+    }
+    
+}
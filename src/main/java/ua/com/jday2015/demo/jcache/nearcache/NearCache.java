@@ -0,0 +1,474 @@
+package ua.com.jday2015.demo.jcache.nearcache;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import ua.com.jday2015.demo.jcache.event.AsyncCacheEntryListenerConfiguration;
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+import ua.com.jday2015.demo.jcache.support.LocalExpiry;
+
+/**
+ * {@link Cache} decorator which keeps recently read entries of the delegated {@link Cache} in local memory. 
+ * 
+ * Local entries are bounded by "maxSize" and evicted in LRU order. 
+ * To reduce contention, local memory is split into segments and LRU order is maintained per segment.
+ * Local entries are invalidated by the updated/removed/expired events of the delegated cache, 
+ * which are dispatched to the near cache in batches by an {@link AsyncCacheEntryListenerConfiguration}. 
+ * Mutations through the near cache invalidate the local entry immediately. 
+ * Since Hazelcast publishes expired events only when an expired entry is accessed on its member, 
+ * local entries also expire by themselves as derived from the expiry policy of the delegated cache 
+ * (see {@link LocalExpiry} for its limitations).
+ * 
+ * Note that {@link Cache#clear()} doesn't publish any event, 
+ * so clearing the delegated cache from somewhere else is not seen by the near cache.
+ * 
+ * @author Serkan OZAL
+ */
+public class NearCache<K, V> extends DelegatingCache<K, V> {
+
+    private static final ConcurrentMap<String, NearCache<?, ?>> NEAR_CACHES = 
+            new ConcurrentHashMap<String, NearCache<?, ?>>();
+    
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final LocalExpiry localExpiry;
+    private final String id = UUID.randomUUID().toString();
+    private final CacheEntryListenerConfiguration<K, V> invalidationListenerConfig;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong expirationCount = new AtomicLong();
+    
+    public NearCache(Cache<K, V> delegate, int maxSize) {
+        super(delegate);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size must be positive!");
+        }
+        int segmentCount = 1;
+        while (segmentCount < 4 * Runtime.getRuntime().availableProcessors() && segmentCount * 2 <= maxSize) {
+            segmentCount <<= 1;
+        }
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        this.segments = segments;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<K, V>(maxSize / segmentCount, evictionCount, expirationCount);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.localExpiry = new LocalExpiry(delegate);
+        
+        NEAR_CACHES.put(id, this);
+        this.invalidationListenerConfig = 
+                new AsyncCacheEntryListenerConfiguration<K, V>(
+                        new MutableCacheEntryListenerConfiguration<K, V>(
+                                new InvalidationListenerFactory<K, V>(id), null, false, false));
+        delegate.registerCacheEntryListener(invalidationListenerConfig);
+    }
+    
+    public long getHitCount() {
+        return hitCount.get();
+    }
+    
+    public long getMissCount() {
+        return missCount.get();
+    }
+    
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+    
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+    
+    public long getExpirationCount() {
+        return expirationCount.get();
+    }
+    
+    public int getLocalSize() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+    
+    private Segment<K, V> segmentOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & segmentMask];
+    }
+    
+    @Override
+    public V get(K key) {
+        Segment<K, V> segment = segmentOf(key);
+        long now = System.currentTimeMillis();
+        long invalidations;
+        synchronized (segment) {
+            V value = segment.get(key, now);
+            if (value != null) {
+                hitCount.incrementAndGet();
+                return value;
+            }
+            invalidations = segment.invalidations;
+        }
+        missCount.incrementAndGet();
+        V value = delegate.get(key);
+        if (value != null) {
+            // Read time is taken before the read, so local entry never expires later than the entry itself
+            segment.install(key, value, localExpiry.expirationTimeOf(now), invalidations);
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        Map<K, V> result = new HashMap<K, V>();
+        Set<K> missingKeys = new HashSet<K>();
+        long now = System.currentTimeMillis();
+        for (K key : keys) {
+            V value = segmentOf(key).get(key, now);
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+        hitCount.addAndGet(result.size());
+        if (!missingKeys.isEmpty()) {
+            missCount.addAndGet(missingKeys.size());
+            // Since all keys are fetched at once, stale values are not installed
+            result.putAll(delegate.getAll(missingKeys));
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        if (segmentOf(key).get(key, System.currentTimeMillis()) != null) {
+            return true;
+        }
+        return delegate.containsKey(key);
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        try {
+            delegate.put(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        try {
+            return delegate.getAndPut(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        try {
+            delegate.putAll(map);
+        } finally {
+            invalidateAll(map.keySet());
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        try {
+            return delegate.putIfAbsent(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        try {
+            return delegate.remove(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        try {
+            return delegate.remove(key, oldValue);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        try {
+            return delegate.getAndRemove(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        try {
+            return delegate.replace(key, oldValue, newValue);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        try {
+            return delegate.replace(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        try {
+            return delegate.getAndReplace(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+    
+    @Override
+    public void removeAll() {
+        try {
+            delegate.removeAll();
+        } finally {
+            invalidateAll();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            invalidateAll();
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) 
+            throws EntryProcessorException {
+        try {
+            return delegate.invoke(key, entryProcessor, arguments);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, 
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        try {
+            return delegate.invokeAll(keys, entryProcessor, arguments);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+    
+    @Override
+    public void close() {
+        try {
+            if (!delegate.isClosed()) {
+                delegate.deregisterCacheEntryListener(invalidationListenerConfig);
+            }
+        } finally {
+            NEAR_CACHES.remove(id);
+            invalidateAll();
+            delegate.close();
+        }
+    }
+    
+    private void invalidate(Object key) {
+        Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.invalidations++;
+            if (segment.entries.remove(key) != null) {
+                invalidationCount.incrementAndGet();
+            }
+        }
+    }
+    
+    private void invalidateAll(Set<?> keys) {
+        for (Object key : keys) {
+            invalidate(key);
+        }
+    }
+    
+    private void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.invalidations++;
+                invalidationCount.addAndGet(segment.entries.size());
+                segment.entries.clear();
+            }
+        }
+    }
+    
+    private void invalidateAll(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+            invalidate(event.getKey());
+        }
+    }
+    
+    private static class Segment<K, V> {
+        
+        private final LinkedHashMap<K, LocalEntry<V>> entries;
+        private final AtomicLong expirationCount;
+        // Incremented on every invalidation, so values fetched before an invalidation are not installed
+        private long invalidations;
+        
+        @SuppressWarnings("serial")
+        private Segment(final int maxSize, final AtomicLong evictionCount, AtomicLong expirationCount) {
+            // Access ordered, so the eldest entry is the least recently used one
+            this.entries = new LinkedHashMap<K, LocalEntry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, LocalEntry<V>> eldest) {
+                    if (size() > maxSize) {
+                        evictionCount.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+            this.expirationCount = expirationCount;
+        }
+        
+        private synchronized V get(Object key, long now) {
+            LocalEntry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (LocalExpiry.isExpired(entry.expirationTime, now)) {
+                entries.remove(key);
+                expirationCount.incrementAndGet();
+                return null;
+            }
+            return entry.value;
+        }
+        
+        private synchronized void install(K key, V value, long expirationTime, long expectedInvalidations) {
+            if (invalidations == expectedInvalidations && expirationTime != 0) {
+                entries.put(key, new LocalEntry<V>(value, expirationTime));
+            }
+        }
+        
+    }
+    
+    private static class LocalEntry<V> {
+        
+        private final V value;
+        private final long expirationTime;
+        
+        private LocalEntry(V value, long expirationTime) {
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class InvalidationListenerFactory<K, V> 
+            implements Factory<CacheEntryListener<? super K, ? super V>> {
+        
+        private final String nearCacheId;
+        
+        private InvalidationListenerFactory(String nearCacheId) {
+            this.nearCacheId = nearCacheId;
+        }
+        
+        @Override
+        public CacheEntryListener<? super K, ? super V> create() {
+            return new InvalidationListener<K, V>(nearCacheId);
+        }
+        
+    }
+    
+    private static class InvalidationListener<K, V> 
+            implements  CacheEntryUpdatedListener<K, V>,
+                        CacheEntryRemovedListener<K, V>,
+                        CacheEntryExpiredListener<K, V> {
+        
+        private final String nearCacheId;
+        
+        private InvalidationListener(String nearCacheId) {
+            this.nearCacheId = nearCacheId;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private void invalidate(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+            NearCache<K, V> nearCache = (NearCache<K, V>) NEAR_CACHES.get(nearCacheId);
+            // Near cache may be on another member, or it may be closed
+            if (nearCache != null) {
+                nearCache.invalidateAll(events);
+            }
+        }
+    
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            invalidate(events);
+        }
+    
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            invalidate(events);
+        }
+    
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            invalidate(events);
+        }
+        
+    }
+
+}
@@ -0,0 +1,366 @@
+package ua.com.jday2015.demo.jcache.offheap;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+
+/**
+ * Key-value store which keeps both entries and its hash index in direct memory, 
+ * so it has no on-heap object per entry.
+ * 
+ * Entries are encoded by the given key and value {@link Codec}s into records 
+ * allocated from a {@link SlabAllocator}. Record layout is: 
+ * <pre>
+ *      | hash (4 bytes) | key length (4 bytes) | value length (4 bytes) | key bytes | value bytes |
+ * </pre>
+ * Hash index is an open addressing (linear probing) table of record addresses. 
+ * Store is split into segments, each of them has its own lock, allocator and index.
+ * 
+ * @author Serkan OZAL
+ */
+public class OffHeapStore<K, V> {
+
+    public static final int DEFAULT_SEGMENT_COUNT = 16;
+    public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    
+    private static final int RECORD_HEADER_SIZE = 12;
+    private static final long TOMBSTONE = 1L;
+    private static final float LOAD_FACTOR = 0.75f;
+    
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final Segment[] segments;
+    private final int segmentShift;
+    
+    public OffHeapStore(Codec<K> keyCodec, Codec<V> valueCodec) {
+        this(keyCodec, valueCodec, DEFAULT_SEGMENT_COUNT, DEFAULT_SLAB_SIZE, DEFAULT_INITIAL_CAPACITY);
+    }
+    
+    public OffHeapStore(Codec<K> keyCodec, Codec<V> valueCodec, 
+                        int segmentCount, int slabSize, int initialCapacity) {
+        if (keyCodec == null || valueCodec == null) {
+            throw new NullPointerException("Key and value codecs cannot be null!");
+        }
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Segment count must be a power of two!");
+        }
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        @SuppressWarnings("unchecked")
+        Segment[] segments = (Segment[]) new OffHeapStore<?, ?>.Segment[segmentCount];
+        this.segments = segments;
+        // Segment is selected by the highest bits of hash, slot by the lowest bits
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        int segmentCapacity = Math.max(16, Integer.highestOneBit(Math.max(1, initialCapacity / segmentCount)) << 1);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(slabSize, segmentCapacity);
+        }
+    }
+    
+    private static int hashOf(Object key) {
+        // Finalization mix of MurmurHash3, since keys such as integers have poor distribution
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+    
+    private Segment segmentOf(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+    
+    public V get(K key) {
+        int hash = hashOf(key);
+        return segmentOf(hash).get(key, hash);
+    }
+    
+    public boolean containsKey(K key) {
+        int hash = hashOf(key);
+        return segmentOf(hash).containsKey(key, hash);
+    }
+    
+    /**
+     * Puts the given entry. 
+     * 
+     * @return <code>true</code> if there was already an entry with the given key, 
+     *         otherwise <code>false</code>
+     */
+    public boolean put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null!");
+        }
+        int hash = hashOf(key);
+        return segmentOf(hash).put(key, value, hash);
+    }
+    
+    /**
+     * Removes the entry with the given key.
+     * 
+     * @return <code>true</code> if there was an entry with the given key, 
+     *         otherwise <code>false</code>
+     */
+    public boolean remove(K key) {
+        int hash = hashOf(key);
+        return segmentOf(hash).remove(key, hash);
+    }
+    
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the number of bytes allocated from direct memory for entries.
+     */
+    public long getAllocatedBytes() {
+        long allocatedBytes = 0;
+        for (Segment segment : segments) {
+            allocatedBytes += segment.allocatedBytes();
+        }
+        return allocatedBytes;
+    }
+    
+    /**
+     * Gets the number of bytes used by entries in the allocated direct memory.
+     */
+    public long getUsedBytes() {
+        long usedBytes = 0;
+        for (Segment segment : segments) {
+            usedBytes += segment.usedBytes();
+        }
+        return usedBytes;
+    }
+    
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+    
+    /**
+     * Releases all the direct memory. Store can still be used after it is closed.
+     */
+    public void close() {
+        clear();
+    }
+    
+    private final class Segment {
+        
+        private final SlabAllocator allocator;
+        private final int initialCapacity;
+        private ByteBuffer index;
+        private int capacity;
+        private int size;
+        private int tombstones;
+        // Keys and values are encoded here first, since their sizes are not known before
+        private ByteBuffer scratch = ByteBuffer.allocate(256);
+        // Slot of the first empty or tombstone slot seen by the last "find" 
+        private int insertSlot;
+        
+        private Segment(int slabSize, int initialCapacity) {
+            this.allocator = new SlabAllocator(slabSize);
+            this.initialCapacity = initialCapacity;
+            this.index = ByteBuffer.allocateDirect(initialCapacity * 8);
+            this.capacity = initialCapacity;
+        }
+        
+        private synchronized int size() {
+            return size;
+        }
+        
+        private synchronized long allocatedBytes() {
+            return allocator.getAllocatedBytes() + index.capacity();
+        }
+        
+        private synchronized long usedBytes() {
+            return allocator.getUsedBytes();
+        }
+        
+        private synchronized V get(K key, int hash) {
+            int keyLength = encodeKey(key);
+            int slot = find(hash, keyLength);
+            if (slot < 0) {
+                return null;
+            }
+            long address = index.getLong(slot << 3);
+            ByteBuffer slab = allocator.slabOf(address);
+            int offset = SlabAllocator.offsetOf(address);
+            int valueOffset = offset + RECORD_HEADER_SIZE + slab.getInt(offset + 4);
+            slab.limit(valueOffset + slab.getInt(offset + 8)).position(valueOffset);
+            try {
+                return valueCodec.decode(slab);
+            } finally {
+                slab.clear();
+            }
+        }
+        
+        private synchronized boolean containsKey(K key, int hash) {
+            return find(hash, encodeKey(key)) >= 0;
+        }
+        
+        private synchronized boolean put(K key, V value, int hash) {
+            int keyLength = encodeKey(key);
+            int slot = find(hash, keyLength);
+            int valueLength = encodeValue(value, keyLength);
+            int recordSize = RECORD_HEADER_SIZE + keyLength + valueLength;
+            if (slot >= 0) {
+                long address = index.getLong(slot << 3);
+                int oldRecordSize = recordSizeOf(address);
+                if (SlabAllocator.blockSizeOf(oldRecordSize) != SlabAllocator.blockSizeOf(recordSize)) {
+                    // New record doesn't fit into the old block (or wastes it), so move it to a new block
+                    allocator.free(address, oldRecordSize);
+                    address = allocator.allocate(recordSize);
+                    index.putLong(slot << 3, address);
+                }
+                writeRecord(address, hash, keyLength, valueLength);
+                return true;
+            } else {
+                long address = allocator.allocate(recordSize);
+                writeRecord(address, hash, keyLength, valueLength);
+                if (index.getLong(insertSlot << 3) == TOMBSTONE) {
+                    tombstones--;
+                }
+                index.putLong(insertSlot << 3, address);
+                size++;
+                if (size + tombstones > capacity * LOAD_FACTOR) {
+                    rehash(size > capacity * LOAD_FACTOR / 2 ? capacity << 1 : capacity);
+                }
+                return false;
+            }
+        }
+        
+        private synchronized boolean remove(K key, int hash) {
+            int slot = find(hash, encodeKey(key));
+            if (slot < 0) {
+                return false;
+            }
+            long address = index.getLong(slot << 3);
+            allocator.free(address, recordSizeOf(address));
+            index.putLong(slot << 3, TOMBSTONE);
+            size--;
+            tombstones++;
+            return true;
+        }
+        
+        private synchronized void clear() {
+            allocator.release();
+            index = ByteBuffer.allocateDirect(initialCapacity * 8);
+            capacity = initialCapacity;
+            size = 0;
+            tombstones = 0;
+        }
+        
+        private int encodeKey(K key) {
+            while (true) {
+                scratch.clear();
+                try {
+                    keyCodec.encode(key, scratch);
+                    return scratch.position();
+                } catch (BufferOverflowException e) {
+                    scratch = ByteBuffer.allocate(scratch.capacity() << 1);
+                }
+            }
+        }
+        
+        private int encodeValue(V value, int keyLength) {
+            while (true) {
+                scratch.position(keyLength);
+                try {
+                    valueCodec.encode(value, scratch);
+                    return scratch.position() - keyLength;
+                } catch (BufferOverflowException e) {
+                    // Keep the already encoded key
+                    ByteBuffer newScratch = ByteBuffer.allocate(scratch.capacity() << 1);
+                    scratch.limit(keyLength).position(0);
+                    newScratch.put(scratch);
+                    scratch = newScratch;
+                }
+            }
+        }
+        
+        private int recordSizeOf(long address) {
+            ByteBuffer slab = allocator.slabOf(address);
+            int offset = SlabAllocator.offsetOf(address);
+            return RECORD_HEADER_SIZE + slab.getInt(offset + 4) + slab.getInt(offset + 8);
+        }
+        
+        private void writeRecord(long address, int hash, int keyLength, int valueLength) {
+            ByteBuffer slab = allocator.slabOf(address);
+            int offset = SlabAllocator.offsetOf(address);
+            slab.putInt(offset, hash);
+            slab.putInt(offset + 4, keyLength);
+            slab.putInt(offset + 8, valueLength);
+            scratch.limit(keyLength + valueLength).position(0);
+            slab.position(offset + RECORD_HEADER_SIZE);
+            slab.put(scratch);
+            slab.clear();
+        }
+        
+        /**
+         * Finds the slot of the key encoded in the scratch buffer. 
+         * If not found, returns <code>-1</code> and sets "insertSlot" to the slot where key should be inserted.
+         */
+        private int find(int hash, int keyLength) {
+            int mask = capacity - 1;
+            int slot = hash & mask;
+            int firstTombstone = -1;
+            while (true) {
+                long address = index.getLong(slot << 3);
+                if (address == SlabAllocator.NULL_ADDRESS) {
+                    insertSlot = firstTombstone >= 0 ? firstTombstone : slot;
+                    return -1;
+                } else if (address == TOMBSTONE) {
+                    if (firstTombstone < 0) {
+                        firstTombstone = slot;
+                    }
+                } else if (matches(address, hash, keyLength)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        
+        private boolean matches(long address, int hash, int keyLength) {
+            ByteBuffer slab = allocator.slabOf(address);
+            int offset = SlabAllocator.offsetOf(address);
+            if (slab.getInt(offset) != hash || slab.getInt(offset + 4) != keyLength) {
+                return false;
+            }
+            int keyOffset = offset + RECORD_HEADER_SIZE;
+            for (int i = 0; i < keyLength; i++) {
+                if (slab.get(keyOffset + i) != scratch.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private void rehash(int newCapacity) {
+            ByteBuffer newIndex = ByteBuffer.allocateDirect(newCapacity * 8);
+            int mask = newCapacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                long address = index.getLong(i << 3);
+                if (address != SlabAllocator.NULL_ADDRESS && address != TOMBSTONE) {
+                    int slot = allocator.slabOf(address).getInt(SlabAllocator.offsetOf(address)) & mask;
+                    while (newIndex.getLong(slot << 3) != SlabAllocator.NULL_ADDRESS) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newIndex.putLong(slot << 3, address);
+                }
+            }
+            index = newIndex;
+            capacity = newCapacity;
+            tombstones = 0;
+        }
+        
+    }
+
+}
@@ -0,0 +1,142 @@
+package ua.com.jday2015.demo.jcache.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates memory blocks from direct {@link ByteBuffer} slabs. 
+ * 
+ * Block sizes are rounded up to powers of two (at least {@link #MIN_BLOCK_SIZE} bytes). 
+ * Freed blocks are kept in a free list per block size to be reused, 
+ * where the address of the next free block is stored in the freed block itself. 
+ * So the allocator has no on-heap cost per block.
+ * 
+ * Addresses are encoded as <code>slab index &lt;&lt; 32 | offset in slab</code>. 
+ * {@link #NULL_ADDRESS} is never returned as a valid address.
+ * 
+ * Note that it is not thread-safe, callers must synchronize accesses.
+ * 
+ * @author Serkan OZAL
+ */
+public class SlabAllocator {
+
+    public static final long NULL_ADDRESS = 0L;
+    public static final int MIN_BLOCK_SIZE = 16;
+    
+    private static final int MIN_BLOCK_SIZE_SHIFT = 4;
+    
+    private final int slabSize;
+    private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+    private final long[] freeListHeads;
+    private int position;
+    private long usedBytes;
+    
+    public SlabAllocator(int slabSize) {
+        if (slabSize < MIN_BLOCK_SIZE || Integer.bitCount(slabSize) != 1) {
+            throw new IllegalArgumentException("Slab size must be a power of two and at least " + MIN_BLOCK_SIZE);
+        }
+        this.slabSize = slabSize;
+        this.freeListHeads = new long[sizeClassOf(slabSize) + 1];
+        // Start with a full slab, so the first allocation creates one
+        this.position = slabSize;
+    }
+    
+    public static int blockSizeOf(int size) {
+        if (size <= MIN_BLOCK_SIZE) {
+            return MIN_BLOCK_SIZE;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+    
+    private static int sizeClassOf(int blockSize) {
+        return Integer.numberOfTrailingZeros(blockSize) - MIN_BLOCK_SIZE_SHIFT;
+    }
+    
+    public static int offsetOf(long address) {
+        return (int) address;
+    }
+    
+    public ByteBuffer slabOf(long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+    
+    public int getSlabSize() {
+        return slabSize;
+    }
+    
+    public long getAllocatedBytes() {
+        return (long) slabs.size() * slabSize;
+    }
+    
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    /**
+     * Allocates a block which can hold at least given number of bytes.
+     */
+    public long allocate(int size) {
+        int blockSize = blockSizeOf(size);
+        if (blockSize > slabSize) {
+            throw new IllegalArgumentException("Cannot allocate " + size + " bytes, slab size is " + slabSize);
+        }
+        int sizeClass = sizeClassOf(blockSize);
+        long address = freeListHeads[sizeClass];
+        if (address != NULL_ADDRESS) {
+            freeListHeads[sizeClass] = slabOf(address).getLong(offsetOf(address));
+        } else {
+            if (position + blockSize > slabSize) {
+                newSlab();
+            }
+            address = ((long) (slabs.size() - 1) << 32) | position;
+            position += blockSize;
+        }
+        usedBytes += blockSize;
+        return address;
+    }
+    
+    /**
+     * Frees the block at the given address which has been allocated for the given number of bytes.
+     */
+    public void free(long address, int size) {
+        int blockSize = blockSizeOf(size);
+        pushFree(address, blockSize);
+        usedBytes -= blockSize;
+    }
+    
+    private void pushFree(long address, int blockSize) {
+        int sizeClass = sizeClassOf(blockSize);
+        slabOf(address).putLong(offsetOf(address), freeListHeads[sizeClass]);
+        freeListHeads[sizeClass] = address;
+    }
+    
+    private void newSlab() {
+        if (!slabs.isEmpty()) {
+            // Give the tail of the current slab to free lists instead of wasting it
+            long slabAddress = (long) (slabs.size() - 1) << 32;
+            while (slabSize - position >= MIN_BLOCK_SIZE) {
+                int blockSize = Integer.highestOneBit(slabSize - position);
+                pushFree(slabAddress | position, blockSize);
+                position += blockSize;
+            }
+        }
+        slabs.add(ByteBuffer.allocateDirect(slabSize));
+        // Reserve the beginning of the first slab, so "NULL_ADDRESS" is never allocated
+        position = slabs.size() == 1 ? MIN_BLOCK_SIZE : 0;
+    }
+    
+    /**
+     * Releases all the slabs. 
+     * Memory is given back to the OS when slabs are garbage collected.
+     */
+    public void release() {
+        slabs.clear();
+        for (int i = 0; i < freeListHeads.length; i++) {
+            freeListHeads[i] = NULL_ADDRESS;
+        }
+        position = slabSize;
+        usedBytes = 0;
+    }
+
+}
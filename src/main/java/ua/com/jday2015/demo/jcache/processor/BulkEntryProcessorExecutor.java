@@ -0,0 +1,216 @@
+package ua.com.jday2015.demo.jcache.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.cache.Cache;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import com.hazelcast.cache.HazelcastCacheManager;
+import com.hazelcast.core.PartitionService;
+
+/**
+ * Executes an {@link EntryProcessor} on many keys through {@link Cache#invokeAll(Set, EntryProcessor, Object...)}. 
+ * 
+ * Keys are grouped by their owner partitions into batches of at most "maxBatchSize" keys 
+ * and at most "parallelism" batches are executed in parallel on the given {@link ExecutorService}. 
+ * Results are handed to the given {@link ResultHandler} on the caller thread as the batches complete, 
+ * so they don't need to be collected in memory. 
+ * If the result handler throws or the caller is interrupted, the batches in flight are cancelled.
+ * 
+ * Hazelcast executes the keys of a partition on the partition thread of its owner member, 
+ * so grouping keys by partition lets batches on different partitions run in parallel 
+ * without contending on the same partition thread. 
+ * For other JCache implementations keys are grouped by their hashes.
+ * 
+ * @author Serkan OZAL
+ */
+public class BulkEntryProcessorExecutor<K, V> {
+
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    
+    private final Cache<K, V> cache;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int maxBatchSize;
+    private final PartitionService partitionService;
+    
+    public BulkEntryProcessorExecutor(Cache<K, V> cache, ExecutorService executor) {
+        this(cache, executor, DEFAULT_PARALLELISM, DEFAULT_MAX_BATCH_SIZE);
+    }
+    
+    public BulkEntryProcessorExecutor(Cache<K, V> cache, ExecutorService executor, 
+                                      int parallelism, int maxBatchSize) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        if (executor == null) {
+            throw new NullPointerException("Executor cannot be null!");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive!");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive!");
+        }
+        this.cache = cache;
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.maxBatchSize = maxBatchSize;
+        if (cache.getCacheManager() instanceof HazelcastCacheManager) {
+            this.partitionService = 
+                    ((HazelcastCacheManager) cache.getCacheManager()).getHazelcastInstance().getPartitionService();
+        } else {
+            this.partitionService = null;
+        }
+    }
+    
+    /**
+     * Handles results of the entry processor. 
+     * It is always called on the thread which has called 
+     * {@link BulkEntryProcessorExecutor#invokeAll(Iterable, EntryProcessor, ResultHandler, Object...)}.
+     */
+    public interface ResultHandler<K, T> {
+        
+        void onResult(K key, EntryProcessorResult<T> result);
+        
+    }
+    
+    /**
+     * Invokes the given entry processor on the given keys and blocks until all of them are processed. 
+     * Keys whose entry processor has returned <code>null</code> are not handed to the result handler.
+     */
+    public <T> void invokeAll(Iterable<? extends K> keys, final EntryProcessor<K, V, T> entryProcessor, 
+                              ResultHandler<? super K, T> resultHandler, final Object... arguments) 
+            throws InterruptedException {
+        List<Set<K>> batches = createBatches(keys);
+        
+        CompletionService<BatchResult<K, T>> completionService = 
+                new ExecutorCompletionService<BatchResult<K, T>>(executor);
+        List<Future<BatchResult<K, T>>> inFlightBatches = new ArrayList<Future<BatchResult<K, T>>>(parallelism);
+        int submitted = 0;
+        try {
+            while (submitted < batches.size() || !inFlightBatches.isEmpty()) {
+                // Keep at most "parallelism" batches in flight
+                while (submitted < batches.size() && inFlightBatches.size() < parallelism) {
+                    final Set<K> batch = batches.get(submitted++);
+                    inFlightBatches.add(completionService.submit(new Callable<BatchResult<K, T>>() {
+                        @Override
+                        public BatchResult<K, T> call() {
+                            try {
+                                return new BatchResult<K, T>(batch, cache.invokeAll(batch, entryProcessor, arguments), null);
+                            } catch (RuntimeException e) {
+                                return new BatchResult<K, T>(batch, null, e);
+                            }
+                        }
+                    }));
+                }
+                Future<BatchResult<K, T>> completedBatch = completionService.take();
+                inFlightBatches.remove(completedBatch);
+                BatchResult<K, T> batchResult;
+                try {
+                    batchResult = completedBatch.get();
+                } catch (ExecutionException e) {
+                    // Batch tasks don't throw, so this is not expected
+                    throw new IllegalStateException(e.getCause());
+                }
+                handle(batchResult, resultHandler);
+            }
+        } finally {
+            // If the result handler has failed or the caller has been interrupted, 
+            // don't leave the submitted batches running behind
+            for (Future<BatchResult<K, T>> inFlightBatch : inFlightBatches) {
+                inFlightBatch.cancel(true);
+            }
+        }
+    }
+    
+    private <T> void handle(BatchResult<K, T> batchResult, ResultHandler<? super K, T> resultHandler) {
+        if (batchResult.failure != null) {
+            // Whole batch has failed, so report the failure for each of its keys
+            EntryProcessorResult<T> failedResult = new FailedEntryProcessorResult<T>(batchResult.failure);
+            for (K key : batchResult.keys) {
+                resultHandler.onResult(key, failedResult);
+            }
+        } else {
+            for (Map.Entry<K, EntryProcessorResult<T>> entry : batchResult.results.entrySet()) {
+                resultHandler.onResult(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    private List<Set<K>> createBatches(Iterable<? extends K> keys) {
+        Map<Integer, Set<K>> openBatches = new HashMap<Integer, Set<K>>();
+        List<Set<K>> batches = new ArrayList<Set<K>>();
+        for (K key : keys) {
+            Integer partitionId = partitionIdOf(key);
+            Set<K> batch = openBatches.get(partitionId);
+            if (batch == null) {
+                batch = new LinkedHashSet<K>();
+                openBatches.put(partitionId, batch);
+            }
+            batch.add(key);
+            if (batch.size() >= maxBatchSize) {
+                batches.add(batch);
+                openBatches.remove(partitionId);
+            }
+        }
+        batches.addAll(openBatches.values());
+        return batches;
+    }
+    
+    private int partitionIdOf(K key) {
+        if (partitionService != null) {
+            return partitionService.getPartition(key).getPartitionId();
+        } else {
+            int hash = key.hashCode();
+            return (hash ^ (hash >>> 16)) % (parallelism * 4);
+        }
+    }
+    
+    private static class BatchResult<K, T> {
+        
+        private final Set<K> keys;
+        private final Map<K, EntryProcessorResult<T>> results;
+        private final RuntimeException failure;
+        
+        private BatchResult(Set<K> keys, Map<K, EntryProcessorResult<T>> results, RuntimeException failure) {
+            this.keys = keys;
+            this.results = results;
+            this.failure = failure;
+        }
+        
+    }
+    
+    private static class FailedEntryProcessorResult<T> implements EntryProcessorResult<T> {
+        
+        private final RuntimeException failure;
+        
+        private FailedEntryProcessorResult(RuntimeException failure) {
+            this.failure = failure;
+        }
+    
+        @Override
+        public T get() throws EntryProcessorException {
+            if (failure instanceof EntryProcessorException) {
+                throw (EntryProcessorException) failure;
+            }
+            throw new EntryProcessorException(failure);
+        }
+        
+    }
+
+}
@@ -0,0 +1,16 @@
+package ua.com.jday2015.demo.jcache.query;
+
+/**
+ * Extracts the attribute of an entry to be indexed by {@link ContinuousQueryCache}.
+ * 
+ * It is run locally, so it doesn't need to be serializable. 
+ * Entries whose attribute is <code>null</code> are not indexed. 
+ * Attributes of ordered indexes must be {@link Comparable} to each other.
+ * 
+ * @author Serkan OZAL
+ */
+public interface AttributeExtractor<K, V> {
+
+    Object extract(K key, V value);
+    
+}
@@ -0,0 +1,502 @@
+package ua.com.jday2015.demo.jcache.query;
+
+import java.io.Closeable;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+
+import ua.com.jday2015.demo.jcache.query.ContinuousQueryConfig.IndexConfig;
+import ua.com.jday2015.demo.jcache.scan.CacheScanner;
+import ua.com.jday2015.demo.jcache.scan.ScanPredicate;
+
+/**
+ * Locally materialized view of the entries of a {@link Cache} which satisfy a {@link ScanPredicate}.
+ * 
+ * Matching entries are loaded once by a {@link CacheScanner}, so the predicate is run on the members 
+ * and only the matching entries are transferred. Then the view is kept up to date by the events of the cache, 
+ * which are filtered by the same predicate (on the new or the old value of the entry). 
+ * The listener is registered before loading, and loaded values are not installed for the keys 
+ * which have already been changed by the events meanwhile, so the view doesn't miss or go back on any change.
+ * 
+ * Reads, iterations and index lookups are served from local memory without any remote call. 
+ * Like the cache iterator, they are weakly consistent: changes are seen as theirs events arrive. 
+ * Index lookups re-check the attribute of the current value, so they never return a stale match.
+ * 
+ * Note that {@link Cache#clear()} doesn't publish any event, so it is not seen by the view.
+ * 
+ * @author Serkan OZAL
+ */
+public class ContinuousQueryCache<K, V> implements Iterable<Cache.Entry<K, V>>, Closeable {
+
+    private static final ConcurrentMap<String, ContinuousQueryCache<?, ?>> QUERY_CACHES =
+            new ConcurrentHashMap<String, ContinuousQueryCache<?, ?>>();
+    
+    private final Cache<K, V> cache;
+    private final ScanPredicate<? super K, ? super V> predicate;
+    private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<K, V>();
+    private final Map<String, LocalIndex<K, V>> indexes = new LinkedHashMap<String, LocalIndex<K, V>>();
+    private final String id = UUID.randomUUID().toString();
+    private final CacheEntryListenerConfiguration<K, V> listenerConfig;
+    // Guards all the changes on entries and indexes, so they are always consistent with each other
+    private final Object mutex = new Object();
+    // Keys changed by events while loading. It is null when not loading.
+    private Set<K> changedKeysWhileLoading;
+    private final AtomicLong loadedCount = new AtomicLong();
+    private final AtomicLong eventCount = new AtomicLong();
+    private volatile boolean closed;
+    
+    public ContinuousQueryCache(Cache<K, V> cache, ScanPredicate<? super K, ? super V> predicate) {
+        this(cache, new ContinuousQueryConfig<K, V>(predicate));
+    }
+    
+    public ContinuousQueryCache(Cache<K, V> cache, ContinuousQueryConfig<K, V> config) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        if (config == null) {
+            throw new NullPointerException("Continuous query config cannot be null!");
+        }
+        this.cache = cache;
+        this.predicate = config.getPredicate();
+        for (Map.Entry<String, IndexConfig<K, V>> entry : config.getIndexConfigs().entrySet()) {
+            indexes.put(entry.getKey(), new LocalIndex<K, V>(entry.getValue()));
+        }
+    
+        QUERY_CACHES.put(id, this);
+        this.listenerConfig =
+                new MutableCacheEntryListenerConfiguration<K, V>(
+                        new QueryListenerFactory<K, V>(id),
+                        FactoryBuilder.factoryOf(new QueryEventFilter<K, V>(predicate)),
+                        // Old values are needed to filter updates of the entries which don't match anymore
+                        true,
+                        false);
+        synchronized (mutex) {
+            changedKeysWhileLoading = new HashSet<K>();
+        }
+        try {
+            cache.registerCacheEntryListener(listenerConfig);
+            load();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        } finally {
+            synchronized (mutex) {
+                changedKeysWhileLoading = null;
+            }
+        }
+    }
+    
+    private void load() {
+        new CacheScanner<K, V>(cache).stream(predicate).forEach(new Consumer<Cache.Entry<K, V>>() {
+            @Override
+            public void accept(Cache.Entry<K, V> entry) {
+                synchronized (mutex) {
+                    if (!changedKeysWhileLoading.contains(entry.getKey())) {
+                        update(entry.getKey(), entry.getValue());
+                        loadedCount.incrementAndGet();
+                    }
+                }
+            }
+        });
+    }
+    
+    public Cache<K, V> getCache() {
+        return cache;
+    }
+    
+    public long getLoadedCount() {
+        return loadedCount.get();
+    }
+    
+    public long getEventCount() {
+        return eventCount.get();
+    }
+    
+    public V get(K key) {
+        return entries.get(key);
+    }
+    
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+    
+    public Collection<V> values() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+    
+    @Override
+    public Iterator<Cache.Entry<K, V>> iterator() {
+        final Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        return new Iterator<Cache.Entry<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+    
+            @Override
+            public Cache.Entry<K, V> next() {
+                Map.Entry<K, V> entry = iterator.next();
+                return new SimpleEntry<K, V>(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+    
+    public Stream<Cache.Entry<K, V>> stream() {
+        return entries.entrySet().stream().map(
+                new Function<Map.Entry<K, V>, Cache.Entry<K, V>>() {
+                    @Override
+                    public Cache.Entry<K, V> apply(Map.Entry<K, V> entry) {
+                        return new SimpleEntry<K, V>(entry.getKey(), entry.getValue());
+                    }
+                });
+    }
+    
+    private LocalIndex<K, V> indexOf(String indexName) {
+        LocalIndex<K, V> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("There is no index with name \"" + indexName + "\"!");
+        }
+        return index;
+    }
+    
+    /**
+     * Finds the entries whose attribute of the given index is equal to the given value.
+     */
+    public Map<K, V> find(String indexName, Object attribute) {
+        if (attribute == null) {
+            throw new NullPointerException("Attribute cannot be null!");
+        }
+        LocalIndex<K, V> index = indexOf(indexName);
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        index.collect(index.keysByAttribute.get(attribute), attribute, null, false, null, false, entries, result);
+        return result;
+    }
+    
+    /**
+     * Finds the entries whose attribute of the given ordered index is in the range of <code>[from, to)</code>. 
+     * <code>null</code> means unbounded. Entries are returned in the order of theirs attributes.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Map<K, V> findRange(String indexName, Comparable<?> from, Comparable<?> to) {
+        LocalIndex<K, V> index = indexOf(indexName);
+        if (!index.ordered) {
+            throw new IllegalArgumentException("Index \"" + indexName + "\" is not ordered!");
+        }
+        NavigableMap<Object, Set<K>> keysByAttribute = (NavigableMap<Object, Set<K>>) index.keysByAttribute;
+        NavigableMap<Object, Set<K>> range;
+        if (from != null && to != null) {
+            if (((Comparable) from).compareTo(to) > 0) {
+                throw new IllegalArgumentException("Range start cannot be greater than range end!");
+            }
+            range = keysByAttribute.subMap(from, true, to, false);
+        } else if (from != null) {
+            range = keysByAttribute.tailMap(from, true);
+        } else if (to != null) {
+            range = keysByAttribute.headMap(to, false);
+        } else {
+            range = keysByAttribute;
+        }
+        Map<K, V> result = new LinkedHashMap<K, V>();
+        for (Set<K> keys : range.values()) {
+            index.collect(keys, null, from, true, to, false, entries, result);
+        }
+        return result;
+    }
+    
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!cache.isClosed()) {
+                cache.deregisterCacheEntryListener(listenerConfig);
+            }
+        } finally {
+            QUERY_CACHES.remove(id);
+            synchronized (mutex) {
+                entries.clear();
+                for (LocalIndex<K, V> index : indexes.values()) {
+                    index.keysByAttribute.clear();
+                }
+            }
+        }
+    }
+    
+    // Must be called while holding the mutex
+    private void update(K key, V value) {
+        V oldValue = value != null ? entries.put(key, value) : entries.remove(key);
+        for (LocalIndex<K, V> index : indexes.values()) {
+            index.update(key, oldValue, value);
+        }
+    }
+    
+    private void onEvents(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        synchronized (mutex) {
+            if (closed) {
+                return;
+            }
+            for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+                K key = event.getKey();
+                V value = null;
+                if (event.getEventType() == EventType.CREATED || event.getEventType() == EventType.UPDATED) {
+                    value = event.getValue();
+                    if (value != null && !predicate.test(key, value)) {
+                        // Entry doesn't match anymore
+                        value = null;
+                    }
+                }
+                if (changedKeysWhileLoading != null) {
+                    changedKeysWhileLoading.add(key);
+                }
+                update(key, value);
+                eventCount.incrementAndGet();
+            }
+        }
+    }
+    
+    private static class LocalIndex<K, V> {
+    
+        private final AttributeExtractor<? super K, ? super V> extractor;
+        private final boolean ordered;
+        private final ConcurrentMap<Object, Set<K>> keysByAttribute;
+    
+        private LocalIndex(IndexConfig<K, V> config) {
+            this.extractor = config.extractor;
+            this.ordered = config.ordered;
+            this.keysByAttribute =
+                    ordered
+                        ? new ConcurrentSkipListMap<Object, Set<K>>()
+                        : new ConcurrentHashMap<Object, Set<K>>();
+        }
+    
+        // Must be called while holding the mutex
+        private void update(K key, V oldValue, V newValue) {
+            Object oldAttribute = oldValue != null ? extractor.extract(key, oldValue) : null;
+            Object newAttribute = newValue != null ? extractor.extract(key, newValue) : null;
+            if (oldAttribute != null && oldAttribute.equals(newAttribute)) {
+                return;
+            }
+            if (oldAttribute != null) {
+                Set<K> keys = keysByAttribute.get(oldAttribute);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByAttribute.remove(oldAttribute);
+                    }
+                }
+            }
+            if (newAttribute != null) {
+                Set<K> keys = keysByAttribute.get(newAttribute);
+                if (keys == null) {
+                    keys = Collections.newSetFromMap(new ConcurrentHashMap<K, Boolean>());
+                    keysByAttribute.put(newAttribute, keys);
+                }
+                keys.add(key);
+            }
+        }
+    
+        // Index is read without locking, so matches are re-checked on the current values
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        private void collect(Set<K> keys, Object attribute,
+                             Comparable from, boolean fromInclusive, Comparable to, boolean toInclusive,
+                             Map<K, V> entries, Map<K, V> result) {
+            if (keys == null) {
+                return;
+            }
+            for (K key : keys) {
+                V value = entries.get(key);
+                if (value == null) {
+                    continue;
+                }
+                Object currentAttribute = extractor.extract(key, value);
+                if (currentAttribute == null) {
+                    continue;
+                }
+                if (attribute != null && !attribute.equals(currentAttribute)) {
+                    continue;
+                }
+                if (from != null) {
+                    int c = from.compareTo(currentAttribute);
+                    if (c > 0 || (c == 0 && !fromInclusive)) {
+                        continue;
+                    }
+                }
+                if (to != null) {
+                    int c = to.compareTo(currentAttribute);
+                    if (c < 0 || (c == 0 && !toInclusive)) {
+                        continue;
+                    }
+                }
+                result.put(key, value);
+            }
+        }
+    
+    }
+    
+    private static class SimpleEntry<K, V> implements Cache.Entry<K, V> {
+    
+        private final K key;
+        private final V value;
+    
+        private SimpleEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    
+        @Override
+        public K getKey() {
+            return key;
+        }
+    
+        @Override
+        public V getValue() {
+            return value;
+        }
+    
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Entry cannot be unwrapped to " + clazz.getName() + "!");
+        }
+    
+    }
+    
+    /**
+     * Accepts the events of the entries which match the predicate by theirs new or old values, 
+     * so entries which stop matching are removed from the view too.
+     */
+    @SuppressWarnings("serial")
+    private static class QueryEventFilter<K, V> implements CacheEntryEventFilter<K, V>, Serializable {
+    
+        private final ScanPredicate<? super K, ? super V> predicate;
+    
+        private QueryEventFilter(ScanPredicate<? super K, ? super V> predicate) {
+            this.predicate = predicate;
+        }
+    
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends K, ? extends V> event)
+                throws CacheEntryListenerException {
+            switch (event.getEventType()) {
+                case CREATED:
+                    return predicate.test(event.getKey(), event.getValue());
+                case UPDATED:
+                    V oldValue = event.getOldValue();
+                    return predicate.test(event.getKey(), event.getValue())
+                            // If old value is not known, entry may be in the view
+                            || oldValue == null
+                            || predicate.test(event.getKey(), oldValue);
+                default:
+                    // Removing a key which is not in the view is cheap
+                    return true;
+            }
+        }
+    
+    }
+    
+    @SuppressWarnings("serial")
+    private static class QueryListenerFactory<K, V>
+            implements Factory<CacheEntryListener<? super K, ? super V>> {
+    
+        private final String queryCacheId;
+    
+        private QueryListenerFactory(String queryCacheId) {
+            this.queryCacheId = queryCacheId;
+        }
+    
+        @Override
+        public CacheEntryListener<? super K, ? super V> create() {
+            return new QueryListener<K, V>(queryCacheId);
+        }
+    
+    }
+    
+    private static class QueryListener<K, V>
+            implements  CacheEntryCreatedListener<K, V>,
+                        CacheEntryUpdatedListener<K, V>,
+                        CacheEntryRemovedListener<K, V>,
+                        CacheEntryExpiredListener<K, V> {
+    
+        private final String queryCacheId;
+    
+        private QueryListener(String queryCacheId) {
+            this.queryCacheId = queryCacheId;
+        }
+    
+        @SuppressWarnings("unchecked")
+        private void apply(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+            ContinuousQueryCache<K, V> queryCache = (ContinuousQueryCache<K, V>) QUERY_CACHES.get(queryCacheId);
+            // Query cache may be on another member, or it may be closed
+            if (queryCache != null) {
+                queryCache.onEvents(events);
+            }
+        }
+    
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            apply(events);
+        }
+    
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            apply(events);
+        }
+    
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            apply(events);
+        }
+    
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            apply(events);
+        }
+    
+    }
+
+}
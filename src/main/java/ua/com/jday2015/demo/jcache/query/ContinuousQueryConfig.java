@@ -0,0 +1,68 @@
+package ua.com.jday2015.demo.jcache.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ua.com.jday2015.demo.jcache.scan.ScanPredicate;
+
+/**
+ * Configuration of {@link ContinuousQueryCache}.
+ * 
+ * Its predicate selects the entries to be kept locally 
+ * and its indexes are maintained locally on the selected entries.
+ * 
+ * @author Serkan OZAL
+ */
+public class ContinuousQueryConfig<K, V> {
+
+    private final ScanPredicate<? super K, ? super V> predicate;
+    private final Map<String, IndexConfig<K, V>> indexConfigs = new LinkedHashMap<String, IndexConfig<K, V>>();
+    
+    public ContinuousQueryConfig(ScanPredicate<? super K, ? super V> predicate) {
+        if (predicate == null) {
+            throw new NullPointerException("Predicate cannot be null!");
+        }
+        this.predicate = predicate;
+    }
+    
+    public ScanPredicate<? super K, ? super V> getPredicate() {
+        return predicate;
+    }
+    
+    /**
+     * Adds an index on the attribute extracted by the given {@link AttributeExtractor}. 
+     * Ordered indexes also support range lookups.
+     */
+    public ContinuousQueryConfig<K, V> addIndex(String name, AttributeExtractor<? super K, ? super V> extractor, 
+                                                boolean ordered) {
+        if (name == null) {
+            throw new NullPointerException("Index name cannot be null!");
+        }
+        if (extractor == null) {
+            throw new NullPointerException("Attribute extractor cannot be null!");
+        }
+        if (indexConfigs.containsKey(name)) {
+            throw new IllegalArgumentException("There is already an index with name \"" + name + "\"!");
+        }
+        indexConfigs.put(name, new IndexConfig<K, V>(extractor, ordered));
+        return this;
+    }
+    
+    Map<String, IndexConfig<K, V>> getIndexConfigs() {
+        return Collections.unmodifiableMap(indexConfigs);
+    }
+    
+    static class IndexConfig<K, V> {
+        
+        final AttributeExtractor<? super K, ? super V> extractor;
+        final boolean ordered;
+        
+        private IndexConfig(AttributeExtractor<? super K, ? super V> extractor, boolean ordered) {
+            this.extractor = extractor;
+            this.ordered = ordered;
+        }
+        
+    }
+    
+}
@@ -0,0 +1,467 @@
+package ua.com.jday2015.demo.jcache.refresh;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+
+/**
+ * {@link Cache} decorator which reloads entries before they expire (refresh-ahead). 
+ * 
+ * When an entry is read after "refreshAheadFactor" of its expiry duration has elapsed, 
+ * it is reloaded in background through the configured cache loader of the delegated cache 
+ * by {@link Cache#loadAll(Set, boolean, CompletionListener)} while readers keep getting the current value. 
+ * So frequently read entries are always served from the cache without waiting for the cache loader. 
+ * Entries which are not read are not refreshed and expire as usual.
+ * 
+ * Expiry times are tracked by the expiry policy of the delegated cache for the entries created, 
+ * updated and read through this decorator. Entries seen for the first time are considered as just created, 
+ * so an entry created somewhere else may expire before its first refresh.
+ * 
+ * Tracking records are dropped once their entries have expired. Expired records are swept periodically 
+ * and before a new entry is tracked when there are "maxTrackedEntries" records already. 
+ * If there are still that many records, the new entry is not tracked, so it is not refreshed and expires as usual.
+ * 
+ * Reloading an existing entry is an update, so the expiry policy of the delegated cache 
+ * must define an update duration (such as {@link javax.cache.expiry.ModifiedExpiryPolicy}). 
+ * Otherwise a refresh could not extend the lifetime of the entry, so such policies are rejected.
+ * 
+ * Note that reloaded entries are not written back by the cache writer of the delegated cache.
+ * 
+ * @author Serkan OZAL
+ */
+public class RefreshAheadCache<K, V> extends DelegatingCache<K, V> {
+
+    public static final float DEFAULT_REFRESH_AHEAD_FACTOR = 0.75f;
+    public static final int DEFAULT_MAX_TRACKED_ENTRIES = 100000;
+    
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Executor REFRESH_EXECUTOR = 
+            Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCounter = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "refresh-ahead-" + threadCounter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+    
+    private final float refreshAheadFactor;
+    private final int maxTrackedEntries;
+    private final Executor refreshExecutor;
+    private final ExpiryPolicy expiryPolicy;
+    private final ConcurrentMap<K, Expiry> expiries = new ConcurrentHashMap<K, Expiry>();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong failedRefreshCount = new AtomicLong();
+    private final AtomicLong lastSweepTime = new AtomicLong(System.nanoTime());
+    
+    public RefreshAheadCache(Cache<K, V> delegate) {
+        this(delegate, DEFAULT_REFRESH_AHEAD_FACTOR, REFRESH_EXECUTOR);
+    }
+    
+    public RefreshAheadCache(Cache<K, V> delegate, float refreshAheadFactor) {
+        this(delegate, refreshAheadFactor, REFRESH_EXECUTOR);
+    }
+    
+    public RefreshAheadCache(Cache<K, V> delegate, float refreshAheadFactor, Executor refreshExecutor) {
+        this(delegate, refreshAheadFactor, DEFAULT_MAX_TRACKED_ENTRIES, refreshExecutor);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public RefreshAheadCache(Cache<K, V> delegate, float refreshAheadFactor, int maxTrackedEntries, 
+                             Executor refreshExecutor) {
+        super(delegate);
+        if (refreshAheadFactor <= 0.0f || refreshAheadFactor >= 1.0f) {
+            throw new IllegalArgumentException("Refresh ahead factor must be between 0 and 1!");
+        }
+        if (maxTrackedEntries <= 0) {
+            throw new IllegalArgumentException("Max tracked entries must be positive!");
+        }
+        if (refreshExecutor == null) {
+            throw new NullPointerException("Refresh executor cannot be null!");
+        }
+        CompleteConfiguration<K, V> config = delegate.getConfiguration(CompleteConfiguration.class);
+        if (config.getCacheLoaderFactory() == null) {
+            throw new IllegalArgumentException("Cache loader must be configured for refreshing entries!");
+        }
+        ExpiryPolicy expiryPolicy = config.getExpiryPolicyFactory().create();
+        if (expiryPolicy.getExpiryForUpdate() == null) {
+            throw new IllegalArgumentException("Expiry policy must define an update duration for refreshing entries!");
+        }
+        this.refreshAheadFactor = refreshAheadFactor;
+        this.maxTrackedEntries = maxTrackedEntries;
+        this.refreshExecutor = refreshExecutor;
+        this.expiryPolicy = expiryPolicy;
+    }
+    
+    public float getRefreshAheadFactor() {
+        return refreshAheadFactor;
+    }
+    
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+    
+    public long getFailedRefreshCount() {
+        return failedRefreshCount.get();
+    }
+    
+    public int getMaxTrackedEntries() {
+        return maxTrackedEntries;
+    }
+    
+    /**
+     * Gets the count of the entries whose expiry times are tracked.
+     */
+    public int getTrackedEntryCount() {
+        return expiries.size();
+    }
+    
+    private long refreshTimeOf(long now, Duration duration) {
+        if (duration.isEternal()) {
+            return NEVER;
+        }
+        long durationNanos = duration.getTimeUnit().toNanos(duration.getDurationAmount());
+        return now + (long) (durationNanos * (double) refreshAheadFactor);
+    }
+    
+    private static long expirationTimeOf(long now, Duration duration) {
+        if (duration.isEternal()) {
+            return NEVER;
+        }
+        return now + duration.getTimeUnit().toNanos(duration.getDurationAmount());
+    }
+    
+    private void created(K key) {
+        Duration duration = expiryPolicy.getExpiryForCreation();
+        if (duration == null || duration.isZero()) {
+            expiries.remove(key);
+            return;
+        }
+        long now = System.nanoTime();
+        long lastSweep = lastSweepTime.get();
+        if (now - lastSweep >= SWEEP_INTERVAL_NANOS && lastSweepTime.compareAndSet(lastSweep, now)) {
+            sweep(now);
+        }
+        if (expiries.size() >= maxTrackedEntries && !expiries.containsKey(key)) {
+            lastSweepTime.set(now);
+            sweep(now);
+            if (expiries.size() >= maxTrackedEntries) {
+                // Not tracked, so it expires as usual without being refreshed
+                return;
+            }
+        }
+        expiries.put(key, new Expiry(refreshTimeOf(now, duration), expirationTimeOf(now, duration)));
+    }
+    
+    /**
+     * Drops the records of the entries which have expired, 
+     * since they would never be refreshed but be tracked again if they are created again.
+     */
+    private void sweep(long now) {
+        for (Map.Entry<K, Expiry> entry : expiries.entrySet()) {
+            Expiry expiry = entry.getValue();
+            if (now >= expiry.expirationTime) {
+                expiries.remove(entry.getKey(), expiry);
+            }
+        }
+    }
+    
+    private void updated(K key) {
+        Expiry expiry = expiries.get(key);
+        if (expiry == null) {
+            created(key);
+            return;
+        }
+        Duration duration = expiryPolicy.getExpiryForUpdate();
+        // Null duration means that expiry time is not changed
+        if (duration != null) {
+            long now = System.nanoTime();
+            expiry.refreshTime = refreshTimeOf(now, duration);
+            expiry.expirationTime = expirationTimeOf(now, duration);
+        }
+    }
+    
+    private void accessed(K key) {
+        Expiry expiry = expiries.get(key);
+        long now = System.nanoTime();
+        if (expiry == null || now >= expiry.expirationTime) {
+            // Either it is read for the first time or it has been just loaded by read-through after expiry
+            created(key);
+            return;
+        }
+        Duration duration = expiryPolicy.getExpiryForAccess();
+        if (duration != null) {
+            expiry.refreshTime = refreshTimeOf(now, duration);
+            expiry.expirationTime = expirationTimeOf(now, duration);
+        } else if (now >= expiry.refreshTime && expiry.refreshing.compareAndSet(false, true)) {
+            refresh(key, expiry);
+        }
+    }
+    
+    private void removed(Object key) {
+        expiries.remove(key);
+    }
+    
+    private void refresh(final K key, final Expiry expiry) {
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        delegate.loadAll(Collections.singleton(key), true, new RefreshCompletionListener(key, expiry));
+                    } catch (RuntimeException e) {
+                        failedRefreshCount.incrementAndGet();
+                        expiry.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Will be retried at the next read
+            expiry.refreshing.set(false);
+        }
+    }
+    
+    @Override
+    public V get(K key) {
+        V value = delegate.get(key);
+        if (value != null) {
+            accessed(key);
+        } else {
+            removed(key);
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        Map<K, V> result = delegate.getAll(keys);
+        for (K key : keys) {
+            if (result.containsKey(key)) {
+                accessed(key);
+            } else {
+                removed(key);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        delegate.put(key, value);
+        updated(key);
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        V oldValue = delegate.getAndPut(key, value);
+        if (oldValue != null) {
+            updated(key);
+        } else {
+            created(key);
+        }
+        return oldValue;
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        delegate.putAll(map);
+        for (K key : map.keySet()) {
+            updated(key);
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        boolean put = delegate.putIfAbsent(key, value);
+        if (put) {
+            created(key);
+        }
+        return put;
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        boolean replaced = delegate.replace(key, oldValue, newValue);
+        if (replaced) {
+            updated(key);
+        }
+        return replaced;
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        boolean replaced = delegate.replace(key, value);
+        if (replaced) {
+            updated(key);
+        }
+        return replaced;
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        V oldValue = delegate.getAndReplace(key, value);
+        if (oldValue != null) {
+            updated(key);
+        }
+        return oldValue;
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        try {
+            return delegate.remove(key);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        try {
+            return delegate.remove(key, oldValue);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        try {
+            return delegate.getAndRemove(key);
+        } finally {
+            removed(key);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            for (K key : keys) {
+                removed(key);
+            }
+        }
+    }
+    
+    @Override
+    public void removeAll() {
+        try {
+            delegate.removeAll();
+        } finally {
+            expiries.clear();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            expiries.clear();
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) 
+            throws EntryProcessorException {
+        try {
+            return delegate.invoke(key, entryProcessor, arguments);
+        } finally {
+            // Entry processor may have done anything, so entry is tracked again at the next read
+            removed(key);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, 
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        try {
+            return delegate.invokeAll(keys, entryProcessor, arguments);
+        } finally {
+            for (K key : keys) {
+                removed(key);
+            }
+        }
+    }
+    
+    @Override
+    public void close() {
+        expiries.clear();
+        delegate.close();
+    }
+    
+    private static class Expiry {
+        
+        private volatile long refreshTime;
+        private volatile long expirationTime;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        
+        private Expiry(long refreshTime, long expirationTime) {
+            this.refreshTime = refreshTime;
+            this.expirationTime = expirationTime;
+        }
+        
+    }
+    
+    private class RefreshCompletionListener implements CompletionListener {
+        
+        private final K key;
+        private final Expiry expiry;
+        
+        private RefreshCompletionListener(K key, Expiry expiry) {
+            this.key = key;
+            this.expiry = expiry;
+        }
+
+        @Override
+        public void onCompletion() {
+            refreshCount.incrementAndGet();
+            // Loaded entry replaces the existing one, so it is an update
+            Duration duration = expiryPolicy.getExpiryForUpdate();
+            // Null duration means that expiry time is not changed
+            if (duration != null) {
+                if (duration.isZero()) {
+                    expiries.remove(key, expiry);
+                } else {
+                    long now = System.nanoTime();
+                    expiry.refreshTime = refreshTimeOf(now, duration);
+                    expiry.expirationTime = expirationTimeOf(now, duration);
+                }
+            }
+            expiry.refreshing.set(false);
+        }
+
+        @Override
+        public void onException(Exception e) {
+            failedRefreshCount.incrementAndGet();
+            expiry.refreshing.set(false);
+        }
+        
+    }
+    
+}
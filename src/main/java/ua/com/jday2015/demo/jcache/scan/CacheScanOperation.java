@@ -0,0 +1,113 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.hazelcast.cache.impl.CacheKeyIteratorResult;
+import com.hazelcast.cache.impl.ICacheRecordStore;
+import com.hazelcast.cache.impl.ICacheService;
+import com.hazelcast.cache.impl.record.CacheRecord;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.Data;
+import com.hazelcast.spi.AbstractOperation;
+import com.hazelcast.spi.NodeEngine;
+import com.hazelcast.spi.PartitionAwareOperation;
+import com.hazelcast.spi.ReadonlyOperation;
+
+/**
+ * Operation scanning a page of a cache partition on its owner member. 
+ * 
+ * Keys are iterated over the record store of the partition from the given table index 
+ * (<code>Integer.MAX_VALUE</code> for the first page) as Hazelcast's own cache iterator does. 
+ * Expired entries are skipped, and predicate and projection are applied before building the response, 
+ * so filtered out entries are never serialized. 
+ * Since the operation runs on the partition thread, page size should be kept moderate.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class CacheScanOperation extends AbstractOperation 
+        implements PartitionAwareOperation, ReadonlyOperation {
+
+    public static final int FIRST_TABLE_INDEX = Integer.MAX_VALUE;
+    
+    private String cacheNameWithPrefix;
+    private int tableIndex;
+    private int pageSize;
+    private ScanPredicate predicate;
+    private ScanProjection projection;
+    private ScanPage response;
+    
+    public CacheScanOperation() {
+    }
+    
+    public CacheScanOperation(String cacheNameWithPrefix, int tableIndex, int pageSize, 
+                              ScanPredicate predicate, ScanProjection projection) {
+        this.cacheNameWithPrefix = cacheNameWithPrefix;
+        this.tableIndex = tableIndex;
+        this.pageSize = pageSize;
+        this.predicate = predicate;
+        this.projection = projection;
+    }
+    
+    @Override
+    public void run() throws Exception {
+        ICacheService cacheService = getService();
+        ICacheRecordStore recordStore = cacheService.getCacheRecordStore(cacheNameWithPrefix, getPartitionId());
+        if (recordStore == null) {
+            // Nothing has been put into this partition yet
+            response = new ScanPage(Collections.emptyList(), -1, true);
+            return;
+        }
+        CacheKeyIteratorResult keys = recordStore.iterator(tableIndex, pageSize);
+        NodeEngine nodeEngine = getNodeEngine();
+        long now = System.currentTimeMillis();
+        List<Object> results = new ArrayList<Object>(keys.getCount());
+        for (Data keyData : keys.getKeys()) {
+            CacheRecord record = recordStore.getRecord(keyData);
+            if (record == null || record.isExpiredAt(now)) {
+                continue;
+            }
+            Object key = nodeEngine.toObject(keyData);
+            Object value = nodeEngine.toObject(record.getValue());
+            if (predicate != null && !predicate.test(key, value)) {
+                continue;
+            }
+            Object result = projection.project(key, value);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        boolean last = keys.getCount() < pageSize || keys.getTableIndex() < 0;
+        response = new ScanPage(results, keys.getTableIndex(), last);
+    }
+    
+    @Override
+    public Object getResponse() {
+        return response;
+    }
+    
+    @Override
+    protected void writeInternal(ObjectDataOutput out) throws IOException {
+        super.writeInternal(out);
+        out.writeUTF(cacheNameWithPrefix);
+        out.writeInt(tableIndex);
+        out.writeInt(pageSize);
+        out.writeObject(predicate);
+        out.writeObject(projection);
+    }
+    
+    @Override
+    protected void readInternal(ObjectDataInput in) throws IOException {
+        super.readInternal(in);
+        cacheNameWithPrefix = in.readUTF();
+        tableIndex = in.readInt();
+        pageSize = in.readInt();
+        predicate = in.readObject();
+        projection = in.readObject();
+    }
+
+}
@@ -0,0 +1,176 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+import com.hazelcast.cache.ICache;
+import com.hazelcast.cache.impl.AbstractHazelcastCacheManager;
+import com.hazelcast.spi.NodeEngine;
+
+/**
+ * Bulk scan API over a {@link Cache} based on {@link Stream}s. 
+ * 
+ * Entries of an embedded Hazelcast cache are scanned partition by partition 
+ * in pages of "pageSize" keys (with optional prefetch of the next page) 
+ * and the returned streams can be made <code>parallel()</code> to scan disjoint partitions concurrently. 
+ * Given {@link ScanPredicate} and {@link ScanProjection} are run on the members owning the partitions, 
+ * so only the matching and projected results are transferred. 
+ * 
+ * Hazelcast doesn't expose partition level cache iteration publicly, 
+ * so scan operations are invoked through the node engine of the cache proxy taken by {@link NodeEngineAdapter}. 
+ * If it is not available (such as for client or non-Hazelcast caches), 
+ * the cache is scanned sequentially by its own iterator and predicate and projection are run locally. 
+ * Like the cache iterator, scans are weakly consistent: 
+ * entries updated or migrated during the scan may be seen or not. 
+ * 
+ * Streams should be closed when they are not consumed completely, so they stop requesting pages.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheScanner<K, V> {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final boolean DEFAULT_PREFETCH = true;
+    
+    private static final ScanProjection<Object, Object, ScanEntry<Object, Object>> ENTRY_PROJECTION = 
+            new EntryProjection();
+    
+    private final Cache<K, V> cache;
+    private final ICache<K, V> hazelcastCache;
+    private final NodeEngine nodeEngine;
+    private final String cacheNameWithPrefix;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private boolean prefetch = DEFAULT_PREFETCH;
+    
+    @SuppressWarnings("unchecked")
+    public CacheScanner(Cache<K, V> cache) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        this.cache = cache;
+        this.hazelcastCache = unwrapHazelcastCache(cache);
+        this.nodeEngine = NodeEngineAdapter.isSupported(cache) ? NodeEngineAdapter.getNodeEngine(cache) : null;
+        CacheManager cacheManager = cache.getCacheManager();
+        if (nodeEngine != null && cacheManager instanceof AbstractHazelcastCacheManager) {
+            this.cacheNameWithPrefix = 
+                    ((AbstractHazelcastCacheManager) cacheManager).getCacheNameWithPrefix(cache.getName());
+        } else {
+            this.cacheNameWithPrefix = null;
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static ICache unwrapHazelcastCache(Cache<?, ?> cache) {
+        try {
+            return cache.unwrap(ICache.class);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    public Cache<K, V> getCache() {
+        return cache;
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    public CacheScanner<K, V> setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive!");
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+    
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+    
+    public CacheScanner<K, V> setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+    
+    public boolean isPartitionAware() {
+        return nodeEngine != null && cacheNameWithPrefix != null;
+    }
+    
+    public Stream<Cache.Entry<K, V>> stream() {
+        return stream(null);
+    }
+    
+    public Stream<Cache.Entry<K, V>> stream(ScanPredicate<? super K, ? super V> predicate) {
+        return stream(predicate, entryProjection());
+    }
+    
+    public <R> Stream<R> stream(ScanPredicate<? super K, ? super V> predicate, 
+                                ScanProjection<? super K, ? super V, ? extends R> projection) {
+        if (projection == null) {
+            throw new NullPointerException("Projection cannot be null!");
+        }
+        if (isPartitionAware()) {
+            PartitionSpliterator<R> spliterator = this.<R>spliterator(predicate, projection);
+            // Pages requested by the spliterator and its splits are dropped when the stream is closed
+            return StreamSupport.stream(spliterator, false).onClose(spliterator.getCloseHandler());
+        } else {
+            return localStream(predicate, projection);
+        }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private ScanProjection<K, V, Cache.Entry<K, V>> entryProjection() {
+        return (ScanProjection) ENTRY_PROJECTION;
+    }
+    
+    private <R> PartitionSpliterator<R> spliterator(ScanPredicate<? super K, ? super V> predicate, 
+                                           ScanProjection<? super K, ? super V, ? extends R> projection) {
+        return new PartitionSpliterator<R>(nodeEngine.getOperationService(), cacheNameWithPrefix, 
+                                           pageSize, prefetch, predicate, projection, 
+                                           nodeEngine.getPartitionService().getPartitionCount(), 
+                                           hazelcastCache.size());
+    }
+    
+    private <R> Stream<R> localStream(final ScanPredicate<? super K, ? super V> predicate, 
+                                      final ScanProjection<? super K, ? super V, ? extends R> projection) {
+        Stream<Cache.Entry<K, V>> entries = StreamSupport.stream(cache.spliterator(), false);
+        if (predicate != null) {
+            entries = entries.filter(new Predicate<Cache.Entry<K, V>>() {
+                @Override
+                public boolean test(Cache.Entry<K, V> entry) {
+                    return predicate.test(entry.getKey(), entry.getValue());
+                }
+            });
+        }
+        Stream<R> results = entries.map(new Function<Cache.Entry<K, V>, R>() {
+            @Override
+            public R apply(Cache.Entry<K, V> entry) {
+                return projection.project(entry.getKey(), entry.getValue());
+            }
+        });
+        return results.filter(new Predicate<R>() {
+            @Override
+            public boolean test(R result) {
+                return result != null;
+            }
+        });
+    }
+    
+    private static class EntryProjection implements ScanProjection<Object, Object, ScanEntry<Object, Object>> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public ScanEntry<Object, Object> project(Object key, Object value) {
+            return new ScanEntry<Object, Object>(key, value);
+        }
+        
+    }
+    
+}
@@ -0,0 +1,72 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.lang.reflect.Method;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+
+import com.hazelcast.cache.ICache;
+import com.hazelcast.cache.impl.CacheProxy;
+import com.hazelcast.spi.NodeEngine;
+
+/**
+ * Gives access to the {@link NodeEngine} of a member side Hazelcast cache proxy, 
+ * which Hazelcast doesn't expose publicly.
+ * 
+ * Node engine is taken by the protected <code>getNodeEngine</code> method of the cache proxies of Hazelcast 3.5 
+ * through reflection, so this is the only place depending on that. 
+ * Client side proxies and the caches of other providers (such as the embedded provider) don't have a node engine, 
+ * so they are not supported.
+ * 
+ * @author Serkan OZAL
+ */
+final class NodeEngineAdapter {
+
+    private static final String CACHE_PROXY_BASE_CLASS_NAME = "com.hazelcast.cache.impl.AbstractCacheProxyBase";
+    private static final String GET_NODE_ENGINE_METHOD_NAME = "getNodeEngine";
+    
+    private NodeEngineAdapter() {
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static ICache unwrapHazelcastCache(Cache<?, ?> cache) {
+        try {
+            return cache.unwrap(ICache.class);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Checks whether the given cache is a member side Hazelcast cache, which has a node engine.
+     */
+    static boolean isSupported(Cache<?, ?> cache) {
+        return unwrapHazelcastCache(cache) instanceof CacheProxy;
+    }
+    
+    /**
+     * Gets the node engine of the given member side Hazelcast cache.
+     * 
+     * @throws UnsupportedOperationException if the cache is not a member side Hazelcast cache
+     * @throws CacheException if the node engine cannot be accessed by this version of Hazelcast
+     */
+    static NodeEngine getNodeEngine(Cache<?, ?> cache) {
+        Object hazelcastCache = unwrapHazelcastCache(cache);
+        if (!(hazelcastCache instanceof CacheProxy)) {
+            throw new UnsupportedOperationException(
+                    "Cache " + cache.getName() + " (" + cache.getClass().getName() + ") has no node engine, "
+                    + "only the caches of Hazelcast member provider are supported, not the client or other ones!");
+        }
+        try {
+            Method getNodeEngineMethod =
+                    Class.forName(CACHE_PROXY_BASE_CLASS_NAME).getDeclaredMethod(GET_NODE_ENGINE_METHOD_NAME);
+            getNodeEngineMethod.setAccessible(true);
+            return (NodeEngine) getNodeEngineMethod.invoke(hazelcastCache);
+        } catch (Exception e) {
+            throw new CacheException("Unable to access node engine of cache " + cache.getName()
+                                     + " by " + CACHE_PROXY_BASE_CLASS_NAME + "." + GET_NODE_ENGINE_METHOD_NAME
+                                     + "(), this version of Hazelcast may not be supported!", e);
+        }
+    }
+
+}
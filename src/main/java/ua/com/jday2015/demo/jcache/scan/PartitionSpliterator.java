@@ -0,0 +1,183 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import com.hazelcast.cache.impl.ICacheService;
+import com.hazelcast.spi.InternalCompletableFuture;
+import com.hazelcast.spi.OperationService;
+
+/**
+ * {@link Spliterator} over a range of partitions of a Hazelcast cache. 
+ * 
+ * Splitting halves the range of the partitions which have not been requested yet, 
+ * so parallel streams scan disjoint partitions concurrently. 
+ * Partitions are scanned page by page on their owner members by {@link CacheScanOperation}. 
+ * When prefetch is enabled, the next page is requested once half of the current page has been consumed, 
+ * so it is transferred while the rest of the current page is being consumed 
+ * and streams short-circuited at the beginning of a page don't request a page they never use. 
+ * 
+ * Closing the stream (by the close handler) stops the spliterator and its splits requesting pages 
+ * and cancels the pending ones. Hazelcast 3.5 cannot cancel an invocation in flight, 
+ * so the responses of the pending pages are just dropped.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("rawtypes")
+class PartitionSpliterator<R> implements Spliterator<R> {
+
+    private final OperationService operationService;
+    private final String cacheNameWithPrefix;
+    private final int pageSize;
+    private final boolean prefetch;
+    private final ScanPredicate predicate;
+    private final ScanProjection projection;
+    private final int partitionCount;
+    private final long estimatedSize;
+    private final ScanState scanState;
+    private int partitionId;
+    private int toPartitionId;
+    private int tableIndex = CacheScanOperation.FIRST_TABLE_INDEX;
+    private InternalCompletableFuture<ScanPage> pendingPage;
+    private Iterator<Object> results;
+    private int resultsUntilPrefetch;
+    
+    PartitionSpliterator(OperationService operationService, String cacheNameWithPrefix, 
+                         int pageSize, boolean prefetch, ScanPredicate predicate, ScanProjection projection, 
+                         int partitionCount, long estimatedSize) {
+        this.operationService = operationService;
+        this.cacheNameWithPrefix = cacheNameWithPrefix;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+        this.predicate = predicate;
+        this.projection = projection;
+        this.partitionCount = partitionCount;
+        this.estimatedSize = estimatedSize;
+        this.scanState = new ScanState();
+        this.partitionId = 0;
+        this.toPartitionId = partitionCount;
+    }
+    
+    private PartitionSpliterator(PartitionSpliterator<R> parent, int fromPartitionId, int toPartitionId) {
+        this.operationService = parent.operationService;
+        this.cacheNameWithPrefix = parent.cacheNameWithPrefix;
+        this.pageSize = parent.pageSize;
+        this.prefetch = parent.prefetch;
+        this.predicate = parent.predicate;
+        this.projection = parent.projection;
+        this.partitionCount = parent.partitionCount;
+        this.estimatedSize = parent.estimatedSize;
+        this.scanState = parent.scanState;
+        this.partitionId = fromPartitionId;
+        this.toPartitionId = toPartitionId;
+    }
+    
+    /**
+     * Gets the handler which stops this spliterator and its splits when the stream is closed.
+     */
+    Runnable getCloseHandler() {
+        return scanState;
+    }
+    
+    private InternalCompletableFuture<ScanPage> requestPage(int partitionId, int tableIndex) {
+        CacheScanOperation operation = 
+                new CacheScanOperation(cacheNameWithPrefix, tableIndex, pageSize, predicate, projection);
+        return operationService.invokeOnPartition(ICacheService.SERVICE_NAME, operation, partitionId);
+    }
+    
+    private boolean fetchNextPage() {
+        if (partitionId >= toPartitionId || scanState.closed) {
+            return false;
+        }
+        InternalCompletableFuture<ScanPage> future = 
+                pendingPage != null ? pendingPage : requestPage(partitionId, tableIndex);
+        pendingPage = null;
+        scanState.pendingPages.remove(future);
+        ScanPage page = future.getSafely();
+        if (page.isLast()) {
+            partitionId++;
+            tableIndex = CacheScanOperation.FIRST_TABLE_INDEX;
+        } else {
+            tableIndex = page.getTableIndex();
+        }
+        results = page.getResults().iterator();
+        resultsUntilPrefetch = page.getResults().size() / 2;
+        return true;
+    }
+    
+    private void prefetchNextPage() {
+        if (prefetch && pendingPage == null && partitionId < toPartitionId && !scanState.closed) {
+            pendingPage = requestPage(partitionId, tableIndex);
+            scanState.pendingPages.add(pendingPage);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+        while (results == null || !results.hasNext()) {
+            if (!fetchNextPage()) {
+                return false;
+            }
+        }
+        Object result = results.next();
+        if (--resultsUntilPrefetch <= 0) {
+            prefetchNextPage();
+        }
+        action.accept((R) result);
+        return true;
+    }
+
+    @Override
+    public Spliterator<R> trySplit() {
+        // Current partition cannot be given away if any page of it has been requested
+        boolean started = tableIndex != CacheScanOperation.FIRST_TABLE_INDEX || pendingPage != null;
+        int fromPartitionId = started ? partitionId + 1 : partitionId;
+        if (toPartitionId - fromPartitionId < 2) {
+            return null;
+        }
+        int middlePartitionId = (fromPartitionId + toPartitionId) >>> 1;
+        PartitionSpliterator<R> split = new PartitionSpliterator<R>(this, middlePartitionId, toPartitionId);
+        toPartitionId = middlePartitionId;
+        return split;
+    }
+
+    @Override
+    public long estimateSize() {
+        long remainingSize = estimatedSize * (toPartitionId - partitionId) / partitionCount;
+        if (results != null && results.hasNext()) {
+            return Math.max(1, remainingSize);
+        }
+        return remainingSize;
+    }
+
+    @Override
+    public int characteristics() {
+        return NONNULL;
+    }
+    
+    /**
+     * State shared by a spliterator and its splits.
+     */
+    private static final class ScanState implements Runnable {
+        
+        private final Set<InternalCompletableFuture<ScanPage>> pendingPages = 
+                Collections.newSetFromMap(new ConcurrentHashMap<InternalCompletableFuture<ScanPage>, Boolean>());
+        private volatile boolean closed;
+        
+        @Override
+        public void run() {
+            closed = true;
+            for (InternalCompletableFuture<ScanPage> pendingPage : pendingPages) {
+                pendingPage.cancel(true);
+            }
+            pendingPages.clear();
+        }
+        
+    }
+    
+}
@@ -0,0 +1,47 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.io.Serializable;
+
+import javax.cache.Cache;
+
+/**
+ * Immutable {@link Cache.Entry} snapshot returned by scans without projection.
+ * 
+ * @author Serkan OZAL
+ */
+public class ScanEntry<K, V> implements Cache.Entry<K, V>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+    
+    private final K key;
+    private final V value;
+    
+    public ScanEntry(K key, V value) {
+        this.key = key;
+        this.value = value;
+    }
+    
+    @Override
+    public K getKey() {
+        return key;
+    }
+
+    @Override
+    public V getValue() {
+        return value;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+    }
+    
+    @Override
+    public String toString() {
+        return key + "=" + value;
+    }
+
+}
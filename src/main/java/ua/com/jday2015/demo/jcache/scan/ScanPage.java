@@ -0,0 +1,65 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+/**
+ * Page of results scanned from a single partition 
+ * with the position to continue scanning the partition from.
+ * 
+ * @author Serkan OZAL
+ */
+public class ScanPage implements DataSerializable {
+
+    private List<Object> results;
+    private int tableIndex;
+    private boolean last;
+    
+    public ScanPage() {
+    }
+    
+    public ScanPage(List<Object> results, int tableIndex, boolean last) {
+        this.results = results;
+        this.tableIndex = tableIndex;
+        this.last = last;
+    }
+    
+    public List<Object> getResults() {
+        return results;
+    }
+    
+    public int getTableIndex() {
+        return tableIndex;
+    }
+    
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeInt(tableIndex);
+        out.writeBoolean(last);
+        out.writeInt(results.size());
+        for (Object result : results) {
+            out.writeObject(result);
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        tableIndex = in.readInt();
+        last = in.readBoolean();
+        int size = in.readInt();
+        results = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(in.readObject());
+        }
+    }
+    
+}
@@ -0,0 +1,17 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.io.Serializable;
+
+/**
+ * Filter of the entries scanned by {@link CacheScanner}. 
+ * 
+ * It is serialized and run on the member owning the scanned partition, 
+ * so only the matching entries are sent back to the caller.
+ * 
+ * @author Serkan OZAL
+ */
+public interface ScanPredicate<K, V> extends Serializable {
+
+    boolean test(K key, V value);
+    
+}
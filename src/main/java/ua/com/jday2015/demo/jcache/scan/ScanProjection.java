@@ -0,0 +1,18 @@
+package ua.com.jday2015.demo.jcache.scan;
+
+import java.io.Serializable;
+
+/**
+ * Transformation of the entries scanned by {@link CacheScanner}. 
+ * 
+ * It is serialized and run on the member owning the scanned partition, 
+ * so only the projected results (instead of whole entries) are sent back to the caller. 
+ * <code>null</code> results are skipped.
+ * 
+ * @author Serkan OZAL
+ */
+public interface ScanProjection<K, V, R> extends Serializable {
+
+    R project(K key, V value);
+    
+}
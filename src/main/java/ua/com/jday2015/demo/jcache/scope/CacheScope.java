@@ -0,0 +1,290 @@
+package ua.com.jday2015.demo.jcache.scope;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import ua.com.jday2015.demo.jcache.metrics.CacheMetrics;
+import ua.com.jday2015.demo.jcache.metrics.CacheOperation;
+
+/**
+ * Resource accounting of a cache manager URI scope, shared by all the caches created in the scope.
+ * 
+ * Operations are admitted by a {@link Semaphore} of max concurrent operations, 
+ * so a burst of a scope waits (and is then rejected) in the scope itself 
+ * instead of occupying the threads of the cluster shared with the other scopes. 
+ * Memory is reserved before writes by a CAS on the used memory of the scope, 
+ * so writes which would exceed the quota are rejected without any effect. 
+ * Latencies of all the operations are recorded into a single {@link CacheMetrics} of the scope.
+ * 
+ * Scopes are registered by their URIs, so there can be only one scope for a URI on a JVM.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheScope implements CacheScopeMXBean {
+
+    /**
+     * Cache name of the {@link CacheMetrics} which holds latencies of the whole scope.
+     */
+    public static final String METRICS_NAME = "[scope]";
+    
+    private static final ConcurrentMap<String, CacheScope> SCOPES = new ConcurrentHashMap<String, CacheScope>();
+    
+    private final URI uri;
+    private final ScopeQuota quota;
+    private final ObjectName objectName;
+    private final CacheMetrics metrics;
+    private final Semaphore permits;
+    private final long admissionTimeoutNanos;
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final LongAdder admissionRejections = new LongAdder();
+    private final LongAdder memoryRejections = new LongAdder();
+    private final ConcurrentMap<String, ScopedCache<?, ?>> caches = new ConcurrentHashMap<String, ScopedCache<?, ?>>();
+    
+    private CacheScope(URI uri, ScopeQuota quota, ObjectName objectName) {
+        this.uri = uri;
+        this.quota = quota;
+        this.objectName = objectName;
+        this.metrics = CacheMetrics.getOrCreate(uri, METRICS_NAME);
+        this.permits = new Semaphore(quota.getMaxConcurrentOperations());
+        this.admissionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(quota.getAdmissionTimeoutMillis());
+    }
+    
+    private static String sanitize(String value) {
+        // Same as the way JCache implementations name their MBeans
+        return value == null ? "" : value.replaceAll(",|:|=|\n", ".");
+    }
+    
+    /**
+     * Creates the scope of the given URI and registers it to platform MBean server.
+     */
+    static CacheScope create(URI uri, ScopeQuota quota) {
+        if (quota.getMaxMemory() <= 0) {
+            throw new IllegalArgumentException("Max memory must be positive!");
+        }
+        if (quota.getMaxConcurrentOperations() <= 0) {
+            throw new IllegalArgumentException("Max concurrent operations must be positive!");
+        }
+        if (quota.getAdmissionTimeoutMillis() < 0) {
+            throw new IllegalArgumentException("Admission timeout cannot be negative!");
+        }
+        if (quota.getWeigher() == null) {
+            throw new NullPointerException("Weigher cannot be null!");
+        }
+        synchronized (SCOPES) {
+            if (SCOPES.containsKey(uri.toString())) {
+                throw new CacheException("Scope \"" + uri + "\" has already been created!");
+            }
+            CacheScope scope;
+            try {
+                ObjectName objectName = 
+                        new ObjectName("javax.cache:type=CacheScope,CacheManager=" + sanitize(uri.toString()));
+                scope = new CacheScope(uri, quota, objectName);
+                MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+                if (!mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.registerMBean(scope, objectName);
+                }
+            } catch (Exception e) {
+                throw new CacheException("Unable to register MBean of scope " + uri, e);
+            }
+            SCOPES.put(uri.toString(), scope);
+            return scope;
+        }
+    }
+    
+    /**
+     * Gets the scope of the given URI if there is.
+     */
+    public static CacheScope get(URI uri) {
+        return SCOPES.get(uri.toString());
+    }
+    
+    public ScopeQuota getQuota() {
+        return quota;
+    }
+    
+    public CacheMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Waits for admission of an operation. 
+     * Every admitted operation must be completed by {@link #complete(CacheOperation, long)}.
+     */
+    void admit() {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire() || permits.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("Interrupted while waiting for admission to scope \"" + uri + "\"!", e);
+        }
+        if (!admitted) {
+            admissionRejections.increment();
+            throw new ScopeQuotaExceededException("Scope \"" + uri + "\" has too many concurrent operations!");
+        }
+    }
+    
+    void complete(CacheOperation operation, long startNanos) {
+        permits.release();
+        if (operation != null) {
+            metrics.recordLatency(operation, startNanos);
+        }
+    }
+    
+    /**
+     * Reserves the given amount of memory or rejects the write if it would exceed the max memory.
+     */
+    void reserveMemory(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        long maxMemory = quota.getMaxMemory();
+        for (;;) {
+            long used = usedMemory.get();
+            if (used + bytes > maxMemory) {
+                memoryRejections.increment();
+                throw new ScopeQuotaExceededException("Scope \"" + uri + "\" has exceeded its max memory " 
+                                                      + maxMemory + " bytes!");
+            }
+            if (usedMemory.compareAndSet(used, used + bytes)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the scope has any free memory for the writes whose size is not known in advance.
+     */
+    void checkMemory() {
+        if (usedMemory.get() >= quota.getMaxMemory()) {
+            memoryRejections.increment();
+            throw new ScopeQuotaExceededException("Scope \"" + uri + "\" has exceeded its max memory " 
+                                                  + quota.getMaxMemory() + " bytes!");
+        }
+    }
+    
+    void adjustMemory(long delta) {
+        if (delta != 0) {
+            usedMemory.addAndGet(delta);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    <K, V> ScopedCache<K, V> attach(Cache<K, V> cache) {
+        ScopedCache<?, ?> scopedCache = caches.get(cache.getName());
+        if (scopedCache != null && scopedCache.getDelegate() == cache) {
+            return (ScopedCache<K, V>) scopedCache;
+        }
+        synchronized (caches) {
+            scopedCache = caches.get(cache.getName());
+            if (scopedCache == null || scopedCache.getDelegate() != cache) {
+                if (scopedCache != null) {
+                    // Delegated cache has been recreated, so the old one is not accounted anymore
+                    scopedCache.releaseAll();
+                }
+                scopedCache = new ScopedCache<K, V>(cache, this);
+                caches.put(cache.getName(), scopedCache);
+            }
+            return (ScopedCache<K, V>) scopedCache;
+        }
+    }
+    
+    void detach(String cacheName) {
+        ScopedCache<?, ?> scopedCache = caches.remove(cacheName);
+        if (scopedCache != null) {
+            scopedCache.releaseAll();
+        }
+    }
+    
+    void detach(ScopedCache<?, ?> scopedCache) {
+        if (caches.remove(scopedCache.getName(), scopedCache)) {
+            scopedCache.releaseAll();
+        }
+    }
+    
+    ScopedCache<?, ?> getCache(String cacheName) {
+        return caches.get(cacheName);
+    }
+    
+    /**
+     * Releases all the caches of the scope and unregisters it.
+     */
+    void close() {
+        for (String cacheName : caches.keySet()) {
+            detach(cacheName);
+        }
+        SCOPES.remove(uri.toString(), this);
+        CacheMetrics.remove(uri, METRICS_NAME);
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (Exception e) {
+            // Already unregistered
+        }
+    }
+    
+    @Override
+    public String getURI() {
+        return uri.toString();
+    }
+    
+    @Override
+    public long getMaxMemory() {
+        return quota.getMaxMemory();
+    }
+    
+    @Override
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+    
+    @Override
+    public float getUsedMemoryPercentage() {
+        return (float) getUsedMemory() * 100 / getMaxMemory();
+    }
+    
+    @Override
+    public int getMaxConcurrentOperations() {
+        return quota.getMaxConcurrentOperations();
+    }
+    
+    @Override
+    public int getActiveOperationCount() {
+        return quota.getMaxConcurrentOperations() - permits.availablePermits();
+    }
+    
+    @Override
+    public long getAdmissionRejectionCount() {
+        return admissionRejections.sum();
+    }
+    
+    @Override
+    public long getMemoryRejectionCount() {
+        return memoryRejections.sum();
+    }
+    
+    @Override
+    public String[] getCacheNames() {
+        return caches.keySet().toArray(new String[0]);
+    }
+    
+    @Override
+    public String toString() {
+        return "CacheScope{uri=" + uri 
+                + ", usedMemory=" + getUsedMemory() + "/" + getMaxMemory() 
+                + ", activeOperations=" + getActiveOperationCount() 
+                + ", admissionRejections=" + getAdmissionRejectionCount() 
+                + ", memoryRejections=" + getMemoryRejectionCount() + "}";
+    }
+    
+}
@@ -0,0 +1,37 @@
+package ua.com.jday2015.demo.jcache.scope;
+
+/**
+ * Management interface of {@link CacheScope}. It is registered as 
+ * <code>javax.cache:type=CacheScope,CacheManager=&lt;cache manager URI&gt;</code>. 
+ * Latencies and throughput of the scope are exposed by its <code>CacheMetrics</code> bean 
+ * registered with the cache name {@link CacheScope#METRICS_NAME}.
+ * 
+ * @author Serkan OZAL
+ */
+public interface CacheScopeMXBean {
+
+    String getURI();
+    
+    long getMaxMemory();
+    
+    long getUsedMemory();
+    
+    float getUsedMemoryPercentage();
+    
+    int getMaxConcurrentOperations();
+    
+    int getActiveOperationCount();
+    
+    /**
+     * Gets the number of operations rejected since they have not been admitted within the admission timeout.
+     */
+    long getAdmissionRejectionCount();
+    
+    /**
+     * Gets the number of writes rejected since they would exceed the max memory.
+     */
+    long getMemoryRejectionCount();
+    
+    String[] getCacheNames();
+    
+}
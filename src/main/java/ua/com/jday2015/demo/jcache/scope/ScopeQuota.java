@@ -0,0 +1,70 @@
+package ua.com.jday2015.demo.jcache.scope;
+
+import java.util.concurrent.TimeUnit;
+
+import ua.com.jday2015.demo.jcache.eviction.Weigher;
+import ua.com.jday2015.demo.jcache.eviction.Weighers;
+
+/**
+ * Quota of a {@link CacheScope} shared by all the caches created in the scope. 
+ * By default, a scope may hold {@link #DEFAULT_MAX_MEMORY} bytes of entries (as weighed by the configured {@link Weigher}) 
+ * and may execute {@link #DEFAULT_MAX_CONCURRENT_OPERATIONS} operations concurrently.
+ * 
+ * @author Serkan OZAL
+ */
+public class ScopeQuota {
+
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 256;
+    public static final long DEFAULT_ADMISSION_TIMEOUT_MILLIS = 100;
+    
+    private long maxMemory = DEFAULT_MAX_MEMORY;
+    private int maxConcurrentOperations = DEFAULT_MAX_CONCURRENT_OPERATIONS;
+    private long admissionTimeoutMillis = DEFAULT_ADMISSION_TIMEOUT_MILLIS;
+    private Weigher<Object, Object> weigher = Weighers.approximateSize();
+    
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+    
+    /**
+     * Sets the max total weight of the entries written to the caches of the scope. 
+     * Writes which would exceed it are rejected.
+     */
+    public ScopeQuota setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+        return this;
+    }
+    
+    public int getMaxConcurrentOperations() {
+        return maxConcurrentOperations;
+    }
+    
+    /**
+     * Sets the max number of operations executed concurrently on the caches of the scope. 
+     * Further operations wait for admission up to the admission timeout, then they are rejected.
+     */
+    public ScopeQuota setMaxConcurrentOperations(int maxConcurrentOperations) {
+        this.maxConcurrentOperations = maxConcurrentOperations;
+        return this;
+    }
+    
+    public long getAdmissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+    
+    public ScopeQuota setAdmissionTimeout(long admissionTimeout, TimeUnit timeUnit) {
+        this.admissionTimeoutMillis = timeUnit.toMillis(admissionTimeout);
+        return this;
+    }
+    
+    public Weigher<Object, Object> getWeigher() {
+        return weigher;
+    }
+    
+    public ScopeQuota setWeigher(Weigher<Object, Object> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+    
+}
@@ -0,0 +1,18 @@
+package ua.com.jday2015.demo.jcache.scope;
+
+import javax.cache.CacheException;
+
+/**
+ * Thrown when an operation is rejected since its {@link CacheScope} has exceeded its {@link ScopeQuota}. 
+ * Rejected operations have no effect, so they can be retried later.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class ScopeQuotaExceededException extends CacheException {
+
+    public ScopeQuotaExceededException(String message) {
+        super(message);
+    }
+    
+}
@@ -0,0 +1,522 @@
+package ua.com.jday2015.demo.jcache.scope;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.integration.CompletionListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import ua.com.jday2015.demo.jcache.eviction.Weigher;
+import ua.com.jday2015.demo.jcache.metrics.CacheOperation;
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+import ua.com.jday2015.demo.jcache.support.TrackingEntryProcessor;
+import ua.com.jday2015.demo.jcache.support.TrackingEntryProcessor.ProcessedEntry;
+
+/**
+ * {@link Cache} decorator which enforces the {@link ScopeQuota} of its {@link CacheScope}.
+ * 
+ * Every operation is admitted by the scope and its latency is recorded into the metrics of the scope. 
+ * Entries written through this decorator are weighed and theirs weights are reserved from the memory of the scope 
+ * before writing, so a write is rejected before it reaches the delegated cache. 
+ * Weights of removed entries are released, and weights of expired entries are released by an "EXPIRED" listener. 
+ * Entries evicted by the delegated cache itself are released when they are found missing on a read. 
+ * Since the new values of entry processors are not known in advance, 
+ * they are only admitted while the scope has free memory and then theirs weights (calculated where they are executed) 
+ * are accounted. Weights are released only after the operations removing the entries succeed.
+ * 
+ * Note that entries created directly on the delegated cache (or loaded by {@link #loadAll(Set, boolean, CompletionListener)}) 
+ * are not accounted.
+ * 
+ * @author Serkan OZAL
+ */
+public class ScopedCache<K, V> extends DelegatingCache<K, V> {
+
+    private final CacheScope scope;
+    private final Weigher<Object, Object> weigher;
+    // Weights of the accounted entries
+    private final ConcurrentHashMap<Object, Integer> weights = new ConcurrentHashMap<Object, Integer>();
+    private final MutableCacheEntryListenerConfiguration<K, V> expiryListenerConfig;
+    
+    ScopedCache(Cache<K, V> delegate, CacheScope scope) {
+        super(delegate);
+        this.scope = scope;
+        this.weigher = scope.getQuota().getWeigher();
+        this.expiryListenerConfig =
+                new MutableCacheEntryListenerConfiguration<K, V>(
+                        FactoryBuilder.factoryOf(new ExpiryListener<K, V>(scope.getURI(), delegate.getName())),
+                        null, false, false);
+        delegate.registerCacheEntryListener(expiryListenerConfig);
+    }
+    
+    public CacheScope getScope() {
+        return scope;
+    }
+    
+    /**
+     * Gets the total weight of the accounted entries of this cache.
+     */
+    public long getUsedMemory() {
+        long usedMemory = 0;
+        for (Integer weight : weights.values()) {
+            usedMemory += weight;
+        }
+        return usedMemory;
+    }
+    
+    /**
+     * Reserves memory for the new weight of the given key. 
+     * Returns the reserved amount which must be given back by {@link #written(Object, int)}.
+     */
+    private long reserve(Object key, int weight) {
+        Integer oldWeight = weights.get(key);
+        long delta = weight - (oldWeight != null ? oldWeight : 0);
+        if (delta <= 0) {
+            return 0;
+        }
+        scope.reserveMemory(delta);
+        return delta;
+    }
+    
+    /**
+     * Accounts the new weight of the given key and returns the actual change of the used memory.
+     */
+    private long written(Object key, int weight) {
+        Integer oldWeight = weights.put(key, weight);
+        return weight - (oldWeight != null ? oldWeight : 0);
+    }
+    
+    void released(Object key) {
+        Integer oldWeight = weights.remove(key);
+        if (oldWeight != null) {
+            scope.adjustMemory(-oldWeight);
+        }
+    }
+    
+    void releaseAll() {
+        for (Object key : weights.keySet()) {
+            released(key);
+        }
+    }
+    
+    private int weigh(K key, V value) {
+        return weigher.weigh(key, value);
+    }
+    
+    @Override
+    public V get(K key) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            V value = delegate.get(key);
+            if (value != null) {
+                scope.getMetrics().recordHit();
+            } else {
+                scope.getMetrics().recordMiss();
+                released(key);
+            }
+            return value;
+        } finally {
+            scope.complete(CacheOperation.GET, start);
+        }
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            Map<K, V> result = delegate.getAll(keys);
+            scope.getMetrics().recordHits(result.size());
+            scope.getMetrics().recordMisses(keys.size() - result.size());
+            for (K key : keys) {
+                if (!result.containsKey(key)) {
+                    released(key);
+                }
+            }
+            return result;
+        } finally {
+            scope.complete(CacheOperation.GET, start);
+        }
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            return delegate.containsKey(key);
+        } finally {
+            scope.complete(CacheOperation.GET, start);
+        }
+    }
+    
+    @Override
+    public void loadAll(Set<? extends K> keys, boolean replaceExistingValues,
+                        CompletionListener completionListener) {
+        scope.admit();
+        try {
+            delegate.loadAll(keys, replaceExistingValues, completionListener);
+        } finally {
+            scope.complete(null, 0);
+        }
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        int weight = weigh(key, value);
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            reserved = reserve(key, weight);
+            delegate.put(key, value);
+            delta = written(key, weight);
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        int weight = weigh(key, value);
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            reserved = reserve(key, weight);
+            V oldValue = delegate.getAndPut(key, value);
+            delta = written(key, weight);
+            return oldValue;
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        Map<K, Integer> entryWeights = new HashMap<K, Integer>(map.size());
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            entryWeights.put(entry.getKey(), weigh(entry.getKey(), entry.getValue()));
+        }
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            long required = 0;
+            for (Map.Entry<K, Integer> entry : entryWeights.entrySet()) {
+                Integer oldWeight = weights.get(entry.getKey());
+                required += entry.getValue() - (oldWeight != null ? oldWeight : 0);
+            }
+            // Whole batch is admitted or rejected at once
+            if (required > 0) {
+                scope.reserveMemory(required);
+                reserved = required;
+            }
+            delegate.putAll(map);
+            for (Map.Entry<K, Integer> entry : entryWeights.entrySet()) {
+                delta += written(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        int weight = weigh(key, value);
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            reserved = reserve(key, weight);
+            boolean put = delegate.putIfAbsent(key, value);
+            if (put) {
+                delta = written(key, weight);
+            }
+            return put;
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int weight = weigh(key, newValue);
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            reserved = reserve(key, weight);
+            boolean replaced = delegate.replace(key, oldValue, newValue);
+            if (replaced) {
+                delta = written(key, weight);
+            }
+            return replaced;
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        int weight = weigh(key, value);
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            reserved = reserve(key, weight);
+            boolean replaced = delegate.replace(key, value);
+            if (replaced) {
+                delta = written(key, weight);
+            }
+            return replaced;
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        int weight = weigh(key, value);
+        scope.admit();
+        long start = System.nanoTime();
+        long reserved = 0;
+        long delta = 0;
+        try {
+            reserved = reserve(key, weight);
+            V oldValue = delegate.getAndReplace(key, value);
+            if (oldValue != null) {
+                delta = written(key, weight);
+            }
+            return oldValue;
+        } finally {
+            scope.adjustMemory(delta - reserved);
+            scope.complete(CacheOperation.PUT, start);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            boolean removed = delegate.remove(key);
+            released(key);
+            return removed;
+        } finally {
+            scope.complete(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            boolean removed = delegate.remove(key, oldValue);
+            if (removed) {
+                released(key);
+            }
+            return removed;
+        } finally {
+            scope.complete(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            V oldValue = delegate.getAndRemove(key);
+            released(key);
+            return oldValue;
+        } finally {
+            scope.complete(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            delegate.removeAll(keys);
+            for (K key : keys) {
+                released(key);
+            }
+        } finally {
+            scope.complete(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public void removeAll() {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            delegate.removeAll();
+            releaseAll();
+        } finally {
+            scope.complete(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public void clear() {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            delegate.clear();
+            releaseAll();
+        } finally {
+            scope.complete(CacheOperation.REMOVE, start);
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments)
+            throws EntryProcessorException {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            scope.checkMemory();
+            ProcessedEntry<T> processedEntry =
+                    delegate.invoke(key, new TrackingEntryProcessor<K, V, T>(entryProcessor, weigher), arguments);
+            processed(key, processedEntry);
+            return processedEntry.getResult();
+        } finally {
+            scope.complete(CacheOperation.INVOKE, start);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys,
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        scope.admit();
+        long start = System.nanoTime();
+        try {
+            scope.checkMemory();
+            Map<K, EntryProcessorResult<ProcessedEntry<T>>> processedResults =
+                    delegate.invokeAll(keys, new TrackingEntryProcessor<K, V, T>(entryProcessor, weigher), arguments);
+            Map<K, EntryProcessorResult<T>> results = new HashMap<K, EntryProcessorResult<T>>();
+            for (Map.Entry<K, EntryProcessorResult<ProcessedEntry<T>>> entry : processedResults.entrySet()) {
+                K key = entry.getKey();
+                try {
+                    ProcessedEntry<T> processedEntry = entry.getValue().get();
+                    processed(key, processedEntry);
+                    if (processedEntry.getResult() != null) {
+                        results.put(key, new ProcessedResult<T>(processedEntry.getResult(), null));
+                    }
+                } catch (EntryProcessorException e) {
+                    results.put(key, new ProcessedResult<T>(null, e));
+                }
+            }
+            return results;
+        } finally {
+            scope.complete(CacheOperation.INVOKE, start);
+        }
+    }
+    
+    private void processed(K key, ProcessedEntry<?> processedEntry) {
+        if (!processedEntry.isChanged()) {
+            return;
+        }
+        if (processedEntry.isRemoved()) {
+            released(key);
+        } else {
+            // Memory has already been admitted, so the new weight is accounted even if it exceeds the quota
+            scope.adjustMemory(written(key, processedEntry.getWeight()));
+        }
+    }
+    
+    /**
+     * Stops accounting of this cache. 
+     * Entries of the closed cache are kept by the delegated cache, but they are not accounted anymore.
+     */
+    @Override
+    public void close() {
+        scope.detach(this);
+        try {
+            delegate.deregisterCacheEntryListener(expiryListenerConfig);
+        } catch (IllegalStateException e) {
+            // Delegated cache has already been closed
+        }
+        delegate.close();
+    }
+    
+    /**
+     * Releases weights of the expired entries. 
+     * It finds its cache through the scope registry, since listeners are created from serializable factories.
+     */
+    @SuppressWarnings("serial")
+    private static class ExpiryListener<K, V> implements CacheEntryExpiredListener<K, V>, Serializable {
+    
+        private final String scopeUri;
+        private final String cacheName;
+    
+        private ExpiryListener(String scopeUri, String cacheName) {
+            this.scopeUri = scopeUri;
+            this.cacheName = cacheName;
+        }
+    
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            CacheScope scope = CacheScope.get(URI.create(scopeUri));
+            ScopedCache<?, ?> cache = scope != null ? scope.getCache(cacheName) : null;
+            if (cache == null) {
+                return;
+            }
+            for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+                cache.released(event.getKey());
+            }
+        }
+    
+    }
+    
+    private static class ProcessedResult<T> implements EntryProcessorResult<T> {
+    
+        private final T result;
+        private final EntryProcessorException exception;
+    
+        private ProcessedResult(T result, EntryProcessorException exception) {
+            this.result = result;
+            this.exception = exception;
+        }
+    
+        @Override
+        public T get() throws EntryProcessorException {
+            if (exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+    
+    }
+
+}
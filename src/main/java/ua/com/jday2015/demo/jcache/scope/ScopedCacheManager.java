@@ -0,0 +1,66 @@
+package ua.com.jday2015.demo.jcache.scope;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+
+import ua.com.jday2015.demo.jcache.support.DelegatingCacheManager;
+
+/**
+ * {@link CacheManager} decorator which isolates resource usage of its URI scope from the other scopes 
+ * sharing the same cluster. All the caches created or got through it are decorated by {@link ScopedCache}, 
+ * so they share the memory quota, admission control and metrics of the {@link CacheScope} of the URI.
+ * 
+ * @author Serkan OZAL
+ */
+public class ScopedCacheManager extends DelegatingCacheManager {
+
+    private final CacheScope scope;
+    
+    public ScopedCacheManager(CacheManager delegate) {
+        this(delegate, new ScopeQuota());
+    }
+    
+    public ScopedCacheManager(CacheManager delegate, ScopeQuota quota) {
+        super(delegate);
+        if (quota == null) {
+            throw new NullPointerException("Scope quota cannot be null!");
+        }
+        this.scope = CacheScope.create(delegate.getURI(), quota);
+    }
+    
+    public CacheScope getScope() {
+        return scope;
+    }
+    
+    @Override
+    public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName, C configuration) 
+            throws IllegalArgumentException {
+        return scope.attach(delegate.<K, V, C>createCache(cacheName, configuration));
+    }
+    
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName, Class<K> keyType, Class<V> valueType) {
+        Cache<K, V> cache = delegate.getCache(cacheName, keyType, valueType);
+        return cache != null ? scope.attach(cache) : null;
+    }
+    
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName) {
+        Cache<K, V> cache = delegate.getCache(cacheName);
+        return cache != null ? scope.attach(cache) : null;
+    }
+    
+    @Override
+    public void destroyCache(String cacheName) {
+        scope.detach(cacheName);
+        delegate.destroyCache(cacheName);
+    }
+    
+    @Override
+    public void close() {
+        scope.close();
+        delegate.close();
+    }
+    
+}
@@ -0,0 +1,428 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.scan.CacheScanner;
+
+/**
+ * Takes full and delta snapshots of a {@link Cache} into files and restores the cache from them. 
+ * 
+ * Full snapshots are written by scanning the cache with {@link CacheScanner}. 
+ * Changes after that are tracked by a synchronous cache entry listener, 
+ * so delta snapshots contain only the updated and removed entries with the values carried by their events 
+ * and the cache is never read while taking them. 
+ * After "maxDeltaCount" deltas, the next snapshot is taken as a full snapshot 
+ * and older files are deleted (compaction). 
+ * 
+ * Restore replays the latest full snapshot and its deltas in sequence order through batched 
+ * {@link Cache#putAll(Map)} calls. Restored entries get new expiration times as they are just created. 
+ * Note that {@link Cache#clear()} doesn't publish any event, 
+ * so a full snapshot should be taken after clearing the cache.
+ * 
+ * @author Serkan OZAL
+ */
+public class CacheSnapshotter<K, V> implements Closeable {
+
+    private static final int RESTORE_BATCH_SIZE = 1000;
+    private static final Pattern SEQUENCE_PATTERN = Pattern.compile("(\\d{19})\\.(full|delta)");
+    private static final Object REMOVED = new Object();
+    
+    private static final ConcurrentMap<String, CacheSnapshotter<?, ?>> SNAPSHOTTERS = 
+            new ConcurrentHashMap<String, CacheSnapshotter<?, ?>>();
+    private static final Set<String> RESTORING_CACHES = ConcurrentHashMap.newKeySet();
+    
+    private final Cache<K, V> cache;
+    private final SnapshotConfig config;
+    private final Path directory;
+    private final String filePrefix;
+    private final String id = UUID.randomUUID().toString();
+    private final CacheEntryListenerConfiguration<K, V> trackingListenerConfig;
+    private final ConcurrentMap<K, Object> changes = new ConcurrentHashMap<K, Object>();
+    private volatile boolean tracking;
+    private long nextSequence = 1;
+    private int deltaCount;
+    private boolean fullSnapshotTaken;
+    
+    public CacheSnapshotter(Cache<K, V> cache, SnapshotConfig config) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        if (config == null) {
+            throw new NullPointerException("Snapshot config cannot be null!");
+        }
+        this.cache = cache;
+        this.config = config;
+        this.directory = config.getDirectory().toPath();
+        try {
+            this.filePrefix = URLEncoder.encode(cache.getName(), "UTF-8") + "-";
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        this.trackingListenerConfig = 
+                new MutableCacheEntryListenerConfiguration<K, V>(
+                        new TrackingListenerFactory<K, V>(id), null, false, true);
+    }
+    
+    private static String restoringKey(URI cacheManagerUri, String cacheName) {
+        return cacheManagerUri + "/" + cacheName;
+    }
+    
+    private static String restoringKey(Cache<?, ?> cache) {
+        CacheManager cacheManager = cache.getCacheManager();
+        return restoringKey(cacheManager != null ? cacheManager.getURI() : null, cache.getName());
+    }
+    
+    /**
+     * Checks whether the cache with the given cache manager URI and name is being restored. 
+     * Cache writers use it to skip writing the restored entries back to their backend. 
+     * Only the restores running in this JVM are known, 
+     * so cache writers on other members of a cluster see their caches as not being restored.
+     */
+    public static boolean isRestoring(URI cacheManagerUri, String cacheName) {
+        return RESTORING_CACHES.contains(restoringKey(cacheManagerUri, cacheName));
+    }
+    
+    public Cache<K, V> getCache() {
+        return cache;
+    }
+    
+    public int getPendingChangeCount() {
+        return changes.size();
+    }
+    
+    public synchronized int getDeltaCount() {
+        return deltaCount;
+    }
+    
+    /**
+     * Starts tracking changes of the cache for delta snapshots. 
+     * Should be called after {@link #restore()}, so restored entries are not tracked as changes.
+     */
+    public synchronized void startTracking() {
+        if (!tracking) {
+            SNAPSHOTTERS.put(id, this);
+            cache.registerCacheEntryListener(trackingListenerConfig);
+            tracking = true;
+        }
+    }
+    
+    private Path fileOf(long sequence, SnapshotType type) {
+        return directory.resolve(String.format("%s%019d.%s", filePrefix, sequence, type.getFileExtension()));
+    }
+    
+    private List<Path> listSnapshotFiles() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (sequenceOf(file) >= 0) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path file1, Path file2) {
+                return Long.compare(sequenceOf(file1), sequenceOf(file2));
+            }
+        });
+        return files;
+    }
+    
+    private long sequenceOf(Path file) {
+        String fileName = file.getFileName().toString();
+        if (!fileName.startsWith(filePrefix)) {
+            return -1;
+        }
+        Matcher matcher = SEQUENCE_PATTERN.matcher(fileName.substring(filePrefix.length()));
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+    
+    /**
+     * Restores the cache from the latest full snapshot and the delta snapshots after it. 
+     * 
+     * @return the number of the replayed records
+     * @throws IllegalStateException if any of the snapshot files is corrupted. 
+     *                               Then the cache may be partially restored.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int restore() throws IOException {
+        List<Path> files = listSnapshotFiles();
+        int fullSnapshotIndex = -1;
+        for (int i = files.size() - 1; i >= 0; i--) {
+            if (files.get(i).getFileName().toString().endsWith(SnapshotType.FULL.getFileExtension())) {
+                fullSnapshotIndex = i;
+                break;
+            }
+        }
+        if (!files.isEmpty()) {
+            nextSequence = sequenceOf(files.get(files.size() - 1)) + 1;
+        }
+        if (fullSnapshotIndex < 0) {
+            return 0;
+        }
+        RestoringVisitor visitor = new RestoringVisitor();
+        String restoringKey = restoringKey(cache);
+        RESTORING_CACHES.add(restoringKey);
+        try {
+            for (int i = fullSnapshotIndex; i < files.size(); i++) {
+                SnapshotReader reader = new SnapshotReader(files.get(i));
+                reader.accept((Codec<K>) config.getKeyCodec(), (Codec<V>) config.getValueCodec(), visitor);
+            }
+            visitor.flush();
+        } finally {
+            RESTORING_CACHES.remove(restoringKey);
+        }
+        fullSnapshotTaken = true;
+        deltaCount = files.size() - fullSnapshotIndex - 1;
+        return visitor.recordCount;
+    }
+    
+    /**
+     * Takes a full snapshot of the cache and deletes the older snapshot files.
+     */
+    public synchronized void snapshot() throws IOException {
+        Files.createDirectories(directory);
+        // Changes from now on are written by the next delta again, even if they are already in this snapshot
+        changes.clear();
+        long sequence = nextSequence++;
+        try (SnapshotWriter writer = createWriter(sequence, SnapshotType.FULL)) {
+            Iterator<Cache.Entry<K, V>> entries = new CacheScanner<K, V>(cache).stream().iterator();
+            while (entries.hasNext()) {
+                Cache.Entry<K, V> entry = entries.next();
+                writer.writePut(entry.getKey(), entry.getValue());
+            }
+            writer.commit();
+        }
+        fullSnapshotTaken = true;
+        deltaCount = 0;
+        for (Path file : listSnapshotFiles()) {
+            if (sequenceOf(file) < sequence) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+    
+    /**
+     * Takes a delta snapshot of the changes since the previous snapshot. 
+     * Takes a full snapshot instead if there is no full snapshot yet 
+     * or "maxDeltaCount" delta snapshots have been taken since the last full snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void deltaSnapshot() throws IOException {
+        if (!fullSnapshotTaken || deltaCount >= config.getMaxDeltaCount()) {
+            snapshot();
+            return;
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        long sequence = nextSequence++;
+        boolean committed = false;
+        try (SnapshotWriter writer = createWriter(sequence, SnapshotType.DELTA)) {
+            for (K key : changes.keySet()) {
+                Object value = changes.remove(key);
+                if (value == REMOVED) {
+                    writer.writeRemove(key);
+                } else if (value != null) {
+                    writer.writePut(key, (V) value);
+                }
+            }
+            writer.commit();
+            committed = true;
+        } finally {
+            if (!committed) {
+                // Taken changes are lost, so only a full snapshot can be consistent again
+                fullSnapshotTaken = false;
+            }
+        }
+        deltaCount++;
+    }
+    
+    private SnapshotWriter createWriter(long sequence, SnapshotType type) throws IOException {
+        return new SnapshotWriter(fileOf(sequence, type), type, sequence, 
+                                  config.getKeyCodec(), config.getValueCodec(), config.getBufferSize());
+    }
+    
+    /**
+     * Deletes all snapshot files of the cache.
+     */
+    public synchronized void deleteSnapshots() throws IOException {
+        for (Path file : listSnapshotFiles()) {
+            Files.deleteIfExists(file);
+        }
+        fullSnapshotTaken = false;
+        deltaCount = 0;
+    }
+    
+    /**
+     * Stops tracking changes. Snapshot files are kept.
+     */
+    @Override
+    public synchronized void close() {
+        if (tracking) {
+            try {
+                if (!cache.isClosed()) {
+                    cache.deregisterCacheEntryListener(trackingListenerConfig);
+                }
+            } finally {
+                SNAPSHOTTERS.remove(id);
+                tracking = false;
+            }
+        }
+    }
+    
+    private void onChanged(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+            changes.put(event.getKey(), event.getValue());
+        }
+    }
+    
+    private void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+            changes.put(event.getKey(), REMOVED);
+        }
+    }
+    
+    private class RestoringVisitor implements SnapshotVisitor<K, V> {
+        
+        private final Map<K, V> batch = new HashMap<K, V>();
+        private int recordCount;
+        
+        @Override
+        public void onPut(K key, V value) {
+            batch.put(key, value);
+            recordCount++;
+            if (batch.size() >= RESTORE_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onRemove(K key) {
+            // Entry may be in the pending batch, in the already restored entries or in both
+            batch.remove(key);
+            cache.remove(key);
+            recordCount++;
+        }
+        
+        private void flush() {
+            if (!batch.isEmpty()) {
+                cache.putAll(batch);
+                batch.clear();
+            }
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class TrackingListenerFactory<K, V> 
+            implements Factory<CacheEntryListener<? super K, ? super V>> {
+        
+        private final String snapshotterId;
+        
+        private TrackingListenerFactory(String snapshotterId) {
+            this.snapshotterId = snapshotterId;
+        }
+        
+        @Override
+        public CacheEntryListener<? super K, ? super V> create() {
+            return new TrackingListener<K, V>(snapshotterId);
+        }
+        
+    }
+    
+    private static class TrackingListener<K, V> 
+            implements  CacheEntryCreatedListener<K, V>,
+                        CacheEntryUpdatedListener<K, V>,
+                        CacheEntryRemovedListener<K, V>,
+                        CacheEntryExpiredListener<K, V> {
+        
+        private final String snapshotterId;
+        
+        private TrackingListener(String snapshotterId) {
+            this.snapshotterId = snapshotterId;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private CacheSnapshotter<K, V> snapshotter() {
+            // Snapshotter may be on another member, or it may be closed
+            return (CacheSnapshotter<K, V>) SNAPSHOTTERS.get(snapshotterId);
+        }
+        
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            CacheSnapshotter<K, V> snapshotter = snapshotter();
+            if (snapshotter != null) {
+                snapshotter.onChanged(events);
+            }
+        }
+        
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            CacheSnapshotter<K, V> snapshotter = snapshotter();
+            if (snapshotter != null) {
+                snapshotter.onChanged(events);
+            }
+        }
+
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            CacheSnapshotter<K, V> snapshotter = snapshotter();
+            if (snapshotter != null) {
+                snapshotter.onRemoved(events);
+            }
+        }
+
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            CacheSnapshotter<K, V> snapshotter = snapshotter();
+            if (snapshotter != null) {
+                snapshotter.onRemoved(events);
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,307 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+
+import ua.com.jday2015.demo.jcache.support.DelegatingCacheManager;
+
+/**
+ * {@link CacheManager} decorator which persists its caches into snapshot files and warm-starts them. 
+ * 
+ * {@link #createCache(String, Configuration)} restores the cache from its snapshot files 
+ * before returning it, so no traffic reaches the cache until it is warm. 
+ * While restoring, writes of a write-through cache are not propagated to its {@link CacheWriter} 
+ * as the restored entries are already in the backend. 
+ * Note that the restoring state is kept in the JVM running the restore, 
+ * so it is seen only by the cache writers of that JVM. 
+ * Hazelcast calls cache writers on the members owning the partitions of the written keys, 
+ * so in a cluster of multiple members, restored entries owned by other members are still written to the backend. 
+ * If snapshot files are corrupted, they are discarded and the cache starts cold. 
+ * 
+ * Delta snapshots are taken periodically in the background and on {@link #close()}. 
+ * Closing the caching provider directly doesn't close this decorator, so it must be closed before.
+ * 
+ * @author Serkan OZAL
+ */
+public class SnapshotCacheManager extends DelegatingCacheManager {
+
+    private static final ScheduledExecutorService SNAPSHOT_EXECUTOR = 
+            Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCounter = new AtomicInteger();
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "snapshot-" + threadCounter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+    
+    private final SnapshotConfig config;
+    private final ConcurrentMap<String, CacheSnapshotter<?, ?>> snapshotters = 
+            new ConcurrentHashMap<String, CacheSnapshotter<?, ?>>();
+    private final ConcurrentMap<String, ScheduledFuture<?>> snapshotTasks = 
+            new ConcurrentHashMap<String, ScheduledFuture<?>>();
+    private final ConcurrentMap<String, Integer> restoredRecordCounts = 
+            new ConcurrentHashMap<String, Integer>();
+    private final AtomicLong failedSnapshotCount = new AtomicLong();
+    
+    public SnapshotCacheManager(CacheManager delegate) {
+        this(delegate, new SnapshotConfig());
+    }
+    
+    public SnapshotCacheManager(CacheManager delegate, SnapshotConfig config) {
+        super(delegate);
+        if (config == null) {
+            throw new NullPointerException("Snapshot config cannot be null!");
+        }
+        this.config = config;
+    }
+    
+    public SnapshotConfig getConfig() {
+        return config;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <K, V> CacheSnapshotter<K, V> getSnapshotter(String cacheName) {
+        return (CacheSnapshotter<K, V>) snapshotters.get(cacheName);
+    }
+    
+    /**
+     * Gets the number of the background delta snapshots which have failed.
+     */
+    public long getFailedSnapshotCount() {
+        return failedSnapshotCount.get();
+    }
+    
+    /**
+     * Gets the number of the records replayed while restoring the cache with the given name, 
+     * or <code>-1</code> if its snapshot files couldn't be restored and it has started cold.
+     */
+    public int getRestoredRecordCount(String cacheName) {
+        Integer restoredRecordCount = restoredRecordCounts.get(cacheName);
+        return restoredRecordCount != null ? restoredRecordCount : 0;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName, C configuration) 
+            throws IllegalArgumentException {
+        Configuration<K, V> cacheConfig = configuration;
+        if (configuration instanceof MutableConfiguration) {
+            MutableConfiguration<K, V> mutableConfig = (MutableConfiguration<K, V>) configuration;
+            if (mutableConfig.isWriteThrough() && mutableConfig.getCacheWriterFactory() != null) {
+                // Copied, so the given configuration is not changed
+                mutableConfig = new MutableConfiguration<K, V>(mutableConfig);
+                mutableConfig.setCacheWriterFactory(
+                        new RestoreAwareCacheWriterFactory(getURI(), cacheName, 
+                                                           mutableConfig.getCacheWriterFactory()));
+                cacheConfig = mutableConfig;
+            }
+        }
+        Cache<K, V> cache = delegate.createCache(cacheName, cacheConfig);
+        CacheSnapshotter<K, V> snapshotter = new CacheSnapshotter<K, V>(cache, config);
+        try {
+            restoredRecordCounts.put(cacheName, snapshotter.restore());
+        } catch (IllegalStateException e) {
+            // Partially restored cache is not consistent with any point in time
+            cache.clear();
+            restoredRecordCounts.put(cacheName, -1);
+            deleteSnapshots(snapshotter);
+        } catch (IOException e) {
+            cache.clear();
+            restoredRecordCounts.put(cacheName, -1);
+        }
+        snapshotter.startTracking();
+        snapshotters.put(cacheName, snapshotter);
+        if (config.getDeltaSnapshotIntervalMillis() > 0) {
+            snapshotTasks.put(cacheName, 
+                              SNAPSHOT_EXECUTOR.scheduleWithFixedDelay(
+                                      new DeltaSnapshotTask(snapshotter, failedSnapshotCount), 
+                                      config.getDeltaSnapshotIntervalMillis(), 
+                                      config.getDeltaSnapshotIntervalMillis(), 
+                                      TimeUnit.MILLISECONDS));
+        }
+        return cache;
+    }
+    
+    private static void deleteSnapshots(CacheSnapshotter<?, ?> snapshotter) {
+        try {
+            snapshotter.deleteSnapshots();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void stopSnapshotter(String cacheName) {
+        ScheduledFuture<?> snapshotTask = snapshotTasks.remove(cacheName);
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+        }
+        CacheSnapshotter<?, ?> snapshotter = snapshotters.remove(cacheName);
+        if (snapshotter != null) {
+            snapshotter.close();
+        }
+    }
+    
+    @Override
+    public void destroyCache(String cacheName) {
+        CacheSnapshotter<?, ?> snapshotter = snapshotters.get(cacheName);
+        stopSnapshotter(cacheName);
+        if (snapshotter != null) {
+            // Destroyed cache has no content to be restored anymore
+            deleteSnapshots(snapshotter);
+        }
+        delegate.destroyCache(cacheName);
+    }
+    
+    /**
+     * Takes delta snapshots of all caches and then closes the delegated cache manager.
+     */
+    @Override
+    public void close() {
+        try {
+            for (CacheSnapshotter<?, ?> snapshotter : snapshotters.values()) {
+                if (!snapshotter.getCache().isClosed()) {
+                    try {
+                        snapshotter.deltaSnapshot();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        } finally {
+            for (String cacheName : snapshotters.keySet()) {
+                stopSnapshotter(cacheName);
+            }
+            delegate.close();
+        }
+    }
+    
+    private static class DeltaSnapshotTask implements Runnable {
+        
+        private final CacheSnapshotter<?, ?> snapshotter;
+        private final AtomicLong failedSnapshotCount;
+        
+        private DeltaSnapshotTask(CacheSnapshotter<?, ?> snapshotter, AtomicLong failedSnapshotCount) {
+            this.snapshotter = snapshotter;
+            this.failedSnapshotCount = failedSnapshotCount;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                if (!snapshotter.getCache().isClosed()) {
+                    snapshotter.deltaSnapshot();
+                }
+            } catch (IOException e) {
+                // Periodic task must not die, next snapshot will be taken as full snapshot
+                failedSnapshotCount.incrementAndGet();
+            } catch (RuntimeException e) {
+                failedSnapshotCount.incrementAndGet();
+            }
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    private static class RestoreAwareCacheWriterFactory<K, V> implements Factory<CacheWriter<K, V>> {
+
+        private final URI cacheManagerUri;
+        private final String cacheName;
+        private final Factory<CacheWriter<K, V>> delegate;
+        
+        private RestoreAwareCacheWriterFactory(URI cacheManagerUri, String cacheName, 
+                                               Factory<CacheWriter<K, V>> delegate) {
+            this.cacheManagerUri = cacheManagerUri;
+            this.cacheName = cacheName;
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public CacheWriter<K, V> create() {
+            return new RestoreAwareCacheWriter<K, V>(cacheManagerUri, cacheName, delegate.create());
+        }
+        
+    }
+    
+    private static class RestoreAwareCacheWriter<K, V> implements CacheWriter<K, V>, Closeable {
+        
+        private final URI cacheManagerUri;
+        private final String cacheName;
+        private final CacheWriter<K, V> delegate;
+        
+        private RestoreAwareCacheWriter(URI cacheManagerUri, String cacheName, CacheWriter<K, V> delegate) {
+            this.cacheManagerUri = cacheManagerUri;
+            this.cacheName = cacheName;
+            this.delegate = delegate;
+        }
+        
+        private boolean isRestoring() {
+            return CacheSnapshotter.isRestoring(cacheManagerUri, cacheName);
+        }
+
+        @Override
+        public void write(Cache.Entry<? extends K, ? extends V> entry) throws CacheWriterException {
+            if (!isRestoring()) {
+                delegate.write(entry);
+            }
+        }
+
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends K, ? extends V>> entries) 
+                throws CacheWriterException {
+            if (!isRestoring()) {
+                delegate.writeAll(entries);
+            } else {
+                // Written entries are removed from the collection to tell they are handled
+                entries.clear();
+            }
+        }
+
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            if (!isRestoring()) {
+                delegate.delete(key);
+            }
+        }
+
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            if (!isRestoring()) {
+                delegate.deleteAll(keys);
+            } else {
+                keys.clear();
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (delegate instanceof Closeable) {
+                ((Closeable) delegate).close();
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,112 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.codec.SerializableCodec;
+
+/**
+ * Configuration of {@link SnapshotCacheManager}. 
+ * By default, snapshots are written into {@link #DEFAULT_DIRECTORY} by Java serialization, 
+ * a delta snapshot is taken every {@link #DEFAULT_DELTA_SNAPSHOT_INTERVAL_SECONDS} seconds 
+ * and deltas are compacted into a full snapshot after {@link #DEFAULT_MAX_DELTA_COUNT} deltas.
+ * 
+ * @author Serkan OZAL
+ */
+public class SnapshotConfig {
+
+    public static final File DEFAULT_DIRECTORY = 
+            new File(System.getProperty("java.io.tmpdir"), "jcache-snapshots");
+    public static final long DEFAULT_DELTA_SNAPSHOT_INTERVAL_SECONDS = 60;
+    public static final int DEFAULT_MAX_DELTA_COUNT = 8;
+    
+    private File directory = DEFAULT_DIRECTORY;
+    private Codec<?> keyCodec = new SerializableCodec<Object>();
+    private Codec<?> valueCodec = new SerializableCodec<Object>();
+    private long deltaSnapshotIntervalMillis = TimeUnit.SECONDS.toMillis(DEFAULT_DELTA_SNAPSHOT_INTERVAL_SECONDS);
+    private int maxDeltaCount = DEFAULT_MAX_DELTA_COUNT;
+    private int bufferSize = SnapshotWriter.DEFAULT_BUFFER_SIZE;
+    
+    public File getDirectory() {
+        return directory;
+    }
+    
+    public SnapshotConfig setDirectory(File directory) {
+        if (directory == null) {
+            throw new NullPointerException("Directory cannot be null!");
+        }
+        this.directory = directory;
+        return this;
+    }
+    
+    public Codec<?> getKeyCodec() {
+        return keyCodec;
+    }
+    
+    public SnapshotConfig setKeyCodec(Codec<?> keyCodec) {
+        if (keyCodec == null) {
+            throw new NullPointerException("Key codec cannot be null!");
+        }
+        this.keyCodec = keyCodec;
+        return this;
+    }
+    
+    public Codec<?> getValueCodec() {
+        return valueCodec;
+    }
+    
+    public SnapshotConfig setValueCodec(Codec<?> valueCodec) {
+        if (valueCodec == null) {
+            throw new NullPointerException("Value codec cannot be null!");
+        }
+        this.valueCodec = valueCodec;
+        return this;
+    }
+    
+    public long getDeltaSnapshotIntervalMillis() {
+        return deltaSnapshotIntervalMillis;
+    }
+    
+    /**
+     * Sets the interval of the periodic delta snapshots. 
+     * <code>0</code> disables periodic snapshots, so snapshots are only taken on demand and on close.
+     */
+    public SnapshotConfig setDeltaSnapshotInterval(long deltaSnapshotInterval, TimeUnit unit) {
+        if (deltaSnapshotInterval < 0) {
+            throw new IllegalArgumentException("Delta snapshot interval cannot be negative!");
+        }
+        this.deltaSnapshotIntervalMillis = unit.toMillis(deltaSnapshotInterval);
+        return this;
+    }
+    
+    public int getMaxDeltaCount() {
+        return maxDeltaCount;
+    }
+    
+    /**
+     * Sets the number of delta snapshots after which the next snapshot is taken as a full snapshot, 
+     * so restore never has to replay too many deltas.
+     */
+    public SnapshotConfig setMaxDeltaCount(int maxDeltaCount) {
+        if (maxDeltaCount < 0) {
+            throw new IllegalArgumentException("Max delta count cannot be negative!");
+        }
+        this.maxDeltaCount = maxDeltaCount;
+        return this;
+    }
+    
+    public int getBufferSize() {
+        return bufferSize;
+    }
+    
+    public SnapshotConfig setBufferSize(int bufferSize) {
+        if (bufferSize < SnapshotWriter.RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " 
+                                               + SnapshotWriter.RECORD_HEADER_SIZE + "!");
+        }
+        this.bufferSize = bufferSize;
+        return this;
+    }
+    
+}
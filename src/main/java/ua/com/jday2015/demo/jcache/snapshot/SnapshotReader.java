@@ -0,0 +1,129 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+
+/**
+ * Reads a snapshot file written by {@link SnapshotWriter}. 
+ * 
+ * The file is mapped into memory by a {@link MappedByteBuffer} and verified by its checksum, 
+ * then keys and values are decoded by the given {@link Codec}s directly from the mapped memory 
+ * without copying them into intermediate buffers. 
+ * Since a single mapping is limited to 2GB, larger snapshot files are not supported.
+ * 
+ * @author Serkan OZAL
+ */
+public class SnapshotReader {
+
+    private final Path file;
+    private final ByteBuffer data;
+    private final SnapshotType type;
+    private final long sequence;
+    private final int recordCount;
+    
+    /**
+     * Maps and verifies the given snapshot file.
+     * 
+     * @throws IllegalStateException if the file is not a valid snapshot file or it is corrupted
+     */
+    public SnapshotReader(Path file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("File cannot be null!");
+        }
+        this.file = file;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SnapshotWriter.HEADER_SIZE) {
+                throw new IllegalStateException("Snapshot file " + file + " is truncated!");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot file " + file + " is larger than 2GB!");
+            }
+            // Mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt() != SnapshotWriter.MAGIC) {
+            throw new IllegalStateException("File " + file + " is not a snapshot file!");
+        }
+        int version = buffer.getInt();
+        if (version != SnapshotWriter.VERSION) {
+            throw new IllegalStateException("Unsupported snapshot version " + version + " in file " + file + "!");
+        }
+        int typeOrdinal = buffer.get();
+        if (typeOrdinal < 0 || typeOrdinal >= SnapshotType.values().length) {
+            throw new IllegalStateException("Snapshot file " + file + " is corrupted!");
+        }
+        this.type = SnapshotType.values()[typeOrdinal];
+        this.sequence = buffer.getLong();
+        this.recordCount = buffer.getInt();
+        long dataLength = buffer.getLong();
+        int checksum = buffer.getInt();
+        if (dataLength != buffer.remaining()) {
+            throw new IllegalStateException("Snapshot file " + file + " is truncated!");
+        }
+        this.data = buffer.slice();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IllegalStateException("Snapshot file " + file + " is corrupted!");
+        }
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    public SnapshotType getType() {
+        return type;
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public int getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Decodes the records in the order they were written and passes them to the given {@link SnapshotVisitor}.
+     */
+    public <K, V> void accept(Codec<K> keyCodec, Codec<V> valueCodec, SnapshotVisitor<K, V> visitor) {
+        if (keyCodec == null || valueCodec == null) {
+            throw new NullPointerException("Key and value codecs cannot be null!");
+        }
+        ByteBuffer records = data.duplicate();
+        // Each key and value is decoded from a view limited to its own bytes
+        ByteBuffer view = data.duplicate();
+        for (int i = 0; i < recordCount; i++) {
+            if (records.remaining() < SnapshotWriter.RECORD_HEADER_SIZE) {
+                throw new IllegalStateException("Snapshot file " + file + " is corrupted!");
+            }
+            byte kind = records.get();
+            int keyLength = records.getInt();
+            int valueLength = records.getInt();
+            int keyPosition = records.position();
+            if (keyLength < 0 || valueLength < 0 || keyLength + valueLength > records.remaining()) {
+                throw new IllegalStateException("Snapshot file " + file + " is corrupted!");
+            }
+            view.limit(keyPosition + keyLength).position(keyPosition);
+            K key = keyCodec.decode(view);
+            if (kind == SnapshotWriter.PUT_RECORD) {
+                view.limit(keyPosition + keyLength + valueLength).position(keyPosition + keyLength);
+                visitor.onPut(key, valueCodec.decode(view));
+            } else {
+                visitor.onRemove(key);
+            }
+            records.position(keyPosition + keyLength + valueLength);
+        }
+    }
+    
+}
@@ -0,0 +1,30 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+/**
+ * Type of a snapshot file.
+ * 
+ * @author Serkan OZAL
+ */
+public enum SnapshotType {
+
+    /**
+     * Contains all entries of the cache.
+     */
+    FULL("full"),
+    
+    /**
+     * Contains only the entries updated or removed since the previous snapshot.
+     */
+    DELTA("delta");
+    
+    private final String fileExtension;
+    
+    private SnapshotType(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+    
+    public String getFileExtension() {
+        return fileExtension;
+    }
+    
+}
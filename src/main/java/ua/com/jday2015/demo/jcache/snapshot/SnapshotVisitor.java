@@ -0,0 +1,14 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+/**
+ * Receives the records of a snapshot file in the order they were written.
+ * 
+ * @author Serkan OZAL
+ */
+public interface SnapshotVisitor<K, V> {
+
+    void onPut(K key, V value);
+    
+    void onRemove(K key);
+    
+}
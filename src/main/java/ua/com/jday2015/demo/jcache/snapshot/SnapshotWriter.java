@@ -0,0 +1,197 @@
+package ua.com.jday2015.demo.jcache.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+
+/**
+ * Writes a snapshot file through a {@link FileChannel}. 
+ * 
+ * File layout is: 
+ * <pre>
+ *      | magic (4 bytes) | version (4 bytes) | type (1 byte) | sequence (8 bytes) 
+ *      | record count (4 bytes) | data length (8 bytes) | CRC32 of data (4 bytes) | records ... |
+ * </pre>
+ * and record layout is: 
+ * <pre>
+ *      | kind (1 byte) | key length (4 bytes) | value length (4 bytes) | key bytes | value bytes |
+ * </pre>
+ * Records are encoded by the given {@link Codec}s into a direct buffer which is written when it is full. 
+ * The file is written under a temporary name and renamed atomically on {@link #commit()}, 
+ * so a crash while writing never leaves a partial snapshot behind. 
+ * Closing without committing discards the file.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class SnapshotWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    static final int MAGIC = 0x4A43534E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 33;
+    static final byte PUT_RECORD = 0;
+    static final byte REMOVE_RECORD = 1;
+    static final int RECORD_HEADER_SIZE = 9;
+    
+    private final Path file;
+    private final Path tempFile;
+    private final SnapshotType type;
+    private final long sequence;
+    private final Codec keyCodec;
+    private final Codec valueCodec;
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer;
+    private int recordCount;
+    private long dataLength;
+    private boolean committed;
+    
+    public SnapshotWriter(Path file, SnapshotType type, long sequence, Codec<?> keyCodec, Codec<?> valueCodec) 
+            throws IOException {
+        this(file, type, sequence, keyCodec, valueCodec, DEFAULT_BUFFER_SIZE);
+    }
+    
+    public SnapshotWriter(Path file, SnapshotType type, long sequence, 
+                          Codec<?> keyCodec, Codec<?> valueCodec, int bufferSize) throws IOException {
+        if (file == null || type == null) {
+            throw new NullPointerException("File and type cannot be null!");
+        }
+        if (keyCodec == null || valueCodec == null) {
+            throw new NullPointerException("Key and value codecs cannot be null!");
+        }
+        if (bufferSize < RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + RECORD_HEADER_SIZE + "!");
+        }
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.type = type;
+        this.sequence = sequence;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.channel = FileChannel.open(tempFile, 
+                                        StandardOpenOption.CREATE, 
+                                        StandardOpenOption.WRITE, 
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(HEADER_SIZE);
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    public int getRecordCount() {
+        return recordCount;
+    }
+    
+    public void writePut(Object key, Object value) throws IOException {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null!");
+        }
+        writeRecord(PUT_RECORD, key, value);
+    }
+    
+    public void writeRemove(Object key) throws IOException {
+        writeRecord(REMOVE_RECORD, key, null);
+    }
+    
+    private void writeRecord(byte kind, Object key, Object value) throws IOException {
+        if (key == null) {
+            throw new NullPointerException("Key cannot be null!");
+        }
+        if (committed) {
+            throw new IllegalStateException("Snapshot has been already committed!");
+        }
+        for (;;) {
+            int start = buffer.position();
+            try {
+                encodeRecord(kind, key, value);
+                recordCount++;
+                return;
+            } catch (BufferOverflowException e) {
+                buffer.position(start);
+                if (start > 0) {
+                    flush();
+                } else {
+                    // Record doesn't fit into an empty buffer, so retry with a larger one
+                    buffer = ByteBuffer.allocateDirect(buffer.capacity() << 1);
+                }
+            }
+        }
+    }
+    
+    private void encodeRecord(byte kind, Object key, Object value) {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(kind);
+        int lengthsPosition = buffer.position();
+        buffer.position(lengthsPosition + 8);
+        keyCodec.encode(key, buffer);
+        int keyLength = buffer.position() - lengthsPosition - 8;
+        int valueLength = 0;
+        if (value != null) {
+            valueCodec.encode(value, buffer);
+            valueLength = buffer.position() - lengthsPosition - 8 - keyLength;
+        }
+        buffer.putInt(lengthsPosition, keyLength);
+        buffer.putInt(lengthsPosition + 4, valueLength);
+    }
+    
+    private void flush() throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        dataLength += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Completes the snapshot and makes it visible under its final name.
+     */
+    public void commit() throws IOException {
+        if (committed) {
+            return;
+        }
+        flush();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.put((byte) type.ordinal());
+        header.putLong(sequence);
+        header.putInt(recordCount);
+        header.putLong(dataLength);
+        header.putInt((int) crc.getValue());
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.force(true);
+        channel.close();
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        committed = true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+}
@@ -0,0 +1,106 @@
+package ua.com.jday2015.demo.jcache.support;
+
+import java.net.URI;
+import java.util.Properties;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.Configuration;
+import javax.cache.spi.CachingProvider;
+
+/**
+ * Base class for {@link CacheManager} decorators which forwards all the calls to the delegated {@link CacheManager}. 
+ * Decorators override only the operations they are interested in.
+ * 
+ * @author Serkan OZAL
+ */
+public abstract class DelegatingCacheManager implements CacheManager {
+
+    protected final CacheManager delegate;
+    
+    protected DelegatingCacheManager(CacheManager delegate) {
+        if (delegate == null) {
+            throw new NullPointerException("Delegate cache manager cannot be null!");
+        }
+        this.delegate = delegate;
+    }
+    
+    public CacheManager getDelegate() {
+        return delegate;
+    }
+    
+    @Override
+    public CachingProvider getCachingProvider() {
+        return delegate.getCachingProvider();
+    }
+
+    @Override
+    public URI getURI() {
+        return delegate.getURI();
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return delegate.getClassLoader();
+    }
+
+    @Override
+    public Properties getProperties() {
+        return delegate.getProperties();
+    }
+
+    @Override
+    public <K, V, C extends Configuration<K, V>> Cache<K, V> createCache(String cacheName, C configuration) 
+            throws IllegalArgumentException {
+        return delegate.createCache(cacheName, configuration);
+    }
+
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName, Class<K> keyType, Class<V> valueType) {
+        return delegate.getCache(cacheName, keyType, valueType);
+    }
+
+    @Override
+    public <K, V> Cache<K, V> getCache(String cacheName) {
+        return delegate.getCache(cacheName);
+    }
+
+    @Override
+    public Iterable<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    @Override
+    public void destroyCache(String cacheName) {
+        delegate.destroyCache(cacheName);
+    }
+
+    @Override
+    public void enableManagement(String cacheName, boolean enabled) {
+        delegate.enableManagement(cacheName, enabled);
+    }
+
+    @Override
+    public void enableStatistics(String cacheName, boolean enabled) {
+        delegate.enableStatistics(cacheName, enabled);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> clazz) {
+        if (clazz.isAssignableFrom(getClass())) {
+            return clazz.cast(this);
+        }
+        return delegate.unwrap(clazz);
+    }
+
+}
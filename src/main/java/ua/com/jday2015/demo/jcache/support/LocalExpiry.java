@@ -0,0 +1,83 @@
+package ua.com.jday2015.demo.jcache.support;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+
+/**
+ * Derives expiration times of the local copies of the entries of a {@link Cache} from its {@link ExpiryPolicy}.
+ * 
+ * Hazelcast publishes expired events only when an expired entry is accessed on its member, 
+ * so local copies which are served without accessing the cache must expire by themselves. 
+ * A local copy is made when its entry is read, so if the expiry policy updates the expiry on access, 
+ * the local copy expires exactly with the entry. 
+ * Otherwise the entry expires by the time of its last update which is not known locally, 
+ * so the local copy expires after the shorter of the creation and update durations from the read. 
+ * In that case, the local copy may outlive the entry by at most the time between the last update and the read.
+ * 
+ * Note that expiry policies given to the operations of Hazelcast's <code>ICache</code> 
+ * instead of the configuration are not known locally.
+ * 
+ * @author Serkan OZAL
+ */
+public class LocalExpiry {
+
+    /**
+     * Expiration time of local copies which never expire.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+    
+    private final ExpiryPolicy expiryPolicy;
+    
+    @SuppressWarnings("unchecked")
+    public LocalExpiry(Cache<?, ?> cache) {
+        Configuration<?, ?> configuration = cache.getConfiguration(Configuration.class);
+        if (configuration instanceof CompleteConfiguration) {
+            this.expiryPolicy = ((CompleteConfiguration<?, ?>) configuration).getExpiryPolicyFactory().create();
+        } else {
+            this.expiryPolicy = null;
+        }
+    }
+    
+    /**
+     * Gets the expiration time of a local copy of an entry read at the given time.
+     * 
+     * @return the expiration time in milliseconds, {@link #NEVER} if it never expires 
+     *         or <code>0</code> if it has already expired, so it must not be kept locally
+     */
+    public long expirationTimeOf(long readTime) {
+        if (expiryPolicy == null) {
+            return NEVER;
+        }
+        Duration duration = expiryPolicy.getExpiryForAccess();
+        if (duration == null) {
+            // Expiry is not updated on access, so the entry expires within the shorter one of them
+            duration = shorterOf(expiryPolicy.getExpiryForCreation(), expiryPolicy.getExpiryForUpdate());
+        }
+        if (duration == null || duration.isEternal()) {
+            return NEVER;
+        }
+        if (duration.isZero()) {
+            return 0;
+        }
+        return duration.getAdjustedTime(readTime);
+    }
+    
+    private static Duration shorterOf(Duration d1, Duration d2) {
+        if (d1 == null || d1.isEternal()) {
+            return d2;
+        }
+        if (d2 == null || d2.isEternal()) {
+            return d1;
+        }
+        return d1.getTimeUnit().toMillis(d1.getDurationAmount()) <= d2.getTimeUnit().toMillis(d2.getDurationAmount()) 
+                ? d1 : d2;
+    }
+    
+    public static boolean isExpired(long expirationTime, long now) {
+        return expirationTime <= now;
+    }
+
+}
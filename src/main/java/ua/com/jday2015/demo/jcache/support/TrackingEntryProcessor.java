@@ -0,0 +1,155 @@
+package ua.com.jday2015.demo.jcache.support;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
+
+import ua.com.jday2015.demo.jcache.eviction.Weigher;
+
+/**
+ * {@link EntryProcessor} decorator which returns the weight of the entry after processing together with the result, 
+ * so decorators can keep track of the entries changed by the entry processors executed inside the delegated cache.
+ * 
+ * New value is weighed where the entry processor is executed, so only its weight and hash are returned instead of itself. 
+ * Entries not changed by the entry processor are not read, since reading counts as an access for the expiry policy.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class TrackingEntryProcessor<K, V, T> 
+        implements EntryProcessor<K, V, TrackingEntryProcessor.ProcessedEntry<T>>, Serializable {
+
+    private final EntryProcessor<K, V, T> delegate;
+    private final Weigher<? super K, ? super V> weigher;
+    
+    public TrackingEntryProcessor(EntryProcessor<K, V, T> delegate, Weigher<? super K, ? super V> weigher) {
+        this.delegate = delegate;
+        this.weigher = weigher;
+    }
+    
+    /**
+     * Gets the hash of the given value by its contents (including arrays), 
+     * so copies of the same value (such as the ones deserialized on different members) have the same hash.
+     */
+    public static int valueHashOf(Object value) {
+        return Arrays.deepHashCode(new Object[] { value });
+    }
+    
+    @Override
+    public ProcessedEntry<T> process(MutableEntry<K, V> entry, Object... arguments)
+            throws EntryProcessorException {
+        TrackingEntry<K, V> trackingEntry = new TrackingEntry<K, V>(entry);
+        T result = delegate.process(trackingEntry, arguments);
+        if (!trackingEntry.changed) {
+            return new ProcessedEntry<T>(result, ProcessedEntry.NOT_CHANGED, 0);
+        }
+        V value = trackingEntry.newValue;
+        if (value == null) {
+            return new ProcessedEntry<T>(result, ProcessedEntry.REMOVED, 0);
+        }
+        return new ProcessedEntry<T>(result, weigher.weigh(entry.getKey(), value), valueHashOf(value));
+    }
+    
+    /**
+     * {@link MutableEntry} decorator which records the last change made by the entry processor.
+     */
+    private static class TrackingEntry<K, V> implements MutableEntry<K, V> {
+        
+        private final MutableEntry<K, V> entry;
+        private boolean changed;
+        private V newValue;
+        
+        private TrackingEntry(MutableEntry<K, V> entry) {
+            this.entry = entry;
+        }
+        
+        @Override
+        public K getKey() {
+            return entry.getKey();
+        }
+        
+        @Override
+        public V getValue() {
+            return entry.getValue();
+        }
+        
+        @Override
+        public boolean exists() {
+            return entry.exists();
+        }
+        
+        @Override
+        public void remove() {
+            entry.remove();
+            changed = true;
+            newValue = null;
+        }
+        
+        @Override
+        public void setValue(V value) {
+            entry.setValue(value);
+            changed = true;
+            newValue = value;
+        }
+        
+        @Override
+        public <U> U unwrap(Class<U> clazz) {
+            return entry.unwrap(clazz);
+        }
+        
+    }
+    
+    /**
+     * Result of an entry processor with the weight and the hash of the value of the entry after processing.
+     */
+    public static class ProcessedEntry<T> implements Serializable {
+        
+        private static final int NOT_CHANGED = -1;
+        private static final int REMOVED = -2;
+        
+        private final T result;
+        private final int weight;
+        private final int valueHash;
+        
+        private ProcessedEntry(T result, int weight, int valueHash) {
+            this.result = result;
+            this.weight = weight;
+            this.valueHash = valueHash;
+        }
+        
+        public T getResult() {
+            return result;
+        }
+        
+        /**
+         * Returns <code>true</code> if the entry has been updated or removed by the entry processor.
+         */
+        public boolean isChanged() {
+            return weight != NOT_CHANGED;
+        }
+        
+        public boolean isRemoved() {
+            return weight == REMOVED;
+        }
+        
+        /**
+         * Gets the weight of the new value. Only meaningful if the entry has been changed but not removed.
+         */
+        public int getWeight() {
+            return weight;
+        }
+        
+        /**
+         * Gets the hash of the new value by {@link TrackingEntryProcessor#valueHashOf(Object)}. 
+         * Only meaningful if the entry has been changed but not removed.
+         */
+        public int getValueHash() {
+            return valueHash;
+        }
+        
+    }
+
+}
@@ -0,0 +1,642 @@
+package ua.com.jday2015.demo.jcache.tiered;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CacheEntryListenerConfiguration;
+import javax.cache.configuration.Configuration;
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.EntryProcessorResult;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.codec.CodecRegistry;
+import ua.com.jday2015.demo.jcache.event.AsyncCacheEntryListenerConfiguration;
+import ua.com.jday2015.demo.jcache.eviction.FrequencySketch;
+import ua.com.jday2015.demo.jcache.offheap.OffHeapStore;
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+import ua.com.jday2015.demo.jcache.support.LocalExpiry;
+
+/**
+ * {@link Cache} decorator which serves entries of the delegated {@link Cache} from three tiers: 
+ * <ul> 
+ *      <li>L1: Small on-heap tier which keeps values as they are in LRU order</li> 
+ *      <li>L2: Large off-heap tier which keeps values encoded in an {@link OffHeapStore}</li> 
+ *      <li>L3: The delegated (distributed) cache itself</li> 
+ * </ul> 
+ * A read goes only as deep as the first tier which has the entry. 
+ * L1 and L2 are exclusive, so an entry is kept either on heap or off heap but not both.
+ * 
+ * Accesses are counted by a {@link FrequencySketch}. 
+ * Entries read from L3 go into L1 while it has room, otherwise they are admitted into L2 
+ * only if they are accessed more frequently than the oldest entry of L2, which is then evicted. 
+ * An entry read from L2 is promoted to L1 if it is accessed more frequently than 
+ * the least recently used entry of L1, which is then demoted to L2. 
+ * To reduce contention, L1 and L2 are split into segments and all of the above is done per segment.
+ * 
+ * Like {@link ua.com.jday2015.demo.jcache.nearcache.NearCache}, local tiers are invalidated 
+ * by the updated/removed/expired events of the delegated cache 
+ * and mutations through the tiered cache invalidate the local entry immediately. 
+ * Events are delivered asynchronously, so L1 and L2 may serve the old value of an entry 
+ * updated by someone else until its event arrives. 
+ * Since Hazelcast publishes expired events only when an expired entry is accessed on its member, 
+ * local entries also expire by themselves as derived from the expiry policy of the delegated cache 
+ * (see {@link LocalExpiry} for its limitations). Expired local entries are dropped when they are accessed. 
+ * Note that {@link Cache#clear()} doesn't publish any event, 
+ * so clearing the delegated cache from somewhere else is not seen by the local tiers.
+ * 
+ * @author Serkan OZAL
+ */
+public class TieredCache<K, V> extends DelegatingCache<K, V> {
+
+    private static final ConcurrentMap<String, TieredCache<?, ?>> TIERED_CACHES =
+            new ConcurrentHashMap<String, TieredCache<?, ?>>();
+    
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final OffHeapStore<K, V> l2;
+    private final LocalExpiry localExpiry;
+    private final String id = UUID.randomUUID().toString();
+    private final CacheEntryListenerConfiguration<K, V> invalidationListenerConfig;
+    private final TieredCacheStatistics statistics = new TieredCacheStatistics();
+    
+    public TieredCache(Cache<K, V> delegate) {
+        this(delegate, new TieredCacheConfig());
+    }
+    
+    @SuppressWarnings("unchecked")
+    public TieredCache(Cache<K, V> delegate, TieredCacheConfig config) {
+        super(delegate);
+        if (config == null) {
+            throw new NullPointerException("Tiered cache config cannot be null!");
+        }
+        int segmentCount = 1;
+        while (segmentCount < 4 * Runtime.getRuntime().availableProcessors()
+                && segmentCount * 2 <= config.getL1MaxSize()) {
+            segmentCount <<= 1;
+        }
+        this.segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] =
+                    new Segment<K, V>(
+                            Math.max(1, config.getL1MaxSize() / segmentCount),
+                            Math.max(1, config.getL2MaxSize() / segmentCount));
+        }
+        this.segmentMask = segmentCount - 1;
+    
+        Configuration<K, V> configuration = delegate.getConfiguration(Configuration.class);
+        CodecRegistry codecRegistry = CodecRegistry.withDefaults();
+        Codec<K> keyCodec =
+                config.getKeyCodec() != null
+                    ? (Codec<K>) config.getKeyCodec()
+                    : codecRegistry.getKeyCodec(configuration);
+        Codec<V> valueCodec =
+                config.getValueCodec() != null
+                    ? (Codec<V>) config.getValueCodec()
+                    : codecRegistry.getValueCodec(configuration);
+        this.l2 =
+                new OffHeapStore<K, V>(keyCodec, valueCodec,
+                                       OffHeapStore.DEFAULT_SEGMENT_COUNT,
+                                       OffHeapStore.DEFAULT_SLAB_SIZE,
+                                       config.getL2MaxSize());
+        this.localExpiry = new LocalExpiry(delegate);
+    
+        TIERED_CACHES.put(id, this);
+        this.invalidationListenerConfig =
+                new AsyncCacheEntryListenerConfiguration<K, V>(
+                        new MutableCacheEntryListenerConfiguration<K, V>(
+                                new InvalidationListenerFactory<K, V>(id), null, false, false));
+        delegate.registerCacheEntryListener(invalidationListenerConfig);
+    }
+    
+    public TieredCacheStatistics getStatistics() {
+        return statistics;
+    }
+    
+    public int getL1Size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.l1.size();
+            }
+        }
+        return size;
+    }
+    
+    public int getL2Size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.l2Size;
+            }
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the number of bytes used by L2 entries in direct memory.
+     */
+    public long getL2UsedBytes() {
+        return l2.getUsedBytes();
+    }
+    
+    private Segment<K, V> segmentOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & segmentMask];
+    }
+    
+    @Override
+    public V get(K key) {
+        Segment<K, V> segment = segmentOf(key);
+        long now = System.currentTimeMillis();
+        long invalidations;
+        synchronized (segment) {
+            V value = getLocal(segment, key, now);
+            if (value != null) {
+                return value;
+            }
+            invalidations = segment.invalidations;
+        }
+        V value = delegate.get(key);
+        if (value != null) {
+            statistics.increaseL3Hits(1);
+            // Read time is taken before the read, so local entry never expires later than the entry itself
+            install(segment, key, value, localExpiry.expirationTimeOf(now), invalidations);
+        } else {
+            statistics.increaseMisses(1);
+        }
+        return value;
+    }
+    
+    @Override
+    public Map<K, V> getAll(Set<? extends K> keys) {
+        Map<K, V> result = new HashMap<K, V>();
+        Set<K> missingKeys = new HashSet<K>();
+        long now = System.currentTimeMillis();
+        for (K key : keys) {
+            Segment<K, V> segment = segmentOf(key);
+            synchronized (segment) {
+                V value = getLocal(segment, key, now);
+                if (value != null) {
+                    result.put(key, value);
+                } else {
+                    missingKeys.add(key);
+                }
+            }
+        }
+        if (!missingKeys.isEmpty()) {
+            // Since all keys are fetched at once, stale values are not installed
+            Map<K, V> values = delegate.getAll(missingKeys);
+            statistics.increaseL3Hits(values.size());
+            statistics.increaseMisses(missingKeys.size() - values.size());
+            result.putAll(values);
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean containsKey(K key) {
+        Segment<K, V> segment = segmentOf(key);
+        long now = System.currentTimeMillis();
+        synchronized (segment) {
+            if (!segment.isExpired(key, now)
+                    && (segment.l1.containsKey(key) || (segment.l2Size > 0 && l2.containsKey(key)))) {
+                return true;
+            }
+        }
+        return delegate.containsKey(key);
+    }
+    
+    @Override
+    public void put(K key, V value) {
+        try {
+            delegate.put(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public V getAndPut(K key, V value) {
+        try {
+            return delegate.getAndPut(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        try {
+            delegate.putAll(map);
+        } finally {
+            invalidateAll(map.keySet());
+        }
+    }
+    
+    @Override
+    public boolean putIfAbsent(K key, V value) {
+        try {
+            return delegate.putIfAbsent(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key) {
+        try {
+            return delegate.remove(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean remove(K key, V oldValue) {
+        try {
+            return delegate.remove(key, oldValue);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public V getAndRemove(K key) {
+        try {
+            return delegate.getAndRemove(key);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        try {
+            return delegate.replace(key, oldValue, newValue);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public boolean replace(K key, V value) {
+        try {
+            return delegate.replace(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public V getAndReplace(K key, V value) {
+        try {
+            return delegate.getAndReplace(key, value);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public void removeAll(Set<? extends K> keys) {
+        try {
+            delegate.removeAll(keys);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+    
+    @Override
+    public void removeAll() {
+        try {
+            delegate.removeAll();
+        } finally {
+            invalidateAll();
+        }
+    }
+    
+    @Override
+    public void clear() {
+        try {
+            delegate.clear();
+        } finally {
+            invalidateAll();
+        }
+    }
+    
+    @Override
+    public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments)
+            throws EntryProcessorException {
+        try {
+            return delegate.invoke(key, entryProcessor, arguments);
+        } finally {
+            invalidate(key);
+        }
+    }
+    
+    @Override
+    public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys,
+            EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        try {
+            return delegate.invokeAll(keys, entryProcessor, arguments);
+        } finally {
+            invalidateAll(keys);
+        }
+    }
+    
+    @Override
+    public void close() {
+        try {
+            if (!delegate.isClosed()) {
+                delegate.deregisterCacheEntryListener(invalidationListenerConfig);
+            }
+        } finally {
+            TIERED_CACHES.remove(id);
+            invalidateAll();
+            l2.close();
+            delegate.close();
+        }
+    }
+    
+    // Must be called while holding the lock of the segment
+    private V getLocal(Segment<K, V> segment, K key, long now) {
+        segment.sketch.increment(key);
+        if (segment.isExpired(key, now)) {
+            segment.expirationTimes.remove(key);
+            if (segment.l1.remove(key) != null || removeFromL2(segment, key)) {
+                statistics.increaseExpirations();
+            }
+            return null;
+        }
+        V value = segment.l1.get(key);
+        if (value != null) {
+            statistics.increaseL1Hits(1);
+            return value;
+        }
+        if (segment.l2Size > 0) {
+            value = l2.get(key);
+            if (value != null) {
+                statistics.increaseL2Hits(1);
+                promote(segment, key, value);
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    // Must be called while holding the lock of the segment
+    private void promote(Segment<K, V> segment, K key, V value) {
+        if (segment.l1.size() < segment.l1MaxSize) {
+            removeFromL2(segment, key);
+            segment.l1.put(key, value);
+            statistics.increasePromotions();
+            return;
+        }
+        // Access ordered, so the eldest entry is the least recently used one
+        Map.Entry<K, V> victim = segment.l1.entrySet().iterator().next();
+        if (segment.sketch.frequency(key) > segment.sketch.frequency(victim.getKey())) {
+            K victimKey = victim.getKey();
+            V victimValue = victim.getValue();
+            segment.l1.remove(victimKey);
+            removeFromL2(segment, key);
+            segment.l1.put(key, value);
+            statistics.increasePromotions();
+            // There is room for the victim since the promoted entry has just left L2
+            putToL2(segment, victimKey, victimValue);
+            statistics.increaseDemotions();
+        }
+    }
+    
+    private void install(Segment<K, V> segment, K key, V value, long expirationTime, long expectedInvalidations) {
+        synchronized (segment) {
+            // Expiration time is "0" if the entry has already expired
+            if (segment.invalidations != expectedInvalidations || expirationTime == 0) {
+                return;
+            }
+            if (segment.l1.containsKey(key) || segment.l1.size() < segment.l1MaxSize) {
+                removeFromL2(segment, key);
+                segment.l1.put(key, value);
+                segment.setExpirationTime(key, expirationTime);
+            } else if (admitToL2(segment, key, value)) {
+                segment.setExpirationTime(key, expirationTime);
+            }
+        }
+    }
+    
+    // Must be called while holding the lock of the segment
+    private boolean admitToL2(Segment<K, V> segment, K key, V value) {
+        if (segment.l2Size >= segment.l2MaxSize && !l2.containsKey(key)) {
+            K candidate = segment.pollL2Candidate(l2);
+            if (candidate != null) {
+                if (segment.sketch.frequency(key) <= segment.sketch.frequency(candidate)) {
+                    // Rejected, so the candidate keeps its place as the oldest entry
+                    segment.l2Keys.addFirst(candidate);
+                    return false;
+                }
+                l2.remove(candidate);
+                segment.l2Size--;
+                segment.expirationTimes.remove(candidate);
+                statistics.increaseEvictions();
+            }
+        }
+        putToL2(segment, key, value);
+        return true;
+    }
+    
+    // Must be called while holding the lock of the segment
+    private void putToL2(Segment<K, V> segment, K key, V value) {
+        if (!l2.put(key, value)) {
+            segment.l2Size++;
+            segment.l2Keys.addLast(key);
+            segment.compactL2Keys(l2);
+        }
+    }
+    
+    // Must be called while holding the lock of the segment
+    private boolean removeFromL2(Segment<K, V> segment, K key) {
+        if (segment.l2Size > 0 && l2.remove(key)) {
+            segment.l2Size--;
+            return true;
+        }
+        return false;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void invalidate(Object key) {
+        Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.invalidations++;
+            segment.expirationTimes.remove(key);
+            if (segment.l1.remove(key) != null || removeFromL2(segment, (K) key)) {
+                statistics.increaseInvalidations(1);
+            }
+        }
+    }
+    
+    private void invalidateAll(Set<?> keys) {
+        for (Object key : keys) {
+            invalidate(key);
+        }
+    }
+    
+    private void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.invalidations++;
+                statistics.increaseInvalidations(segment.l1.size() + segment.l2Size);
+                segment.l1.clear();
+                segment.expirationTimes.clear();
+                for (K key : segment.l2Keys) {
+                    l2.remove(key);
+                }
+                segment.l2Keys.clear();
+                segment.l2Size = 0;
+            }
+        }
+    }
+    
+    private void invalidateAll(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+        for (CacheEntryEvent<? extends K, ? extends V> event : events) {
+            invalidate(event.getKey());
+        }
+    }
+    
+    private static class Segment<K, V> {
+    
+        // Access ordered, so the eldest entry is the least recently used one
+        private final LinkedHashMap<K, V> l1 = new LinkedHashMap<K, V>(16, 0.75f, true);
+        // Keys of L2 in insertion order. Keys which have left L2 are skipped lazily.
+        private final ArrayDeque<K> l2Keys = new ArrayDeque<K>();
+        // Expiration times of the L1 and L2 entries which expire, they are kept while entries move between tiers
+        private final Map<K, Long> expirationTimes = new HashMap<K, Long>();
+        private final FrequencySketch sketch;
+        private final int l1MaxSize;
+        private final int l2MaxSize;
+        private int l2Size;
+        // Incremented on every invalidation, so values fetched before an invalidation are not installed
+        private long invalidations;
+    
+        private Segment(int l1MaxSize, int l2MaxSize) {
+            this.l1MaxSize = l1MaxSize;
+            this.l2MaxSize = l2MaxSize;
+            this.sketch = new FrequencySketch(l1MaxSize + l2MaxSize);
+        }
+    
+        private boolean isExpired(Object key, long now) {
+            if (expirationTimes.isEmpty()) {
+                return false;
+            }
+            Long expirationTime = expirationTimes.get(key);
+            return expirationTime != null && LocalExpiry.isExpired(expirationTime, now);
+        }
+    
+        private void setExpirationTime(K key, long expirationTime) {
+            if (expirationTime == LocalExpiry.NEVER) {
+                expirationTimes.remove(key);
+            } else {
+                expirationTimes.put(key, expirationTime);
+            }
+        }
+    
+        private K pollL2Candidate(OffHeapStore<K, V> l2) {
+            K key;
+            while ((key = l2Keys.pollFirst()) != null) {
+                if (l2.containsKey(key)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    
+        private void compactL2Keys(OffHeapStore<K, V> l2) {
+            if (l2Keys.size() <= 2 * l2MaxSize + 16) {
+                return;
+            }
+            Set<K> keys = new LinkedHashSet<K>();
+            for (K key : l2Keys) {
+                if (l2.containsKey(key)) {
+                    keys.add(key);
+                }
+            }
+            l2Keys.clear();
+            l2Keys.addAll(keys);
+        }
+    
+    }
+    
+    @SuppressWarnings("serial")
+    private static class InvalidationListenerFactory<K, V>
+            implements Factory<CacheEntryListener<? super K, ? super V>> {
+    
+        private final String tieredCacheId;
+    
+        private InvalidationListenerFactory(String tieredCacheId) {
+            this.tieredCacheId = tieredCacheId;
+        }
+    
+        @Override
+        public CacheEntryListener<? super K, ? super V> create() {
+            return new InvalidationListener<K, V>(tieredCacheId);
+        }
+    
+    }
+    
+    private static class InvalidationListener<K, V>
+            implements  CacheEntryUpdatedListener<K, V>,
+                        CacheEntryRemovedListener<K, V>,
+                        CacheEntryExpiredListener<K, V> {
+    
+        private final String tieredCacheId;
+    
+        private InvalidationListener(String tieredCacheId) {
+            this.tieredCacheId = tieredCacheId;
+        }
+    
+        @SuppressWarnings("unchecked")
+        private void invalidate(Iterable<CacheEntryEvent<? extends K, ? extends V>> events) {
+            TieredCache<K, V> tieredCache = (TieredCache<K, V>) TIERED_CACHES.get(tieredCacheId);
+            // Tiered cache may be on another member, or it may be closed
+            if (tieredCache != null) {
+                tieredCache.invalidateAll(events);
+            }
+        }
+    
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            invalidate(events);
+        }
+    
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            invalidate(events);
+        }
+    
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends K, ? extends V>> events)
+                throws CacheEntryListenerException {
+            invalidate(events);
+        }
+    
+    }
+
+}
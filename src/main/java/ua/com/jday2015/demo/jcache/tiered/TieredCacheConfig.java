@@ -0,0 +1,74 @@
+package ua.com.jday2015.demo.jcache.tiered;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.codec.CodecRegistry;
+
+/**
+ * Configuration of {@link TieredCache}. 
+ * By default, L1 keeps {@link #DEFAULT_L1_MAX_SIZE} entries on heap 
+ * and L2 keeps {@link #DEFAULT_L2_MAX_SIZE} entries off heap.
+ * 
+ * If key or value codec is not set, 
+ * it is resolved by {@link CodecRegistry#withDefaults()} from the types of the L3 cache configuration.
+ * 
+ * @author Serkan OZAL
+ */
+public class TieredCacheConfig {
+
+    public static final int DEFAULT_L1_MAX_SIZE = 1000;
+    public static final int DEFAULT_L2_MAX_SIZE = 100000;
+    
+    private int l1MaxSize = DEFAULT_L1_MAX_SIZE;
+    private int l2MaxSize = DEFAULT_L2_MAX_SIZE;
+    private Codec<?> keyCodec;
+    private Codec<?> valueCodec;
+    
+    public int getL1MaxSize() {
+        return l1MaxSize;
+    }
+    
+    public TieredCacheConfig setL1MaxSize(int l1MaxSize) {
+        if (l1MaxSize <= 0) {
+            throw new IllegalArgumentException("L1 max size must be positive!");
+        }
+        this.l1MaxSize = l1MaxSize;
+        return this;
+    }
+    
+    public int getL2MaxSize() {
+        return l2MaxSize;
+    }
+    
+    public TieredCacheConfig setL2MaxSize(int l2MaxSize) {
+        if (l2MaxSize <= 0) {
+            throw new IllegalArgumentException("L2 max size must be positive!");
+        }
+        this.l2MaxSize = l2MaxSize;
+        return this;
+    }
+    
+    public Codec<?> getKeyCodec() {
+        return keyCodec;
+    }
+    
+    public TieredCacheConfig setKeyCodec(Codec<?> keyCodec) {
+        if (keyCodec == null) {
+            throw new NullPointerException("Key codec cannot be null!");
+        }
+        this.keyCodec = keyCodec;
+        return this;
+    }
+    
+    public Codec<?> getValueCodec() {
+        return valueCodec;
+    }
+    
+    public TieredCacheConfig setValueCodec(Codec<?> valueCodec) {
+        if (valueCodec == null) {
+            throw new NullPointerException("Value codec cannot be null!");
+        }
+        this.valueCodec = valueCodec;
+        return this;
+    }
+    
+}
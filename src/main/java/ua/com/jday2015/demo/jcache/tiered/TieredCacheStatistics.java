@@ -0,0 +1,162 @@
+package ua.com.jday2015.demo.jcache.tiered;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-tier statistics of a {@link TieredCache}.
+ * 
+ * Every read is counted as a hit of the first tier which has the entry, 
+ * so hit percentages of all tiers and miss percentage sum up to 100.
+ * 
+ * @author Serkan OZAL
+ */
+public class TieredCacheStatistics {
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l3Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder demotions = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    void increaseL1Hits(int count) {
+        l1Hits.add(count);
+    }
+    
+    void increaseL2Hits(int count) {
+        l2Hits.add(count);
+    }
+    
+    void increaseL3Hits(int count) {
+        l3Hits.add(count);
+    }
+    
+    void increaseMisses(int count) {
+        misses.add(count);
+    }
+    
+    void increasePromotions() {
+        promotions.increment();
+    }
+    
+    void increaseDemotions() {
+        demotions.increment();
+    }
+    
+    void increaseEvictions() {
+        evictions.increment();
+    }
+    
+    void increaseInvalidations(int count) {
+        invalidations.add(count);
+    }
+    
+    void increaseExpirations() {
+        expirations.increment();
+    }
+    
+    public long getL1HitCount() {
+        return l1Hits.sum();
+    }
+    
+    public long getL2HitCount() {
+        return l2Hits.sum();
+    }
+    
+    public long getL3HitCount() {
+        return l3Hits.sum();
+    }
+    
+    public long getMissCount() {
+        return misses.sum();
+    }
+    
+    public long getGetCount() {
+        return getL1HitCount() + getL2HitCount() + getL3HitCount() + getMissCount();
+    }
+    
+    public float getL1HitPercentage() {
+        return percentageOf(getL1HitCount());
+    }
+    
+    public float getL2HitPercentage() {
+        return percentageOf(getL2HitCount());
+    }
+    
+    public float getL3HitPercentage() {
+        return percentageOf(getL3HitCount());
+    }
+    
+    public float getMissPercentage() {
+        return percentageOf(getMissCount());
+    }
+    
+    /**
+     * Gets the number of entries moved from L2 to L1 since they are accessed more frequently 
+     * than the least recently used entry of L1.
+     */
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+    
+    /**
+     * Gets the number of entries moved from L1 to L2.
+     */
+    public long getDemotionCount() {
+        return demotions.sum();
+    }
+    
+    /**
+     * Gets the number of entries dropped from L2. They are still available on L3.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+    
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+    
+    /**
+     * Gets the number of L1 and L2 entries dropped since they have expired by the expiry policy of L3.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+    
+    public void clear() {
+        l1Hits.reset();
+        l2Hits.reset();
+        l3Hits.reset();
+        misses.reset();
+        promotions.reset();
+        demotions.reset();
+        evictions.reset();
+        invalidations.reset();
+        expirations.reset();
+    }
+    
+    private float percentageOf(long count) {
+        long getCount = getGetCount();
+        return getCount == 0 ? 0 : (float) count * 100 / getCount;
+    }
+    
+    @Override
+    public String toString() {
+        return "TieredCacheStatistics{" 
+                + "l1Hits=" + getL1HitCount() 
+                + ", l2Hits=" + getL2HitCount() 
+                + ", l3Hits=" + getL3HitCount() 
+                + ", misses=" + getMissCount() 
+                + ", promotions=" + getPromotionCount() 
+                + ", demotions=" + getDemotionCount() 
+                + ", evictions=" + getEvictionCount() 
+                + ", invalidations=" + getInvalidationCount() 
+                + ", expirations=" + getExpirationCount() 
+                + "}";
+    }
+    
+}
@@ -0,0 +1,590 @@
+package ua.com.jday2015.demo.jcache.unitofwork;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.EntryProcessorException;
+import javax.cache.processor.MutableEntry;
+
+import ua.com.jday2015.demo.jcache.async.AsyncCache;
+import ua.com.jday2015.demo.jcache.async.DefaultAsyncCache;
+
+/**
+ * Buffers mutations on the keys of one or more caches and commits them as a single unit.
+ * 
+ * On commit: 
+ * <ul> 
+ *      <li>Current values of the mutated keys are read by a single {@link Cache#getAll(Set)} per cache 
+ *          and the buffered mutations (including entry processors) are applied on them locally.</li> 
+ *      <li>Changes are sent to the caches all at once by conditional operations 
+ *          (<code>putIfAbsent</code>, <code>replace</code> and <code>remove</code> with the values read), 
+ *          which are pipelined through {@link DefaultAsyncCache}. 
+ *          Decorated caches are changed through theirs decorators, so quotas, bounds and invalidations apply. 
+ *          If any key has been changed by others meanwhile, applied changes are reverted 
+ *          and a {@link UnitOfWorkException} is thrown.</li> 
+ *      <li>Changes are written to each {@link CacheWriter} by a single {@link CacheWriter#writeAll(Collection)} 
+ *          and a single {@link CacheWriter#deleteAll(Collection)}. 
+ *          If a writer fails, previous values are written back to the writers, 
+ *          changes on the caches are reverted and a {@link UnitOfWorkException} is thrown.</li> 
+ * </ul> 
+ * Keys which are only read by entry processors are not checked for conflicts. 
+ * Reverting is done by conditional operations too, so changes made by others after the commit are kept. 
+ * Note that writers may be called in a different order than the caches are changed 
+ * by concurrent units of work on the same keys, 
+ * so back-ends which are written concurrently should also check versions of theirs records.
+ * 
+ * Results of entry processors are available through the returned futures after commit. 
+ * A unit of work is not thread-safe and it can be committed or rolled back only once.
+ * 
+ * @author Serkan OZAL
+ */
+public class UnitOfWork {
+
+    private final UnitOfWorkFactory factory;
+    private final Map<Cache<?, ?>, CacheChanges<?, ?>> cacheChanges =
+            new LinkedHashMap<Cache<?, ?>, CacheChanges<?, ?>>();
+    private int mutationCount;
+    private boolean completed;
+    
+    UnitOfWork(UnitOfWorkFactory factory) {
+        this.factory = factory;
+    }
+    
+    public int getMutationCount() {
+        return mutationCount;
+    }
+    
+    public boolean isCompleted() {
+        return completed;
+    }
+    
+    private void checkActive() {
+        if (completed) {
+            throw new IllegalStateException("Unit of work has already been completed!");
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <K, V> void add(Cache<K, V> cache, K key, Mutation<K, V> mutation) {
+        checkActive();
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        if (key == null) {
+            throw new NullPointerException("Key cannot be null!");
+        }
+        CacheChanges<K, V> changes = (CacheChanges<K, V>) cacheChanges.get(cache);
+        if (changes == null) {
+            changes = new CacheChanges<K, V>(cache, (CacheWriter<K, V>) factory.getWriter(cache));
+            cacheChanges.put(cache, changes);
+        }
+        changes.add(key, mutation);
+        mutationCount++;
+    }
+    
+    public <K, V> void put(Cache<K, V> cache, K key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null!");
+        }
+        add(cache, key, new PutMutation<K, V>(value));
+    }
+    
+    public <K, V> void putAll(Cache<K, V> cache, Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(cache, entry.getKey(), entry.getValue());
+        }
+    }
+    
+    public <K, V> void remove(Cache<K, V> cache, K key) {
+        add(cache, key, new RemoveMutation<K, V>());
+    }
+    
+    public <K, V> void removeAll(Cache<K, V> cache, Set<? extends K> keys) {
+        for (K key : keys) {
+            remove(cache, key);
+        }
+    }
+    
+    /**
+     * Buffers execution of the given entry processor. 
+     * It is executed locally on commit after the mutations buffered before it.
+     * 
+     * @return the future which is completed by the result of the entry processor
+     *         when the unit of work is committed, 
+     *         or completed exceptionally when the unit of work is rolled back
+     */
+    public <K, V, T> CompletableFuture<T> invoke(Cache<K, V> cache, K key,
+                                                 EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
+        if (entryProcessor == null) {
+            throw new NullPointerException("Entry processor cannot be null!");
+        }
+        InvokeMutation<K, V, T> mutation = new InvokeMutation<K, V, T>(entryProcessor, arguments);
+        add(cache, key, mutation);
+        return mutation.result;
+    }
+    
+    public <K, V, T> Map<K, CompletableFuture<T>> invokeAll(Cache<K, V> cache, Set<? extends K> keys,
+                                                            EntryProcessor<K, V, T> entryProcessor,
+                                                            Object... arguments) {
+        Map<K, CompletableFuture<T>> results = new LinkedHashMap<K, CompletableFuture<T>>();
+        for (K key : keys) {
+            results.put(key, invoke(cache, key, entryProcessor, arguments));
+        }
+        return results;
+    }
+    
+    /**
+     * Discards all the buffered mutations.
+     */
+    public void rollback() {
+        checkActive();
+        completed = true;
+        fail(new UnitOfWorkException("Unit of work has been rolled back!"));
+    }
+    
+    public void commit() throws UnitOfWorkException {
+        checkActive();
+        completed = true;
+        List<CacheChanges<?, ?>> allChanges = new ArrayList<CacheChanges<?, ?>>(cacheChanges.values());
+    
+        try {
+            for (CacheChanges<?, ?> changes : allChanges) {
+                changes.prepare();
+            }
+        } catch (RuntimeException e) {
+            // Nothing has been applied yet
+            throw fail(new UnitOfWorkException("Unit of work could not be prepared, so it has been rolled back!", e));
+        }
+    
+        // Send the changes of all caches at once, then wait for all of them
+        for (CacheChanges<?, ?> changes : allChanges) {
+            changes.apply();
+        }
+        int conflicts = 0;
+        Throwable failure = null;
+        for (CacheChanges<?, ?> changes : allChanges) {
+            conflicts += changes.awaitApplied();
+            if (failure == null) {
+                failure = changes.failure;
+            }
+        }
+        if (conflicts > 0 || failure != null) {
+            revert(allChanges);
+            if (conflicts > 0) {
+                factory.increaseConflicts();
+                throw fail(new UnitOfWorkException(
+                        conflicts + " key(s) have been changed concurrently, so unit of work has been rolled back!",
+                        conflicts));
+            }
+            throw fail(new UnitOfWorkException("Unit of work could not be applied, so it has been rolled back!", failure));
+        }
+    
+        Map<CacheWriter<Object, Object>, WriterBatch> writerBatches =
+                new LinkedHashMap<CacheWriter<Object, Object>, WriterBatch>();
+        for (CacheChanges<?, ?> changes : allChanges) {
+            changes.addTo(writerBatches);
+        }
+        List<WriterBatch> writtenBatches = new ArrayList<WriterBatch>();
+        for (WriterBatch writerBatch : writerBatches.values()) {
+            // Failed batch may have been written partially
+            writtenBatches.add(writerBatch);
+            try {
+                writerBatch.write();
+            } catch (RuntimeException e) {
+                UnitOfWorkException exception =
+                        new UnitOfWorkException("Unit of work could not be written, so it has been rolled back!", e);
+                for (WriterBatch writtenBatch : writtenBatches) {
+                    try {
+                        writtenBatch.restore();
+                    } catch (RuntimeException restoreFailure) {
+                        exception.addSuppressed(restoreFailure);
+                    }
+                }
+                revert(allChanges);
+                throw fail(exception);
+            }
+        }
+    
+        for (CacheChanges<?, ?> changes : allChanges) {
+            changes.completeResults();
+        }
+        factory.increaseCommits();
+    }
+    
+    private void revert(List<CacheChanges<?, ?>> allChanges) {
+        for (CacheChanges<?, ?> changes : allChanges) {
+            changes.revert();
+        }
+        for (CacheChanges<?, ?> changes : allChanges) {
+            changes.awaitReverted();
+        }
+    }
+    
+    private UnitOfWorkException fail(UnitOfWorkException exception) {
+        for (CacheChanges<?, ?> changes : cacheChanges.values()) {
+            changes.failResults(exception);
+        }
+        factory.increaseRollbacks();
+        return exception;
+    }
+    
+    private static boolean await(CompletableFuture<Boolean> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            return false;
+        }
+    }
+    
+    private static class CacheChanges<K, V> {
+    
+        private final Cache<K, V> cache;
+        private final CacheWriter<K, V> writer;
+        private final Map<K, List<Mutation<K, V>>> mutations = new LinkedHashMap<K, List<Mutation<K, V>>>();
+        private final List<Change<K, V>> changes = new ArrayList<Change<K, V>>();
+        private Throwable failure;
+    
+        private CacheChanges(Cache<K, V> cache, CacheWriter<K, V> writer) {
+            this.cache = cache;
+            this.writer = writer;
+        }
+    
+        private void add(K key, Mutation<K, V> mutation) {
+            List<Mutation<K, V>> keyMutations = mutations.get(key);
+            if (keyMutations == null) {
+                keyMutations = new ArrayList<Mutation<K, V>>(1);
+                mutations.put(key, keyMutations);
+            }
+            keyMutations.add(mutation);
+        }
+    
+        private void prepare() {
+            Map<K, V> currentValues = cache.getAll(mutations.keySet());
+            for (Map.Entry<K, List<Mutation<K, V>>> entry : mutations.entrySet()) {
+                K key = entry.getKey();
+                V currentValue = currentValues.get(key);
+                BufferedEntry<K, V> bufferedEntry = new BufferedEntry<K, V>(key, currentValue);
+                for (Mutation<K, V> mutation : entry.getValue()) {
+                    mutation.apply(bufferedEntry);
+                }
+                // Entry may have been created and then removed by the mutations
+                if (bufferedEntry.changed && (currentValue != null || bufferedEntry.value != null)) {
+                    changes.add(new Change<K, V>(key, currentValue, bufferedEntry.value));
+                }
+            }
+        }
+    
+        private void apply() {
+            AsyncCache<K, V> asyncCache = new DefaultAsyncCache<K, V>(cache);
+            for (Change<K, V> change : changes) {
+                if (change.oldValue == null) {
+                    change.applied = asyncCache.putIfAbsentAsync(change.key, change.newValue);
+                } else if (change.newValue == null) {
+                    change.applied = asyncCache.removeAsync(change.key, change.oldValue);
+                } else {
+                    change.applied = asyncCache.replaceAsync(change.key, change.oldValue, change.newValue);
+                }
+            }
+        }
+    
+        private int awaitApplied() {
+            int conflicts = 0;
+            for (Change<K, V> change : changes) {
+                try {
+                    if (!change.applied.join()) {
+                        conflicts++;
+                    }
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                }
+            }
+            return conflicts;
+        }
+    
+        private void revert() {
+            AsyncCache<K, V> asyncCache = new DefaultAsyncCache<K, V>(cache);
+            for (Change<K, V> change : changes) {
+                if (!await(change.applied)) {
+                    continue;
+                }
+                if (change.newValue == null) {
+                    change.reverted = asyncCache.putIfAbsentAsync(change.key, change.oldValue);
+                } else if (change.oldValue == null) {
+                    change.reverted = asyncCache.removeAsync(change.key, change.newValue);
+                } else {
+                    change.reverted = asyncCache.replaceAsync(change.key, change.newValue, change.oldValue);
+                }
+            }
+        }
+    
+        private void awaitReverted() {
+            for (Change<K, V> change : changes) {
+                if (change.reverted != null) {
+                    // Not reverted only if the key has been changed by others after this unit of work
+                    await(change.reverted);
+                }
+            }
+        }
+    
+        @SuppressWarnings("unchecked")
+        private void addTo(Map<CacheWriter<Object, Object>, WriterBatch> writerBatches) {
+            if (writer == null || changes.isEmpty()) {
+                return;
+            }
+            WriterBatch writerBatch = writerBatches.get(writer);
+            if (writerBatch == null) {
+                writerBatch = new WriterBatch((CacheWriter<Object, Object>) writer);
+                writerBatches.put((CacheWriter<Object, Object>) writer, writerBatch);
+            }
+            for (Change<K, V> change : changes) {
+                writerBatch.add(change);
+            }
+        }
+    
+        private void completeResults() {
+            for (List<Mutation<K, V>> keyMutations : mutations.values()) {
+                for (Mutation<K, V> mutation : keyMutations) {
+                    mutation.complete();
+                }
+            }
+        }
+    
+        private void failResults(Throwable cause) {
+            for (List<Mutation<K, V>> keyMutations : mutations.values()) {
+                for (Mutation<K, V> mutation : keyMutations) {
+                    mutation.fail(cause);
+                }
+            }
+        }
+    
+    }
+    
+    private static class Change<K, V> {
+    
+        private final K key;
+        // null if there was no entry
+        private final V oldValue;
+        // null if the entry is removed
+        private final V newValue;
+        private CompletableFuture<Boolean> applied;
+        private CompletableFuture<Boolean> reverted;
+    
+        private Change(K key, V oldValue, V newValue) {
+            this.key = key;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+    
+    }
+    
+    private static class WriterBatch {
+    
+        private final CacheWriter<Object, Object> writer;
+        private final List<Cache.Entry<?, ?>> writes = new ArrayList<Cache.Entry<?, ?>>();
+        private final List<Object> deletes = new ArrayList<Object>();
+        private final List<Cache.Entry<?, ?>> restoreWrites = new ArrayList<Cache.Entry<?, ?>>();
+        private final List<Object> restoreDeletes = new ArrayList<Object>();
+    
+        private WriterBatch(CacheWriter<Object, Object> writer) {
+            this.writer = writer;
+        }
+    
+        private void add(Change<?, ?> change) {
+            if (change.newValue != null) {
+                writes.add(new SimpleEntry(change.key, change.newValue));
+            } else {
+                deletes.add(change.key);
+            }
+            if (change.oldValue != null) {
+                restoreWrites.add(new SimpleEntry(change.key, change.oldValue));
+            } else {
+                restoreDeletes.add(change.key);
+            }
+        }
+    
+        private void write() {
+            write(writes, deletes);
+        }
+    
+        private void restore() {
+            write(restoreWrites, restoreDeletes);
+        }
+    
+        private void write(List<Cache.Entry<?, ?>> entries, List<Object> keys) {
+            // Writers remove the written entries from the given collections, so pass copies of them
+            if (!entries.isEmpty()) {
+                writer.writeAll(new ArrayList<Cache.Entry<? extends Object, ? extends Object>>(entries));
+            }
+            if (!keys.isEmpty()) {
+                writer.deleteAll(new ArrayList<Object>(keys));
+            }
+        }
+    
+    }
+    
+    private abstract static class Mutation<K, V> {
+    
+        abstract void apply(BufferedEntry<K, V> entry);
+    
+        void complete() {
+        }
+    
+        void fail(Throwable cause) {
+        }
+    
+    }
+    
+    private static class PutMutation<K, V> extends Mutation<K, V> {
+    
+        private final V value;
+    
+        private PutMutation(V value) {
+            this.value = value;
+        }
+    
+        @Override
+        void apply(BufferedEntry<K, V> entry) {
+            entry.setValue(value);
+        }
+    
+    }
+    
+    private static class RemoveMutation<K, V> extends Mutation<K, V> {
+    
+        @Override
+        void apply(BufferedEntry<K, V> entry) {
+            entry.remove();
+        }
+    
+    }
+    
+    private static class InvokeMutation<K, V, T> extends Mutation<K, V> {
+    
+        private final EntryProcessor<K, V, T> entryProcessor;
+        private final Object[] arguments;
+        private final CompletableFuture<T> result = new CompletableFuture<T>();
+        private T value;
+    
+        private InvokeMutation(EntryProcessor<K, V, T> entryProcessor, Object[] arguments) {
+            this.entryProcessor = entryProcessor;
+            this.arguments = arguments;
+        }
+    
+        @Override
+        void apply(BufferedEntry<K, V> entry) {
+            try {
+                value = entryProcessor.process(entry, arguments);
+            } catch (EntryProcessorException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new EntryProcessorException(e);
+            }
+        }
+    
+        @Override
+        void complete() {
+            result.complete(value);
+        }
+    
+        @Override
+        void fail(Throwable cause) {
+            result.completeExceptionally(cause);
+        }
+    
+    }
+    
+    private static class BufferedEntry<K, V> implements MutableEntry<K, V> {
+    
+        private final K key;
+        private V value;
+        private boolean changed;
+    
+        private BufferedEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    
+        @Override
+        public K getKey() {
+            return key;
+        }
+    
+        @Override
+        public V getValue() {
+            return value;
+        }
+    
+        @Override
+        public boolean exists() {
+            return value != null;
+        }
+    
+        @Override
+        public void remove() {
+            if (value != null) {
+                value = null;
+                changed = true;
+            }
+        }
+    
+        @Override
+        public void setValue(V value) {
+            if (value == null) {
+                throw new NullPointerException("Value cannot be null!");
+            }
+            this.value = value;
+            changed = true;
+        }
+    
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Entry cannot be unwrapped to " + clazz.getName() + "!");
+        }
+    
+    }
+    
+    private static class SimpleEntry implements Cache.Entry<Object, Object> {
+    
+        private final Object key;
+        private final Object value;
+    
+        private SimpleEntry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    
+        @Override
+        public Object getKey() {
+            return key;
+        }
+    
+        @Override
+        public Object getValue() {
+            return value;
+        }
+    
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Entry cannot be unwrapped to " + clazz.getName() + "!");
+        }
+    
+    }
+
+}
@@ -0,0 +1,38 @@
+package ua.com.jday2015.demo.jcache.unitofwork;
+
+import javax.cache.CacheException;
+
+/**
+ * Thrown when a {@link UnitOfWork} cannot be committed. 
+ * When it is thrown, changes of the unit of work have already been rolled back.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class UnitOfWorkException extends CacheException {
+
+    private final int conflictCount;
+    
+    public UnitOfWorkException(String message) {
+        this(message, 0);
+    }
+    
+    public UnitOfWorkException(String message, int conflictCount) {
+        super(message);
+        this.conflictCount = conflictCount;
+    }
+    
+    public UnitOfWorkException(String message, Throwable cause) {
+        super(message, cause);
+        this.conflictCount = 0;
+    }
+    
+    /**
+     * Gets the number of keys which have been changed by others 
+     * after they were read by the unit of work.
+     */
+    public int getConflictCount() {
+        return conflictCount;
+    }
+    
+}
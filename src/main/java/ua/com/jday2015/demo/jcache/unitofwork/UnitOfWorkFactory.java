@@ -0,0 +1,93 @@
+package ua.com.jday2015.demo.jcache.unitofwork;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.Cache;
+import javax.cache.configuration.CompleteConfiguration;
+import javax.cache.integration.CacheWriter;
+
+/**
+ * Creates {@link UnitOfWork}s and keeps the {@link CacheWriter}s of the caches they work on.
+ * 
+ * Caches are used in cache-aside manner, so registered caches must not be write-through: 
+ * their changes are written to their writers only by units of work. 
+ * A writer may be registered for more than one cache, 
+ * then changes of all those caches are written by the same 
+ * {@link CacheWriter#writeAll(java.util.Collection)} and {@link CacheWriter#deleteAll(java.util.Collection)} calls. 
+ * Changes of caches without a writer are only applied to the caches.
+ * 
+ * @author Serkan OZAL
+ */
+public class UnitOfWorkFactory {
+
+    private final ConcurrentMap<Cache<?, ?>, CacheWriter<?, ?>> writers = 
+            new ConcurrentHashMap<Cache<?, ?>, CacheWriter<?, ?>>();
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong rollbackCount = new AtomicLong();
+    private final AtomicLong conflictCount = new AtomicLong();
+    
+    @SuppressWarnings("unchecked")
+    public <K, V> UnitOfWorkFactory register(Cache<K, V> cache, CacheWriter<? super K, ? super V> writer) {
+        if (cache == null) {
+            throw new NullPointerException("Cache cannot be null!");
+        }
+        if (writer == null) {
+            throw new NullPointerException("Writer cannot be null!");
+        }
+        CompleteConfiguration<K, V> configuration = cache.getConfiguration(CompleteConfiguration.class);
+        if (configuration.isWriteThrough()) {
+            throw new IllegalArgumentException(
+                    "Cache \"" + cache.getName() + "\" cannot be write-through " 
+                    + "since its changes are written by units of work!");
+        }
+        writers.put(cache, writer);
+        return this;
+    }
+    
+    public UnitOfWorkFactory deregister(Cache<?, ?> cache) {
+        writers.remove(cache);
+        return this;
+    }
+    
+    CacheWriter<?, ?> getWriter(Cache<?, ?> cache) {
+        return writers.get(cache);
+    }
+    
+    public UnitOfWork begin() {
+        return new UnitOfWork(this);
+    }
+    
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+    
+    /**
+     * Gets the number of units of work which have been rolled back, 
+     * either explicitly or because their commits have failed.
+     */
+    public long getRollbackCount() {
+        return rollbackCount.get();
+    }
+    
+    /**
+     * Gets the number of commits which have failed because of concurrent changes on theirs keys.
+     */
+    public long getConflictCount() {
+        return conflictCount.get();
+    }
+    
+    void increaseCommits() {
+        commitCount.incrementAndGet();
+    }
+    
+    void increaseRollbacks() {
+        rollbackCount.incrementAndGet();
+    }
+    
+    void increaseConflicts() {
+        conflictCount.incrementAndGet();
+    }
+    
+}
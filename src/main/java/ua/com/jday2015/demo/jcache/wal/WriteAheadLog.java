@@ -0,0 +1,711 @@
+package ua.com.jday2015.demo.jcache.wal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+
+/**
+ * Segmented append-only log of cache writer mutations with group commit.
+ * 
+ * Every mutation gets an increasing log sequence number (LSN) and it is encoded into an in-memory buffer. 
+ * {@link #sync(long)} makes the mutations up to the given LSN durable: 
+ * one of the waiting threads writes all the buffered mutations and forces them to the disk 
+ * while the others wait, so a single <code>fsync</code> is shared by all concurrent mutations (group commit). 
+ * Record layout is: 
+ * <pre>
+ *      | length (4 bytes) | CRC32 (4 bytes) | LSN (8 bytes) | kind (1 byte) | key length (4 bytes)
+ *      | key bytes | value bytes |
+ * </pre> 
+ * Segments are rolled at "maxSegmentSize" bytes. 
+ * Checkpoints record the lowest LSN which has not been written to the backend yet 
+ * by asking the registered checkpoint sources. Segments completely below it are deleted, 
+ * and when there are "compactionThreshold" sealed segments, they are compacted into a single segment 
+ * which keeps only the latest mutation per key.
+ * 
+ * On open, mutations after the latest checkpoint are replayed into the given {@link CacheWriter} 
+ * (latest mutation per key). Replay is at-least-once, so some of the mutations may be written again. 
+ * A torn record at the end of a segment (crash while writing) ends reading of that segment.
+ * 
+ * Logs are shared per directory in the JVM and reference counted, 
+ * since a cache writer is created for every partition of a Hazelcast cache. 
+ * All users of a shared log must open it with the same configuration.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class WriteAheadLog implements Closeable {
+    
+    static final byte WRITE_RECORD = 0;
+    static final byte DELETE_RECORD = 1;
+    static final byte CHECKPOINT_RECORD = 2;
+    
+    private static final int RECORD_FRAME_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 13;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("wal-(\\d{19})\\.log");
+    
+    private static final Map<Path, WriteAheadLog> LOGS = new HashMap<Path, WriteAheadLog>();
+    
+    private final Path directory;
+    private final WriteAheadLogConfig config;
+    private final Codec keyCodec;
+    private final Codec valueCodec;
+    private final CRC32 crc = new CRC32();
+    private final Object appendLock = new Object();
+    private final Lock syncLock = new ReentrantLock();
+    private final Condition syncDone = syncLock.newCondition();
+    private final Object checkpointLock = new Object();
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private final List<LongSupplier> checkpointSources = new CopyOnWriteArrayList<LongSupplier>();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong compactionCount = new AtomicLong();
+    // Guarded by "appendLock"
+    private ByteBuffer appendBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spareBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+    private long lastLsn;
+    private boolean closed;
+    // Guarded by "syncLock"
+    private boolean syncing;
+    // Only accessed by the syncing thread
+    private Segment activeSegment;
+    private FileChannel activeChannel;
+    private volatile long durableLsn;
+    private volatile IOException failure;
+    private volatile long checkpointLsn;
+    private int recoveredRecordCount;
+    // Guarded by "LOGS"
+    private int referenceCount;
+    
+    private WriteAheadLog(Path directory, WriteAheadLogConfig config) {
+        this.directory = directory;
+        this.config = config;
+        this.keyCodec = config.getKeyCodec();
+        this.valueCodec = config.getValueCodec();
+    }
+    
+    /**
+     * Opens the log in the directory of the given configuration or gets it if it is already open in the JVM. 
+     * When the log is opened, its mutations after the latest checkpoint 
+     * are replayed into the given {@link CacheWriter} before returning.
+     * 
+     * @throws IllegalArgumentException if the log is already open with a different configuration
+     */
+    public static WriteAheadLog open(WriteAheadLogConfig config, CacheWriter<?, ?> recoveryWriter)
+            throws IOException {
+        if (config == null) {
+            throw new NullPointerException("Write-ahead log config cannot be null!");
+        }
+        if (recoveryWriter == null) {
+            throw new NullPointerException("Recovery cache writer cannot be null!");
+        }
+        Path directory = config.getDirectory().toPath().toAbsolutePath().normalize();
+        synchronized (LOGS) {
+            WriteAheadLog log = LOGS.get(directory);
+            if (log == null) {
+                log = new WriteAheadLog(directory, config);
+                try {
+                    log.recover(recoveryWriter);
+                } catch (IOException e) {
+                    log.closeActiveChannel();
+                    throw e;
+                } catch (RuntimeException e) {
+                    log.closeActiveChannel();
+                    throw e;
+                }
+                LOGS.put(directory, log);
+            } else if (!isSameConfig(log.config, config)) {
+                throw new IllegalArgumentException(
+                        "Write-ahead log in " + directory + " is already open with a different configuration!");
+            }
+            log.referenceCount++;
+            return log;
+        }
+    }
+    
+    private static boolean isSameConfig(WriteAheadLogConfig config1, WriteAheadLogConfig config2) {
+        // Configs are deserialized separately for every cache writer and codecs are stateless, 
+        // so codecs are compared by their types
+        return config1.getMaxSegmentSize() == config2.getMaxSegmentSize()
+               && config1.getCompactionThreshold() == config2.getCompactionThreshold()
+               && config1.getKeyCodec().getClass() == config2.getKeyCodec().getClass()
+               && config1.getValueCodec().getClass() == config2.getValueCodec().getClass();
+    }
+    
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    public long getLastLsn() {
+        synchronized (appendLock) {
+            return lastLsn;
+        }
+    }
+    
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+    
+    public long getCheckpointLsn() {
+        return checkpointLsn;
+    }
+    
+    /**
+     * Gets the number of <code>fsync</code>s, each of them makes a group of mutations durable.
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+    
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+    
+    public int getRecoveredRecordCount() {
+        return recoveredRecordCount;
+    }
+    
+    public int getSegmentCount() {
+        synchronized (segments) {
+            return segments.size();
+        }
+    }
+    
+    /**
+     * Registers a source which supplies the lowest LSN it has not written to the backend yet, 
+     * or {@link Long#MAX_VALUE} if it has nothing pending. 
+     * It must be consistent with the appends done by the same source.
+     */
+    public void addCheckpointSource(LongSupplier checkpointSource) {
+        checkpointSources.add(checkpointSource);
+    }
+    
+    public void removeCheckpointSource(LongSupplier checkpointSource) {
+        checkpointSources.remove(checkpointSource);
+    }
+    
+    /**
+     * Appends a write mutation. It is not durable until {@link #sync(long)} is called with the returned LSN.
+     */
+    public long appendWrite(Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("Key and value cannot be null!");
+        }
+        return append(WRITE_RECORD, key, value);
+    }
+    
+    /**
+     * Appends a delete mutation. It is not durable until {@link #sync(long)} is called with the returned LSN.
+     */
+    public long appendDelete(Object key) {
+        if (key == null) {
+            throw new NullPointerException("Key cannot be null!");
+        }
+        return append(DELETE_RECORD, key, null);
+    }
+    
+    private long append(byte kind, Object key, Object value) {
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed!");
+            }
+            long lsn = lastLsn + 1;
+            for (;;) {
+                int start = appendBuffer.position();
+                try {
+                    encodeRecord(lsn, kind, key, value);
+                    break;
+                } catch (BufferOverflowException e) {
+                    appendBuffer.position(start);
+                    ByteBuffer largerBuffer = ByteBuffer.allocateDirect(appendBuffer.capacity() << 1);
+                    appendBuffer.flip();
+                    largerBuffer.put(appendBuffer);
+                    appendBuffer = largerBuffer;
+                } catch (Throwable t) {
+                    // Drop the partially encoded record (such as when a codec fails), 
+                    // otherwise it would be synced as a torn record and hide the records after it on recovery
+                    appendBuffer.position(start);
+                    throw t;
+                }
+            }
+            lastLsn = lsn;
+            return lsn;
+        }
+    }
+    
+    private void encodeRecord(long lsn, byte kind, Object key, Object value) {
+        ByteBuffer buffer = appendBuffer;
+        if (buffer.remaining() < RECORD_FRAME_SIZE + RECORD_HEADER_SIZE) {
+            throw new BufferOverflowException();
+        }
+        int start = buffer.position();
+        buffer.position(start + RECORD_FRAME_SIZE);
+        buffer.putLong(lsn);
+        buffer.put(kind);
+        int keyLengthPosition = buffer.position();
+        buffer.position(keyLengthPosition + 4);
+        if (key != null) {
+            keyCodec.encode(key, buffer);
+        }
+        int keyLength = buffer.position() - keyLengthPosition - 4;
+        if (kind == CHECKPOINT_RECORD) {
+            buffer.putLong((Long) value);
+        } else if (value != null) {
+            valueCodec.encode(value, buffer);
+        }
+        int length = buffer.position() - start - RECORD_FRAME_SIZE;
+        buffer.putInt(keyLengthPosition, keyLength);
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(buffer.position()).position(start + RECORD_FRAME_SIZE);
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+    
+    /**
+     * Makes the mutations up to the given LSN durable.
+     * 
+     * @throws IOException if writing to the log has failed. 
+     *                     Then the log doesn't accept any more mutations as durable.
+     */
+    public void sync(long lsn) throws IOException {
+        if (durableLsn >= lsn) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw new IOException("Write-ahead log has failed!", failure);
+                }
+                if (syncing) {
+                    // Another thread is syncing, the next sync will cover the mutations appended meanwhile
+                    syncDone.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                syncLock.unlock();
+                IOException error = null;
+                try {
+                    writeAppended();
+                } catch (IOException e) {
+                    error = e;
+                } catch (RuntimeException e) {
+                    error = new IOException(e);
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (error != null) {
+                        failure = error;
+                    }
+                    syncDone.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+    
+    private void writeAppended() throws IOException {
+        ByteBuffer buffer;
+        long targetLsn;
+        synchronized (appendLock) {
+            buffer = appendBuffer;
+            appendBuffer = spareBuffer;
+            spareBuffer = null;
+            targetLsn = lastLsn;
+        }
+        try {
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                if (activeChannel.position() > 0
+                        && activeChannel.position() + buffer.remaining() > config.getMaxSegmentSize()) {
+                    rollSegment();
+                }
+                while (buffer.hasRemaining()) {
+                    activeChannel.write(buffer);
+                }
+                activeChannel.force(false);
+                syncCount.incrementAndGet();
+            }
+            synchronized (segments) {
+                activeSegment.lastLsn = targetLsn;
+            }
+            durableLsn = targetLsn;
+        } finally {
+            buffer.clear();
+            synchronized (appendLock) {
+                spareBuffer = buffer;
+            }
+        }
+    }
+    
+    private Path segmentFileOf(long sequence) {
+        return directory.resolve(String.format("wal-%019d.log", sequence));
+    }
+    
+    private void openSegment(long sequence) throws IOException {
+        Segment segment = new Segment(sequence, segmentFileOf(sequence));
+        activeChannel = FileChannel.open(segment.file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        synchronized (segments) {
+            segment.lastLsn = durableLsn;
+            segments.put(sequence, segment);
+            activeSegment = segment;
+        }
+    }
+    
+    private void rollSegment() throws IOException {
+        activeChannel.close();
+        openSegment(activeSegment.sequence + 1);
+    }
+    
+    private void closeActiveChannel() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+    
+    /**
+     * Records a checkpoint at the lowest LSN which has not been written to the backend by any checkpoint source, 
+     * deletes the segments completely below it and compacts sealed segments if there are too many of them.
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            // Mutations appended after this are above the checkpoint whatever sources report
+            long lsn = getLastLsn() + 1;
+            for (LongSupplier checkpointSource : checkpointSources) {
+                lsn = Math.min(lsn, checkpointSource.getAsLong());
+            }
+            if (lsn > checkpointLsn) {
+                checkpointLsn = lsn;
+                // Checkpoint record becomes durable with the next sync.
+                // If it is lost, mutations after the previous checkpoint are just replayed again.
+                append(CHECKPOINT_RECORD, null, lsn);
+                deleteObsoleteSegments();
+            }
+            // Even if nothing has been written to the backend, sealed segments are compacted
+            List<Segment> sealedSegments = getSealedSegments();
+            if (sealedSegments.size() >= config.getCompactionThreshold()) {
+                compact(sealedSegments);
+            }
+        }
+    }
+    
+    private List<Segment> getSealedSegments() {
+        synchronized (segments) {
+            List<Segment> sealedSegments = new ArrayList<Segment>(segments.values());
+            sealedSegments.remove(activeSegment);
+            return sealedSegments;
+        }
+    }
+    
+    private void deleteObsoleteSegments() throws IOException {
+        for (Segment segment : getSealedSegments()) {
+            if (segment.lastLsn < checkpointLsn) {
+                synchronized (segments) {
+                    segments.remove(segment.sequence);
+                }
+                Files.deleteIfExists(segment.file);
+            }
+        }
+    }
+    
+    private void compact(List<Segment> sealedSegments) throws IOException {
+        Map<ByteBuffer, LogRecord> latestRecords = new HashMap<ByteBuffer, LogRecord>();
+        for (Segment segment : sealedSegments) {
+            for (LogRecord record : readSegment(segment.file)) {
+                collectLatest(record, latestRecords);
+            }
+        }
+        List<LogRecord> records = sortByLsn(latestRecords.values());
+        Segment compactedSegment = sealedSegments.get(0);
+        if (!records.isEmpty()) {
+            Path tempFile = compactedSegment.file.resolveSibling(compactedSegment.file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tempFile,
+                                                        StandardOpenOption.CREATE,
+                                                        StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (LogRecord record : records) {
+                    ByteBuffer frame = record.frame.duplicate();
+                    while (frame.hasRemaining()) {
+                        channel.write(frame);
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, compactedSegment.file,
+                       StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (segments) {
+                compactedSegment.lastLsn = records.get(records.size() - 1).lsn;
+            }
+        }
+        for (Segment segment : sealedSegments) {
+            if (segment != compactedSegment || records.isEmpty()) {
+                synchronized (segments) {
+                    segments.remove(segment.sequence);
+                }
+                Files.deleteIfExists(segment.file);
+            }
+        }
+        compactionCount.incrementAndGet();
+    }
+    
+    private void collectLatest(LogRecord record, Map<ByteBuffer, LogRecord> latestRecords) {
+        if (record.kind == CHECKPOINT_RECORD || record.lsn < checkpointLsn) {
+            return;
+        }
+        LogRecord latestRecord = latestRecords.get(record.key);
+        if (latestRecord == null || latestRecord.lsn < record.lsn) {
+            latestRecords.put(record.key, record);
+        }
+    }
+    
+    private static List<LogRecord> sortByLsn(Collection<LogRecord> records) {
+        List<LogRecord> sortedRecords = new ArrayList<LogRecord>(records);
+        Collections.sort(sortedRecords, new Comparator<LogRecord>() {
+            @Override
+            public int compare(LogRecord record1, LogRecord record2) {
+                return Long.compare(record1.lsn, record2.lsn);
+            }
+        });
+        return sortedRecords;
+    }
+    
+    private List<LogRecord> readSegment(Path file) throws IOException {
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return records;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CRC32 recordCrc = new CRC32();
+        while (buffer.remaining() >= RECORD_FRAME_SIZE + RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < RECORD_HEADER_SIZE || length > buffer.remaining()) {
+                // Torn record
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.limit(start + RECORD_FRAME_SIZE + length);
+            recordCrc.reset();
+            recordCrc.update(payload.duplicate());
+            if ((int) recordCrc.getValue() != checksum) {
+                break;
+            }
+            LogRecord record = new LogRecord();
+            record.lsn = payload.getLong();
+            record.kind = payload.get();
+            int keyLength = payload.getInt();
+            if (keyLength < 0 || keyLength > payload.remaining()) {
+                break;
+            }
+            record.key = payload.duplicate();
+            record.key.limit(payload.position() + keyLength);
+            record.value = payload.duplicate();
+            record.value.position(payload.position() + keyLength);
+            record.frame = buffer.duplicate();
+            record.frame.limit(start + RECORD_FRAME_SIZE + length).position(start);
+            records.add(record);
+            buffer.position(start + RECORD_FRAME_SIZE + length);
+        }
+        return records;
+    }
+    
+    private List<Segment> listSegments() throws IOException {
+        List<Segment> existingSegments = new ArrayList<Segment>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                if (fileName.endsWith(".tmp")) {
+                    // Left from an interrupted compaction
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                Matcher matcher = SEGMENT_PATTERN.matcher(fileName);
+                if (matcher.matches()) {
+                    existingSegments.add(new Segment(Long.parseLong(matcher.group(1)), file));
+                }
+            }
+        }
+        Collections.sort(existingSegments, new Comparator<Segment>() {
+            @Override
+            public int compare(Segment segment1, Segment segment2) {
+                return Long.compare(segment1.sequence, segment2.sequence);
+            }
+        });
+        return existingSegments;
+    }
+    
+    private void recover(CacheWriter writer) throws IOException {
+        Files.createDirectories(directory);
+        List<Segment> existingSegments = listSegments();
+        List<LogRecord> records = new ArrayList<LogRecord>();
+        long maxLsn = 0;
+        long latestCheckpointLsn = 0;
+        for (Segment segment : existingSegments) {
+            for (LogRecord record : readSegment(segment.file)) {
+                maxLsn = Math.max(maxLsn, record.lsn);
+                if (record.kind == CHECKPOINT_RECORD) {
+                    latestCheckpointLsn = Math.max(latestCheckpointLsn, record.value.duplicate().getLong());
+                } else {
+                    records.add(record);
+                }
+            }
+            segment.lastLsn = maxLsn;
+            segments.put(segment.sequence, segment);
+        }
+        lastLsn = maxLsn;
+        durableLsn = maxLsn;
+        checkpointLsn = latestCheckpointLsn;
+        // New mutations are always appended to a new segment, so torn records are never followed by valid ones
+        openSegment(existingSegments.isEmpty() ? 1 : existingSegments.get(existingSegments.size() - 1).sequence + 1);
+        
+        Map<ByteBuffer, LogRecord> latestRecords = new HashMap<ByteBuffer, LogRecord>();
+        for (LogRecord record : records) {
+            collectLatest(record, latestRecords);
+        }
+        List<Cache.Entry> writes = new ArrayList<Cache.Entry>();
+        List<Object> deletes = new ArrayList<Object>();
+        for (LogRecord record : sortByLsn(latestRecords.values())) {
+            Object key = keyCodec.decode(record.key.duplicate());
+            if (record.kind == WRITE_RECORD) {
+                writes.add(new RecoveredEntry(key, valueCodec.decode(record.value.duplicate())));
+            } else {
+                deletes.add(key);
+            }
+        }
+        if (!writes.isEmpty()) {
+            writer.writeAll(writes);
+        }
+        if (!deletes.isEmpty()) {
+            writer.deleteAll(deletes);
+        }
+        recoveredRecordCount = latestRecords.size();
+        
+        // All recovered mutations have been written, so they are not needed anymore
+        checkpointLsn = maxLsn + 1;
+        long checkpointRecordLsn = append(CHECKPOINT_RECORD, null, checkpointLsn);
+        sync(checkpointRecordLsn);
+        deleteObsoleteSegments();
+    }
+    
+    /**
+     * Releases the log. When it is released by all of its users, 
+     * appended mutations are made durable and the log is closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (LOGS) {
+            if (--referenceCount > 0) {
+                return;
+            }
+            LOGS.remove(directory);
+        }
+        long lsn;
+        synchronized (appendLock) {
+            closed = true;
+            lsn = lastLsn;
+        }
+        try {
+            sync(lsn);
+        } finally {
+            syncLock.lock();
+            try {
+                while (syncing) {
+                    syncDone.awaitUninterruptibly();
+                }
+                closeActiveChannel();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+    
+    private static class Segment {
+        
+        private final long sequence;
+        private final Path file;
+        private long lastLsn;
+        
+        private Segment(long sequence, Path file) {
+            this.sequence = sequence;
+            this.file = file;
+        }
+    
+    }
+    
+    private static class LogRecord {
+        
+        private long lsn;
+        private byte kind;
+        private ByteBuffer key;
+        private ByteBuffer value;
+        private ByteBuffer frame;
+    
+    }
+    
+    private static class RecoveredEntry implements Cache.Entry<Object, Object> {
+        
+        private final Object key;
+        private final Object value;
+        
+        private RecoveredEntry(Object key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+        
+        @Override
+        public Object getKey() {
+            return key;
+        }
+        
+        @Override
+        public Object getValue() {
+            return value;
+        }
+        
+        @Override
+        public <T> T unwrap(Class<T> clazz) {
+            if (clazz.isAssignableFrom(getClass())) {
+                return clazz.cast(this);
+            }
+            throw new IllegalArgumentException("Unwrapping to " + clazz + " is not supported!");
+        }
+    
+    }
+
+}
@@ -0,0 +1,92 @@
+package ua.com.jday2015.demo.jcache.wal;
+
+import java.io.File;
+import java.io.Serializable;
+
+import ua.com.jday2015.demo.jcache.codec.Codec;
+import ua.com.jday2015.demo.jcache.codec.SerializableCodec;
+
+/**
+ * Configuration of {@link WriteAheadLog}. 
+ * By default, segments are rolled at {@link #DEFAULT_MAX_SEGMENT_SIZE} bytes 
+ * and compacted when there are {@link #DEFAULT_COMPACTION_THRESHOLD} sealed segments. 
+ * 
+ * It is serializable, so it can be configured in cache writer factories.
+ * 
+ * @author Serkan OZAL
+ */
+@SuppressWarnings("serial")
+public class WriteAheadLogConfig implements Serializable {
+
+    public static final int DEFAULT_MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 4;
+    
+    private final File directory;
+    private int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private Codec<?> keyCodec = new SerializableCodec<Object>();
+    private Codec<?> valueCodec = new SerializableCodec<Object>();
+    
+    public WriteAheadLogConfig(File directory) {
+        if (directory == null) {
+            throw new NullPointerException("Directory cannot be null!");
+        }
+        this.directory = directory;
+    }
+    
+    public File getDirectory() {
+        return directory;
+    }
+    
+    public int getMaxSegmentSize() {
+        return maxSegmentSize;
+    }
+    
+    public WriteAheadLogConfig setMaxSegmentSize(int maxSegmentSize) {
+        if (maxSegmentSize <= 0) {
+            throw new IllegalArgumentException("Max segment size must be positive!");
+        }
+        this.maxSegmentSize = maxSegmentSize;
+        return this;
+    }
+    
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+    
+    /**
+     * Sets the number of sealed segments which triggers compaction of them into a single segment.
+     */
+    public WriteAheadLogConfig setCompactionThreshold(int compactionThreshold) {
+        if (compactionThreshold < 2) {
+            throw new IllegalArgumentException("Compaction threshold must be at least 2!");
+        }
+        this.compactionThreshold = compactionThreshold;
+        return this;
+    }
+    
+    public Codec<?> getKeyCodec() {
+        return keyCodec;
+    }
+    
+    public WriteAheadLogConfig setKeyCodec(Codec<?> keyCodec) {
+        if (keyCodec == null) {
+            throw new NullPointerException("Key codec cannot be null!");
+        }
+        this.keyCodec = keyCodec;
+        return this;
+    }
+    
+    public Codec<?> getValueCodec() {
+        return valueCodec;
+    }
+    
+    public WriteAheadLogConfig setValueCodec(Codec<?> valueCodec) {
+        if (valueCodec == null) {
+            throw new NullPointerException("Value codec cannot be null!");
+        }
+        this.valueCodec = valueCodec;
+        return this;
+    }
+    
+}
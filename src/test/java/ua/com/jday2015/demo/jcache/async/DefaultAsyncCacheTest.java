@@ -0,0 +1,165 @@
+package ua.com.jday2015.demo.jcache.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.hazelcast.cache.ICache;
+
+import ua.com.jday2015.demo.jcache.embedded.EmbeddedCachingProvider;
+import ua.com.jday2015.demo.jcache.support.DelegatingCache;
+
+/**
+ * Tests that asynchronous operations of {@link DefaultAsyncCache} over decorated Hazelcast caches 
+ * go through the decorators instead of the native operations of the unwrapped Hazelcast cache.
+ * 
+ * @author Serkan OZAL
+ */
+public class DefaultAsyncCacheTest {
+
+    private CacheManager cacheManager;
+    private Cache<String, String> store;
+    private ICache<String, String> hazelcastCache;
+    
+    @Before
+    public void setUp() {
+        cacheManager = new EmbeddedCachingProvider().getCacheManager();
+        store = cacheManager.createCache("test", 
+                new MutableConfiguration<String, String>().setTypes(String.class, String.class));
+        hazelcastCache = hazelcastCacheOf(store);
+    }
+    
+    @After
+    public void tearDown() {
+        cacheManager.close();
+    }
+    
+    /**
+     * Exposes the given cache as a Hazelcast cache whose native operations fail, 
+     * so operations sent to them are detected.
+     */
+    @SuppressWarnings("unchecked")
+    private static ICache<String, String> hazelcastCacheOf(final Cache<String, String> cache) {
+        return (ICache<String, String>) Proxy.newProxyInstance(
+                DefaultAsyncCacheTest.class.getClassLoader(), 
+                new Class<?>[] { ICache.class }, 
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("unwrap")) {
+                            return ((Class<?>) args[0]).cast(proxy);
+                        }
+                        if (!method.getDeclaringClass().isInstance(cache)) {
+                            throw new UnsupportedOperationException("Native operation " + method.getName());
+                        }
+                        try {
+                            return method.invoke(cache, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+    }
+    
+    @Test
+    public void asyncPutGoesThroughDecorator() {
+        RecordingCache decorated = new RecordingCache(hazelcastCache);
+        AsyncCache<String, String> asyncCache = new DefaultAsyncCache<String, String>(decorated);
+        
+        asyncCache.putAsync("a", "1").join();
+        assertTrue(asyncCache.putIfAbsentAsync("b", "2").join());
+        assertNull(asyncCache.getAndPutAsync("c", "3").join());
+        
+        assertEquals(Arrays.asList("put a", "putIfAbsent b", "getAndPut c"), decorated.operations);
+        assertEquals("1", store.get("a"));
+        assertEquals("2", store.get("b"));
+        assertEquals("3", store.get("c"));
+    }
+    
+    @Test
+    public void asyncReadAndRemoveGoThroughDecorator() {
+        store.put("a", "1");
+        store.put("b", "2");
+        RecordingCache decorated = new RecordingCache(hazelcastCache);
+        AsyncCache<String, String> asyncCache = new DefaultAsyncCache<String, String>(decorated);
+        
+        assertEquals("1", asyncCache.getAsync("a").join());
+        assertTrue(asyncCache.removeAsync("a").join());
+        assertFalse(asyncCache.replaceAsync("a", "3").join());
+        assertEquals("2", asyncCache.getAndRemoveAsync("b").join());
+        
+        assertEquals(Arrays.asList("get a", "remove a", "replace a", "getAndRemove b"), decorated.operations);
+        assertFalse(store.containsKey("a"));
+        assertFalse(store.containsKey("b"));
+    }
+    
+    private static class RecordingCache extends DelegatingCache<String, String> {
+        
+        private final List<String> operations = new CopyOnWriteArrayList<String>();
+        
+        private RecordingCache(Cache<String, String> delegate) {
+            super(delegate);
+        }
+        
+        @Override
+        public String get(String key) {
+            operations.add("get " + key);
+            return super.get(key);
+        }
+        
+        @Override
+        public void put(String key, String value) {
+            operations.add("put " + key);
+            super.put(key, value);
+        }
+        
+        @Override
+        public boolean putIfAbsent(String key, String value) {
+            operations.add("putIfAbsent " + key);
+            return super.putIfAbsent(key, value);
+        }
+        
+        @Override
+        public String getAndPut(String key, String value) {
+            operations.add("getAndPut " + key);
+            return super.getAndPut(key, value);
+        }
+        
+        @Override
+        public boolean replace(String key, String value) {
+            operations.add("replace " + key);
+            return super.replace(key, value);
+        }
+        
+        @Override
+        public boolean remove(String key) {
+            operations.add("remove " + key);
+            return super.remove(key);
+        }
+        
+        @Override
+        public String getAndRemove(String key) {
+            operations.add("getAndRemove " + key);
+            return super.getAndRemove(key);
+        }
+        
+    }
+    
+}
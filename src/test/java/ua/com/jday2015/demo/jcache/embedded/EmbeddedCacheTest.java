@@ -0,0 +1,556 @@
+package ua.com.jday2015.demo.jcache.embedded;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.configuration.MutableConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.Duration;
+import javax.cache.expiry.ExpiryPolicy;
+import javax.cache.integration.CacheLoader;
+import javax.cache.integration.CacheLoaderException;
+import javax.cache.integration.CacheWriter;
+import javax.cache.integration.CacheWriterException;
+import javax.cache.processor.EntryProcessor;
+import javax.cache.processor.MutableEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests expiry, read-through and write-through (including partial failures of batches) 
+ * and listener semantics of {@link EmbeddedCache}.
+ * 
+ * @author Serkan OZAL
+ */
+public class EmbeddedCacheTest {
+
+    private CacheManager cacheManager;
+    
+    @Before
+    public void setUp() {
+        // Every test has its own provider, so caches of the tests are isolated
+        cacheManager = new EmbeddedCachingProvider().getCacheManager();
+    }
+    
+    @After
+    public void tearDown() {
+        cacheManager.close();
+    }
+    
+    private Cache<String, String> createCache(MutableConfiguration<String, String> config) {
+        return cacheManager.createCache("test", config.setTypes(String.class, String.class));
+    }
+    
+    private static MutableCacheEntryListenerConfiguration<String, String> listenerConfig(
+            RecordingListener listener, KeyFilter filter, boolean synchronous) {
+        return new MutableCacheEntryListenerConfiguration<String, String>(
+                FactoryBuilder.factoryOf(listener),
+                filter != null ? FactoryBuilder.factoryOf(filter) : null,
+                true, synchronous);
+    }
+    
+    // *************************************************************************** //
+    
+    @Test
+    public void entryExpiresAfterCreationDuration() throws InterruptedException {
+        RecordingListener listener = new RecordingListener();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(
+                                        new Duration(TimeUnit.MILLISECONDS, 50)))
+                                .addCacheEntryListenerConfiguration(listenerConfig(listener, null, true)));
+        cache.put("1", "Value-1");
+        assertEquals("Value-1", cache.get("1"));
+        Thread.sleep(150);
+        assertFalse(cache.containsKey("1"));
+        assertNull(cache.get("1"));
+        assertEquals(Arrays.asList("CREATED 1 Value-1 null", "EXPIRED 1 Value-1 Value-1"), listener.events);
+    }
+    
+    @Test
+    public void entryCreatedWithZeroDurationIsNotStored() {
+        RecordingListener listener = new RecordingListener();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setExpiryPolicyFactory(CreatedExpiryPolicy.factoryOf(Duration.ZERO))
+                                .addCacheEntryListenerConfiguration(listenerConfig(listener, null, true)));
+        cache.put("1", "Value-1");
+        assertFalse(cache.containsKey("1"));
+        assertNull(cache.get("1"));
+        assertFalse(cache.iterator().hasNext());
+        assertTrue(listener.events.isEmpty());
+    }
+    
+    @Test
+    public void accessAndUpdateDurationsAreApplied() {
+        RecordingListener listener = new RecordingListener();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setExpiryPolicyFactory(FactoryBuilder.factoryOf(
+                                        new FixedExpiryPolicy(Duration.ETERNAL, Duration.ZERO, null)))
+                                .addCacheEntryListenerConfiguration(listenerConfig(listener, null, true)));
+        // Update with "null" duration keeps the expiry time, so the entry is still eternal
+        cache.put("1", "Value-1");
+        cache.put("1", "Value-1-2");
+        assertTrue(cache.containsKey("1"));
+        // Entry expires as soon as it is accessed
+        assertEquals("Value-1-2", cache.get("1"));
+        assertFalse(cache.containsKey("1"));
+        assertNull(cache.get("1"));
+        assertEquals(Arrays.asList("CREATED 1 Value-1 null",
+                                   "UPDATED 1 Value-1-2 Value-1",
+                                   "EXPIRED 1 Value-1-2 Value-1-2"),
+                     listener.events);
+    }
+    
+    // *************************************************************************** //
+    
+    @Test
+    public void readThroughLoadsMissingKeysInOneBatch() {
+        RecordingLoader loader = new RecordingLoader();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setReadThrough(true)
+                                .setCacheLoaderFactory(FactoryBuilder.factoryOf(loader)));
+        cache.put("1", "Cached-1");
+        assertEquals("Loaded-2", cache.get("2"));
+        assertEquals(Arrays.asList("2"), loader.loadedKeys);
+        
+        loader.loadedKeys.clear();
+        Map<String, String> values = cache.getAll(new HashSet<String>(Arrays.asList("1", "2", "3", "4")));
+        assertEquals(4, values.size());
+        assertEquals("Cached-1", values.get("1"));
+        assertEquals("Loaded-2", values.get("2"));
+        assertEquals("Loaded-3", values.get("3"));
+        assertEquals("Loaded-4", values.get("4"));
+        // Only the missing keys are loaded, all together
+        assertEquals(1, loader.loadAllCount);
+        assertEquals(new HashSet<String>(Arrays.asList("3", "4")), new HashSet<String>(loader.loadedKeys));
+        assertTrue(cache.containsKey("3"));
+    }
+    
+    @Test
+    public void readThroughFailureIsThrownAndNothingIsStored() {
+        RecordingLoader loader = new RecordingLoader();
+        loader.failingKeys.add("2");
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setReadThrough(true)
+                                .setCacheLoaderFactory(FactoryBuilder.factoryOf(loader)));
+        try {
+            cache.get("2");
+            fail("Loader failure must be thrown!");
+        } catch (CacheLoaderException e) {
+            // Expected
+        }
+        try {
+            cache.getAll(new HashSet<String>(Arrays.asList("1", "2")));
+            fail("Loader failure must be thrown!");
+        } catch (CacheLoaderException e) {
+            // Expected
+        }
+        assertFalse(cache.containsKey("1"));
+        assertFalse(cache.containsKey("2"));
+    }
+    
+    @Test
+    public void writeThroughFailureDoesNotStoreEntry() {
+        RecordingWriter writer = new RecordingWriter();
+        writer.failingKeys.add("2");
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setWriteThrough(true)
+                                .setCacheWriterFactory(FactoryBuilder.factoryOf(writer)));
+        cache.put("1", "Value-1");
+        try {
+            cache.put("2", "Value-2");
+            fail("Writer failure must be thrown!");
+        } catch (CacheWriterException e) {
+            // Expected
+        }
+        assertEquals("Value-1", writer.values.get("1"));
+        assertFalse(writer.values.containsKey("2"));
+        assertTrue(cache.containsKey("1"));
+        assertFalse(cache.containsKey("2"));
+        
+        writer.failingKeys.add("1");
+        try {
+            cache.remove("1");
+            fail("Writer failure must be thrown!");
+        } catch (CacheWriterException e) {
+            // Expected
+        }
+        assertTrue(cache.containsKey("1"));
+    }
+    
+    @Test
+    public void putAllStoresOnlyTheEntriesWrittenBeforeFailure() {
+        RecordingListener listener = new RecordingListener();
+        RecordingWriter writer = new RecordingWriter();
+        writer.failingKeys.add("3");
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setWriteThrough(true)
+                                .setCacheWriterFactory(FactoryBuilder.factoryOf(writer))
+                                .addCacheEntryListenerConfiguration(listenerConfig(listener, null, true)));
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        for (int i = 1; i <= 5; i++) {
+            entries.put(String.valueOf(i), "Value-" + i);
+        }
+        try {
+            cache.putAll(entries);
+            fail("Writer failure must be thrown!");
+        } catch (CacheWriterException e) {
+            // Expected
+        }
+        assertEquals(1, writer.writeAllCount);
+        // Writer stops at the failing entry, so it and the ones after it are neither written nor stored
+        for (int i = 1; i <= 5; i++) {
+            String key = String.valueOf(i);
+            assertEquals("Key " + key, i < 3, writer.values.containsKey(key));
+            assertEquals("Key " + key, i < 3, cache.containsKey(key));
+        }
+        assertEquals(Arrays.asList("CREATED 1 Value-1 null", "CREATED 2 Value-2 null"), listener.events);
+    }
+    
+    @Test
+    public void removeAllRemovesOnlyTheEntriesDeletedBeforeFailure() {
+        RecordingWriter writer = new RecordingWriter();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .setWriteThrough(true)
+                                .setCacheWriterFactory(FactoryBuilder.factoryOf(writer)));
+        Map<String, String> entries = new LinkedHashMap<String, String>();
+        for (int i = 1; i <= 5; i++) {
+            entries.put(String.valueOf(i), "Value-" + i);
+        }
+        cache.putAll(entries);
+        writer.failingKeys.add("3");
+        try {
+            cache.removeAll(entries.keySet());
+            fail("Writer failure must be thrown!");
+        } catch (CacheWriterException e) {
+            // Expected
+        }
+        assertEquals(1, writer.deleteAllCount);
+        for (int i = 1; i <= 5; i++) {
+            String key = String.valueOf(i);
+            assertEquals("Key " + key, i >= 3, writer.values.containsKey(key));
+            assertEquals("Key " + key, i >= 3, cache.containsKey(key));
+        }
+    }
+    
+    @Test
+    public void optimisticInvocationIsLockedOnReadThroughCache() {
+        RecordingLoader loader = new RecordingLoader();
+        EmbeddedCache<String, String> cache =
+                (EmbeddedCache<String, String>) createCache(
+                        new MutableConfiguration<String, String>()
+                                .setReadThrough(true)
+                                .setCacheLoaderFactory(FactoryBuilder.factoryOf(loader)));
+        cache.setInvokeMode(InvokeMode.OPTIMISTIC);
+        assertEquals("Loaded-1", cache.invoke("1", new AppendingProcessor(), "-2"));
+        // Loader is not called again by retries, since the processor is executed only once under the lock
+        assertEquals(Arrays.asList("1"), loader.loadedKeys);
+        assertEquals(0, cache.getContentionStatistics().getCommitCount());
+        assertEquals("Loaded-1-2", cache.get("1"));
+    }
+    
+    // *************************************************************************** //
+    
+    @Test
+    public void listenersReceiveFilteredEventsWithOldValues() {
+        RecordingListener listener = new RecordingListener();
+        RecordingListener filteredListener = new RecordingListener();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>()
+                                .addCacheEntryListenerConfiguration(listenerConfig(listener, null, true))
+                                .addCacheEntryListenerConfiguration(
+                                        listenerConfig(filteredListener, new KeyFilter("2"), true)));
+        cache.put("1", "Value-1");
+        cache.put("2", "Value-2");
+        cache.put("1", "Value-1-2");
+        assertFalse(cache.replace("1", "Value-1", "Value-1-3"));
+        cache.remove("1");
+        cache.getAndRemove("2");
+        // Removing an absent entry publishes nothing
+        cache.remove("3");
+        assertEquals(Arrays.asList("CREATED 1 Value-1 null",
+                                   "CREATED 2 Value-2 null",
+                                   "UPDATED 1 Value-1-2 Value-1",
+                                   "REMOVED 1 Value-1-2 Value-1-2",
+                                   "REMOVED 2 Value-2 Value-2"),
+                     listener.events);
+        assertEquals(Arrays.asList("CREATED 2 Value-2 null", "REMOVED 2 Value-2 Value-2"), filteredListener.events);
+    }
+    
+    @Test
+    public void synchronousListenerFailureIsThrownAfterTheUpdate() {
+        FailingListener listener = new FailingListener();
+        Cache<String, String> cache =
+                createCache(new MutableConfiguration<String, String>());
+        cache.registerCacheEntryListener(
+                new MutableCacheEntryListenerConfiguration<String, String>(
+                        FactoryBuilder.factoryOf(listener), null, false, true));
+        try {
+            cache.put("1", "Value-1");
+            fail("Listener failure must be thrown!");
+        } catch (CacheEntryListenerException e) {
+            // Expected
+        }
+        // Events are dispatched after the entry is updated, so the update is not rolled back
+        assertEquals("Value-1", cache.get("1"));
+    }
+    
+    @Test
+    public void asynchronousListenerFailureIsCounted() throws InterruptedException {
+        FailingListener listener = new FailingListener();
+        EmbeddedCache<String, String> cache =
+                (EmbeddedCache<String, String>) createCache(new MutableConfiguration<String, String>());
+        cache.registerCacheEntryListener(
+                new MutableCacheEntryListenerConfiguration<String, String>(
+                        FactoryBuilder.factoryOf(listener), null, false, false));
+        cache.put("1", "Value-1");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getFailedEventCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.getFailedEventCount());
+        assertEquals("Value-1", cache.get("1"));
+    }
+    
+    @Test
+    public void deregisteredListenerReceivesNoEvent() {
+        RecordingListener listener = new RecordingListener();
+        MutableCacheEntryListenerConfiguration<String, String> config = listenerConfig(listener, null, true);
+        Cache<String, String> cache = createCache(new MutableConfiguration<String, String>());
+        cache.registerCacheEntryListener(config);
+        cache.put("1", "Value-1");
+        cache.deregisterCacheEntryListener(config);
+        cache.put("2", "Value-2");
+        assertEquals(Arrays.asList("CREATED 1 Value-1 null"), listener.events);
+        
+        Iterator<Cache.Entry<String, String>> iterator = cache.iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        assertEquals(2, count);
+    }
+    
+    // *************************************************************************** //
+    
+    @SuppressWarnings("serial")
+    public static class FixedExpiryPolicy implements ExpiryPolicy, Serializable {
+        
+        private final Duration creation;
+        private final Duration access;
+        private final Duration update;
+        
+        public FixedExpiryPolicy(Duration creation, Duration access, Duration update) {
+            this.creation = creation;
+            this.access = access;
+            this.update = update;
+        }
+        
+        @Override
+        public Duration getExpiryForCreation() {
+            return creation;
+        }
+        
+        @Override
+        public Duration getExpiryForAccess() {
+            return access;
+        }
+        
+        @Override
+        public Duration getExpiryForUpdate() {
+            return update;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class RecordingListener
+            implements CacheEntryCreatedListener<String, String>, CacheEntryUpdatedListener<String, String>,
+                       CacheEntryRemovedListener<String, String>, CacheEntryExpiredListener<String, String>,
+                       Serializable {
+        
+        private final List<String> events = new ArrayList<String>();
+        
+        private void record(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+            for (CacheEntryEvent<? extends String, ? extends String> event : events) {
+                this.events.add(event.getEventType() + " " + event.getKey() + " "
+                                + event.getValue() + " " + event.getOldValue());
+            }
+        }
+        
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+            record(events);
+        }
+        
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+            record(events);
+        }
+        
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+            record(events);
+        }
+        
+        @Override
+        public void onExpired(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+            record(events);
+        }
+        
+    }
+    
+    public static class AppendingProcessor implements EntryProcessor<String, String, String> {
+        
+        @Override
+        public String process(MutableEntry<String, String> entry, Object... arguments) {
+            String value = entry.getValue();
+            entry.setValue(value + arguments[0]);
+            return value;
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class FailingListener implements CacheEntryCreatedListener<String, String>, Serializable {
+        
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends String, ? extends String>> events) {
+            throw new IllegalStateException("Listener failure!");
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class KeyFilter implements CacheEntryEventFilter<String, String>, Serializable {
+        
+        private final String key;
+        
+        public KeyFilter(String key) {
+            this.key = key;
+        }
+        
+        @Override
+        public boolean evaluate(CacheEntryEvent<? extends String, ? extends String> event) {
+            return key.equals(event.getKey());
+        }
+        
+    }
+    
+    @SuppressWarnings("serial")
+    public static class RecordingLoader implements CacheLoader<String, String>, Serializable {
+        
+        private final List<String> loadedKeys = new ArrayList<String>();
+        private final Set<String> failingKeys = new HashSet<String>();
+        private int loadAllCount;
+        
+        @Override
+        public String load(String key) throws CacheLoaderException {
+            if (failingKeys.contains(key)) {
+                throw new IllegalStateException("Unable to load " + key + "!");
+            }
+            loadedKeys.add(key);
+            return "Loaded-" + key;
+        }
+        
+        @Override
+        public Map<String, String> loadAll(Iterable<? extends String> keys) throws CacheLoaderException {
+            loadAllCount++;
+            Map<String, String> values = new HashMap<String, String>();
+            for (String key : keys) {
+                values.put(key, load(key));
+            }
+            return values;
+        }
+        
+    }
+    
+    /**
+     * Writer which fails at the first failing key of a batch, 
+     * so the entries (keys) before it are handled and removed from the batch as the spec requires.
+     */
+    @SuppressWarnings("serial")
+    public static class RecordingWriter implements CacheWriter<String, String>, Serializable {
+        
+        private final Map<String, String> values = new HashMap<String, String>();
+        private final Set<String> failingKeys = new HashSet<String>();
+        private int writeAllCount;
+        private int deleteAllCount;
+        
+        @Override
+        public void write(Cache.Entry<? extends String, ? extends String> entry) throws CacheWriterException {
+            if (failingKeys.contains(entry.getKey())) {
+                throw new CacheWriterException("Unable to write " + entry.getKey() + "!");
+            }
+            values.put(entry.getKey(), entry.getValue());
+        }
+        
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends String, ? extends String>> entries)
+                throws CacheWriterException {
+            writeAllCount++;
+            Iterator<Cache.Entry<? extends String, ? extends String>> iterator = entries.iterator();
+            while (iterator.hasNext()) {
+                write(iterator.next());
+                iterator.remove();
+            }
+        }
+        
+        @Override
+        public void delete(Object key) throws CacheWriterException {
+            if (failingKeys.contains(key)) {
+                throw new CacheWriterException("Unable to delete " + key + "!");
+            }
+            values.remove(key);
+        }
+        
+        @Override
+        public void deleteAll(Collection<?> keys) throws CacheWriterException {
+            deleteAllCount++;
+            Iterator<?> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                delete(iterator.next());
+                iterator.remove();
+            }
+        }
+        
+    }
+
+}
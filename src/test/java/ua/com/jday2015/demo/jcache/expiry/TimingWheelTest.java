@@ -0,0 +1,204 @@
+package ua.com.jday2015.demo.jcache.expiry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ua.com.jday2015.demo.jcache.expiry.TimingWheel.Node;
+
+/**
+ * Tests {@link TimingWheel} against a reference model which simply keeps the deadlines of the scheduled elements.
+ * 
+ * Deadlines and advances are picked randomly from ranges which hit every level, 
+ * so elements are cascaded across levels, and beyond the top level, so elements overflow the wheel.
+ * 
+ * @author Serkan OZAL
+ */
+public class TimingWheelTest {
+
+    private static final int SEEDS = 20;
+    private static final int OPERATIONS = 20000;
+    private static final long TOP_LEVEL_SPAN = 1L << (TimingWheel.BUCKET_BITS * TimingWheel.LEVELS);
+    
+    @Test
+    public void elementsExpireAtTheirDeadlines() {
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(0);
+        List<Node<Integer>> nodes = new ArrayList<Node<Integer>>();
+        for (int i = 0; i < 1000; i++) {
+            Node<Integer> node = new Node<Integer>(i);
+            wheel.schedule(node, i);
+            nodes.add(node);
+        }
+        assertEquals(1000, wheel.size());
+        List<Integer> expired = new ArrayList<Integer>();
+        for (int tick = 1; tick < 1000; tick++) {
+            expired.clear();
+            wheel.advance(tick, expired);
+            // Element "0" was already due, so it expires at the first advance together with "1"
+            Set<Integer> expected = new HashSet<Integer>();
+            expected.add(tick);
+            if (tick == 1) {
+                expected.add(0);
+            }
+            assertEquals("Expired at tick " + tick, expected, new HashSet<Integer>(expired));
+        }
+        assertEquals(0, wheel.size());
+        for (Node<Integer> node : nodes) {
+            assertFalse(node.isScheduled());
+        }
+    }
+    
+    @Test
+    public void cancelledAndRescheduledElementsDontExpireAtTheirOldDeadlines() {
+        TimingWheel<String> wheel = new TimingWheel<String>(0);
+        Node<String> cancelled = new Node<String>("cancelled");
+        Node<String> rescheduled = new Node<String>("rescheduled");
+        wheel.schedule(cancelled, 100);
+        wheel.schedule(rescheduled, 100);
+        wheel.cancel(cancelled);
+        wheel.schedule(rescheduled, 5000);
+        assertFalse(cancelled.isScheduled());
+        assertTrue(rescheduled.isScheduled());
+        assertEquals(1, wheel.size());
+        
+        List<String> expired = new ArrayList<String>();
+        wheel.advance(4999, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(5000, expired);
+        assertEquals(1, expired.size());
+        assertEquals("rescheduled", expired.get(0));
+        assertEquals(0, wheel.size());
+    }
+    
+    @Test
+    public void elementsBeyondTopLevelExpireAtTheirDeadlines() {
+        long start = 12345;
+        TimingWheel<String> wheel = new TimingWheel<String>(start);
+        Node<String> node = new Node<String>("far");
+        long deadline = start + 3 * TOP_LEVEL_SPAN + 17;
+        wheel.schedule(node, deadline);
+        
+        List<String> expired = new ArrayList<String>();
+        // Advance in steps smaller than the top level span, so the element is rescheduled on the way
+        for (long tick = start; tick < deadline - 1; tick = Math.min(deadline - 1, tick + TOP_LEVEL_SPAN / 3)) {
+            wheel.advance(tick, expired);
+            assertTrue("Expired early at tick " + tick, expired.isEmpty());
+        }
+        wheel.advance(deadline - 1, expired);
+        assertTrue(expired.isEmpty());
+        wheel.advance(deadline, expired);
+        assertEquals(1, expired.size());
+    }
+    
+    @Test
+    public void randomizedOperationsMatchReferenceModel() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            runRandomized(seed);
+        }
+    }
+    
+    private static long randomDelay(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                // Already due
+                return -random.nextInt(100);
+            case 1:
+                // Level 0
+                return random.nextInt(TimingWheel.BUCKETS);
+            case 2:
+                // Level 1
+                return random.nextInt(TimingWheel.BUCKETS * TimingWheel.BUCKETS);
+            case 3:
+                // Any level
+                return (long) (random.nextDouble() * TOP_LEVEL_SPAN);
+            case 4:
+                // Beyond the top level
+                return TOP_LEVEL_SPAN + (long) (random.nextDouble() * 3 * TOP_LEVEL_SPAN);
+            default:
+                // Around bucket and level boundaries
+                int level = random.nextInt(TimingWheel.LEVELS);
+                return (1L << (TimingWheel.BUCKET_BITS * level)) * (1 + random.nextInt(TimingWheel.BUCKETS))
+                       + random.nextInt(3) - 1;
+        }
+    }
+    
+    private static long randomAdvance(Random random) {
+        switch (random.nextInt(10)) {
+            case 0:
+                return (long) (random.nextDouble() * TOP_LEVEL_SPAN);
+            case 1:
+                return (long) (random.nextDouble() * 2 * TOP_LEVEL_SPAN);
+            case 2:
+                return random.nextInt(TimingWheel.BUCKETS * TimingWheel.BUCKETS * TimingWheel.BUCKETS);
+            case 3:
+                return 0;
+            default:
+                return 1 + random.nextInt(2 * TimingWheel.BUCKETS);
+        }
+    }
+    
+    private static void runRandomized(int seed) {
+        Random random = new Random(seed);
+        long start = random.nextInt(1 << 20);
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(start);
+        // Reference model: deadlines of the scheduled elements
+        Map<Integer, Long> deadlines = new HashMap<Integer, Long>();
+        List<Node<Integer>> nodes = new ArrayList<Node<Integer>>();
+        List<Integer> expired = new ArrayList<Integer>();
+        for (int op = 0; op < OPERATIONS; op++) {
+            String context = "Seed " + seed + ", operation " + op;
+            long now = wheel.getCurrentTick();
+            int choice = random.nextInt(10);
+            if (choice < 4 || nodes.isEmpty()) {
+                Node<Integer> node = new Node<Integer>(nodes.size());
+                long deadline = now + randomDelay(random);
+                wheel.schedule(node, deadline);
+                deadlines.put(node.getElement(), deadline);
+                nodes.add(node);
+            } else if (choice < 6) {
+                Node<Integer> node = nodes.get(random.nextInt(nodes.size()));
+                long deadline = now + randomDelay(random);
+                wheel.schedule(node, deadline);
+                deadlines.put(node.getElement(), deadline);
+            } else if (choice < 7) {
+                Node<Integer> node = nodes.get(random.nextInt(nodes.size()));
+                wheel.cancel(node);
+                deadlines.remove(node.getElement());
+            } else {
+                long tick = now + randomAdvance(random);
+                expired.clear();
+                wheel.advance(tick, expired);
+                Set<Integer> expected = new HashSet<Integer>();
+                Iterator<Map.Entry<Integer, Long>> iterator = deadlines.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Integer, Long> entry = iterator.next();
+                    // Elements already due when they were scheduled expire at the next advance
+                    if (entry.getValue() <= tick && tick > now) {
+                        expected.add(entry.getKey());
+                        iterator.remove();
+                    }
+                }
+                Set<Integer> actual = new HashSet<Integer>(expired);
+                assertEquals(context + ": duplicate expirations", expired.size(), actual.size());
+                assertEquals(context + ": expired elements at tick " + tick, expected, actual);
+            }
+            assertEquals(context + ": size", deadlines.size(), wheel.size());
+        }
+        for (Node<Integer> node : nodes) {
+            assertEquals("Seed " + seed + ": scheduled state of " + node.getElement(),
+                         deadlines.containsKey(node.getElement()), node.isScheduled());
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+package ua.com.jday2015.demo.jcache.intkey;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.cache.Cache;
+import javax.cache.configuration.FactoryBuilder;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryListenerException;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+import javax.cache.event.EventType;
+import javax.cache.integration.CompletionListener;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests probing, rehashing, entry processors and the {@link Cache} view of {@link IntKeyCache}.
+ * 
+ * @author Serkan OZAL
+ */
+public class IntKeyCacheTest {
+
+    private static final int INITIAL_CAPACITY = 16;
+    
+    // Single segment, so all keys share the same table and lock
+    private final IntKeyCache<String> cache =
+            new IntKeyCache<String>("test", String.class, 1, INITIAL_CAPACITY);
+    
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+    
+    @Test
+    public void putGetAndRemove() {
+        assertNull(cache.getAndPut(1, "Value-1"));
+        assertEquals("Value-1", cache.getAndPut(1, "Value-1-2"));
+        assertFalse(cache.putIfAbsent(1, "Value-1-3"));
+        assertTrue(cache.putIfAbsent(2, "Value-2"));
+        assertEquals("Value-1-2", cache.get(1));
+        assertEquals(2, cache.size());
+        
+        assertTrue(cache.replace(1, "Value-1-2", "Value-1-4"));
+        assertFalse(cache.replace(1, "Value-1-2", "Value-1-5"));
+        assertFalse(cache.replace(3, "Value-3"));
+        
+        assertEquals("Value-1-4", cache.getAndRemove(1));
+        assertFalse(cache.remove(1));
+        assertNull(cache.get(1));
+        assertFalse(cache.containsKey(1));
+        assertEquals(1, cache.size());
+    }
+    
+    @Test
+    public void removalDoesNotBreakProbeSequence() {
+        // Keys after the removed ones in the same probe sequence stay reachable
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        for (int i = 0; i < 10; i += 2) {
+            cache.remove(i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 2 == 0 ? null : "Value-" + i, cache.get(i));
+        }
+        // Removed slots are reused without duplicating the keys which are still there
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "Value-" + i + "-2");
+        }
+        assertEquals(10, cache.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Value-" + i + "-2", cache.get(i));
+        }
+    }
+    
+    @Test
+    public void tableGrowsAndSurvivesChurn() {
+        int count = INITIAL_CAPACITY * 64;
+        for (int i = 0; i < count; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        assertEquals(count, cache.size());
+        // Removing and inserting different keys fills the table with removed slots, which are cleaned by rehash
+        for (int round = 1; round <= 10; round++) {
+            for (int i = 0; i < count; i++) {
+                cache.remove((round - 1) * count + i);
+                cache.put(round * count + i, "Value-" + i);
+            }
+            assertEquals(count, cache.size());
+        }
+        for (int i = 0; i < count; i++) {
+            assertNull(cache.get(i));
+            assertEquals("Value-" + i, cache.get(10 * count + i));
+        }
+    }
+    
+    @Test
+    public void entryProcessorCanAccessOtherKeysOfTheSameSegment() {
+        cache.put(0, "Value-0");
+        // Processor inserts enough keys to make the segment rehash while its own entry is being processed
+        String result = cache.invoke(0, new IntEntryProcessor<String, String>() {
+            @Override
+            public String process(IntMutableEntry<String> entry, Object... arguments) {
+                for (int i = 1; i <= INITIAL_CAPACITY * 4; i++) {
+                    cache.put(i, "Value-" + i);
+                }
+                String current = entry.getValue();
+                entry.setValue(current + "-2");
+                return current;
+            }
+        });
+        assertEquals("Value-0", result);
+        assertEquals("Value-0-2", cache.get(0));
+        assertEquals(INITIAL_CAPACITY * 4 + 1, cache.size());
+        for (int i = 1; i <= INITIAL_CAPACITY * 4; i++) {
+            assertEquals("Value-" + i, cache.get(i));
+        }
+    }
+    
+    @Test
+    public void nestedEntryProcessorsKeepTheirOwnEntries() {
+        cache.invoke(1, new IntEntryProcessor<String, Void>() {
+            @Override
+            public Void process(IntMutableEntry<String> entry, Object... arguments) {
+                cache.invoke(2, new IntEntryProcessor<String, Void>() {
+                    @Override
+                    public Void process(IntMutableEntry<String> entry, Object... arguments) {
+                        entry.setValue("Value-2");
+                        return null;
+                    }
+                });
+                assertEquals(1, entry.getKey());
+                assertFalse(entry.exists());
+                entry.setValue("Value-1");
+                return null;
+            }
+        });
+        assertEquals("Value-1", cache.get(1));
+        assertEquals("Value-2", cache.get(2));
+        assertEquals(2, cache.size());
+    }
+    
+    @Test
+    public void entryProcessorRemovesAndLeavesEntries() {
+        cache.put(1, "Value-1");
+        cache.invoke(1, new IntEntryProcessor<String, Void>() {
+            @Override
+            public Void process(IntMutableEntry<String> entry, Object... arguments) {
+                entry.remove();
+                return null;
+            }
+        });
+        assertNull(cache.get(1));
+        // Only reading the entry doesn't change anything
+        cache.invoke(2, new IntEntryProcessor<String, Void>() {
+            @Override
+            public Void process(IntMutableEntry<String> entry, Object... arguments) {
+                assertFalse(entry.exists());
+                return null;
+            }
+        });
+        assertEquals(0, cache.size());
+    }
+    
+    @Test
+    public void iteratorRemovesLastReturnedEntry() {
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "Value-" + i);
+        }
+        Iterator<Cache.Entry<Integer, String>> iterator = cache.asCache().iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            Cache.Entry<Integer, String> entry = iterator.next();
+            assertEquals("Value-" + entry.getKey(), entry.getValue());
+            if (entry.getKey() % 2 == 0) {
+                iterator.remove();
+            }
+            count++;
+        }
+        assertEquals(10, count);
+        assertEquals(5, cache.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 2 == 0 ? null : "Value-" + i, cache.get(i));
+        }
+    }
+    
+    @Test
+    public void listenersReceiveEventsOfTheView() {
+        RecordingListener.EVENTS.clear();
+        MutableCacheEntryListenerConfiguration<Integer, String> listenerConfig =
+                new MutableCacheEntryListenerConfiguration<Integer, String>(
+                        FactoryBuilder.factoryOf(RecordingListener.class), null, true, true);
+        Cache<Integer, String> view = cache.asCache();
+        view.registerCacheEntryListener(listenerConfig);
+        
+        view.put(1, "Value-1");
+        cache.put(1, "Value-1-2");
+        cache.invoke(2, new IntEntryProcessor<String, Void>() {
+            @Override
+            public Void process(IntMutableEntry<String> entry, Object... arguments) {
+                entry.setValue("Value-2");
+                return null;
+            }
+        });
+        view.remove(1);
+        view.removeAll();
+        
+        List<String> expected = new ArrayList<String>();
+        expected.add("CREATED 1 Value-1 null");
+        expected.add("UPDATED 1 Value-1-2 Value-1");
+        expected.add("CREATED 2 Value-2 null");
+        expected.add("REMOVED 1 Value-1-2 Value-1-2");
+        expected.add("REMOVED 2 Value-2 Value-2");
+        assertEquals(expected, RecordingListener.EVENTS);
+        
+        view.deregisterCacheEntryListener(listenerConfig);
+        view.put(3, "Value-3");
+        assertEquals(expected.size(), RecordingListener.EVENTS.size());
+    }
+    
+    @Test(expected = CacheEntryListenerException.class)
+    public void synchronousListenerFailureIsThrownToCaller() {
+        cache.asCache().registerCacheEntryListener(
+                new MutableCacheEntryListenerConfiguration<Integer, String>(
+                        FactoryBuilder.factoryOf(FailingListener.class), null, false, true));
+        cache.put(1, "Value-1");
+    }
+    
+    @Test
+    public void loadAllCompletesWithoutLoader() {
+        final AtomicBoolean completed = new AtomicBoolean();
+        cache.asCache().loadAll(Collections.singleton(1), true, new CompletionListener() {
+            @Override
+            public void onCompletion() {
+                completed.set(true);
+            }
+            @Override
+            public void onException(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        assertTrue(completed.get());
+        assertNull(cache.get(1));
+    }
+    
+    public static class RecordingListener
+            implements CacheEntryCreatedListener<Integer, String>,
+                       CacheEntryUpdatedListener<Integer, String>,
+                       CacheEntryRemovedListener<Integer, String> {
+        
+        private static final List<String> EVENTS = new ArrayList<String>();
+        
+        private static void record(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            for (CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                EVENTS.add(event.getEventType() + " " + event.getKey() + " "
+                           + event.getValue() + " " + event.getOldValue());
+            }
+        }
+        
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+        
+        @Override
+        public void onUpdated(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+        
+        @Override
+        public void onRemoved(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            record(events);
+        }
+        
+    }
+    
+    public static class FailingListener implements CacheEntryCreatedListener<Integer, String> {
+        
+        @Override
+        public void onCreated(Iterable<CacheEntryEvent<? extends Integer, ? extends String>> events) {
+            for (CacheEntryEvent<? extends Integer, ? extends String> event : events) {
+                if (event.getEventType() == EventType.CREATED) {
+                    throw new IllegalStateException("Listener failure!");
+                }
+            }
+        }
+        
+    }
+
+}
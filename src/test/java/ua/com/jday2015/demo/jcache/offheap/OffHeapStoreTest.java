@@ -0,0 +1,142 @@
+package ua.com.jday2015.demo.jcache.offheap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ua.com.jday2015.demo.jcache.codec.IntegerCodec;
+import ua.com.jday2015.demo.jcache.codec.StringCodec;
+
+/**
+ * Tests removal, slab reuse and growth of {@link OffHeapStore}.
+ * 
+ * @author Serkan OZAL
+ */
+public class OffHeapStoreTest {
+
+    private static final int SLAB_SIZE = 4096;
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private final OffHeapStore<Integer, String> store = 
+            new OffHeapStore<Integer, String>(IntegerCodec.INSTANCE, StringCodec.INSTANCE, 
+                                              1, SLAB_SIZE, INITIAL_CAPACITY);
+    
+    @After
+    public void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    public void putGetAndRemove() {
+        assertFalse(store.put(1, "Value-1"));
+        assertTrue(store.put(1, "Value-1-2"));
+        assertEquals("Value-1-2", store.get(1));
+        assertTrue(store.containsKey(1));
+        assertEquals(1, store.size());
+        
+        assertTrue(store.remove(1));
+        assertFalse(store.remove(1));
+        assertNull(store.get(1));
+        assertFalse(store.containsKey(1));
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+    }
+    
+    @Test
+    public void removalDoesNotBreakProbeSequence() {
+        // Keys in the same probe sequence stay reachable when the ones before them are removed
+        for (int i = 0; i < 10; i++) {
+            store.put(i, "Value-" + i);
+        }
+        for (int i = 0; i < 10; i += 2) {
+            store.remove(i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 2 == 0 ? null : "Value-" + i, store.get(i));
+        }
+        assertEquals(5, store.size());
+    }
+    
+    @Test
+    public void freedRecordsAreReused() {
+        for (int i = 0; i < 100; i++) {
+            store.put(i, "Value-" + i);
+        }
+        // Let the index reach its steady capacity first
+        for (int round = 0; round < 5; round++) {
+            replaceAll(round);
+        }
+        long allocatedBytes = store.getAllocatedBytes();
+        long usedBytes = store.getUsedBytes();
+        
+        // Removed records are reused by the new ones of the same block size, 
+        // and tombstones are purged instead of growing the index
+        for (int round = 5; round < 15; round++) {
+            replaceAll(round);
+        }
+        
+        assertEquals(100, store.size());
+        assertEquals(allocatedBytes, store.getAllocatedBytes());
+        assertEquals(usedBytes, store.getUsedBytes());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Value-" + i, store.get(1500 + i));
+        }
+    }
+    
+    private void replaceAll(int round) {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(store.remove(round * 100 + i));
+            assertFalse(store.put((round + 1) * 100 + i, "Value-" + i));
+        }
+    }
+    
+    @Test
+    public void updatedRecordIsMovedToLargerBlock() {
+        store.put(1, "v");
+        long usedBytes = store.getUsedBytes();
+        String largeValue = new String(new char[1000]).replace('\0', 'v');
+        store.put(1, largeValue);
+        
+        assertEquals(largeValue, store.get(1));
+        assertTrue(store.getUsedBytes() > usedBytes);
+        
+        store.put(1, "v");
+        assertEquals("v", store.get(1));
+        assertEquals(usedBytes, store.getUsedBytes());
+    }
+    
+    @Test
+    public void growsPastInitialCapacityAndSlabSize() {
+        int entryCount = 100 * INITIAL_CAPACITY;
+        for (int i = 0; i < entryCount; i++) {
+            store.put(i, "Value-" + i);
+        }
+        
+        assertEquals(entryCount, store.size());
+        assertTrue(store.getAllocatedBytes() > 10 * SLAB_SIZE);
+        for (int i = 0; i < entryCount; i++) {
+            assertEquals("Value-" + i, store.get(i));
+        }
+    }
+    
+    @Test
+    public void clearReleasesAllEntries() {
+        for (int i = 0; i < 1000; i++) {
+            store.put(i, "Value-" + i);
+        }
+        store.clear();
+        
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+        assertNull(store.get(1));
+        
+        // Store can still be used after it is cleared
+        store.put(1, "Value-1");
+        assertEquals("Value-1", store.get(1));
+    }
+
+}
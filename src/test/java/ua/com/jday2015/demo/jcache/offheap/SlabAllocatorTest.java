@@ -0,0 +1,105 @@
+package ua.com.jday2015.demo.jcache.offheap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests block reuse and slab growth of {@link SlabAllocator}.
+ * 
+ * @author Serkan OZAL
+ */
+public class SlabAllocatorTest {
+
+    private static final int SLAB_SIZE = 1024;
+    
+    @Test
+    public void freedBlockIsReusedForSameBlockSize() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE);
+        long address = allocator.allocate(100);
+        allocator.allocate(100);
+        allocator.free(address, 100);
+        
+        // 100 and 120 bytes are both in 128 bytes blocks
+        assertEquals(address, allocator.allocate(120));
+        assertEquals(256, allocator.getUsedBytes());
+    }
+    
+    @Test
+    public void freedBlockIsNotReusedForOtherBlockSize() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE);
+        long address = allocator.allocate(100);
+        allocator.free(address, 100);
+        
+        assertNotEquals(address, allocator.allocate(200));
+        assertEquals(address, allocator.allocate(65));
+    }
+    
+    @Test
+    public void freedBlocksAreReusedInLifoOrder() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE);
+        long address1 = allocator.allocate(16);
+        long address2 = allocator.allocate(16);
+        allocator.free(address1, 16);
+        allocator.free(address2, 16);
+        
+        assertEquals(address2, allocator.allocate(16));
+        assertEquals(address1, allocator.allocate(16));
+        assertEquals(32, allocator.getUsedBytes());
+    }
+    
+    @Test
+    public void newSlabIsAllocatedWhenCurrentOneIsFull() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE);
+        Set<Long> addresses = new HashSet<Long>();
+        for (int i = 0; i < 3 * SLAB_SIZE / 64; i++) {
+            long address = allocator.allocate(64);
+            assertTrue("Address " + address + " is allocated twice", addresses.add(address));
+            assertFalse(address == SlabAllocator.NULL_ADDRESS);
+        }
+        
+        assertEquals(4 * SLAB_SIZE, allocator.getAllocatedBytes());
+        assertEquals(3 * SLAB_SIZE, allocator.getUsedBytes());
+    }
+    
+    @Test
+    public void tailOfFullSlabIsReused() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE);
+        // First 16 bytes of the first slab are reserved, so the last 512 bytes block doesn't fit
+        long address1 = allocator.allocate(512);
+        long address2 = allocator.allocate(512);
+        assertEquals(0, address1 >>> 32);
+        assertEquals(1, address2 >>> 32);
+        
+        // Tail of the first slab is given to the free lists
+        long address3 = allocator.allocate(256);
+        assertEquals(0, address3 >>> 32);
+        assertEquals(2 * SLAB_SIZE, allocator.getAllocatedBytes());
+    }
+    
+    @Test
+    public void releaseDropsAllSlabs() {
+        SlabAllocator allocator = new SlabAllocator(SLAB_SIZE);
+        long address = allocator.allocate(100);
+        allocator.free(address, 100);
+        allocator.release();
+        
+        assertEquals(0, allocator.getAllocatedBytes());
+        assertEquals(0, allocator.getUsedBytes());
+        // Free lists are dropped too, so a new block is allocated from a new slab
+        allocator.allocate(100);
+        assertEquals(SLAB_SIZE, allocator.getAllocatedBytes());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void blockLargerThanSlabCannotBeAllocated() {
+        new SlabAllocator(SLAB_SIZE).allocate(SLAB_SIZE + 1);
+    }
+
+}
@@ -0,0 +1,107 @@
+package ua.com.jday2015.demo.jcache.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.cache.Cache;
+import javax.cache.integration.CacheWriter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests recovery of {@link WriteAheadLog} by reopening the log on the same directory.
+ * 
+ * @author Serkan OZAL
+ */
+public class WriteAheadLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private WriteAheadLogConfig config() {
+        return new WriteAheadLogConfig(folder.getRoot());
+    }
+    
+    private Map<Object, Object> recover() throws IOException {
+        RecordingWriter writer = new RecordingWriter();
+        WriteAheadLog log = WriteAheadLog.open(config(), writer);
+        log.close();
+        return writer.entries;
+    }
+    
+    @Test
+    public void latestMutationPerKeyIsReplayedOnRecovery() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(config(), new RecordingWriter());
+        log.appendWrite("a", "1");
+        log.appendWrite("b", "2");
+        log.appendWrite("a", "3");
+        log.sync(log.appendDelete("b"));
+        log.close();
+        
+        Map<Object, Object> expected = new HashMap<Object, Object>();
+        expected.put("a", "3");
+        assertEquals(expected, recover());
+    }
+    
+    @Test
+    public void failedEncodingDoesNotHideLaterMutationsOnRecovery() throws IOException {
+        WriteAheadLog log = WriteAheadLog.open(config(), new RecordingWriter());
+        long lsn = log.appendWrite("a", "1");
+        try {
+            // Key is encoded before the value fails to be serialized
+            log.appendWrite("b", new Object());
+            fail("Non-serializable value should have been rejected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        assertEquals(lsn, log.getLastLsn());
+        log.sync(log.appendWrite("c", "3"));
+        log.close();
+        
+        Map<Object, Object> expected = new HashMap<Object, Object>();
+        expected.put("a", "1");
+        expected.put("c", "3");
+        assertEquals(expected, recover());
+    }
+    
+    private static class RecordingWriter implements CacheWriter<Object, Object> {
+        
+        private final Map<Object, Object> entries = new HashMap<Object, Object>();
+        
+        @Override
+        public void write(Cache.Entry<? extends Object, ? extends Object> entry) {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        
+        @Override
+        public void writeAll(Collection<Cache.Entry<? extends Object, ? extends Object>> entries) {
+            for (Iterator<Cache.Entry<? extends Object, ? extends Object>> i = entries.iterator(); i.hasNext();) {
+                write(i.next());
+                i.remove();
+            }
+        }
+        
+        @Override
+        public void delete(Object key) {
+            entries.remove(key);
+        }
+        
+        @Override
+        public void deleteAll(Collection<?> keys) {
+            for (Iterator<?> i = keys.iterator(); i.hasNext();) {
+                delete(i.next());
+                i.remove();
+            }
+        }
+        
+    }
+    
+}